@@ -1,10 +1,12 @@
 package com.syncstudy.BL;
 
 import com.syncstudy.BL.ProfileManager.ProfileDAO;
+import com.syncstudy.BL.SessionManager.ChatSessionDAO;
 import com.syncstudy.BL.SessionManager.UserDAO;
 import com.syncstudy.BL.AdminManager.AdminDAO;
 import com.syncstudy.BL.GroupManager.GroupDAO;
 import com.syncstudy.BL.GroupManager.CategoryDAO;
+import com.syncstudy.BL.GroupManager.NotificationDAO;
 
 /**
  * Abstract Factory for creating DAO instances
@@ -32,4 +34,11 @@ public abstract class AbstractFactory {
 
     public abstract ProfileDAO createProfileDAO();
     public abstract CategoryDAO createCategoryDAO();
+    public abstract NotificationDAO createNotificationDAO();
+
+    /**
+     * Creates a ChatSessionDAO instance
+     * @return ChatSessionDAO implementation
+     */
+    public abstract ChatSessionDAO createChatSessionDAO();
 }
\ No newline at end of file
@@ -20,6 +20,19 @@ public abstract class AdminDAO {
      */
     public abstract List<User> getAllUsers(String searchQuery, String statusFilter, String sortBy, int page, int pageSize);
 
+    /**
+     * Get the page of users that follows a given user in the sort order (keyset pagination)
+     * @param searchQuery search term for name or email
+     * @param statusFilter "All", "Active", or "Blocked"
+     * @param sortBy field to sort by
+     * @param after last user of an earlier page, or null to start from the first user
+     * @param skip users to skip after it, when jumping past pages never loaded
+     * @param pageSize number of users per page
+     * @return list of users matching criteria
+     */
+    public abstract List<User> getUsersPage(String searchQuery, String statusFilter, String sortBy,
+                                            User after, int skip, int pageSize);
+
     /**
      * Get total count of users matching criteria
      * @param searchQuery search term
@@ -2,6 +2,7 @@ package com.syncstudy.BL.AdminManager;
 
 import com.syncstudy.BL.SessionManager.User;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Singleton Facade providing simplified interface for admin operations
@@ -71,6 +72,21 @@ public class AdminFacade {
         return getAllUsers(searchQuery, statusFilter, sortBy, 0, 20);
     }
 
+    /**
+     * Get the users following a given user in the sort order (keyset pagination)
+     * @param searchQuery search term for name or email
+     * @param statusFilter "All", "Active", or "Blocked"
+     * @param sortBy field to sort by
+     * @param after last user of an earlier page, or null for the first page
+     * @param skip users to skip after it, when jumping past pages never loaded
+     * @param pageSize users per page
+     * @return list of users
+     */
+    public List<User> getUsersPage(String searchQuery, String statusFilter, String sortBy,
+                                   User after, int skip, int pageSize) {
+        return adminManager.getUsersPage(searchQuery, statusFilter, sortBy, after, skip, pageSize);
+    }
+
     /**
      * Get total users count for pagination
      * @param searchQuery search term
@@ -81,6 +97,26 @@ public class AdminFacade {
         return adminManager.getTotalUsersCount(searchQuery, statusFilter);
     }
 
+    /**
+     * Last known users count, possibly stale
+     * @param searchQuery search term
+     * @param statusFilter status filter
+     * @return the count, or null if not counted yet
+     */
+    public Integer getCachedUsersCount(String searchQuery, String statusFilter) {
+        return adminManager.getCachedUsersCount(searchQuery, statusFilter);
+    }
+
+    /**
+     * Count users in the background unless a fresh count is cached
+     * @param searchQuery search term
+     * @param statusFilter status filter
+     * @return completes with the count, off the JavaFX thread
+     */
+    public CompletableFuture<Integer> refreshUsersCount(String searchQuery, String statusFilter) {
+        return adminManager.refreshUsersCount(searchQuery, statusFilter);
+    }
+
     /**
      * Block a user account
      * @param userId user to block
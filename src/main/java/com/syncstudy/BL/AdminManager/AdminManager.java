@@ -1,18 +1,36 @@
 package com.syncstudy.BL.AdminManager;
 
 import com.syncstudy.BL.AbstractFactory;
+import com.syncstudy.BL.GroupManager.NotificationService;
 import com.syncstudy.BL.SessionManager.User;
 import com.syncstudy.PL.PostgresFactory;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Singleton AdminManager handling admin-related business logic
  * Manages user administration operations
  */
 public class AdminManager {
+    // Users counts older than this are recounted in the background
+    private static final long USERS_COUNT_TTL_MILLIS = 30_000;
+
     private static AdminManager instance;
     private AdminDAO adminDAO;
+    // Counts by filter; COUNT(*) over a search reads every matching row, so the
+    // list shows the last known value while a fresh one is computed
+    private final Map<String, UsersCount> usersCounts = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Integer>> pendingCounts = new ConcurrentHashMap<>();
+    private final ExecutorService countExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "UsersCount");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private AdminManager() {
         AbstractFactory factory = new PostgresFactory();
@@ -53,6 +71,28 @@ public class AdminManager {
         );
     }
 
+    /**
+     * Get the users following a given user in the sort order (keyset pagination)
+     * @param searchQuery search term
+     * @param statusFilter status filter
+     * @param sortBy sort field
+     * @param after last user of an earlier page, or null for the first page
+     * @param skip users to skip after it
+     * @param pageSize page size
+     * @return list of users
+     */
+    public List<User> getUsersPage(String searchQuery, String statusFilter, String sortBy,
+                                   User after, int skip, int pageSize) {
+        return adminDAO.getUsersPage(
+                searchQuery != null ? searchQuery.trim() : "",
+                statusFilter != null ? statusFilter : "All",
+                sortBy != null ? sortBy : "name",
+                after,
+                skip,
+                pageSize
+        );
+    }
+
     /**
      * Get total users count for pagination
      * @param searchQuery search term
@@ -60,10 +100,62 @@ public class AdminManager {
      * @return total count
      */
     public int getTotalUsersCount(String searchQuery, String statusFilter) {
-        return adminDAO.getTotalUsersCount(
-                searchQuery != null ? searchQuery.trim() : "",
-                statusFilter != null ? statusFilter : "All"
-        );
+        String search = searchQuery != null ? searchQuery.trim() : "";
+        String status = statusFilter != null ? statusFilter : "All";
+        int count = adminDAO.getTotalUsersCount(search, status);
+        usersCounts.put(countKey(search, status), new UsersCount(count, System.currentTimeMillis()));
+        return count;
+    }
+
+    /**
+     * Last known users count, possibly stale
+     * @param searchQuery search term
+     * @param statusFilter status filter
+     * @return the count, or null if this filter was never counted
+     */
+    public Integer getCachedUsersCount(String searchQuery, String statusFilter) {
+        UsersCount cached = usersCounts.get(countKey(searchQuery, statusFilter));
+        return cached != null ? cached.count : null;
+    }
+
+    /**
+     * Count users in the background unless a fresh count is cached
+     * @param searchQuery search term
+     * @param statusFilter status filter
+     * @return completes with the count; concurrent calls for one filter share a query
+     */
+    public CompletableFuture<Integer> refreshUsersCount(String searchQuery, String statusFilter) {
+        String key = countKey(searchQuery, statusFilter);
+        UsersCount cached = usersCounts.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.countedAt < USERS_COUNT_TTL_MILLIS) {
+            return CompletableFuture.completedFuture(cached.count);
+        }
+        CompletableFuture<Integer> count = new CompletableFuture<>();
+        CompletableFuture<Integer> pending = pendingCounts.putIfAbsent(key, count);
+        if (pending != null) return pending;
+        countExecutor.execute(() -> {
+            try {
+                int total = getTotalUsersCount(searchQuery, statusFilter);
+                pendingCounts.remove(key, count);
+                count.complete(total);
+            } catch (RuntimeException e) {
+                pendingCounts.remove(key, count);
+                count.completeExceptionally(e);
+            }
+        });
+        return count;
+    }
+
+    /**
+     * Forget cached counts after a block, unblock or delete
+     */
+    public void invalidateUsersCounts() {
+        usersCounts.clear();
+    }
+
+    private static String countKey(String searchQuery, String statusFilter) {
+        return (statusFilter != null ? statusFilter : "All") + '|'
+                + (searchQuery != null ? searchQuery.trim().toLowerCase() : "");
     }
 
     /**
@@ -109,9 +201,12 @@ public class AdminManager {
         boolean success = adminDAO.blockUser(userId, adminId, reason.trim());
 
         if (success) {
+            invalidateUsersCounts();
             // Log the action
             adminDAO.logAdminAction(adminId, "BLOCK_USER", userId, "Reason: " + reason);
             System.out.println("User " + userId + " blocked by admin " + adminId);
+            NotificationService.getInstance().sendEmail(userId, "Your SyncStudy account has been blocked",
+                    "Your account has been blocked by an administrator. Reason: " + reason.trim());
         }
 
         return success;
@@ -151,8 +246,10 @@ public class AdminManager {
         boolean success = adminDAO.unblockUser(userId, adminId);
 
         if (success) {
+            invalidateUsersCounts();
             adminDAO.logAdminAction(adminId, "UNBLOCK_USER", userId, "Account unblocked");
             System.out.println("User " + userId + " unblocked by admin " + adminId);
+            NotificationService.getInstance().sendNotification(userId, "Your account has been unblocked.");
         }
 
         return success;
@@ -200,6 +297,7 @@ public class AdminManager {
         boolean success = adminDAO.deleteUser(userId, adminId);
 
         if (success) {
+            invalidateUsersCounts();
             adminDAO.logAdminAction(adminId, "DELETE_USER", userId, "Deleted user: " + userSummary);
             System.out.println("User " + userId + " deleted by admin " + adminId);
         }
@@ -257,5 +355,14 @@ public class AdminManager {
     public boolean isAdmin(Long userId) {
         return adminDAO.isAdmin(userId);
     }
-}
 
+    private static class UsersCount {
+        private final int count;
+        private final long countedAt;
+
+        UsersCount(int count, long countedAt) {
+            this.count = count;
+            this.countedAt = countedAt;
+        }
+    }
+}
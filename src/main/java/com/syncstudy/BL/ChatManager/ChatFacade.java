@@ -62,6 +62,33 @@ public class ChatFacade {
         }
     }
 
+    /**
+     * Get a keyset page of messages, newest first
+     * @param groupId the group ID
+     * @param beforeTimestamp createdAt of the oldest loaded message, or null for the newest page
+     * @param beforeId id of the oldest loaded message, breaks ties on createdAt
+     * @param limit number of messages to load
+     * @return list of messages ordered newest first
+     */
+    public List<Message> getMessagesWithPagination(Long groupId, LocalDateTime beforeTimestamp, Long beforeId, int limit) {
+        try {
+            return messageManager.getMessagesWithPagination(groupId, beforeTimestamp, beforeId, limit);
+        } catch (Exception e) {
+            System.err.println("Error fetching paginated messages: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Get the newest messages of a group
+     * @param groupId the group ID
+     * @param limit number of messages to load
+     * @return list of messages ordered newest first
+     */
+    public List<Message> getLatestMessages(Long groupId, int limit) {
+        return getMessagesWithPagination(groupId, null, null, limit);
+    }
+
     /**
      * Send a new message to a group
      * @param senderId the sender's user ID
@@ -162,6 +189,57 @@ public class ChatFacade {
         }
         return canEditMessage(messageId, userId);
     }
+
+    /**
+     * Keep the recent message cache in step with a change received from another client
+     * @param type "new", "edit" or "delete"
+     * @param groupId the group ID
+     * @param messageId the message ID
+     * @param message the message, may be null for deletes
+     */
+    public void applyRemoteChange(String type, Long groupId, Long messageId, Message message) {
+        try {
+            messageManager.applyRemoteChange(type, groupId, messageId, message);
+        } catch (Exception e) {
+            System.err.println("Error applying remote change: " + e.getMessage());
+            messageManager.invalidateCachedGroup(groupId);
+        }
+    }
+
+    /**
+     * Newest seq of a group's cached history: the chat server is asked for what
+     * came after it when the group is opened again
+     * @param groupId the group ID
+     * @return the seq, or null if nothing is cached for the group
+     */
+    public Long getCachedLastSeq(Long groupId) {
+        return messageManager.getCachedLastSeq(groupId);
+    }
+
+    /**
+     * Stop trusting the cached history of a group, when what it missed cannot be replayed
+     * @param groupId the group ID
+     */
+    public void releaseGroup(Long groupId) {
+        messageManager.invalidateCachedGroup(groupId);
+    }
+
+    /**
+     * Get hit/miss statistics of the recent message cache
+     * @return metrics snapshot
+     */
+    public MessageCacheMetrics getCacheMetrics() {
+        return messageManager.getCacheMetrics();
+    }
+
+    /**
+     * Get statistics of the batched message persistence
+     * @return metrics snapshot, or null when write-behind is disabled
+     */
+    public WriteBehindMetrics getWriteBehindMetrics() {
+        return messageManager.getWriteBehindMetrics();
+    }
+
     public String getGroupName(Long groupId) {
         if (groupId == null) return "Unknown Group";
         try {
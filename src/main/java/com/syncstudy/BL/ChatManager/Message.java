@@ -9,6 +9,10 @@ public class Message {
     private LocalDateTime createdAt;
     private LocalDateTime modifiedAt;
     private boolean isEdited;
+    // Position in its group, assigned by the database on insert
+    private Long seq;
+    // Sender's own id for the message, so a resent "send" is stored once
+    private String clientMessageId;
 
     // Sender information for display
     private String senderUsername;
@@ -47,6 +51,12 @@ public class Message {
     public boolean isEdited() { return isEdited; }
     public void setEdited(boolean edited) { isEdited = edited; }
 
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
+
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
+
     public String getSenderUsername() { return senderUsername; }
     public void setSenderUsername(String senderUsername) { this.senderUsername = senderUsername; }
 
@@ -0,0 +1,51 @@
+package com.syncstudy.BL.ChatManager;
+
+/**
+ * Point-in-time snapshot of the recent message cache
+ */
+public class MessageCacheMetrics {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int groups;
+    private final int messages;
+    private final long estimatedBytes;
+    private final long maxBytes;
+
+    public MessageCacheMetrics(long hits, long misses, long evictions, int groups, int messages,
+                               long estimatedBytes, long maxBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.groups = groups;
+        this.messages = messages;
+        this.estimatedBytes = estimatedBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    public int getGroups() { return groups; }
+    public int getMessages() { return messages; }
+    public long getEstimatedBytes() { return estimatedBytes; }
+    public long getMaxBytes() { return maxBytes; }
+
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : hits / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageCacheMetrics{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", hitRatio=" + String.format("%.2f", getHitRatio()) +
+                ", evictions=" + evictions +
+                ", groups=" + groups +
+                ", messages=" + messages +
+                ", bytes=" + estimatedBytes + "/" + maxBytes +
+                '}';
+    }
+}
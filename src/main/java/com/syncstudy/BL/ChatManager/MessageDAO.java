@@ -8,10 +8,62 @@ public abstract class MessageDAO {
 
     public abstract List<Message> findByGroupId(Long groupId);
 
-    public abstract List<Message> findByGroupIdWithPagination(Long groupId, LocalDateTime beforeTimestamp, int limit);
+    public List<Message> findByGroupIdWithPagination(Long groupId, LocalDateTime beforeTimestamp, int limit) {
+        return findByGroupIdWithPagination(groupId, beforeTimestamp, null, limit);
+    }
 
+    /**
+     * Keyset page of a group's messages, newest first.
+     * The cursor is the (createdAt, id) of the oldest message already loaded, so
+     * messages sharing a timestamp are neither skipped nor repeated.
+     * @param groupId the group ID
+     * @param beforeTimestamp createdAt of the cursor, or null for the newest page
+     * @param beforeId id of the cursor, or null to page on the timestamp alone
+     * @param limit page size
+     * @return messages ordered by created_at DESC, id DESC
+     */
+    public abstract List<Message> findByGroupIdWithPagination(Long groupId, LocalDateTime beforeTimestamp, Long beforeId, int limit);
+
+    /**
+     * Insert one message; the database assigns its id and its seq in the group
+     * @param message the message, optionally with a clientMessageId
+     * @return the message with id and seq set, or null if the insert failed
+     * (including a clientMessageId already stored for the sender)
+     */
     public abstract Message insert(Message message);
 
+    /**
+     * Messages of a group stored after a sequence number, oldest first
+     * @param groupId the group ID
+     * @param afterSeq the last seq already seen
+     * @param limit maximum number of messages
+     * @return messages ordered by seq ASC, or null if they could not be read
+     */
+    public abstract List<Message> findByGroupIdAfterSeq(Long groupId, long afterSeq, int limit);
+
+    /**
+     * Find a message by the id its sender's client gave it
+     * @param senderId the sender's user ID
+     * @param clientMessageId the client's id of the message
+     * @return the message, or null if none
+     */
+    public abstract Message findByClientMessageId(Long senderId, String clientMessageId);
+
+    /**
+     * Reserve ids from the messages sequence without inserting rows
+     * @param count number of ids to reserve
+     * @return the reserved ids, empty if the sequence could not be read
+     */
+    public abstract List<Long> reserveIds(int count);
+
+    /**
+     * Insert messages that already carry a reserved id, all in one transaction.
+     * Rows whose id already exists are skipped, so a retried batch is harmless.
+     * @param messages messages with their id set
+     * @return true if the whole batch was committed
+     */
+    public abstract boolean insertBatch(List<Message> messages);
+
     public abstract boolean update(Message message);
 
     public abstract boolean delete(Long messageId);
@@ -1,33 +1,140 @@
 package com.syncstudy.BL.ChatManager;
 
+import com.syncstudy.BL.SessionManager.SessionFacade;
+import com.syncstudy.BL.SessionManager.User;
 import com.syncstudy.PL.ChatManager.MessageDAOPostgres;
+import com.syncstudy.WS.AppConfig;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class MessageManager {
 
     private MessageDAO messageDAO;
+    // Null unless chat.persistence.write-behind is enabled
+    private MessageWriteBehind writeBehind;
+    private final RecentMessageCache recentMessages;
 
     public MessageManager() {
+        this(true);
+    }
+
+    /**
+     * @param cacheRecentMessages keep a window of recent messages per group; the
+     * chat server passes false, it replays from its own ReplayBuffer and never
+     * reads pages
+     */
+    public MessageManager(boolean cacheRecentMessages) {
         this.messageDAO = new MessageDAOPostgres();
+        this.recentMessages = new RecentMessageCache(AppConfig.getMessageCacheWindowSize(),
+                cacheRecentMessages ? AppConfig.getMessageCacheMaxBytes() : 0);
+        if (AppConfig.isMessageWriteBehindEnabled()) {
+            this.writeBehind = new MessageWriteBehind(messageDAO,
+                    AppConfig.getMessageWriteBehindBatchSize(),
+                    AppConfig.getMessageWriteBehindMaxDelayMs(),
+                    AppConfig.getMessageWriteBehindQueueCapacity(),
+                    AppConfig.getMessageIdBlockSize());
+            Runtime.getRuntime().addShutdownHook(new Thread(writeBehind::close, "MessageWriteBehind-Shutdown"));
+        }
     }
 
     public List<Message> getMessages(Long groupId) {
-        return messageDAO.findByGroupId(groupId);
+        List<Message> cached = recentMessages.getAll(groupId);
+        if (cached != null) {
+            return cached;
+        }
+        List<Message> messages = messageDAO.findByGroupId(groupId);
+        List<Message> newestFirst = new ArrayList<>(messages);
+        Collections.reverse(newestFirst);
+        recentMessages.load(groupId, newestFirst, true);
+        return messages;
     }
 
     public List<Message> getMessagesWithPagination(Long groupId, LocalDateTime beforeTimestamp, int limit) {
         return messageDAO.findByGroupIdWithPagination(groupId, beforeTimestamp, limit);
     }
 
+    public List<Message> getMessagesWithPagination(Long groupId, LocalDateTime beforeTimestamp, Long beforeId, int limit) {
+        List<Message> cached = recentMessages.getPage(groupId, beforeTimestamp, beforeId, limit);
+        if (cached != null) {
+            return cached;
+        }
+        if (beforeTimestamp != null) {
+            return messageDAO.findByGroupIdWithPagination(groupId, beforeTimestamp, beforeId, limit);
+        }
+        // Newest page missed: read a whole window so the next pages are hits too
+        int fetch = Math.max(limit, AppConfig.getMessageCacheWindowSize());
+        List<Message> page = messageDAO.findByGroupIdWithPagination(groupId, null, null, fetch);
+        recentMessages.load(groupId, page, page.size() < fetch);
+        return page.size() > limit ? new ArrayList<>(page.subList(0, limit)) : page;
+    }
+
     public Message sendMessage(Long senderId, Long groupId, String content) {
         if (content == null || content.trim().isEmpty()) {
             throw new IllegalArgumentException("Message content cannot be empty");
         }
 
         Message message = new Message(senderId, groupId, content.trim());
-        return messageDAO.insert(message);
+        fillSenderInfo(message);
+        Message saved = writeBehind != null ? writeBehind.submit(message) : messageDAO.insert(message);
+        if (saved != null) {
+            recentMessages.onSend(saved);
+        }
+        return saved;
+    }
+
+    /**
+     * Store a message a client handed to the chat server.
+     * Inserted right away even with write-behind enabled: the server broadcasts
+     * it with the seq the database assigns.
+     * @param senderId the sender's user ID
+     * @param groupId the group ID
+     * @param content the message content
+     * @param clientMessageId the client's id of the message, or null
+     * @return the stored message, or null if the insert failed (including a
+     * clientMessageId the sender already used, see findByClientMessageId)
+     */
+    public Message ingestMessage(Long senderId, Long groupId, String content, String clientMessageId) {
+        if (senderId == null || groupId == null) {
+            throw new IllegalArgumentException("Message sender and group are required");
+        }
+        if (content == null || content.trim().isEmpty()) {
+            throw new IllegalArgumentException("Message content cannot be empty");
+        }
+
+        Message message = new Message(senderId, groupId, content.trim());
+        message.setClientMessageId(clientMessageId);
+        Message saved = messageDAO.insert(message);
+        if (saved != null) {
+            recentMessages.onSend(saved);
+        }
+        return saved;
+    }
+
+    /**
+     * Find a message already stored for a sender's clientMessageId
+     * @param senderId the sender's user ID
+     * @param clientMessageId the client's id of the message
+     * @return the message, or null if none
+     */
+    public Message findByClientMessageId(Long senderId, String clientMessageId) {
+        if (senderId == null || clientMessageId == null) {
+            return null;
+        }
+        return messageDAO.findByClientMessageId(senderId, clientMessageId);
+    }
+
+    /**
+     * Messages stored in a group after a sequence number, for clients catching up
+     * @param groupId the group ID
+     * @param afterSeq the last seq the client has
+     * @param limit maximum number of messages
+     * @return messages ordered by seq ASC, or null if they could not be read
+     */
+    public List<Message> getMessagesAfterSeq(Long groupId, long afterSeq, int limit) {
+        return messageDAO.findByGroupIdAfterSeq(groupId, afterSeq, limit);
     }
 
     public boolean editMessage(Long messageId, Long userId, String newContent) {
@@ -35,6 +142,7 @@ public class MessageManager {
             throw new IllegalArgumentException("Message content cannot be empty");
         }
 
+        awaitFlushed(messageId);
         if (!messageDAO.canEditMessage(messageId, userId)) {
             throw new SecurityException("You do not have permission to perform this action. You can only edit your own messages.");
         }
@@ -48,10 +156,15 @@ public class MessageManager {
         message.setModifiedAt(LocalDateTime.now());
         message.setEdited(true);
 
-        return messageDAO.update(message);
+        boolean updated = messageDAO.update(message);
+        if (updated) {
+            recentMessages.onEdit(message);
+        }
+        return updated;
     }
 
     public boolean deleteMessage(Long messageId, Long userId, boolean isAdmin) {
+        awaitFlushed(messageId);
         if (!messageDAO.canDeleteMessage(messageId, userId, isAdmin)) {
             throw new SecurityException("You do not have permission to perform this action. You can only delete your own messages.");
         }
@@ -61,11 +174,102 @@ public class MessageManager {
             throw new IllegalStateException("This message has been deleted and is no longer available.");
         }
 
-        return messageDAO.delete(messageId);
+        boolean deleted = messageDAO.delete(messageId);
+        if (deleted) {
+            recentMessages.onDelete(message.getGroupId(), messageId);
+        }
+        return deleted;
     }
 
     public Message getMessage(Long messageId) {
+        if (writeBehind != null) {
+            Message pending = writeBehind.getUnflushed(messageId);
+            if (pending != null) {
+                return pending;
+            }
+        }
         return messageDAO.findById(messageId);
     }
+
+    /**
+     * Apply a message created, edited or deleted by another client to the cache
+     * @param type "new", "edit" or "delete"
+     * @param groupId the group ID
+     * @param messageId the message ID
+     * @param message the message, may be null for deletes
+     */
+    public void applyRemoteChange(String type, Long groupId, Long messageId, Message message) {
+        if ("delete".equals(type)) {
+            recentMessages.onDelete(groupId, messageId);
+        } else if (message == null || message.getId() == null || message.getCreatedAt() == null) {
+            // Not enough to place it in the window: reload on next read
+            recentMessages.invalidate(groupId);
+        } else if ("new".equals(type)) {
+            recentMessages.onSend(message);
+        } else if ("edit".equals(type)) {
+            recentMessages.onEdit(message);
+        }
+    }
+
+    /**
+     * @param groupId the group ID
+     * @return newest seq of the group's cached window, or null if none
+     */
+    public Long getCachedLastSeq(Long groupId) {
+        return recentMessages.getLastSeq(groupId);
+    }
+
+    /**
+     * Drop a group's cached window, when changes to it can no longer be observed
+     * @param groupId the group ID
+     */
+    public void invalidateCachedGroup(Long groupId) {
+        recentMessages.invalidate(groupId);
+    }
+
+    /**
+     * Get recent message cache statistics
+     * @return metrics snapshot
+     */
+    public MessageCacheMetrics getCacheMetrics() {
+        return recentMessages.getMetrics();
+    }
+
+    /**
+     * Get write-behind pipeline statistics
+     * @return metrics snapshot, or null when write-behind is disabled
+     */
+    public WriteBehindMetrics getWriteBehindMetrics() {
+        return writeBehind != null ? writeBehind.getMetrics() : null;
+    }
+
+    /**
+     * Commit every queued message (call on application shutdown)
+     */
+    public void shutdown() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+    }
+
+    // Cached windows are shown later without the users JOIN, so carry the sender's name
+    private void fillSenderInfo(Message message) {
+        try {
+            User sender = SessionFacade.getInstance().getCurrentUser();
+            if (sender != null && sender.getId() != null && sender.getId().equals(message.getSenderId())) {
+                message.setSenderUsername(sender.getUsername());
+                message.setSenderFullName(sender.getUsername());
+            }
+        } catch (IllegalStateException e) {
+            // No session (server side): the window keeps the message without a display name
+        }
+    }
+
+    // Edits and deletes must see the row, so wait for a still-queued message to land
+    private void awaitFlushed(Long messageId) {
+        if (writeBehind != null) {
+            writeBehind.awaitFlushed(messageId);
+        }
+    }
 }
 
@@ -0,0 +1,216 @@
+package com.syncstudy.BL.ChatManager;
+
+import com.syncstudy.PL.BatchDispatcher;
+import com.syncstudy.PL.LatencyHistogram;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind pipeline for new chat messages.
+ * A message gets its id from a block reserved ahead of time on the messages
+ * sequence, is queued, and is committed later by a single flusher thread as a
+ * multi-row INSERT once the batch is full or its oldest message waited maxDelayMs
+ * (a BatchDispatcher).
+ *
+ * Semantics:
+ * - submit() returns as soon as the message is queued; it is durable only once flushed.
+ * - If the queue stays full, submit() falls back to a synchronous insert (back-pressure, nothing dropped).
+ * - close() stops accepting, drains and commits the queue, then returns. MessageManager calls it
+ *   from a shutdown hook, so a normal exit or SIGTERM loses nothing.
+ * - On a crash (kill -9, power loss) queued messages are lost: at most queueCapacity of them,
+ *   normally only the last maxDelayMs worth. Their ids stay unused, which leaves gaps in the sequence.
+ * - A batch that fails is retried with backoff, then row by row so one bad row cannot sink the
+ *   others. Rows that still fail are logged and counted in getMetrics().getFailed().
+ */
+public class MessageWriteBehind {
+
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 100;
+    // How long submit() waits for queue space before inserting synchronously
+    private static final long OFFER_TIMEOUT_MS = 500;
+    // How long awaitFlushed() waits for a message to be committed
+    private static final long FLUSH_WAIT_MS = 10_000;
+
+    private final MessageDAO messageDAO;
+    private final int idBlockSize;
+    // Queued and in-flight messages by id, so they can be read before they are committed
+    private final Map<Long, Message> unflushed = new ConcurrentHashMap<>();
+    private final Deque<Long> reservedIds = new ArrayDeque<>();
+    private final BatchDispatcher<Pending> flusher;
+
+    private final long startedAt = System.nanoTime();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong synchronousFallbacks = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final LatencyHistogram persistLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+    /**
+     * @param messageDAO DAO used for id reservation and batch inserts
+     * @param batchSize flush as soon as this many messages are queued
+     * @param maxDelayMs flush when the oldest queued message has waited this long
+     * @param queueCapacity maximum number of unflushed messages
+     * @param idBlockSize number of ids reserved per sequence round-trip
+     */
+    public MessageWriteBehind(MessageDAO messageDAO, int batchSize, long maxDelayMs,
+                              int queueCapacity, int idBlockSize) {
+        this.messageDAO = messageDAO;
+        this.idBlockSize = Math.max(1, idBlockSize);
+        this.flusher = new BatchDispatcher<>("MessageWriteBehind-Flusher", queueCapacity, batchSize, maxDelayMs,
+                pending -> pending.enqueuedAt, this::writeBatch);
+    }
+
+    /**
+     * Assign an id to a new message and queue it for persistence
+     * @param message message without an id
+     * @return the message with its id set, or null if no id could be reserved
+     */
+    public Message submit(Message message) {
+        Long id = nextId();
+        if (id == null) {
+            return null;
+        }
+        message.setId(id);
+
+        if (flusher.isAccepting()) {
+            unflushed.put(id, message);
+            try {
+                if (flusher.offer(new Pending(message), OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    accepted.incrementAndGet();
+                    maxQueueDepth.accumulateAndGet(flusher.size(), Math::max);
+                    return message;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            unflushed.remove(id);
+        }
+
+        // Queue full or closed: persist on the caller's thread
+        synchronousFallbacks.incrementAndGet();
+        return messageDAO.insertBatch(Collections.singletonList(message)) ? message : null;
+    }
+
+    /**
+     * Get a message that is queued but not committed yet
+     * @param messageId the message ID
+     * @return the message, or null if it is not pending
+     */
+    public Message getUnflushed(Long messageId) {
+        return messageId != null ? unflushed.get(messageId) : null;
+    }
+
+    /**
+     * Block until a pending message has been committed (or given up on)
+     * @param messageId the message ID
+     */
+    public void awaitFlushed(Long messageId) {
+        if (messageId == null) return;
+        synchronized (unflushed) {
+            long deadline = System.currentTimeMillis() + FLUSH_WAIT_MS;
+            while (unflushed.containsKey(messageId)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return;
+                try {
+                    unflushed.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop accepting messages and commit everything still queued
+     */
+    public void close() {
+        flusher.close();
+    }
+
+    /**
+     * @return snapshot of the pipeline counters
+     */
+    public WriteBehindMetrics getMetrics() {
+        double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+        long done = persisted.get();
+        return new WriteBehindMetrics(accepted.get(), done, failed.get(), synchronousFallbacks.get(),
+                batches.get(), flusher.size(), maxQueueDepth.get(), seconds > 0 ? done / seconds : 0.0,
+                persistLatency, batchLatency);
+    }
+
+    private synchronized Long nextId() {
+        if (reservedIds.isEmpty()) {
+            reservedIds.addAll(messageDAO.reserveIds(idBlockSize));
+        }
+        return reservedIds.poll();
+    }
+
+    private void writeBatch(List<Pending> batch) {
+        List<Message> rows = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            rows.add(pending.message);
+        }
+
+        long start = System.nanoTime();
+        boolean committed = false;
+        for (int attempt = 1; attempt <= MAX_BATCH_ATTEMPTS && !committed; attempt++) {
+            committed = messageDAO.insertBatch(rows);
+            if (!committed && attempt < MAX_BATCH_ATTEMPTS) {
+                BatchDispatcher.sleepQuietly(RETRY_BACKOFF_MS << (attempt - 1));
+            }
+        }
+        batchLatency.record(System.nanoTime() - start);
+        batches.incrementAndGet();
+
+        if (committed) {
+            for (Pending pending : batch) {
+                markDone(pending, true);
+            }
+            return;
+        }
+
+        // Isolate the rows that cannot be inserted (e.g. a deleted sender)
+        for (Pending pending : batch) {
+            boolean ok = messageDAO.insertBatch(Collections.singletonList(pending.message));
+            if (!ok) {
+                System.err.println("Dropping message " + pending.message.getId() + " after failed retries");
+            }
+            markDone(pending, ok);
+        }
+    }
+
+    private void markDone(Pending pending, boolean ok) {
+        if (ok) {
+            persisted.incrementAndGet();
+            persistLatency.record(System.nanoTime() - pending.enqueuedAt);
+        } else {
+            failed.incrementAndGet();
+        }
+        unflushed.remove(pending.message.getId());
+        synchronized (unflushed) {
+            unflushed.notifyAll();
+        }
+    }
+
+    private static class Pending {
+        private final Message message;
+        private final long enqueuedAt = System.nanoTime();
+
+        Pending(Message message) {
+            this.message = message;
+        }
+    }
+}
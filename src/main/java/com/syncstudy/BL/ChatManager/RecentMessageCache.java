@@ -0,0 +1,320 @@
+package com.syncstudy.BL.ChatManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory window of the most recent messages of each group.
+ * Each window is a ring buffer holding a contiguous suffix of the group's
+ * history (oldest first), kept coherent by MessageManager's write paths.
+ * Groups are evicted least recently used first once the estimated size
+ * of all windows exceeds the global byte budget.
+ * Messages are copied in and out so callers cannot mutate cached state.
+ */
+public class RecentMessageCache {
+
+    // Rough per-message overhead: object headers, boxed ids, timestamps
+    private static final int MESSAGE_OVERHEAD_BYTES = 160;
+
+    private final int windowSize;
+    private final long maxBytes;
+    // Access-ordered: iteration starts at the least recently used group
+    private final LinkedHashMap<Long, Window> windows = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param windowSize number of recent messages kept per group
+     * @param maxBytes estimated memory budget shared by all groups
+     */
+    public RecentMessageCache(int windowSize, long maxBytes) {
+        this.windowSize = Math.max(1, windowSize);
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * Keyset page served from the window, same contract as MessageDAO.findByGroupIdWithPagination
+     * @param groupId the group ID
+     * @param beforeTimestamp createdAt of the cursor, or null for the newest page
+     * @param beforeId id of the cursor, or null to page on the timestamp alone
+     * @param limit page size
+     * @return messages newest first, or null if the window cannot answer (miss)
+     */
+    public synchronized List<Message> getPage(Long groupId, LocalDateTime beforeTimestamp, Long beforeId, int limit) {
+        Window window = windows.get(groupId);
+        if (window == null) {
+            misses++;
+            return null;
+        }
+        List<Message> page = new ArrayList<>(limit);
+        for (int i = window.size - 1; i >= 0 && page.size() < limit; i--) {
+            Message message = window.get(i);
+            if (isBefore(message, beforeTimestamp, beforeId)) {
+                page.add(copy(message));
+            }
+        }
+        // A short page is only the truth if nothing older exists outside the window
+        if (page.size() < limit && !window.complete) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return page;
+    }
+
+    /**
+     * Whole history of a group, if the window holds all of it
+     * @param groupId the group ID
+     * @return messages oldest first, or null on a miss
+     */
+    public synchronized List<Message> getAll(Long groupId) {
+        Window window = windows.get(groupId);
+        if (window == null || !window.complete) {
+            misses++;
+            return null;
+        }
+        hits++;
+        List<Message> all = new ArrayList<>(window.size);
+        for (int i = 0; i < window.size; i++) {
+            all.add(copy(window.get(i)));
+        }
+        return all;
+    }
+
+    /**
+     * Newest seq a group's window has seen: a window kept while the group was not
+     * followed is brought up to date by asking the chat server for what came after it
+     * @param groupId the group ID
+     * @return the seq, or null if the group has no window or none with a seq
+     */
+    public synchronized Long getLastSeq(Long groupId) {
+        Window window = windows.get(groupId);
+        return window != null ? window.lastSeq : null;
+    }
+
+    /**
+     * Seed a group's window from the newest page read from the database
+     * @param groupId the group ID
+     * @param newestFirst the newest messages of the group, newest first
+     * @param complete true if the page holds the group's entire history
+     */
+    public synchronized void load(Long groupId, List<Message> newestFirst, boolean complete) {
+        if (maxBytes == 0) return;
+        remove(groupId);
+        Window window = new Window(windowSize);
+        int count = Math.min(newestFirst.size(), windowSize);
+        for (int i = count - 1; i >= 0; i--) {
+            window.append(copy(newestFirst.get(i)));
+        }
+        window.complete = complete && count == newestFirst.size();
+        windows.put(groupId, window);
+        totalBytes += window.bytes;
+        evictIfNeeded();
+    }
+
+    /**
+     * Add a newly sent message to its group's window, if the group is cached
+     * @param message the persisted message
+     */
+    public synchronized void onSend(Message message) {
+        Window window = windows.get(message.getGroupId());
+        if (window == null || window.indexOf(message.getId()) >= 0) return;
+        long before = window.bytes;
+        window.insertInOrder(copy(message));
+        totalBytes += window.bytes - before;
+        evictIfNeeded();
+    }
+
+    /**
+     * Replace an edited message in its group's window
+     * @param message the updated message
+     */
+    public synchronized void onEdit(Message message) {
+        Window window = windows.get(message.getGroupId());
+        if (window == null) return;
+        int index = window.indexOf(message.getId());
+        if (index < 0) return;
+        long before = window.bytes;
+        window.set(index, copy(message));
+        totalBytes += window.bytes - before;
+    }
+
+    /**
+     * Drop a deleted message from its group's window
+     * @param groupId the group ID
+     * @param messageId the deleted message ID
+     */
+    public synchronized void onDelete(Long groupId, Long messageId) {
+        Window window = windows.get(groupId);
+        if (window == null) return;
+        int index = window.indexOf(messageId);
+        if (index < 0) return;
+        long before = window.bytes;
+        // The window stays a contiguous suffix of the history, just one shorter
+        window.removeAt(index);
+        totalBytes += window.bytes - before;
+    }
+
+    /**
+     * Forget a group's window, e.g. when writes to it may have been missed
+     * @param groupId the group ID
+     */
+    public synchronized void invalidate(Long groupId) {
+        remove(groupId);
+    }
+
+    /**
+     * @return snapshot of hit/miss counters and memory use
+     */
+    public synchronized MessageCacheMetrics getMetrics() {
+        int messages = 0;
+        for (Window window : windows.values()) {
+            messages += window.size;
+        }
+        return new MessageCacheMetrics(hits, misses, evictions, windows.size(), messages, totalBytes, maxBytes);
+    }
+
+    private void remove(Long groupId) {
+        Window old = windows.remove(groupId);
+        if (old != null) {
+            totalBytes -= old.bytes;
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Long, Window>> it = windows.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().getValue().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static boolean isBefore(Message message, LocalDateTime beforeTimestamp, Long beforeId) {
+        if (beforeTimestamp == null) return true;
+        int cmp = message.getCreatedAt().compareTo(beforeTimestamp);
+        if (beforeId == null || cmp != 0) return cmp < 0;
+        return message.getId() < beforeId;
+    }
+
+    private static int compareKeys(Message a, Message b) {
+        int cmp = a.getCreatedAt().compareTo(b.getCreatedAt());
+        return cmp != 0 ? cmp : Long.compare(a.getId(), b.getId());
+    }
+
+    private static long estimateBytes(Message message) {
+        return MESSAGE_OVERHEAD_BYTES
+                + 2L * length(message.getContent())
+                + 2L * length(message.getClientMessageId())
+                + 2L * length(message.getSenderUsername())
+                + 2L * length(message.getSenderFullName())
+                + 2L * length(message.getSenderProfilePicture());
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+
+    private static Message copy(Message source) {
+        Message message = new Message();
+        message.setId(source.getId());
+        message.setSenderId(source.getSenderId());
+        message.setGroupId(source.getGroupId());
+        message.setContent(source.getContent());
+        message.setCreatedAt(source.getCreatedAt());
+        message.setModifiedAt(source.getModifiedAt());
+        message.setEdited(source.isEdited());
+        message.setSeq(source.getSeq());
+        message.setClientMessageId(source.getClientMessageId());
+        message.setSenderUsername(source.getSenderUsername());
+        message.setSenderFullName(source.getSenderFullName());
+        message.setSenderProfilePicture(source.getSenderProfilePicture());
+        return message;
+    }
+
+    /**
+     * Fixed-capacity ring of messages ordered by (createdAt, id), oldest first
+     */
+    private static class Window {
+        private final Message[] ring;
+        private int head = 0;
+        private int size = 0;
+        private long bytes = 0;
+        // True while the window holds every message of the group
+        private boolean complete = false;
+        // Newest seq appended, kept when that message is deleted
+        private Long lastSeq;
+
+        Window(int capacity) {
+            this.ring = new Message[capacity];
+        }
+
+        Message get(int i) {
+            return ring[(head + i) % ring.length];
+        }
+
+        void set(int i, Message message) {
+            int slot = (head + i) % ring.length;
+            bytes += estimateBytes(message) - estimateBytes(ring[slot]);
+            ring[slot] = message;
+        }
+
+        void append(Message message) {
+            if (size == ring.length) {
+                // Full: overwrite the oldest, the window no longer covers the whole history
+                bytes -= estimateBytes(ring[head]);
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+                complete = false;
+            }
+            ring[(head + size) % ring.length] = message;
+            size++;
+            bytes += estimateBytes(message);
+            if (message.getSeq() != null && (lastSeq == null || message.getSeq() > lastSeq)) {
+                lastSeq = message.getSeq();
+            }
+        }
+
+        /**
+         * Append, then bubble back into (createdAt, id) order; new messages are almost always newest
+         */
+        void insertInOrder(Message message) {
+            append(message);
+            for (int i = size - 1; i > 0 && compareKeys(get(i - 1), get(i)) > 0; i--) {
+                int a = (head + i - 1) % ring.length;
+                int b = (head + i) % ring.length;
+                Message tmp = ring[a];
+                ring[a] = ring[b];
+                ring[b] = tmp;
+            }
+        }
+
+        void removeAt(int index) {
+            bytes -= estimateBytes(get(index));
+            for (int i = index; i < size - 1; i++) {
+                ring[(head + i) % ring.length] = get(i + 1);
+            }
+            ring[(head + size - 1) % ring.length] = null;
+            size--;
+        }
+
+        int indexOf(Long messageId) {
+            if (messageId == null) return -1;
+            // Edits and deletes mostly target recent messages
+            for (int i = size - 1; i >= 0; i--) {
+                if (messageId.equals(get(i).getId())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.syncstudy.BL.ChatManager;
+
+import com.syncstudy.PL.LatencyHistogram;
+
+/**
+ * Point-in-time snapshot of the message write-behind pipeline
+ */
+public class WriteBehindMetrics {
+    private final long accepted;
+    private final long persisted;
+    private final long failed;
+    private final long synchronousFallbacks;
+    private final long batches;
+    private final int queueDepth;
+    private final int maxQueueDepth;
+    private final double messagesPerSecond;
+    private final LatencyHistogram persistLatency;
+    private final LatencyHistogram batchLatency;
+
+    public WriteBehindMetrics(long accepted, long persisted, long failed, long synchronousFallbacks,
+                              long batches, int queueDepth, int maxQueueDepth, double messagesPerSecond,
+                              LatencyHistogram persistLatency, LatencyHistogram batchLatency) {
+        this.accepted = accepted;
+        this.persisted = persisted;
+        this.failed = failed;
+        this.synchronousFallbacks = synchronousFallbacks;
+        this.batches = batches;
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+        this.messagesPerSecond = messagesPerSecond;
+        this.persistLatency = persistLatency;
+        this.batchLatency = batchLatency;
+    }
+
+    public long getAccepted() { return accepted; }
+    public long getPersisted() { return persisted; }
+    public long getFailed() { return failed; }
+    public long getSynchronousFallbacks() { return synchronousFallbacks; }
+    public long getBatches() { return batches; }
+    public int getQueueDepth() { return queueDepth; }
+    public int getMaxQueueDepth() { return maxQueueDepth; }
+    public double getMessagesPerSecond() { return messagesPerSecond; }
+    // Time from sendMessage returning to the row being committed
+    public LatencyHistogram getPersistLatency() { return persistLatency; }
+    // Duration of each batch INSERT, retries included
+    public LatencyHistogram getBatchLatency() { return batchLatency; }
+
+    public double getAverageBatchSize() {
+        return batches == 0 ? 0.0 : persisted / (double) batches;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindMetrics{" +
+                "accepted=" + accepted +
+                ", persisted=" + persisted +
+                ", failed=" + failed +
+                ", syncFallbacks=" + synchronousFallbacks +
+                ", batches=" + batches +
+                ", avgBatch=" + String.format("%.1f", getAverageBatchSize()) +
+                ", queued=" + queueDepth +
+                ", maxQueued=" + maxQueueDepth +
+                ", msgPerSec=" + String.format("%.1f", messagesPerSecond) +
+                ", persistLatency=[" + persistLatency + "]" +
+                ", batchLatency=[" + batchLatency + "]" +
+                '}';
+    }
+}
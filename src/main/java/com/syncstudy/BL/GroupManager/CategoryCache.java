@@ -0,0 +1,170 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * In-memory copy of the category catalog with each category's groups count.
+ * Loaded with one query, then kept current by CategoryManager: category writes
+ * replace or drop an entry, group moves adjust the two counts involved by
+ * delta. Changes made by other application instances show up once the
+ * catalog expires (ttlMillis) and is reloaded.
+ * Categories are copied in and out so callers cannot mutate cached state.
+ */
+public class CategoryCache {
+
+    // Same order as the catalog queries (ORDER BY c.name)
+    private static final Comparator<Category> BY_NAME =
+            Comparator.comparing(Category::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
+    private final Supplier<List<Category>> loader;
+    private final long ttlMillis;
+    // Null until loaded, and again after invalidate()
+    private Map<Long, Category> categories;
+    private long loadedAt;
+
+    private long hits = 0;
+    private long loads = 0;
+
+    /**
+     * @param loader reads every category with its groups count
+     * @param ttlMillis reload the catalog after this long, 0 disables caching
+     */
+    public CategoryCache(Supplier<List<Category>> loader, long ttlMillis) {
+        this.loader = loader;
+        this.ttlMillis = Math.max(0, ttlMillis);
+    }
+
+    /**
+     * @return every category, ordered by name
+     */
+    public synchronized List<Category> getAll() {
+        List<Category> all = new ArrayList<>();
+        for (Category category : catalog().values()) {
+            all.add(copy(category));
+        }
+        all.sort(BY_NAME);
+        return all;
+    }
+
+    /**
+     * @param categoryId the category ID
+     * @return the category, or null if it is not in the catalog
+     */
+    public synchronized Category get(Long categoryId) {
+        Category category = catalog().get(categoryId);
+        return category != null ? copy(category) : null;
+    }
+
+    /**
+     * Same contract as CategoryDAO.searchCategories: name or description contains the term
+     * @param searchTerm the search term
+     * @return matching categories, ordered by name
+     */
+    public synchronized List<Category> search(String searchTerm) {
+        String needle = searchTerm.toLowerCase(Locale.ROOT);
+        List<Category> matches = new ArrayList<>();
+        for (Category category : catalog().values()) {
+            if (contains(category.getName(), needle) || contains(category.getDescription(), needle)) {
+                matches.add(copy(category));
+            }
+        }
+        matches.sort(BY_NAME);
+        return matches;
+    }
+
+    /**
+     * Add a created category or replace an updated one, as read from the database
+     * @param category the category with its groups count
+     */
+    public synchronized void put(Category category) {
+        if (categories == null || category == null || category.getCategoryId() == null) return;
+        categories.put(category.getCategoryId(), copy(category));
+    }
+
+    /**
+     * Drop a deleted category
+     * @param categoryId the category ID
+     */
+    public synchronized void remove(Long categoryId) {
+        if (categories == null) return;
+        categories.remove(categoryId);
+    }
+
+    /**
+     * Apply a group move to the groups counts of its old and new category
+     * @param move the move reported by CategoryDAO.moveGroupToCategory
+     */
+    public synchronized void onGroupMoved(GroupMove move) {
+        if (categories == null || move == null || !move.isChanged()) return;
+        adjustGroupsCount(move.getPreviousCategoryId(), -1);
+        adjustGroupsCount(move.getCategoryId(), 1);
+    }
+
+    /**
+     * Forget the catalog; the next read reloads it
+     */
+    public synchronized void invalidate() {
+        categories = null;
+    }
+
+    /**
+     * @return number of reads served without a database query
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of times the catalog was loaded from the database
+     */
+    public synchronized long getLoads() {
+        return loads;
+    }
+
+    private Map<Long, Category> catalog() {
+        long now = System.currentTimeMillis();
+        if (categories != null && now - loadedAt < ttlMillis) {
+            hits++;
+            return categories;
+        }
+        Map<Long, Category> loaded = new HashMap<>();
+        for (Category category : loader.get()) {
+            loaded.put(category.getCategoryId(), category);
+        }
+        loads++;
+        loadedAt = now;
+        // With caching disabled every read goes to the database; the DAO also
+        // returns an empty list on errors, which must not be kept
+        categories = ttlMillis > 0 && !loaded.isEmpty() ? loaded : null;
+        return loaded;
+    }
+
+    private void adjustGroupsCount(Long categoryId, int delta) {
+        if (categoryId == null) return;
+        Category category = categories.get(categoryId);
+        if (category != null) {
+            category.setGroupsCount(Math.max(0, category.getGroupsCount() + delta));
+        }
+    }
+
+    private static boolean contains(String text, String needle) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    private static Category copy(Category source) {
+        Category category = new Category(source.getName(), source.getDescription(), source.getIcon(),
+                source.getColor(), source.getCategoryAdministratorId());
+        category.setCategoryId(source.getCategoryId());
+        category.setCategoryAdministratorName(source.getCategoryAdministratorName());
+        category.setCreatedAt(source.getCreatedAt());
+        category.setUpdatedAt(source.getUpdatedAt());
+        category.setGroupsCount(source.getGroupsCount());
+        return category;
+    }
+}
@@ -121,6 +121,22 @@ public abstract class CategoryDAO {
      */
     public abstract boolean removeGroupFromCategory(Long groupId);
 
+    /**
+     * Move a group to a category, reporting where it came from
+     * @param groupId the group ID
+     * @param categoryId the target category ID, or null to remove it from its category
+     * @return the move with the previous category, or null if the group does not exist or the update failed
+     */
+    public abstract GroupMove moveGroupToCategory(Long groupId, Long categoryId);
+
+    /**
+     * Move several groups to a category in one statement; either all existing groups move or none do
+     * @param groupIds the group IDs
+     * @param categoryId the target category ID, or null to remove them from their category
+     * @return one outcome per distinct group ID, in request order
+     */
+    public abstract List<GroupMove> moveGroupsToCategory(List<Long> groupIds, Long categoryId);
+
     /**
      * Search categories by name
      * @param searchTerm the search term
@@ -141,6 +141,16 @@ public class CategoryFacade {
         return categoryManager.assignGroups(categoryId, groupIds);
     }
 
+    /**
+     * Assign groups to a category, reporting the outcome for each group
+     * @param categoryId category ID
+     * @param groupIds list of group IDs
+     * @return one outcome per distinct group ID
+     */
+    public List<GroupMove> moveGroups(Long categoryId, List<Long> groupIds) {
+        return categoryManager.moveGroups(categoryId, groupIds);
+    }
+
     /**
      * Remove a group from its category
      * @param groupId group ID
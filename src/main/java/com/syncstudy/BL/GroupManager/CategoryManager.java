@@ -2,6 +2,7 @@ package com.syncstudy.BL.GroupManager;
 
 import com.syncstudy.BL.AbstractFactory;
 import com.syncstudy.PL.PostgresFactory;
+import com.syncstudy.WS.AppConfig;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,6 +19,7 @@ public class CategoryManager {
 
     // Attributes
     private CategoryDAO categoryDAO;
+    private CategoryCache categoryCache;
 
     // Validation patterns
     private static final Pattern VALID_NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9àâäéèêëïîôùûüç\\s\\-_']+$");
@@ -27,6 +29,7 @@ public class CategoryManager {
     private CategoryManager() {
         AbstractFactory factory = new PostgresFactory();
         this.categoryDAO = factory.createCategoryDAO();
+        this.categoryCache = new CategoryCache(categoryDAO::getAllCategories, AppConfig.getCategoryCacheTtlMillis());
     }
 
     /**
@@ -45,7 +48,7 @@ public class CategoryManager {
      * @return List of all categories
      */
     public List<Category> getAllCategories() {
-        return categoryDAO.getAllCategories();
+        return categoryCache.getAll();
     }
 
     /**
@@ -57,7 +60,9 @@ public class CategoryManager {
         if (categoryId == null) {
             return null;
         }
-        return categoryDAO.getCategoryById(categoryId);
+        Category cached = categoryCache.get(categoryId);
+        // May have been created by another instance since the catalog was loaded
+        return cached != null ? cached : categoryDAO.getCategoryById(categoryId);
     }
 
     /**
@@ -85,6 +90,16 @@ public class CategoryManager {
         Category category = new Category(name.trim(), description, icon, color, adminId);
         Category created = categoryDAO.createCategory(category);
 
+        if (created != null) {
+            // Re-read for the administrator name and a groups count of 0
+            categoryCache.put(categoryDAO.getCategoryById(created.getCategoryId()));
+        }
+
+        GroupSearchIndex index = searchIndex();
+        if (created != null && index != null) {
+            index.putCategory(created);
+        }
+
         if (created != null && adminId != null) {
             // Log the assignment
             System.out.println("LOG: Category '" + name + "' created with administrator ID: " + adminId);
@@ -117,7 +132,7 @@ public class CategoryManager {
         }
 
         // Get current category
-        Category currentCategory = categoryDAO.getCategoryById(categoryId);
+        Category currentCategory = getCategoryById(categoryId);
         if (currentCategory == null) {
             throw new IllegalArgumentException("Category not found.");
         }
@@ -140,6 +155,12 @@ public class CategoryManager {
 
         if (success) {
             System.out.println("LOG: Category '" + name + "' updated.");
+            categoryCache.put(categoryDAO.getCategoryById(categoryId));
+
+            GroupSearchIndex index = searchIndex();
+            if (index != null) {
+                index.putCategory(updatedCategory);
+            }
 
             // Handle admin change notifications
             handleAdminChangeNotifications(currentCategory.getName(), previousAdminId, newAdminId);
@@ -183,6 +204,12 @@ public class CategoryManager {
 
         if (success) {
             System.out.println("LOG: Category '" + category.getName() + "' deleted.");
+            categoryCache.remove(categoryId);
+
+            GroupSearchIndex index = searchIndex();
+            if (index != null) {
+                index.removeCategory(categoryId);
+            }
         }
 
         return success;
@@ -244,22 +271,37 @@ public class CategoryManager {
      * @return true if all assignments were successful
      */
     public boolean assignGroups(Long categoryId, List<Long> groupIds) {
+        List<GroupMove> moves = moveGroups(categoryId, groupIds);
+        return !moves.isEmpty() && moves.stream().allMatch(GroupMove::isMoved);
+    }
+
+    /**
+     * Assign multiple groups to a category in one database statement
+     * @param categoryId target category ID
+     * @param groupIds list of group IDs to assign
+     * @return one outcome per distinct group ID, or an empty list if the category does not exist
+     */
+    public List<GroupMove> moveGroups(Long categoryId, List<Long> groupIds) {
         if (categoryId == null || groupIds == null || groupIds.isEmpty()) {
-            return false;
+            return new ArrayList<>();
         }
 
-        Category category = categoryDAO.getCategoryById(categoryId);
+        Category category = getCategoryById(categoryId);
         if (category == null) {
-            return false;
+            return new ArrayList<>();
         }
 
+        List<GroupMove> moves = categoryDAO.moveGroupsToCategory(groupIds, categoryId);
+        GroupSearchIndex index = searchIndex();
         int successCount = 0;
-        List<String> assignedGroupNames = new ArrayList<>();
 
-        for (Long groupId : groupIds) {
-            if (categoryDAO.assignGroupToCategory(groupId, categoryId)) {
+        for (GroupMove move : moves) {
+            if (move.isMoved()) {
                 successCount++;
-                // Could get group name here for notification
+                categoryCache.onGroupMoved(move);
+                if (index != null) {
+                    index.moveGroupToCategory(move.getGroupId(), categoryId);
+                }
             }
         }
 
@@ -272,7 +314,7 @@ public class CategoryManager {
 
         System.out.println("LOG: " + successCount + " groups assigned to category '" + category.getName() + "'.");
 
-        return successCount == groupIds.size();
+        return moves;
     }
 
     /**
@@ -281,7 +323,16 @@ public class CategoryManager {
      * @return true if removal was successful
      */
     public boolean removeGroupFromCategory(Long groupId) {
-        return categoryDAO.removeGroupFromCategory(groupId);
+        GroupMove move = categoryDAO.moveGroupToCategory(groupId, null);
+        if (move == null) {
+            return false;
+        }
+        categoryCache.onGroupMoved(move);
+        GroupSearchIndex index = searchIndex();
+        if (index != null) {
+            index.moveGroupToCategory(groupId, null);
+        }
+        return true;
     }
 
     /**
@@ -293,11 +344,22 @@ public class CategoryManager {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return getAllCategories();
         }
-        return categoryDAO.searchCategories(searchTerm.trim());
+        GroupSearchIndex index = searchIndex();
+        if (index != null) {
+            return index.searchCategories(searchTerm.trim());
+        }
+        return categoryCache.search(searchTerm.trim());
     }
 
     // Private helper methods
 
+    /**
+     * @return the in-memory search index, or null when it is disabled
+     */
+    private GroupSearchIndex searchIndex() {
+        return AppConfig.isInMemorySearchEnabled() ? GroupManager.getInstance().getSearchIndex() : null;
+    }
+
     /**
      * Validate category name
      * @param name the name to validate
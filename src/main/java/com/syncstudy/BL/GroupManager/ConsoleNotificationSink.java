@@ -0,0 +1,42 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Prints notifications to the console (the former NotificationService behavior)
+ */
+public class ConsoleNotificationSink implements NotificationSink {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String RULE = "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━";
+
+    @Override
+    public String getName() {
+        return "console";
+    }
+
+    @Override
+    public void deliver(List<Notification> batch) {
+        // One print for the whole batch so concurrent batches do not interleave
+        StringBuilder sb = new StringBuilder();
+        for (Notification notification : batch) {
+            sb.append(RULE).append('\n');
+            sb.append(notification.isEmail() ? "📨 EMAIL [" : "📧 NOTIFICATION [")
+              .append(notification.getCreatedAt().format(DATE_FORMAT)).append("]\n");
+            sb.append("   To User ID: ").append(notification.getUserId()).append('\n');
+            if (notification.isEmail()) {
+                sb.append("   Subject: ").append(notification.getSubject()).append('\n');
+                sb.append("   Body: ");
+            } else {
+                sb.append("   Message: ");
+            }
+            sb.append(notification.getMessage());
+            if (notification.getOccurrences() > 1) {
+                sb.append(" (x").append(notification.getOccurrences()).append(')');
+            }
+            sb.append('\n').append(RULE).append('\n');
+        }
+        System.out.print(sb);
+    }
+}
@@ -0,0 +1,61 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Appends notifications to a log file, one tab-separated line each:
+ * created at, user ID, occurrences, subject (or "-"), message
+ */
+public class FileNotificationSink implements NotificationSink {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final Path file;
+
+    /**
+     * @param file log file, created if missing
+     */
+    public FileNotificationSink(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public synchronized void deliver(List<Notification> batch) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        // One open/write/close per batch rather than per notification
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Notification notification : batch) {
+                writer.write(notification.getCreatedAt().format(DATE_FORMAT));
+                writer.write('\t');
+                writer.write(String.valueOf(notification.getUserId()));
+                writer.write('\t');
+                writer.write(String.valueOf(notification.getOccurrences()));
+                writer.write('\t');
+                writer.write(notification.isEmail() ? oneLine(notification.getSubject()) : "-");
+                writer.write('\t');
+                writer.write(oneLine(notification.getMessage()));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static String oneLine(String text) {
+        return text.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+}
@@ -8,13 +8,28 @@ import java.time.LocalDateTime;
  * GroupDAO - Abstract class for Group data access operations
  */
 public abstract class GroupDAO {
+
+    // Maximum number of groups returned by a search when no limit is given
+    public static final int DEFAULT_SEARCH_LIMIT = 50;
     
     // Abstract methods
     public abstract List<Group> filterGroups(Optional<Integer> memberCountFilter, 
                                            Optional<Category> categoryFilter, 
                                            Optional<LocalDateTime> activityFilter);
     
-    public abstract List<Group> searchGroups(List<String> searchTerms);
+    public List<Group> searchGroups(List<String> searchTerms) {
+        return searchGroups(searchTerms, DEFAULT_SEARCH_LIMIT);
+    }
+
+    /**
+     * Search groups by name and description, best matches first.
+     * A group matches if it matches any of the terms; the last word of each
+     * term is matched as a prefix so results follow the user while typing.
+     * @param searchTerms the search terms
+     * @param limit maximum number of groups returned
+     * @return matching groups ordered by relevance
+     */
+    public abstract List<Group> searchGroups(List<String> searchTerms, int limit);
     
     public abstract Group findGroupById(Long id);
 }
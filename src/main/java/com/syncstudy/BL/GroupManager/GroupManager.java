@@ -2,6 +2,7 @@ package com.syncstudy.BL.GroupManager;
 
 import com.syncstudy.BL.AbstractFactory;
 import com.syncstudy.PL.PostgresFactory;
+import com.syncstudy.WS.AppConfig;
 import java.util.List;
 import java.util.Optional;
 import java.time.LocalDateTime;
@@ -15,16 +16,24 @@ public class GroupManager {
     
     // Attributes
     private GroupDAO groupDAO;
+    // Null unless search.index.in-memory is enabled
+    private GroupSearchIndex searchIndex;
     
     // Private constructor for singleton
     private GroupManager() {
         // Initialize groupDAO using factory
         AbstractFactory factory = new PostgresFactory();
         this.groupDAO = factory.createGroupDAO();
+        if (AppConfig.isInMemorySearchEnabled()) {
+            CategoryDAO categoryDAO = factory.createCategoryDAO();
+            this.searchIndex = new GroupSearchIndex();
+            searchIndex.rebuild(categoryDAO.getAllGroups(), categoryDAO.getAllCategories());
+            System.out.println("LOG: Search index built with " + searchIndex.getGroupCount() + " groups.");
+        }
     }
     
-    // Singleton getInstance method
-    public static GroupManager getInstance() {
+    // Singleton getInstance method; may be warmed up from a startup thread
+    public static synchronized GroupManager getInstance() {
         if (instance == null) {
             instance = new GroupManager();
         }
@@ -33,6 +42,9 @@ public class GroupManager {
     
     // Business methods - exactly as specified in diagram
     public List<Group> search(List<String> searchTerms) {
+        if (searchIndex != null) {
+            return searchIndex.searchGroups(searchTerms, GroupDAO.DEFAULT_SEARCH_LIMIT);
+        }
         return groupDAO.searchGroups(searchTerms);
     }
     
@@ -45,4 +57,32 @@ public class GroupManager {
     public Group findGroupById(Long id) {
         return groupDAO.findGroupById(id);
     }
+
+    /**
+     * Get the in-memory search index, to keep it up to date on changes
+     * @return the index, or null when searches go to the database
+     */
+    public GroupSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Index a created or updated group
+     * @param group the group
+     */
+    public void onGroupSaved(Group group) {
+        if (searchIndex != null && group != null && group.getGroupId() != null) {
+            searchIndex.putGroup(group);
+        }
+    }
+
+    /**
+     * Drop a deleted group from the index
+     * @param groupId the group ID
+     */
+    public void onGroupDeleted(Long groupId) {
+        if (searchIndex != null && groupId != null) {
+            searchIndex.removeGroup(groupId);
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package com.syncstudy.BL.GroupManager;
+
+/**
+ * GroupMove - Outcome of moving one group to another category
+ * Carries the previous category so per-category group counts can be
+ * adjusted by delta instead of recounted
+ */
+public class GroupMove {
+
+    /**
+     * What happened to the group
+     */
+    public enum Outcome {
+        MOVED,      // the group is now in the target category (it may already have been)
+        NOT_FOUND,  // no group with this ID
+        FAILED      // the update failed, e.g. the category does not exist
+    }
+
+    private final Long groupId;
+    private final Long previousCategoryId;
+    private final Long categoryId;
+    private final Outcome outcome;
+
+    public GroupMove(Long groupId, Long previousCategoryId, Long categoryId) {
+        this(groupId, previousCategoryId, categoryId, Outcome.MOVED);
+    }
+
+    public GroupMove(Long groupId, Long previousCategoryId, Long categoryId, Outcome outcome) {
+        this.groupId = groupId;
+        this.previousCategoryId = previousCategoryId;
+        this.categoryId = categoryId;
+        this.outcome = outcome;
+    }
+
+    public Long getGroupId() { return groupId; }
+    public Long getPreviousCategoryId() { return previousCategoryId; }
+    public Long getCategoryId() { return categoryId; }
+    public Outcome getOutcome() { return outcome; }
+
+    /**
+     * @return true if the group is now in the target category
+     */
+    public boolean isMoved() {
+        return outcome == Outcome.MOVED;
+    }
+
+    /**
+     * @return true if the group actually changed category
+     */
+    public boolean isChanged() {
+        if (!isMoved()) return false;
+        return previousCategoryId == null ? categoryId != null : !previousCategoryId.equals(categoryId);
+    }
+}
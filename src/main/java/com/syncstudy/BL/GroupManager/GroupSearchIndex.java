@@ -0,0 +1,302 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory search index over group and category names and descriptions,
+ * for type-ahead without a database round-trip.
+ * Built once from the database and then kept up to date by GroupManager
+ * and CategoryManager as groups and categories change.
+ */
+public class GroupSearchIndex {
+
+    private final Map<Long, Group> groups = new HashMap<>();
+    // Dense views by document id for the ranking loop, which must not box
+    private Group[] groupsByDoc = new Group[16];
+    private long[] activityKeys = new long[16];
+    private final Map<Long, Category> categories = new HashMap<>();
+    private final TextIndex groupText = new TextIndex();
+    private final TextIndex categoryText = new TextIndex();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Replace the whole index content
+     * @param allGroups every group, with its category
+     * @param allCategories every category, with its groups count
+     */
+    public void rebuild(List<Group> allGroups, List<Category> allCategories) {
+        lock.writeLock().lock();
+        try {
+            for (Long groupId : new ArrayList<>(groups.keySet())) {
+                groupText.remove(docId(groupId));
+            }
+            for (Long categoryId : new ArrayList<>(categories.keySet())) {
+                categoryText.remove(docId(categoryId));
+            }
+            groups.clear();
+            categories.clear();
+            Arrays.fill(groupsByDoc, null);
+            Arrays.fill(activityKeys, 0);
+            for (Category category : allCategories) {
+                putCategoryLocked(category);
+            }
+            // Counts loaded from the database already include these groups
+            for (Group group : allGroups) {
+                putGroupLocked(group, false);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or re-index a group
+     * @param group the group
+     */
+    public void putGroup(Group group) {
+        lock.writeLock().lock();
+        try {
+            putGroupLocked(group, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a deleted group
+     * @param groupId the group ID
+     */
+    public void removeGroup(Long groupId) {
+        lock.writeLock().lock();
+        try {
+            Group removed = groups.remove(groupId);
+            if (removed != null) {
+                groupText.remove(docId(groupId));
+                groupsByDoc[docId(groupId)] = null;
+                adjustGroupsCount(removed.getCategory(), -1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Move a group to another category (text is unchanged, only counts and the category link)
+     * @param groupId the group ID
+     * @param categoryId the new category ID, or null to leave it uncategorized
+     */
+    public void moveGroupToCategory(Long groupId, Long categoryId) {
+        lock.writeLock().lock();
+        try {
+            Group group = groups.get(groupId);
+            if (group == null) return;
+            adjustGroupsCount(group.getCategory(), -1);
+            Category category = categoryId != null ? categories.get(categoryId) : null;
+            group.setCategory(category);
+            adjustGroupsCount(category, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or re-index a category; an existing category keeps its groups count
+     * @param category the category
+     */
+    public void putCategory(Category category) {
+        lock.writeLock().lock();
+        try {
+            Category previous = categories.get(category.getCategoryId());
+            if (previous != null) {
+                category.setGroupsCount(previous.getGroupsCount());
+                if (category.getCategoryAdministratorName() == null
+                        && category.getCategoryAdministratorId() != null
+                        && category.getCategoryAdministratorId().equals(previous.getCategoryAdministratorId())) {
+                    category.setCategoryAdministratorName(previous.getCategoryAdministratorName());
+                }
+            }
+            putCategoryLocked(category);
+            // Groups of this category now link to the updated object
+            for (Group group : groups.values()) {
+                if (group.getCategory() != null && category.getCategoryId().equals(group.getCategory().getCategoryId())) {
+                    group.setCategory(category);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a deleted category
+     * @param categoryId the category ID
+     */
+    public void removeCategory(Long categoryId) {
+        lock.writeLock().lock();
+        try {
+            if (categories.remove(categoryId) != null) {
+                categoryText.remove(docId(categoryId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Search groups, same contract as GroupDAO.searchGroups
+     * @param searchTerms the search terms
+     * @param limit maximum number of groups returned
+     * @return best matches first, then most recently active
+     */
+    public List<Group> searchGroups(List<String> searchTerms, int limit) {
+        lock.readLock().lock();
+        try {
+            TextIndex.Hits hits = groupText.search(searchTerms);
+            // Short prefixes match almost everything: keep only the best `limit` in a
+            // primitive min-heap keyed by score, then last activity
+            int capacity = Math.max(1, limit);
+            long[] heapKeys = new long[capacity];
+            int[] heapDocs = new int[capacity];
+            int heapSize = 0;
+            for (int docId = hits.docs.nextSetBit(0); docId >= 0; docId = hits.docs.nextSetBit(docId + 1)) {
+                long key = ((long) hits.scores[docId] << 40) | activityKeys[docId];
+                if (heapSize < capacity) {
+                    heapKeys[heapSize] = key;
+                    heapDocs[heapSize] = docId;
+                    siftUp(heapKeys, heapDocs, heapSize++);
+                } else if (key > heapKeys[0]) {
+                    heapKeys[0] = key;
+                    heapDocs[0] = docId;
+                    siftDown(heapKeys, heapDocs, heapSize);
+                }
+            }
+            // Pop the heap from worst to best, filling the result from the back
+            Group[] ordered = new Group[heapSize];
+            for (int i = heapSize - 1; i >= 0; i--) {
+                ordered[i] = groupsByDoc[heapDocs[0]];
+                heapKeys[0] = heapKeys[i];
+                heapDocs[0] = heapDocs[i];
+                siftDown(heapKeys, heapDocs, i);
+            }
+            return new ArrayList<>(Arrays.asList(ordered));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Search categories by name or description
+     * @param searchTerm the search term
+     * @return best matches first, then by name
+     */
+    public List<Category> searchCategories(String searchTerm) {
+        lock.readLock().lock();
+        try {
+            TextIndex.Hits hits = categoryText.search(List.of(searchTerm));
+            List<Category> results = new ArrayList<>(hits.docs.cardinality());
+            for (int docId = hits.docs.nextSetBit(0); docId >= 0; docId = hits.docs.nextSetBit(docId + 1)) {
+                results.add(categories.get((long) docId));
+            }
+            results.sort(Comparator.<Category>comparingInt(c -> hits.scores[docId(c.getCategoryId())]).reversed()
+                    .thenComparing(Category::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of indexed groups
+     */
+    public int getGroupCount() {
+        lock.readLock().lock();
+        try {
+            return groups.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putGroupLocked(Group group, boolean adjustCounts) {
+        Group previous = groups.put(group.getGroupId(), group);
+        if (previous != null && adjustCounts) {
+            adjustGroupsCount(previous.getCategory(), -1);
+        }
+        // Link to the indexed category so counts and renames stay in one place
+        if (group.getCategory() != null && categories.containsKey(group.getCategory().getCategoryId())) {
+            group.setCategory(categories.get(group.getCategory().getCategoryId()));
+            if (adjustCounts) {
+                adjustGroupsCount(group.getCategory(), 1);
+            }
+        }
+        int docId = docId(group.getGroupId());
+        if (docId >= groupsByDoc.length) {
+            int size = Math.max(docId + 1, groupsByDoc.length * 2);
+            groupsByDoc = Arrays.copyOf(groupsByDoc, size);
+            activityKeys = Arrays.copyOf(activityKeys, size);
+        }
+        groupsByDoc[docId] = group;
+        // Seconds since the epoch, never active sorts last; fits below the score bits
+        activityKeys[docId] = group.getLastActivity() != null
+                ? Math.max(0, group.getLastActivity().toEpochSecond(ZoneOffset.UTC)) & 0xFF_FFFF_FFFFL : 0;
+        groupText.put(docId, group.getName(), group.getDescription());
+    }
+
+    private void putCategoryLocked(Category category) {
+        categories.put(category.getCategoryId(), category);
+        categoryText.put(docId(category.getCategoryId()), category.getName(), category.getDescription());
+    }
+
+    private void adjustGroupsCount(Category category, int delta) {
+        if (category == null) return;
+        Category indexed = categories.get(category.getCategoryId());
+        if (indexed != null) {
+            indexed.setGroupsCount(Math.max(0, indexed.getGroupsCount() + delta));
+        }
+    }
+
+    private static void siftUp(long[] keys, int[] docs, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (keys[parent] <= keys[i]) break;
+            swap(keys, docs, parent, i);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] keys, int[] docs, int size) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && keys[left] < keys[smallest]) smallest = left;
+            if (right < size && keys[right] < keys[smallest]) smallest = right;
+            if (smallest == i) return;
+            swap(keys, docs, smallest, i);
+            i = smallest;
+        }
+    }
+
+    private static void swap(long[] keys, int[] docs, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int doc = docs[a];
+        docs[a] = docs[b];
+        docs[b] = doc;
+    }
+
+    // Serial ids fit in an int, which keeps posting lists primitive
+    private static int docId(Long id) {
+        return Math.toIntExact(id);
+    }
+}
@@ -0,0 +1,56 @@
+package com.syncstudy.BL.GroupManager;
+
+import com.syncstudy.WS.NotificationPushClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores notifications in the users' in-app inboxes, then pushes them over
+ * the chat server to the recipients' open sessions.
+ * Only the insert can fail the batch (and be retried); a failed push is
+ * logged, since the inbox already holds the notification.
+ */
+public class InAppNotificationSink implements NotificationSink {
+
+    private final NotificationDAO notificationDAO;
+    private final NotificationPushClient pushClient;
+
+    /**
+     * @param notificationDAO inbox storage
+     * @param pushClient connection to the chat server, or null to only store
+     */
+    public InAppNotificationSink(NotificationDAO notificationDAO, NotificationPushClient pushClient) {
+        this.notificationDAO = notificationDAO;
+        this.pushClient = pushClient;
+    }
+
+    @Override
+    public String getName() {
+        return "inapp";
+    }
+
+    @Override
+    public void deliver(List<Notification> batch) throws Exception {
+        // A retried batch must not be stored twice
+        List<Notification> unsaved = new ArrayList<>();
+        for (Notification notification : batch) {
+            if (notification.getId() == null) {
+                unsaved.add(notification);
+            }
+        }
+        if (!notificationDAO.insertNotifications(unsaved)) {
+            throw new IllegalStateException("notifications could not be stored");
+        }
+
+        if (pushClient != null) {
+            List<String> envelopes = new ArrayList<>(batch.size());
+            for (Notification notification : batch) {
+                envelopes.add(NotificationPushClient.envelope(notification.getId(), notification.getUserId(),
+                        notification.getSubject(), notification.getMessage(),
+                        notification.getOccurrences(), notification.getCreatedAt()));
+            }
+            pushClient.push(envelopes);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted set of document ids backed by a primitive int array
+ */
+class IntPostingList {
+
+    private int[] ids = new int[4];
+    private int size = 0;
+
+    /**
+     * @param id document id to add; ignored if already present
+     */
+    void add(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) return;
+        int insertAt = -pos - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    /**
+     * @param id document id to remove
+     */
+    void remove(int id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos < 0) return;
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        size--;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Set the bit of every id of this list
+     * @param out target set
+     */
+    void addAllTo(BitSet out) {
+        for (int i = 0; i < size; i++) {
+            out.set(ids[i]);
+        }
+    }
+}
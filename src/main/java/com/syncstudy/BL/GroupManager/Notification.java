@@ -0,0 +1,108 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * A notification waiting in, or delivered by, the NotificationService, and an
+ * entry of the user's in-app inbox once stored.
+ * Identical notifications sent to one user within the coalescing window are
+ * merged into one, with occurrences counting how many were sent.
+ */
+public class Notification {
+    // Set once stored in the inbox
+    private Long id;
+    private final Long userId;
+    // Set for e-mails, null for plain notifications
+    private final String subject;
+    private final String message;
+    private final LocalDateTime createdAt;
+    private final long enqueuedAt = System.nanoTime();
+    private int occurrences = 1;
+    // Set once the NotificationService has taken it for delivery
+    private boolean released;
+    private boolean read;
+
+    public Notification(Long userId, String subject, String message) {
+        this.userId = userId;
+        this.subject = subject;
+        this.message = message;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    /**
+     * Inbox entry read from the database
+     */
+    public Notification(Long id, Long userId, String subject, String message,
+                        int occurrences, boolean read, LocalDateTime createdAt) {
+        this.id = id;
+        this.userId = userId;
+        this.subject = subject;
+        this.message = message;
+        this.occurrences = occurrences;
+        this.read = read;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public boolean isRead() { return read; }
+    public void setRead(boolean read) { this.read = read; }
+    public Long getUserId() { return userId; }
+    public String getSubject() { return subject; }
+    public String getMessage() { return message; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    // System.nanoTime() when queued, for the delivery latency
+    long getEnqueuedAt() { return enqueuedAt; }
+
+    /**
+     * @return number of identical notifications merged into this one
+     */
+    public synchronized int getOccurrences() {
+        return occurrences;
+    }
+
+    /**
+     * Merge an identical notification into this one
+     * @return false if it was already taken for delivery and cannot count it anymore
+     */
+    synchronized boolean addOccurrence() {
+        if (released) return false;
+        occurrences++;
+        return true;
+    }
+
+    /**
+     * Freeze the occurrences before the notification is delivered
+     * @return the final number of occurrences
+     */
+    synchronized int release() {
+        released = true;
+        return occurrences;
+    }
+
+    /**
+     * @return true for an e-mail (sendEmail) rather than a plain notification
+     */
+    public boolean isEmail() {
+        return subject != null;
+    }
+
+    /**
+     * Notifications with the same key are duplicates of each other
+     */
+    String coalescingKey() {
+        return userId + "\u0000" + Objects.toString(subject, "") + "\u0000" + message;
+    }
+
+    @Override
+    public String toString() {
+        return "Notification{" +
+                "id=" + id +
+                ", userId=" + userId +
+                (subject != null ? ", subject='" + subject + '\'' : "") +
+                ", message='" + message + '\'' +
+                ", occurrences=" + getOccurrences() +
+                '}';
+    }
+}
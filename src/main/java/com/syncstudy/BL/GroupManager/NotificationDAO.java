@@ -0,0 +1,55 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.util.List;
+
+/**
+ * Abstract Data Access Object for the in-app notification inbox
+ */
+public abstract class NotificationDAO {
+
+    /**
+     * Store delivered notifications in their users' inboxes, in one statement
+     * @param notifications notifications to store; their IDs are set on success
+     * @return true if all were stored
+     */
+    public abstract boolean insertNotifications(List<Notification> notifications);
+
+    /**
+     * Read a page of a user's inbox, newest first (keyset pagination)
+     * @param userId the user ID
+     * @param after last notification of the previous page, or null for the first page
+     * @param unreadOnly only unread notifications
+     * @param limit page size
+     * @return the page, with the user's unread count
+     */
+    public abstract NotificationPage getInbox(Long userId, Notification after, boolean unreadOnly, int limit);
+
+    /**
+     * Read one notification of a user's inbox
+     * @param userId the user ID
+     * @param notificationId the notification ID
+     * @return the notification, or null if that user has no such notification
+     */
+    public abstract Notification findNotification(Long userId, Long notificationId);
+
+    /**
+     * @param userId the user ID
+     * @return number of unread notifications, read from the per-user counter
+     */
+    public abstract int getUnreadCount(Long userId);
+
+    /**
+     * Mark some of a user's notifications as read
+     * @param userId the user ID
+     * @param notificationIds notification IDs
+     * @return number of notifications that were unread
+     */
+    public abstract int markRead(Long userId, List<Long> notificationIds);
+
+    /**
+     * Mark every notification of a user as read
+     * @param userId the user ID
+     * @return number of notifications that were unread
+     */
+    public abstract int markAllRead(Long userId);
+}
@@ -0,0 +1,104 @@
+package com.syncstudy.BL.GroupManager;
+
+import com.syncstudy.BL.AbstractFactory;
+import com.syncstudy.PL.PostgresFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Singleton giving users access to their in-app notification inbox.
+ * Unread counts are cached per user: loaded with the first inbox page, then
+ * kept current by pushed notifications and mark-as-read calls, so showing the
+ * badge again never queries the database.
+ */
+public class NotificationInbox {
+
+    private static NotificationInbox instance;
+
+    private final NotificationDAO notificationDAO;
+    private final Map<Long, Integer> unreadCounts = new ConcurrentHashMap<>();
+
+    private NotificationInbox() {
+        AbstractFactory factory = new PostgresFactory();
+        this.notificationDAO = factory.createNotificationDAO();
+    }
+
+    /**
+     * Get the singleton instance of NotificationInbox
+     * @return NotificationInbox instance
+     */
+    public static synchronized NotificationInbox getInstance() {
+        if (instance == null) {
+            instance = new NotificationInbox();
+        }
+        return instance;
+    }
+
+    /**
+     * Read a page of the inbox, newest first
+     * @param userId the user ID
+     * @param after last notification of the previous page, or null for the first page
+     * @param unreadOnly only unread notifications
+     * @param limit page size
+     * @return the page, with the user's unread count (one query)
+     */
+    public NotificationPage getPage(Long userId, Notification after, boolean unreadOnly, int limit) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID is required");
+        }
+        NotificationPage page = notificationDAO.getInbox(userId, after, unreadOnly, Math.max(1, limit));
+        unreadCounts.put(userId, page.getUnreadCount());
+        return page;
+    }
+
+    /**
+     * Read one notification of a user's inbox
+     * @param userId the user ID
+     * @param notificationId the notification ID
+     * @return the notification, or null if that user has no such notification
+     */
+    public Notification getNotification(Long userId, Long notificationId) {
+        if (userId == null || notificationId == null) return null;
+        return notificationDAO.findNotification(userId, notificationId);
+    }
+
+    /**
+     * @param userId the user ID
+     * @return unread notifications, from the cache when known
+     */
+    public int getUnreadCount(Long userId) {
+        return unreadCounts.computeIfAbsent(userId, notificationDAO::getUnreadCount);
+    }
+
+    /**
+     * Account for a notification pushed to a user's session
+     * @param notification the pushed notification
+     * @return the user's new unread count
+     */
+    public int onPushed(Notification notification) {
+        return unreadCounts.merge(notification.getUserId(), 1, Integer::sum);
+    }
+
+    /**
+     * Mark notifications as read
+     * @param userId the user ID
+     * @param notificationIds notification IDs
+     * @return the user's new unread count
+     */
+    public int markRead(Long userId, List<Long> notificationIds) {
+        int changed = notificationDAO.markRead(userId, notificationIds);
+        unreadCounts.computeIfPresent(userId, (id, count) -> Math.max(0, count - changed));
+        return getUnreadCount(userId);
+    }
+
+    /**
+     * Mark the whole inbox as read
+     * @param userId the user ID
+     */
+    public void markAllRead(Long userId) {
+        notificationDAO.markAllRead(userId);
+        unreadCounts.put(userId, 0);
+    }
+}
@@ -0,0 +1,65 @@
+package com.syncstudy.BL.GroupManager;
+
+import com.syncstudy.PL.LatencyHistogram;
+
+/**
+ * Point-in-time snapshot of the notification pipeline
+ */
+public class NotificationMetrics {
+    private final long submitted;
+    private final long coalesced;
+    private final long dropped;
+    private final long delivered;
+    private final long failed;
+    private final long retries;
+    private final long batches;
+    private final int queueDepth;
+    private final int maxQueueDepth;
+    private final LatencyHistogram deliveryLatency;
+
+    public NotificationMetrics(long submitted, long coalesced, long dropped, long delivered, long failed,
+                               long retries, long batches, int queueDepth, int maxQueueDepth,
+                               LatencyHistogram deliveryLatency) {
+        this.submitted = submitted;
+        this.coalesced = coalesced;
+        this.dropped = dropped;
+        this.delivered = delivered;
+        this.failed = failed;
+        this.retries = retries;
+        this.batches = batches;
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+        this.deliveryLatency = deliveryLatency;
+    }
+
+    public long getSubmitted() { return submitted; }
+    // Merged into an identical notification still queued for the same user
+    public long getCoalesced() { return coalesced; }
+    // Rejected because the queue was full or the service closed
+    public long getDropped() { return dropped; }
+    // Per notification and sink
+    public long getDelivered() { return delivered; }
+    public long getFailed() { return failed; }
+    public long getRetries() { return retries; }
+    public long getBatches() { return batches; }
+    public int getQueueDepth() { return queueDepth; }
+    public int getMaxQueueDepth() { return maxQueueDepth; }
+    // Time from sendNotification returning to the last sink accepting the batch
+    public LatencyHistogram getDeliveryLatency() { return deliveryLatency; }
+
+    @Override
+    public String toString() {
+        return "NotificationMetrics{" +
+                "submitted=" + submitted +
+                ", coalesced=" + coalesced +
+                ", dropped=" + dropped +
+                ", delivered=" + delivered +
+                ", failed=" + failed +
+                ", retries=" + retries +
+                ", batches=" + batches +
+                ", queued=" + queueDepth +
+                ", maxQueued=" + maxQueueDepth +
+                ", deliveryLatency=[" + deliveryLatency + "]" +
+                '}';
+    }
+}
@@ -0,0 +1,28 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.util.List;
+
+/**
+ * One page of a user's notification inbox
+ */
+public class NotificationPage {
+    private final List<Notification> notifications;
+    private final int unreadCount;
+
+    public NotificationPage(List<Notification> notifications, int unreadCount) {
+        this.notifications = notifications;
+        this.unreadCount = unreadCount;
+    }
+
+    // Newest first
+    public List<Notification> getNotifications() { return notifications; }
+    // Unread notifications in the whole inbox, not only this page
+    public int getUnreadCount() { return unreadCount; }
+
+    /**
+     * @return last notification of the page, where the next page starts, or null if empty
+     */
+    public Notification getLast() {
+        return notifications.isEmpty() ? null : notifications.get(notifications.size() - 1);
+    }
+}
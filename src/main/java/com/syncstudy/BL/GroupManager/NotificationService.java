@@ -1,27 +1,105 @@
 package com.syncstudy.BL.GroupManager;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import com.syncstudy.BL.SessionManager.SessionFacade;
+import com.syncstudy.PL.BatchDispatcher;
+import com.syncstudy.PL.LatencyHistogram;
+import com.syncstudy.PL.PostgresFactory;
+import com.syncstudy.WS.AppConfig;
+import com.syncstudy.WS.NotificationPushClient;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * NotificationService - Singleton service for sending notifications
- * Currently simulates notifications by logging to console
- * In production, this would send emails or in-app notifications
+ * sendNotification only queues the notification and returns; delivery to the
+ * configured sinks (console, in-app inbox, log file, e-mail outbox) happens in
+ * the background.
+ *
+ * Pipeline:
+ * - A bounded queue. When it is full the notification is dropped and counted,
+ *   so business calls never wait on delivery.
+ * - A notification identical to one still queued for the same user is merged
+ *   into it (occurrences + 1) instead of being sent twice. Once the dispatcher
+ *   has taken it, it no longer merges and a duplicate starts a new one.
+ * - A BatchDispatcher waits up to coalesceWindowMs after the oldest queued
+ *   notification (the coalescing window) or until batchSize are queued, then
+ *   hands the batch to a pool of delivery workers.
+ * - Each sink receives the whole batch; a failing sink is retried with backoff,
+ *   then the batch is counted as failed for that sink only.
+ * - close() stops accepting and delivers everything still queued; it runs from
+ *   a shutdown hook. Notifications queued when the process is killed are lost.
  */
 public class NotificationService {
 
+    private static final int MAX_DELIVERY_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 200;
+    private static final long CLOSE_TIMEOUT_MS = 10_000;
+
     // Singleton instance
     private static NotificationService instance;
 
-    // Date formatter for logs
-    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final List<NotificationSink> sinks;
+    // Queued notifications by coalescing key, until the dispatcher takes them
+    private final Map<String, Notification> pending = new ConcurrentHashMap<>();
+    private final BatchDispatcher<Notification> dispatcher;
+    private final ThreadPoolExecutor workers;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final LatencyHistogram deliveryLatency = new LatencyHistogram();
 
     // Private constructor for singleton
     private NotificationService() {
-        // Initialize notification service
+        this(createSinks(AppConfig.getNotificationSinks()),
+                AppConfig.getNotificationWorkers(),
+                AppConfig.getNotificationQueueCapacity(),
+                AppConfig.getNotificationBatchSize(),
+                AppConfig.getNotificationCoalesceWindowMs());
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "NotificationService-Shutdown"));
         System.out.println("NotificationService initialized.");
     }
 
+    /**
+     * @param sinks destinations, each receiving every batch
+     * @param workerCount number of delivery threads
+     * @param queueCapacity maximum number of queued notifications
+     * @param batchSize deliver as soon as this many notifications are queued
+     * @param coalesceWindowMs deliver when the oldest queued notification has waited this long
+     */
+    public NotificationService(List<NotificationSink> sinks, int workerCount, int queueCapacity,
+                               int batchSize, long coalesceWindowMs) {
+        this.sinks = List.copyOf(sinks);
+
+        int threads = Math.max(1, workerCount);
+        AtomicInteger threadCount = new AtomicInteger();
+        // Few batches may wait for a worker; beyond that the dispatcher delivers
+        // itself, which slows draining and lets the bounded queue push back
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), runnable -> {
+                    Thread thread = new Thread(runnable, "NotificationService-Worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.dispatcher = new BatchDispatcher<>("NotificationService-Dispatcher", queueCapacity, batchSize,
+                coalesceWindowMs, Notification::getEnqueuedAt, this::dispatch);
+    }
+
     /**
      * Get singleton instance
      * @return NotificationService instance
@@ -34,7 +112,7 @@ public class NotificationService {
     }
 
     /**
-     * Send a notification to a user
+     * Queue a notification to a user
      * @param userId the user ID to notify
      * @param message the notification message
      */
@@ -42,29 +120,15 @@ public class NotificationService {
         if (userId == null || message == null) {
             return;
         }
-
-        String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-
-        // Simulation: log to console
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("📧 NOTIFICATION [" + timestamp + "]");
-        System.out.println("   To User ID: " + userId);
-        System.out.println("   Message: " + message);
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-
-        // In production, this would:
-        // 1. Look up user email from database
-        // 2. Send email via SMTP or email service
-        // 3. Create in-app notification record
-        // 4. Potentially send push notification
+        submit(new Notification(userId, null, message));
     }
 
     /**
-     * Send a notification to multiple users
+     * Queue a notification to multiple users
      * @param userIds list of user IDs to notify
      * @param message the notification message
      */
-    public void sendNotificationToMany(java.util.List<Long> userIds, String message) {
+    public void sendNotificationToMany(List<Long> userIds, String message) {
         if (userIds == null || message == null) {
             return;
         }
@@ -75,7 +139,7 @@ public class NotificationService {
     }
 
     /**
-     * Send an email notification (simulation)
+     * Queue an email notification
      * @param userId the user ID
      * @param subject email subject
      * @param body email body
@@ -84,16 +148,122 @@ public class NotificationService {
         if (userId == null || subject == null || body == null) {
             return;
         }
+        submit(new Notification(userId, subject, body));
+    }
 
-        String timestamp = LocalDateTime.now().format(DATE_FORMAT);
+    /**
+     * Stop accepting notifications and deliver everything still queued
+     */
+    public void close() {
+        if (!dispatcher.isAccepting()) return;
+        dispatcher.close();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        // Simulation: log to console
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("📨 EMAIL [" + timestamp + "]");
-        System.out.println("   To User ID: " + userId);
-        System.out.println("   Subject: " + subject);
-        System.out.println("   Body: " + body);
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+    /**
+     * @return snapshot of the pipeline counters
+     */
+    public NotificationMetrics getMetrics() {
+        return new NotificationMetrics(submitted.get(), coalesced.get(), dropped.get(), delivered.get(),
+                failed.get(), retries.get(), batches.get(), dispatcher.size(), maxQueueDepth.get(), deliveryLatency);
     }
-}
 
+    private void submit(Notification notification) {
+        submitted.incrementAndGet();
+        if (!dispatcher.isAccepting()) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        String key = notification.coalescingKey();
+        Notification queued;
+        while ((queued = pending.putIfAbsent(key, notification)) != null) {
+            if (queued.addOccurrence()) {
+                coalesced.incrementAndGet();
+                return;
+            }
+            // Taken by the dispatcher since: take its place unless it is already gone
+            if (pending.replace(key, queued, notification)) break;
+        }
+
+        if (dispatcher.offer(notification)) {
+            maxQueueDepth.accumulateAndGet(dispatcher.size(), Math::max);
+        } else {
+            // Duplicates merged in the meantime are dropped with it
+            int lost = notification.release();
+            pending.remove(key, notification);
+            dropped.addAndGet(lost);
+            System.err.println("Notification queue full, dropping notification to user " + notification.getUserId());
+        }
+    }
+
+    private void dispatch(List<Notification> batch) {
+        // From here on, duplicates start a new notification
+        release(batch);
+        workers.execute(() -> deliver(batch));
+    }
+
+    private void release(List<Notification> batch) {
+        for (Notification notification : batch) {
+            notification.release();
+            pending.remove(notification.coalescingKey(), notification);
+        }
+    }
+
+    private void deliver(List<Notification> batch) {
+        batches.incrementAndGet();
+        for (NotificationSink sink : sinks) {
+            boolean ok = false;
+            for (int attempt = 1; attempt <= MAX_DELIVERY_ATTEMPTS && !ok; attempt++) {
+                try {
+                    sink.deliver(batch);
+                    ok = true;
+                } catch (Exception e) {
+                    if (attempt < MAX_DELIVERY_ATTEMPTS) {
+                        retries.incrementAndGet();
+                        BatchDispatcher.sleepQuietly(RETRY_BACKOFF_MS << (attempt - 1));
+                    } else {
+                        System.err.println("Notification sink '" + sink.getName() + "' failed for "
+                                + batch.size() + " notification(s): " + e.getMessage());
+                    }
+                }
+            }
+            (ok ? delivered : failed).addAndGet(batch.size());
+        }
+        long now = System.nanoTime();
+        for (Notification notification : batch) {
+            deliveryLatency.record(now - notification.getEnqueuedAt());
+        }
+    }
+
+    private static List<NotificationSink> createSinks(List<String> names) {
+        List<NotificationSink> sinks = new ArrayList<>();
+        for (String name : names) {
+            switch (name) {
+                case "console":
+                    sinks.add(new ConsoleNotificationSink());
+                    break;
+                case "file":
+                    sinks.add(new FileNotificationSink(Path.of(AppConfig.getNotificationFilePath())));
+                    break;
+                case "inapp":
+                    sinks.add(new InAppNotificationSink(new PostgresFactory().createNotificationDAO(),
+                            new NotificationPushClient(AppConfig.getChatHost(), AppConfig.getChatPort(),
+                                    () -> SessionFacade.getInstance().getChatSessionToken())));
+                    break;
+                case "email":
+                    sinks.add(new OutboxEmailSink(Path.of(AppConfig.getNotificationOutboxDir()),
+                            AppConfig.getNotificationSender()));
+                    break;
+                default:
+                    System.err.println("Unknown notification sink '" + name + "', ignored");
+            }
+        }
+        return sinks;
+    }
+}
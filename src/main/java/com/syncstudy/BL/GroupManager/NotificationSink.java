@@ -0,0 +1,22 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.util.List;
+
+/**
+ * Destination of the notifications delivered by NotificationService.
+ * Called from the delivery workers, possibly from several threads at once.
+ */
+public interface NotificationSink {
+
+    /**
+     * @return short name used in logs and metrics
+     */
+    String getName();
+
+    /**
+     * Deliver a batch of notifications; throwing makes the service retry the whole batch
+     * @param batch notifications in the order they were sent
+     * @throws Exception if the batch could not be delivered
+     */
+    void deliver(List<Notification> batch) throws Exception;
+}
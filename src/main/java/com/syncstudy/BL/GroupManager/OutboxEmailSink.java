@@ -0,0 +1,70 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for an SMTP relay: writes each notification as an RFC 822
+ * message into a pickup directory, where a mail transfer agent (or a developer)
+ * can collect it. Files appear atomically, so a reader never sees a partial one.
+ */
+public class OutboxEmailSink implements NotificationSink {
+
+    private static final String DEFAULT_SUBJECT = "SyncStudy notification";
+
+    private final Path outbox;
+    private final String sender;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param outbox pickup directory, created if missing
+     * @param sender From address
+     */
+    public OutboxEmailSink(Path outbox, String sender) {
+        this.outbox = outbox;
+        this.sender = sender;
+    }
+
+    @Override
+    public String getName() {
+        return "email";
+    }
+
+    @Override
+    public void deliver(List<Notification> batch) throws IOException {
+        Files.createDirectories(outbox);
+        for (Notification notification : batch) {
+            String name = System.currentTimeMillis() + "-" + sequence.incrementAndGet() + ".eml";
+            Path tmp = outbox.resolve(name + ".tmp");
+            Files.writeString(tmp, format(notification), StandardCharsets.UTF_8);
+            Files.move(tmp, outbox.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private String format(Notification notification) {
+        String subject = notification.isEmail() ? notification.getSubject() : DEFAULT_SUBJECT;
+        String date = notification.getCreatedAt().atZone(ZoneId.systemDefault())
+                .format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        StringBuilder sb = new StringBuilder();
+        sb.append("From: ").append(sender).append("\r\n");
+        // Addresses are resolved by the relay from the user ID
+        sb.append("X-SyncStudy-User-Id: ").append(notification.getUserId()).append("\r\n");
+        sb.append("Subject: ").append(subject.replace('\r', ' ').replace('\n', ' ')).append("\r\n");
+        sb.append("Date: ").append(date).append("\r\n");
+        sb.append("Content-Type: text/plain; charset=UTF-8\r\n");
+        sb.append("\r\n");
+        sb.append(notification.getMessage());
+        if (notification.getOccurrences() > 1) {
+            sb.append("\r\n\r\n(sent ").append(notification.getOccurrences()).append(" times)");
+        }
+        sb.append("\r\n");
+        return sb.toString();
+    }
+}
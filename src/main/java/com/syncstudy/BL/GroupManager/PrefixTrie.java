@@ -0,0 +1,105 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Character trie from token to posting list, so every token starting with a
+ * prefix is reached by walking the prefix once and collecting the subtree
+ */
+class PrefixTrie {
+
+    private final Node root = new Node();
+
+    /**
+     * @param token folded token
+     * @param docId document containing it
+     */
+    void add(String token, int docId) {
+        Node node = root;
+        node.subtreeDocs = null;
+        for (int i = 0; i < token.length(); i++) {
+            node = node.children.computeIfAbsent(token.charAt(i), c -> new Node());
+            node.subtreeDocs = null;
+        }
+        if (node.postings == null) {
+            node.postings = new IntPostingList();
+        }
+        node.postings.add(docId);
+    }
+
+    /**
+     * @param token folded token
+     * @param docId document that no longer contains it
+     */
+    void remove(String token, int docId) {
+        Node[] path = new Node[token.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < token.length(); i++) {
+            path[i + 1] = path[i].children.get(token.charAt(i));
+            if (path[i + 1] == null) return;
+        }
+        Node leaf = path[token.length()];
+        if (leaf.postings == null) return;
+        for (Node node : path) {
+            node.subtreeDocs = null;
+        }
+        leaf.postings.remove(docId);
+        if (leaf.postings.isEmpty()) {
+            leaf.postings = null;
+        }
+        // Prune branches that no longer lead to any token
+        for (int i = token.length(); i > 0; i--) {
+            Node node = path[i];
+            if (node.postings != null || !node.children.isEmpty()) break;
+            path[i - 1].children.remove(token.charAt(i - 1));
+        }
+    }
+
+    /**
+     * Collect the documents of every token starting with a prefix
+     * @param prefix folded prefix
+     * @param out set receiving the document ids
+     */
+    void collectPrefix(String prefix, BitSet out) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node == null) return;
+        out.or(subtreeDocs(node));
+    }
+
+    /**
+     * Union of the postings below a node, cached until a token under it changes;
+     * short prefixes typed first in a search box are then a single BitSet OR
+     */
+    private BitSet subtreeDocs(Node node) {
+        if (node.subtreeDocs != null) {
+            return node.subtreeDocs;
+        }
+        BitSet docs = new BitSet();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node current = stack.pop();
+            if (current.postings != null) {
+                current.postings.addAllTo(docs);
+            }
+            for (Node child : current.children.values()) {
+                stack.push(child);
+            }
+        }
+        node.subtreeDocs = docs;
+        return docs;
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private IntPostingList postings;
+        private BitSet subtreeDocs;
+    }
+}
@@ -0,0 +1,133 @@
+package com.syncstudy.BL.GroupManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over a name and a description per document.
+ * Not thread-safe; GroupSearchIndex guards it.
+ */
+class TextIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int NAME_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final PrefixTrie names = new PrefixTrie();
+    private final PrefixTrie descriptions = new PrefixTrie();
+    // Tokens each document was indexed under, needed to remove it again
+    private final Map<Integer, Set<String>> nameTokens = new HashMap<>();
+    private final Map<Integer, Set<String>> descriptionTokens = new HashMap<>();
+    private int maxDocId = 0;
+
+    /**
+     * Lowercase, strip accents ("Études" -> "etudes") and split on anything but letters and digits
+     * @param text raw text, may be null
+     * @return distinct tokens in order of appearance
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null || text.isEmpty()) return tokens;
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Index or re-index a document
+     */
+    void put(int docId, String name, String description) {
+        remove(docId);
+        Set<String> nameSet = tokenize(name);
+        Set<String> descriptionSet = tokenize(description);
+        for (String token : nameSet) {
+            names.add(token, docId);
+        }
+        for (String token : descriptionSet) {
+            descriptions.add(token, docId);
+        }
+        maxDocId = Math.max(maxDocId, docId);
+        nameTokens.put(docId, nameSet);
+        descriptionTokens.put(docId, descriptionSet);
+    }
+
+    void remove(int docId) {
+        Set<String> oldNames = nameTokens.remove(docId);
+        if (oldNames != null) {
+            for (String token : oldNames) {
+                names.remove(token, docId);
+            }
+        }
+        Set<String> oldDescriptions = descriptionTokens.remove(docId);
+        if (oldDescriptions != null) {
+            for (String token : oldDescriptions) {
+                descriptions.remove(token, docId);
+            }
+        }
+    }
+
+    /**
+     * Same semantics as GroupDAO.searchGroups: terms are OR'ed, the words of a
+     * term are AND'ed, every word is a prefix. A word found in the name scores
+     * more than one found only in the description.
+     * @param terms search terms
+     * @return matching documents with their score
+     */
+    Hits search(List<String> terms) {
+        Hits hits = new Hits(maxDocId + 1);
+        if (terms == null) return hits;
+        for (String term : terms) {
+            List<String> words = new ArrayList<>(tokenize(term));
+            if (words.isEmpty()) continue;
+            BitSet[] inName = new BitSet[words.size()];
+            BitSet matches = null;
+            for (int i = 0; i < words.size(); i++) {
+                inName[i] = new BitSet();
+                names.collectPrefix(words.get(i), inName[i]);
+                BitSet either = new BitSet();
+                descriptions.collectPrefix(words.get(i), either);
+                either.or(inName[i]);
+                if (matches == null) {
+                    matches = either;
+                } else {
+                    matches.and(either);
+                }
+                if (matches.isEmpty()) break;
+            }
+            for (int docId = matches.nextSetBit(0); docId >= 0; docId = matches.nextSetBit(docId + 1)) {
+                int score = 0;
+                for (int i = 0; i < words.size(); i++) {
+                    score += inName[i].get(docId) ? NAME_WEIGHT : DESCRIPTION_WEIGHT;
+                }
+                hits.scores[docId] = Math.max(hits.scores[docId], score);
+            }
+            hits.docs.or(matches);
+        }
+        return hits;
+    }
+
+    /**
+     * Matching document ids and a dense score array indexed by document id
+     */
+    static class Hits {
+        final BitSet docs = new BitSet();
+        final int[] scores;
+
+        Hits(int capacity) {
+            this.scores = new int[capacity];
+        }
+    }
+}
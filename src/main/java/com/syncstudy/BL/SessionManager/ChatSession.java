@@ -0,0 +1,34 @@
+package com.syncstudy.BL.SessionManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user's session on the chat and attachment servers
+ */
+public class ChatSession {
+    private final String token;
+    private final Long userId;
+    private final LocalDateTime expiresAt;
+
+    public ChatSession(String token, Long userId, LocalDateTime expiresAt) {
+        this.token = token;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired() {
+        return expiresAt == null || !LocalDateTime.now().isBefore(expiresAt);
+    }
+}
@@ -0,0 +1,38 @@
+package com.syncstudy.BL.SessionManager;
+
+import java.time.LocalDateTime;
+
+/**
+ * Abstract Data Access Object for the session tokens of the chat and attachment servers
+ */
+public abstract class ChatSessionDAO {
+
+    /**
+     * Store a new session
+     * @param token random token handed to the client
+     * @param userId the logged-in user
+     * @param expiresAt when the token stops being accepted
+     * @return true if stored
+     */
+    public abstract boolean createSession(String token, Long userId, LocalDateTime expiresAt);
+
+    /**
+     * Find the session of a token
+     * @param token the token presented by a client
+     * @return the session, or null if unknown or expired
+     */
+    public abstract ChatSession findSession(String token);
+
+    /**
+     * Delete a session, e.g. on logout
+     * @param token the token
+     * @return true if it existed
+     */
+    public abstract boolean deleteSession(String token);
+
+    /**
+     * Delete every expired session
+     * @return number of sessions deleted
+     */
+    public abstract int deleteExpired();
+}
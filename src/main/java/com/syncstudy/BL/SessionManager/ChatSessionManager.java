@@ -0,0 +1,118 @@
+package com.syncstudy.BL.SessionManager;
+
+import com.syncstudy.PL.PostgresFactory;
+import com.syncstudy.WS.AppConfig;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Singleton ChatSessionManager issuing and checking the session tokens a
+ * logged-in client presents to the chat and attachment servers ("auth"), so
+ * that they act for that user only.
+ * A token is issued at login and deleted at logout. Servers look tokens up in
+ * the database and keep the ones they found for CACHE_TTL_MS, so a reconnecting
+ * client does not cost a query each time; a deleted token may thus still be
+ * accepted that long.
+ */
+public class ChatSessionManager {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final long CACHE_TTL_MS = 60_000;
+    private static final int MAX_CACHED = 10_000;
+
+    private static ChatSessionManager instance;
+
+    private final ChatSessionDAO chatSessionDAO;
+    private final long ttlHours;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+
+    private static final class Cached {
+        final ChatSession session;
+        final long checkedAt = System.currentTimeMillis();
+
+        Cached(ChatSession session) {
+            this.session = session;
+        }
+    }
+
+    private ChatSessionManager() {
+        this(new PostgresFactory().createChatSessionDAO(), AppConfig.getChatSessionTtlHours());
+    }
+
+    /**
+     * @param chatSessionDAO where sessions are stored
+     * @param ttlHours lifetime of a token
+     */
+    public ChatSessionManager(ChatSessionDAO chatSessionDAO, long ttlHours) {
+        this.chatSessionDAO = chatSessionDAO;
+        this.ttlHours = Math.max(1, ttlHours);
+    }
+
+    /**
+     * Get the singleton instance of ChatSessionManager
+     * @return ChatSessionManager instance
+     */
+    public static synchronized ChatSessionManager getInstance() {
+        if (instance == null) {
+            instance = new ChatSessionManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Issue a token for a user who just logged in
+     * @param userId the user ID
+     * @return the token, or null if it could not be stored
+     */
+    public String openSession(Long userId) {
+        if (userId == null) return null;
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = HexFormat.of().formatHex(bytes);
+        if (!chatSessionDAO.createSession(token, userId, LocalDateTime.now().plusHours(ttlHours))) {
+            return null;
+        }
+        // Expired sessions of everyone are purged at each login
+        chatSessionDAO.deleteExpired();
+        return token;
+    }
+
+    /**
+     * Revoke a token, on logout
+     * @param token the token, may be null
+     */
+    public void closeSession(String token) {
+        if (token == null) return;
+        cache.remove(token);
+        chatSessionDAO.deleteSession(token);
+    }
+
+    /**
+     * Check a token presented by a client
+     * @param token the token
+     * @return the user it was issued to, or null if unknown or expired
+     */
+    public Long authenticate(String token) {
+        if (token == null || token.isEmpty()) return null;
+        long now = System.currentTimeMillis();
+        Cached cached = cache.get(token);
+        if (cached == null || now - cached.checkedAt > CACHE_TTL_MS) {
+            ChatSession session = chatSessionDAO.findSession(token);
+            if (session == null) {
+                cache.remove(token);
+                return null;
+            }
+            if (cache.size() >= MAX_CACHED) {
+                cache.clear();
+            }
+            cached = new Cached(session);
+            cache.put(token, cached);
+        }
+        return cached.session.isExpired() ? null : cached.session.getUserId();
+    }
+}
@@ -65,8 +65,15 @@ public class SessionFacade {
     }
 
     public boolean logout() {
-        userManager.setCurrentUser(null);
-        return true;
+        return userManager.logout();
+    }
+
+    /**
+     * Get the token the chat and attachment servers know the current user by
+     * @return the token, or null if not logged in
+     */
+    public String getChatSessionToken() {
+        return userManager.getChatSessionToken();
     }
 
     public boolean isLoggedIn() {
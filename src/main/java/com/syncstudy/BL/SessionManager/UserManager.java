@@ -11,6 +11,9 @@ public class UserManager {
     private static UserManager instance = new UserManager();
     private UserDAO userDAO;
     private User currentUser;
+    // Presented by this client to the chat and attachment servers; the
+    // notification push reads it from the delivery threads
+    private volatile String chatSessionToken;
     private UserManager() {
     }
 
@@ -70,6 +73,8 @@ public class UserManager {
         }
         User user = userDAO.findUserByUsername(username);
         setCurrentUser(user);  // Set the current user after successful authentication
+        ChatSessionManager.getInstance().closeSession(chatSessionToken);
+        chatSessionToken = user != null ? ChatSessionManager.getInstance().openSession(user.getId()) : null;
         System.out.println("Current User : "+getCurrentUser());
         return true;
     }
@@ -95,10 +100,20 @@ public class UserManager {
      */
     public boolean logout() {
         this.currentUser = null;
+        ChatSessionManager.getInstance().closeSession(chatSessionToken);
+        chatSessionToken = null;
         System.out.println("User logged out successfully.");
         return true;
     }
 
+    /**
+     * @return token of the logged-in user for the chat and attachment servers,
+     * or null if not logged in or none could be issued
+     */
+    public String getChatSessionToken() {
+        return chatSessionToken;
+    }
+
     /**
      * Find a user by username
      * @param username the username to search for
@@ -18,159 +18,66 @@ import java.util.List;
  */
 public class AdminDAOPostgres extends AdminDAO {
 
+    // Window of the "Avg Messages/Day" statistic
+    private static final int RECENT_ACTIVITY_DAYS = 30;
+
     private DatabaseConnection dbConnection;
 
     public AdminDAOPostgres() {
         this.dbConnection = DatabaseConnection.getInstance();
-        initializeAdminTables();
-    }
-
-    /**
-     * Initialize admin-related database tables
-     */
-    private void initializeAdminTables() {
-        try (Connection conn = dbConnection.getConnection()) {
-            // Extend users table with admin fields
-            extendUsersTable(conn);
-            // Create block_records table
-            createBlockRecordsTable(conn);
-            // Create admin_logs table
-            createAdminLogsTable(conn);
-            // Set default admin user
-            setDefaultAdmin(conn);
-        } catch (SQLException e) {
-            System.err.println("Error initializing admin tables: " + e.getMessage());
-        }
-    }
-
-    private void extendUsersTable(Connection conn) {
-        String[] alterStatements = {
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS email VARCHAR(255)",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS full_name VARCHAR(255)",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS university VARCHAR(255)",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS department VARCHAR(255)",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS profile_photo VARCHAR(500)",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS is_blocked BOOLEAN DEFAULT FALSE",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS is_admin BOOLEAN DEFAULT FALSE",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS registration_date TIMESTAMP DEFAULT NOW()",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS last_login TIMESTAMP"
-        };
-
-        for (String sql : alterStatements) {
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(sql);
-            } catch (SQLException e) {
-                // Column might already exist, ignore
-            }
-        }
-        System.out.println("Users table extended with admin fields.");
     }
 
-    private void createBlockRecordsTable(Connection conn) {
-        String sql = "CREATE TABLE IF NOT EXISTS block_records (" +
-                "id SERIAL PRIMARY KEY, " +
-                "user_id BIGINT NOT NULL, " +
-                "admin_id BIGINT NOT NULL, " +
-                "block_date TIMESTAMP DEFAULT NOW(), " +
-                "unblock_date TIMESTAMP, " +
-                "reason TEXT NOT NULL, " +
-                "is_active BOOLEAN DEFAULT TRUE, " +
-                "FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE, " +
-                "FOREIGN KEY (admin_id) REFERENCES users(id))";
-
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("Table 'block_records' created or already exists.");
-        } catch (SQLException e) {
-            System.err.println("Error creating block_records table: " + e.getMessage());
-        }
-    }
-
-    private void createAdminLogsTable(Connection conn) {
-        String sql = "CREATE TABLE IF NOT EXISTS admin_logs (" +
-                "id SERIAL PRIMARY KEY, " +
-                "admin_id BIGINT NOT NULL, " +
-                "action VARCHAR(100) NOT NULL, " +
-                "target_user_id BIGINT, " +
-                "details TEXT, " +
-                "created_at TIMESTAMP DEFAULT NOW(), " +
-                "FOREIGN KEY (admin_id) REFERENCES users(id))";
-
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("Table 'admin_logs' created or already exists.");
-        } catch (SQLException e) {
-            System.err.println("Error creating admin_logs table: " + e.getMessage());
-        }
-    }
-
-    private void setDefaultAdmin(Connection conn) {
-        String sql = "UPDATE users SET is_admin = TRUE WHERE username = 'admin' AND is_admin IS NOT TRUE";
-        try (Statement stmt = conn.createStatement()) {
-            int rows = stmt.executeUpdate(sql);
-            if (rows > 0) {
-                System.out.println("Default admin user set.");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error setting default admin: " + e.getMessage());
-        }
+    @Override
+    public List<User> getAllUsers(String searchQuery, String statusFilter, String sortBy, int page, int pageSize) {
+        return getUsersPage(searchQuery, statusFilter, sortBy, null, page * pageSize, pageSize);
     }
 
     @Override
-    public List<User> getAllUsers(String searchQuery, String statusFilter, String sortBy, int page, int pageSize) {
+    public List<User> getUsersPage(String searchQuery, String statusFilter, String sortBy,
+                                   User after, int skip, int pageSize) {
         List<User> users = new ArrayList<>();
+        UserSort sort = UserSort.of(sortBy);
 
         StringBuilder sql = new StringBuilder(
             "SELECT id, username, email, full_name, university, department, " +
             "profile_photo, is_blocked, is_admin, registration_date, last_login " +
             "FROM users WHERE 1=1 "
         );
+        appendFilters(sql, searchQuery, statusFilter);
 
-        // Add search filter
-        if (searchQuery != null && !searchQuery.isEmpty()) {
-            sql.append("AND (LOWER(username) LIKE LOWER(?) OR LOWER(email) LIKE LOWER(?) OR LOWER(full_name) LIKE LOWER(?)) ");
+        // Seek past the cursor row: an index range scan instead of reading and discarding OFFSET rows
+        if (after != null) {
+            sql.append("AND (").append(sort.key).append(", id) ")
+               .append(sort.descending ? "< " : "> ")
+               .append(sort.cursorParameter).append(" ");
         }
 
-        // Add status filter
-        if ("Active".equalsIgnoreCase(statusFilter)) {
-            sql.append("AND (is_blocked IS NULL OR is_blocked = FALSE) ");
-        } else if ("Blocked".equalsIgnoreCase(statusFilter)) {
-            sql.append("AND is_blocked = TRUE ");
-        }
-
-        // Add sorting
-        switch (sortBy != null ? sortBy.toLowerCase() : "name") {
-            case "date":
-            case "registration":
-                sql.append("ORDER BY registration_date DESC ");
-                break;
-            case "lastlogin":
-            case "last_login":
-                sql.append("ORDER BY last_login DESC NULLS LAST ");
-                break;
-            case "name":
-            default:
-                sql.append("ORDER BY COALESCE(full_name, username) ASC ");
-                break;
-        }
-
-        // Add pagination
+        // Same expressions as the idx_users_*_key indexes; id breaks ties so pages never overlap
+        String direction = sort.descending ? " DESC" : " ASC";
+        sql.append("ORDER BY ").append(sort.key).append(direction).append(", id").append(direction).append(" ");
         sql.append("LIMIT ? OFFSET ?");
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
 
-            int paramIndex = 1;
-
-            if (searchQuery != null && !searchQuery.isEmpty()) {
-                String searchPattern = "%" + searchQuery + "%";
-                pstmt.setString(paramIndex++, searchPattern);
-                pstmt.setString(paramIndex++, searchPattern);
-                pstmt.setString(paramIndex++, searchPattern);
+            int paramIndex = bindFilters(pstmt, 1, searchQuery);
+
+            if (after != null) {
+                if (sort == UserSort.NAME) {
+                    pstmt.setString(paramIndex++, after.getFullName() != null ? after.getFullName() : after.getUsername());
+                } else {
+                    LocalDateTime key = sort == UserSort.REGISTRATION ? after.getRegistrationDate() : after.getLastLogin();
+                    if (key != null) {
+                        pstmt.setTimestamp(paramIndex++, Timestamp.valueOf(key));
+                    } else {
+                        pstmt.setNull(paramIndex++, Types.TIMESTAMP);
+                    }
+                }
+                pstmt.setLong(paramIndex++, after.getId());
             }
 
             pstmt.setInt(paramIndex++, pageSize);
-            pstmt.setInt(paramIndex, page * pageSize);
+            pstmt.setInt(paramIndex, Math.max(0, skip));
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -187,26 +94,12 @@ public class AdminDAOPostgres extends AdminDAO {
     @Override
     public int getTotalUsersCount(String searchQuery, String statusFilter) {
         StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM users WHERE 1=1 ");
-
-        if (searchQuery != null && !searchQuery.isEmpty()) {
-            sql.append("AND (LOWER(username) LIKE LOWER(?) OR LOWER(email) LIKE LOWER(?) OR LOWER(full_name) LIKE LOWER(?)) ");
-        }
-
-        if ("Active".equalsIgnoreCase(statusFilter)) {
-            sql.append("AND (is_blocked IS NULL OR is_blocked = FALSE) ");
-        } else if ("Blocked".equalsIgnoreCase(statusFilter)) {
-            sql.append("AND is_blocked = TRUE ");
-        }
+        appendFilters(sql, searchQuery, statusFilter);
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
 
-            if (searchQuery != null && !searchQuery.isEmpty()) {
-                String searchPattern = "%" + searchQuery + "%";
-                pstmt.setString(1, searchPattern);
-                pstmt.setString(2, searchPattern);
-                pstmt.setString(3, searchPattern);
-            }
+            bindFilters(pstmt, 1, searchQuery);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -220,6 +113,76 @@ public class AdminDAOPostgres extends AdminDAO {
         return 0;
     }
 
+    /**
+     * Search and status predicates shared by the page and count queries.
+     * LOWER(column) LIKE '%term%' is served by the trigram indexes of migration V7.
+     */
+    private void appendFilters(StringBuilder sql, String searchQuery, String statusFilter) {
+        if (searchQuery != null && !searchQuery.isEmpty()) {
+            sql.append("AND (LOWER(username) LIKE ? OR LOWER(email) LIKE ? OR LOWER(full_name) LIKE ?) ");
+        }
+
+        if ("Active".equalsIgnoreCase(statusFilter)) {
+            sql.append("AND (is_blocked IS NULL OR is_blocked = FALSE) ");
+        } else if ("Blocked".equalsIgnoreCase(statusFilter)) {
+            sql.append("AND is_blocked = TRUE ");
+        }
+    }
+
+    /**
+     * @return the next parameter index
+     */
+    private int bindFilters(PreparedStatement pstmt, int paramIndex, String searchQuery) throws SQLException {
+        if (searchQuery != null && !searchQuery.isEmpty()) {
+            String searchPattern = "%" + escapeLike(searchQuery.toLowerCase()) + "%";
+            pstmt.setString(paramIndex++, searchPattern);
+            pstmt.setString(paramIndex++, searchPattern);
+            pstmt.setString(paramIndex++, searchPattern);
+        }
+        return paramIndex;
+    }
+
+    // '_' and '%' typed in the search box are literal characters
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Sort modes of the user list, each with a stable (key, id) order backed by an index
+     */
+    private enum UserSort {
+        NAME("COALESCE(full_name, username)", false, "(?, ?)"),
+        // NULL dates sort last; the cursor binds NULL for a user without a date
+        REGISTRATION("COALESCE(registration_date, '-infinity'::timestamp)", true,
+                "(COALESCE(?::timestamp, '-infinity'::timestamp), ?)"),
+        LAST_LOGIN("COALESCE(last_login, '-infinity'::timestamp)", true,
+                "(COALESCE(?::timestamp, '-infinity'::timestamp), ?)");
+
+        private final String key;
+        private final boolean descending;
+        private final String cursorParameter;
+
+        UserSort(String key, boolean descending, String cursorParameter) {
+            this.key = key;
+            this.descending = descending;
+            this.cursorParameter = cursorParameter;
+        }
+
+        static UserSort of(String sortBy) {
+            switch (sortBy != null ? sortBy.toLowerCase() : "name") {
+                case "date":
+                case "registration":
+                    return REGISTRATION;
+                case "lastlogin":
+                case "last_login":
+                    return LAST_LOGIN;
+                case "name":
+                default:
+                    return NAME;
+            }
+        }
+    }
+
     @Override
     public boolean blockUser(Long userId, Long adminId, String reason) {
         Connection conn = null;
@@ -363,14 +326,7 @@ public class AdminDAOPostgres extends AdminDAO {
                 }
             }
 
-            // For now, set placeholder values for statistics
-            // In a full implementation, these would be calculated from related tables
-            activity.setMessagesCount(0);
-            activity.setFilesCount(0);
-            activity.setGroupsCount(0);
-            activity.setSessionsCreated(0);
-            activity.setSessionsAttended(0);
-            activity.setMostActiveGroup("N/A");
+            loadActivityRollup(conn, activity);
             activity.calculateEngagementScore();
 
         } catch (SQLException e) {
@@ -380,6 +336,47 @@ public class AdminDAOPostgres extends AdminDAO {
         return activity;
     }
 
+    /**
+     * Fill the statistics of a user from the rollup tables of migration V8,
+     * which triggers on messages keep current: a few primary-key lookups
+     * whatever the size of the messages table.
+     * There is no group membership or file table yet, so groups are those the
+     * user wrote in and files stay at 0.
+     */
+    private void loadActivityRollup(Connection conn, UserActivity activity) throws SQLException {
+        String sql = "SELECT " +
+                "(SELECT COALESCE(SUM(messages_count), 0) FROM user_group_activity WHERE user_id = ?) AS messages_count, " +
+                "(SELECT COUNT(*) FROM user_group_activity WHERE user_id = ?) AS groups_count, " +
+                "(SELECT COALESCE(SUM(messages_count), 0) FROM user_daily_activity " +
+                "  WHERE user_id = ? AND activity_date > CURRENT_DATE - ?) AS recent_messages, " +
+                "(SELECT g.name FROM user_group_activity a JOIN groups g ON g.group_id = a.group_id " +
+                "  WHERE a.user_id = ? ORDER BY a.messages_count DESC, a.last_message_at DESC LIMIT 1) AS most_active_group";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, activity.getUserId());
+            pstmt.setLong(2, activity.getUserId());
+            pstmt.setLong(3, activity.getUserId());
+            pstmt.setInt(4, RECENT_ACTIVITY_DAYS);
+            pstmt.setLong(5, activity.getUserId());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    activity.setMessagesCount(rs.getInt("messages_count"));
+                    activity.setGroupsCount(rs.getInt("groups_count"));
+                    String mostActiveGroup = rs.getString("most_active_group");
+                    activity.setMostActiveGroup(mostActiveGroup != null ? mostActiveGroup : "N/A");
+
+                    // Average over the recent window, or the account age if younger
+                    int days = Math.max(1, Math.min(RECENT_ACTIVITY_DAYS, activity.getAccountAgeDays() + 1));
+                    activity.setAvgMessagesPerDay((double) rs.getInt("recent_messages") / days);
+                }
+            }
+        }
+        activity.setFilesCount(0);
+        activity.setSessionsCreated(0);
+        activity.setSessionsAttended(0);
+    }
+
     @Override
     public List<BlockRecord> getBlockHistory(Long userId) {
         List<BlockRecord> records = new ArrayList<>();
@@ -0,0 +1,144 @@
+package com.syncstudy.PL;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded queue drained by one background thread in batches
+ * A batch is handed over once it holds batchSize items or its oldest item has
+ * waited maxDelayMs. close() stops accepting, wakes the thread and hands over
+ * everything still queued before returning.
+ * @param <T> queued item
+ */
+public class BatchDispatcher<T> {
+
+    private static final long CLOSE_TIMEOUT_MS = 10_000;
+
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final ToLongFunction<T> enqueuedAt;
+    private final Consumer<List<T>> handler;
+    private final Thread thread;
+    private volatile boolean accepting = true;
+
+    /**
+     * @param name name of the background thread
+     * @param capacity maximum number of queued items
+     * @param batchSize hand over as soon as this many items are queued
+     * @param maxDelayMs hand over when the oldest queued item has waited this long
+     * @param enqueuedAt System.nanoTime() at which an item was queued
+     * @param handler receives each batch, on the background thread (or on close())
+     */
+    public BatchDispatcher(String name, int capacity, int batchSize, long maxDelayMs,
+                           ToLongFunction<T> enqueuedAt, Consumer<List<T>> handler) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMs));
+        this.enqueuedAt = enqueuedAt;
+        this.handler = handler;
+        this.thread = new Thread(this::dispatchLoop, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue an item without waiting
+     * @return false if the queue is full or closed
+     */
+    public boolean offer(T item) {
+        return accepting && queue.offer(item);
+    }
+
+    /**
+     * Queue an item, waiting for space
+     * @return false if there was no space in time or the queue is closed
+     */
+    public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+        return accepting && queue.offer(item, timeout, unit);
+    }
+
+    public boolean isAccepting() {
+        return accepting;
+    }
+
+    /**
+     * @return number of queued items
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Stop accepting items and hand over everything still queued
+     */
+    public void close() {
+        if (!accepting) return;
+        accepting = false;
+        thread.interrupt();
+        try {
+            thread.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // An offer() racing with close() may have queued after the thread exited
+        List<T> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            handler.accept(rest);
+        }
+    }
+
+    /**
+     * Sleep through interrupts: close() relies on handlers finishing their batch
+     * @param millis time to sleep
+     */
+    public static void sleepQuietly(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                // Keep waiting out the backoff
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (accepting || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = enqueuedAt.applyAsLong(first) + maxDelayNanos;
+                while (batch.size() < batchSize && accepting) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) break;
+                    T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // close() wakes us up; drain whatever is left without waiting
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            if (!batch.isEmpty()) {
+                List<T> ready = new ArrayList<>(batch);
+                batch.clear();
+                try {
+                    handler.accept(ready);
+                } catch (RuntimeException e) {
+                    System.err.println(thread.getName() + ": batch of " + ready.size()
+                            + " item(s) failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -11,43 +11,20 @@ import java.util.List;
 
 public class MessageDAOPostgres extends MessageDAO {
 
+    // 6 bind parameters per row; keeps each statement well under the 32767 parameter limit
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+    private static final String UNIQUE_VIOLATION = "23505";
+
     private DatabaseConnection dbConnection;
 
     public MessageDAOPostgres() {
         this.dbConnection = DatabaseConnection.getInstance();
-        initializeDatabase();
-    }
-
-    private void initializeDatabase() {
-        try (Connection conn = dbConnection.getConnection()) {
-            createTableMessages(conn);
-        } catch (SQLException e) {
-            System.err.println("Error initializing messages table: " + e.getMessage());
-        }
-    }
-
-    private void createTableMessages(Connection conn) {
-        String sql = "CREATE TABLE IF NOT EXISTS messages (" +
-                "id SERIAL PRIMARY KEY, " +
-                "sender_id BIGINT NOT NULL REFERENCES users(id), " +
-                "group_id BIGINT NOT NULL, " +
-                "content TEXT NOT NULL, " +
-                "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
-                "modified_at TIMESTAMP, " +
-                "is_edited BOOLEAN DEFAULT FALSE)";
-
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("Table 'messages' created or already exists.");
-        } catch (SQLException e) {
-            System.err.println("Error creating messages table: " + e.getMessage());
-        }
     }
 
     @Override
     public Message findById(Long messageId) {
         String sql = "SELECT m.id, m.sender_id, m.group_id, m.content, " +
-                "m.created_at, m.modified_at, m.is_edited, " +
+                "m.created_at, m.modified_at, m.is_edited, m.seq, m.client_message_id, " +
                 // Alias username as full_name and provide NULL for profile_picture since users table doesn't have these columns
                 "u.username AS username, u.username AS full_name, NULL AS profile_picture " +
                 "FROM messages m " +
@@ -74,7 +51,7 @@ public class MessageDAOPostgres extends MessageDAO {
     @Override
     public List<Message> findByGroupId(Long groupId) {
         String sql = "SELECT m.id, m.sender_id, m.group_id, m.content, " +
-                "m.created_at, m.modified_at, m.is_edited, " +
+                "m.created_at, m.modified_at, m.is_edited, m.seq, m.client_message_id, " +
                 // Alias username as full_name and provide NULL for profile_picture
                 "u.username AS username, u.username AS full_name, NULL AS profile_picture " +
                 "FROM messages m " +
@@ -102,16 +79,60 @@ public class MessageDAOPostgres extends MessageDAO {
     }
 
     @Override
-    public List<Message> findByGroupIdWithPagination(Long groupId, LocalDateTime beforeTimestamp, int limit) {
-        String sql = "SELECT m.id, m.sender_id, m.group_id, m.content, " +
-                "m.created_at, m.modified_at, m.is_edited, " +
+    public List<Message> findByGroupIdWithPagination(Long groupId, LocalDateTime beforeTimestamp, Long beforeId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT m.id, m.sender_id, m.group_id, m.content, " +
+                "m.created_at, m.modified_at, m.is_edited, m.seq, m.client_message_id, " +
                 // Alias username as full_name and provide NULL for profile_picture
                 "u.username AS username, u.username AS full_name, NULL AS profile_picture " +
                 "FROM messages m " +
                 "JOIN users u ON m.sender_id = u.id " +
-                "WHERE m.group_id = ? AND m.created_at < ? " +
-                "ORDER BY m.created_at DESC " +
-                "LIMIT ?";
+                "WHERE m.group_id = ? ");
+
+        // Row comparison walks idx_messages_group_created_id without an OFFSET
+        if (beforeTimestamp != null && beforeId != null) {
+            sql.append("AND (m.created_at, m.id) < (?, ?) ");
+        } else if (beforeTimestamp != null) {
+            sql.append("AND m.created_at < ? ");
+        }
+        sql.append("ORDER BY m.created_at DESC, m.id DESC LIMIT ?");
+
+        List<Message> messages = new ArrayList<>();
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            int paramIndex = 1;
+            pstmt.setLong(paramIndex++, groupId);
+            if (beforeTimestamp != null) {
+                pstmt.setTimestamp(paramIndex++, Timestamp.valueOf(beforeTimestamp));
+                if (beforeId != null) {
+                    pstmt.setLong(paramIndex++, beforeId);
+                }
+            }
+            pstmt.setInt(paramIndex, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(extractMessageFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching paginated messages: " + e.getMessage());
+        }
+
+        return messages;
+    }
+
+    @Override
+    public List<Message> findByGroupIdAfterSeq(Long groupId, long afterSeq, int limit) {
+        // Range scan of idx_messages_group_seq
+        String sql = "SELECT m.id, m.sender_id, m.group_id, m.content, " +
+                "m.created_at, m.modified_at, m.is_edited, m.seq, m.client_message_id, " +
+                "u.username AS username, u.username AS full_name, NULL AS profile_picture " +
+                "FROM messages m " +
+                "JOIN users u ON m.sender_id = u.id " +
+                "WHERE m.group_id = ? AND m.seq > ? " +
+                "ORDER BY m.seq ASC LIMIT ?";
 
         List<Message> messages = new ArrayList<>();
 
@@ -119,7 +140,7 @@ public class MessageDAOPostgres extends MessageDAO {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, groupId);
-            pstmt.setTimestamp(2, Timestamp.valueOf(beforeTimestamp));
+            pstmt.setLong(2, afterSeq);
             pstmt.setInt(3, limit);
 
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -128,7 +149,8 @@ public class MessageDAOPostgres extends MessageDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error fetching paginated messages: " + e.getMessage());
+            System.err.println("Error fetching messages after seq: " + e.getMessage());
+            return null;
         }
 
         return messages;
@@ -136,8 +158,10 @@ public class MessageDAOPostgres extends MessageDAO {
 
     @Override
     public Message insert(Message message) {
-        String sql = "INSERT INTO messages (sender_id, group_id, content, created_at, is_edited) " +
-                "VALUES (?, ?, ?, ?, ?) RETURNING id";
+        // seq comes from the messages_seq_insert trigger; the sender's name saves a findById for broadcasts
+        String sql = "INSERT INTO messages (sender_id, group_id, content, created_at, is_edited, client_message_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?) " +
+                "RETURNING id, seq, (SELECT u.username FROM users u WHERE u.id = messages.sender_id) AS username";
 
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -147,14 +171,25 @@ public class MessageDAOPostgres extends MessageDAO {
             pstmt.setString(3, message.getContent());
             pstmt.setTimestamp(4, Timestamp.valueOf(message.getCreatedAt()));
             pstmt.setBoolean(5, message.isEdited());
+            pstmt.setString(6, message.getClientMessageId());
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     message.setId(rs.getLong("id"));
+                    message.setSeq(rs.getLong("seq"));
+                    String username = rs.getString("username");
+                    if (username != null && message.getSenderUsername() == null) {
+                        message.setSenderUsername(username);
+                        message.setSenderFullName(username);
+                    }
                     return message;
                 }
             }
         } catch (SQLException e) {
+            if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                // Same client_message_id already stored (a resend): the caller looks it up
+                return null;
+            }
             System.err.println("Error inserting message: " + e.getMessage());
             e.printStackTrace();
         }
@@ -162,6 +197,116 @@ public class MessageDAOPostgres extends MessageDAO {
         return null;
     }
 
+    @Override
+    public Message findByClientMessageId(Long senderId, String clientMessageId) {
+        String sql = "SELECT m.id, m.sender_id, m.group_id, m.content, " +
+                "m.created_at, m.modified_at, m.is_edited, m.seq, m.client_message_id, " +
+                "u.username AS username, u.username AS full_name, NULL AS profile_picture " +
+                "FROM messages m " +
+                "JOIN users u ON m.sender_id = u.id " +
+                "WHERE m.sender_id = ? AND m.client_message_id = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, senderId);
+            pstmt.setString(2, clientMessageId);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return extractMessageFromResultSet(rs);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding message by client id: " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    @Override
+    public List<Long> reserveIds(int count) {
+        String sql = "SELECT nextval(pg_get_serial_sequence('messages', 'id')) FROM generate_series(1, ?)";
+
+        List<Long> ids = new ArrayList<>(count);
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, count);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reserving message ids: " + e.getMessage());
+            ids.clear();
+        }
+
+        return ids;
+    }
+
+    @Override
+    public boolean insertBatch(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return true;
+        }
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < messages.size(); from += MAX_ROWS_PER_STATEMENT) {
+                    List<Message> chunk = messages.subList(from, Math.min(messages.size(), from + MAX_ROWS_PER_STATEMENT));
+                    insertRows(conn, chunk);
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error inserting message batch of " + messages.size() + ": " + e.getMessage());
+        }
+
+        return false;
+    }
+
+    /**
+     * One multi-row INSERT for a chunk of messages.
+     * Rows already stored (a retried batch whose commit was not acknowledged) are
+     * filtered out before the insert: the seq trigger runs before ON CONFLICT
+     * skips a row, so a skipped row would still use up a seq of its group.
+     */
+    private void insertRows(Connection conn, List<Message> rows) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO messages (id, sender_id, group_id, content, created_at, is_edited) " +
+                "SELECT v.id, v.sender_id, v.group_id, v.content, v.created_at, v.is_edited FROM (VALUES ");
+        for (int i = 0; i < rows.size(); i++) {
+            sql.append(i == 0
+                    ? "(CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS TEXT), CAST(? AS TIMESTAMP), CAST(? AS BOOLEAN))"
+                    : ", (?, ?, ?, ?, ?, ?)");
+        }
+        sql.append(") AS v (id, sender_id, group_id, content, created_at, is_edited) " +
+                "WHERE NOT EXISTS (SELECT 1 FROM messages m WHERE m.id = v.id) " +
+                "ON CONFLICT (id) DO NOTHING");
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int paramIndex = 1;
+            for (Message message : rows) {
+                pstmt.setLong(paramIndex++, message.getId());
+                pstmt.setLong(paramIndex++, message.getSenderId());
+                pstmt.setLong(paramIndex++, message.getGroupId());
+                pstmt.setString(paramIndex++, message.getContent());
+                pstmt.setTimestamp(paramIndex++, Timestamp.valueOf(message.getCreatedAt()));
+                pstmt.setBoolean(paramIndex++, message.isEdited());
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
     @Override
     public boolean update(Message message) {
         String sql = "UPDATE messages SET content = ?, modified_at = ?, is_edited = ? WHERE id = ?";
@@ -263,6 +408,12 @@ public class MessageDAOPostgres extends MessageDAO {
 
         message.setContent(rs.getString("content"));
         message.setEdited(rs.getBoolean("is_edited"));
+
+        Object seqObj = rs.getObject("seq");
+        if (seqObj != null) {
+            message.setSeq(((Number) seqObj).longValue());
+        }
+        message.setClientMessageId(rs.getString("client_message_id"));
         message.setSenderUsername(rs.getString("username"));
         message.setSenderFullName(rs.getString("full_name"));
         message.setSenderProfilePicture(rs.getString("profile_picture"));
@@ -0,0 +1,334 @@
+package com.syncstudy.PL;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool
+ * Hands out proxies whose close() returns the physical connection to the pool.
+ * Supports min/max sizing, idle eviction, validation on borrow, wait timeout
+ * and leak detection with the borrow-site stack trace.
+ */
+public class ConnectionPool {
+
+    private static final long HOUSEKEEPING_PERIOD_MS = 30_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long waitTimeoutMs;
+    private final long leakThresholdMs;
+
+    // Most recently returned connection first, so the tail ages out under low load
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // Metrics
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLong totalCreated = new AtomicLong();
+    private final AtomicLong totalDiscarded = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final LatencyHistogram borrowLatency = new LatencyHistogram();
+
+    /**
+     * Create a pool; physical connections are opened lazily
+     * @param url JDBC URL
+     * @param user database user
+     * @param password database password
+     * @param minSize connections kept open once warmed up
+     * @param maxSize hard upper bound of physical connections
+     * @param idleTimeoutMs idle time after which a connection above minSize is closed
+     * @param waitTimeoutMs maximum time a caller waits for a free connection
+     * @param leakThresholdMs borrow duration after which a leak is reported (0 disables)
+     */
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long idleTimeoutMs, long waitTimeoutMs, long leakThresholdMs) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ConnectionPool-Housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_PERIOD_MS, HOUSEKEEPING_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the configured wait timeout
+     * @return a pooled connection; closing it returns it to the pool
+     * @throws SQLException if the pool is exhausted or a connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        waiters.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+
+        if (!acquired) {
+            borrowTimeouts.incrementAndGet();
+            throw new SQLException("Timed out after " + waitTimeoutMs + "ms waiting for a database connection ("
+                    + borrowed.size() + " in use, max " + maxSize + ")");
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(openPhysical());
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = leakThresholdMs > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            borrowLatency.record(System.nanoTime() - start);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Open connections until minSize is reached
+     * @return false if a connection could not be opened
+     */
+    public boolean warmUp() {
+        while (!closed && idle.size() + borrowed.size() < minSize) {
+            if (!permits.tryAcquire()) {
+                return true;
+            }
+            try {
+                PooledConnection pooled = new PooledConnection(openPhysical());
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                System.err.println("Error warming up connection pool: " + e.getMessage());
+                return false;
+            } finally {
+                permits.release();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get a snapshot of the pool statistics
+     * @return PoolMetrics snapshot
+     */
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(borrowed.size(), idle.size(), waiters.get(), maxSize,
+                totalCreated.get(), totalDiscarded.get(), borrowTimeouts.get(),
+                leaksDetected.get(), borrowLatency);
+    }
+
+    /**
+     * Close all idle connections and stop housekeeping.
+     * Borrowed connections are closed physically when their holders release them.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled.physical)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+    private boolean isUsable(Connection physical) {
+        try {
+            return !physical.isClosed() && physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        totalCreated.incrementAndGet();
+        return physical;
+    }
+
+    private void release(PooledConnection pooled) {
+        if (!borrowed.remove(pooled)) {
+            return;
+        }
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            // Leave the connection in a clean state for the next borrower
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.physical.clearWarnings();
+            pooled.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalDiscarded.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Evict connections idle for too long, keeping at least minSize open
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() + borrowed.size() > minSize) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.lastReturnedAt > idleTimeoutMs && idle.remove(pooled)) {
+                    discard(pooled);
+                }
+            }
+
+            // Report connections held longer than the leak threshold
+            if (leakThresholdMs > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMs) {
+                        pooled.leakReported = true;
+                        leaksDetected.incrementAndGet();
+                        System.err.println("Possible connection leak: held for " + (now - pooled.borrowedAt) + "ms");
+                        if (pooled.borrowSite != null) {
+                            pooled.borrowSite.printStackTrace();
+                        }
+                    }
+                }
+            }
+
+            warmUp();
+        } catch (RuntimeException e) {
+            System.err.println("Error during connection pool housekeeping: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Physical connection plus bookkeeping; handed out through a fresh proxy per borrow
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private volatile long borrowedAt;
+        private volatile long lastReturnedAt;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    /**
+     * Proxy handler; a handle becomes unusable once closed even if the physical connection is reused
+     */
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (released.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    if (released.get()) {
+                        throw new SQLException("Connection is closed");
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
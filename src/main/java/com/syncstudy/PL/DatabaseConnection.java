@@ -2,12 +2,12 @@ package com.syncstudy.PL;
 
 import io.github.cdimascio.dotenv.Dotenv;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * Singleton Database Connection Manager
- * Manages database connections without exposing DB-specific details
+ * Manages database connections without exposing DB-specific details.
+ * Connections come from a bounded pool; closing them returns them to the pool.
  */
 public class DatabaseConnection {
     private static DatabaseConnection instance;
@@ -15,6 +15,14 @@ public class DatabaseConnection {
     private String dbUser;
     private String dbPassword;
 
+    // Pool settings, overridable through .env or environment variables
+    private int poolMinSize;
+    private int poolMaxSize;
+    private long poolIdleTimeoutMs;
+    private long poolWaitTimeoutMs;
+    private long poolLeakThresholdMs;
+    private volatile ConnectionPool pool;
+
     private DatabaseConnection() {
         // Load .env file from project root
         Dotenv dotenv = Dotenv.configure()
@@ -30,9 +38,18 @@ public class DatabaseConnection {
             throw new RuntimeException("Database configuration not found. Please create a .env file with DB_URL, DB_USER, and DB_PASSWORD or set them as environment variables.");
         }
 
+        this.poolMinSize = (int) getLongSetting(dotenv, "DB_POOL_MIN_SIZE", 2);
+        this.poolMaxSize = (int) getLongSetting(dotenv, "DB_POOL_MAX_SIZE", 10);
+        this.poolIdleTimeoutMs = getLongSetting(dotenv, "DB_POOL_IDLE_TIMEOUT_MS", 600_000);
+        this.poolWaitTimeoutMs = getLongSetting(dotenv, "DB_POOL_WAIT_TIMEOUT_MS", 30_000);
+        this.poolLeakThresholdMs = getLongSetting(dotenv, "DB_POOL_LEAK_THRESHOLD_MS", 60_000);
+
         System.out.println("Database Configuration:");
         System.out.println("URL: " + this.dbUrl);
         System.out.println("User: " + this.dbUser);
+        System.out.println("Pool: min=" + poolMinSize + ", max=" + poolMaxSize);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "DatabaseConnection-Shutdown"));
     }
 
     /**
@@ -46,6 +63,22 @@ public class DatabaseConnection {
         return value;
     }
 
+    /**
+     * Get a numeric setting, falling back to a default when missing or malformed
+     */
+    private long getLongSetting(Dotenv dotenv, String key, long defaultValue) {
+        String value = getEnvVariable(dotenv, key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
     /**
      * Get the singleton instance
      * @return DatabaseConnection instance
@@ -63,16 +96,63 @@ public class DatabaseConnection {
 
     /**
      * Get a connection to the database
+     * The connection is borrowed from the pool; close it to give it back.
      * @return Connection object
-     * @throws SQLException if connection fails
+     * @throws SQLException if connection fails or the pool wait times out
      */
     public Connection getConnection() throws SQLException {
+        return getPool().getConnection();
+    }
+
+    /**
+     * Open the minimum number of pooled connections ahead of first use
+     * @return false if the pool could not be filled
+     */
+    public boolean warmUpPool() {
         try {
-            Class.forName("org.postgresql.Driver");
-            return DriverManager.getConnection(dbUrl, dbUser, dbPassword);
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("PostgreSQL Driver not found", e);
+            return getPool().warmUp();
+        } catch (SQLException e) {
+            System.err.println("Error warming up connection pool: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Get connection pool statistics
+     * @return PoolMetrics snapshot
+     * @throws SQLException if the pool cannot be created
+     */
+    public PoolMetrics getPoolMetrics() throws SQLException {
+        return getPool().getMetrics();
+    }
+
+    /**
+     * Close the connection pool (call on application shutdown)
+     */
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private ConnectionPool getPool() throws SQLException {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (this) {
+                if (pool == null) {
+                    try {
+                        Class.forName("org.postgresql.Driver");
+                    } catch (ClassNotFoundException e) {
+                        throw new SQLException("PostgreSQL Driver not found", e);
+                    }
+                    pool = new ConnectionPool(dbUrl, dbUser, dbPassword, poolMinSize, poolMaxSize,
+                            poolIdleTimeoutMs, poolWaitTimeoutMs, poolLeakThresholdMs);
+                }
+                current = pool;
+            }
         }
+        return current;
     }
 
     /**
@@ -81,9 +161,11 @@ public class DatabaseConnection {
      * @param dbUser database user
      * @param dbPassword database password
      */
-    public void setConfiguration(String dbUrl, String dbUser, String dbPassword) {
+    public synchronized void setConfiguration(String dbUrl, String dbUser, String dbPassword) {
         this.dbUrl = dbUrl;
         this.dbUser = dbUser;
         this.dbPassword = dbPassword;
+        // Connections to the previous database must not be reused
+        shutdown();
     }
 }
\ No newline at end of file
@@ -1,72 +1,214 @@
 package com.syncstudy.PL;
 
+import com.syncstudy.PL.ProfileManager.ProfileDAOPostgres;
+import com.syncstudy.PL.SessionManager.UserDAOPostgres;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
 
 /**
  * Database Initializer
- * Creates necessary tables if they don't exist
+ * Brings the schema up to date once per process by applying the versioned
+ * scripts under /db/migration in order, then seeds the default users.
+ * Applied versions are recorded in schema_version with a checksum of their
+ * script; a script edited after it was applied stops the startup, since the
+ * database no longer matches what the code expects.
+ * DAO constructors do not touch the schema.
  */
 public class DatabaseInitializer {
 
+    private static final String MIGRATION_PATH = "/db/migration/";
+    // Applied in this order; never edit or reorder a released script, add a new version instead
+    private static final String[] MIGRATIONS = {
+            "V1__users_and_admin.sql",
+            "V2__groups_and_categories.sql",
+            "V3__messages.sql",
+            "V4__profiles.sql",
+            "V5__group_search_vector.sql",
+            "V6__groups_category_index.sql",
+            "V7__users_admin_list_indexes.sql",
+            "V8__user_activity_rollup.sql",
+            "V9__notifications.sql",
+            "V10__message_seq.sql",
+            "V11__chat_sessions.sql"
+    };
+    // Serializes migrations across application instances starting at the same time
+    private static final long MIGRATION_LOCK_KEY = 0x5359_4E43_5354_5544L;
+
+    private static boolean migrated = false;
+    private static boolean seeded = false;
+
     /**
-     * Initialize the database by creating all necessary tables
+     * Apply pending migrations and seed default data; later calls do nothing
      */
     public static void initialize() {
+        try {
+            migrate();
+        } catch (SQLException | IllegalStateException e) {
+            System.err.println(" Error initializing database: " + e.getMessage());
+            return;
+        }
+        seedDefaultData();
+    }
+
+    /**
+     * Apply every migration not yet recorded in schema_version, once per process
+     * @throws SQLException if a migration fails (it is rolled back)
+     * @throws IllegalStateException if an applied script was modified or cannot be read
+     */
+    public static synchronized void migrate() throws SQLException {
+        if (migrated) return;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SELECT pg_advisory_lock(" + MIGRATION_LOCK_KEY + ")");
+            }
+            try {
+                createVersionTable(conn);
+                Map<Integer, String> applied = loadAppliedChecksums(conn);
+
+                int pending = 0;
+                for (String script : MIGRATIONS) {
+                    int version = versionOf(script);
+                    String sql = readScript(script);
+                    String checksum = checksum(sql);
+
+                    String appliedChecksum = applied.remove(version);
+                    if (appliedChecksum != null) {
+                        if (!appliedChecksum.equals(checksum)) {
+                            throw new IllegalStateException("Migration " + script
+                                    + " was modified after being applied (checksum mismatch)");
+                        }
+                        continue;
+                    }
+                    applyMigration(conn, version, script, sql, checksum);
+                    pending++;
+                }
+
+                if (!applied.isEmpty()) {
+                    System.err.println("Database has migrations unknown to this version: " + applied.keySet());
+                }
+                System.out.println(pending > 0
+                        ? "Applied " + pending + " schema migration(s)."
+                        : "Database schema is up to date.");
+                migrated = true;
+            } finally {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SELECT pg_advisory_unlock(" + MIGRATION_LOCK_KEY + ")");
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the default admin, test users and their profiles, once per process.
+     * Must run after migrate().
+     */
+    public static synchronized void seedDefaultData() {
+        if (seeded) return;
+        // Note: Default users need BCrypt hashes, which plain SQL scripts cannot compute
+        new UserDAOPostgres().seedDefaultUsers();
+        new ProfileDAOPostgres().seedTestProfiles();
+        seeded = true;
+    }
+
+    private static void createVersionTable(Connection conn) throws SQLException {
         String sql = """
-            -- Create users table
-            CREATE TABLE IF NOT EXISTS users (
-                id SERIAL PRIMARY KEY,
-                username VARCHAR(255) UNIQUE NOT NULL,
-                password_hash VARCHAR(255) NOT NULL,
-                email VARCHAR(255),
-                full_name VARCHAR(255),
-                university VARCHAR(255),
-                department VARCHAR(255),
-                profile_photo VARCHAR(500),
-                is_blocked BOOLEAN DEFAULT FALSE,
-                is_admin BOOLEAN DEFAULT FALSE,
-                registration_date TIMESTAMP DEFAULT NOW(),
-                last_login TIMESTAMP
-            );
-
-            -- Create block_records table
-            CREATE TABLE IF NOT EXISTS block_records (
-                id SERIAL PRIMARY KEY,
-                user_id BIGINT NOT NULL,
-                admin_id BIGINT NOT NULL,
-                block_date TIMESTAMP DEFAULT NOW(),
-                unblock_date TIMESTAMP,
-                reason TEXT NOT NULL,
-                is_active BOOLEAN DEFAULT TRUE,
-                FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
-                FOREIGN KEY (admin_id) REFERENCES users(id)
-            );
-
-            -- Create admin_logs table
-            CREATE TABLE IF NOT EXISTS admin_logs (
-                id SERIAL PRIMARY KEY,
-                admin_id BIGINT NOT NULL,
-                action VARCHAR(100) NOT NULL,
-                target_user_id BIGINT,
-                details TEXT,
-                created_at TIMESTAMP DEFAULT NOW(),
-                FOREIGN KEY (admin_id) REFERENCES users(id)
-            );
+            CREATE TABLE IF NOT EXISTS schema_version (
+                version INTEGER PRIMARY KEY,
+                description VARCHAR(200) NOT NULL,
+                script VARCHAR(200) NOT NULL,
+                checksum CHAR(64) NOT NULL,
+                installed_at TIMESTAMP NOT NULL DEFAULT NOW(),
+                execution_ms INTEGER NOT NULL
+            )
             """;
 
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             Statement stmt = conn.createStatement()) {
-
+        try (Statement stmt = conn.createStatement()) {
             stmt.execute(sql);
-            System.out.println(" Database tables created successfully !!!! here here ");
+        }
+    }
 
-            // Note: Default users are created by UserDAOPostgres with correct BCrypt hashes
+    private static Map<Integer, String> loadAppliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+        return applied;
+    }
 
-        } catch (Exception e) {
-            System.err.println(" Error initializing database: " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Run one script and record it, in a single transaction
+     */
+    private static void applyMigration(Connection conn, int version, String script,
+                                       String sql, String checksum) throws SQLException {
+        long start = System.nanoTime();
+        conn.setAutoCommit(false);
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            }
+            String insertSql = "INSERT INTO schema_version (version, description, script, checksum, execution_ms) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+                pstmt.setInt(1, version);
+                pstmt.setString(2, descriptionOf(script));
+                pstmt.setString(3, script);
+                pstmt.setString(4, checksum);
+                pstmt.setInt(5, (int) ((System.nanoTime() - start) / 1_000_000));
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+            System.out.println("Applied migration " + script);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Migration " + script + " failed: " + e.getMessage(), e);
+        } finally {
+            conn.setAutoCommit(true);
         }
     }
-}
 
+    private static String readScript(String script) {
+        try (InputStream in = DatabaseInitializer.class.getResourceAsStream(MIGRATION_PATH + script)) {
+            if (in == null) {
+                throw new IllegalStateException("Migration script not found: " + MIGRATION_PATH + script);
+            }
+            // Checkouts with CRLF line endings must not look like a modified script
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read migration " + script + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String checksum(String sql) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(sql.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // "V3__messages.sql" -> 3
+    private static int versionOf(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    // "V5__group_search_vector.sql" -> "group search vector"
+    private static String descriptionOf(String script) {
+        return script.substring(script.indexOf("__") + 2, script.lastIndexOf('.')).replace('_', ' ');
+    }
+}
@@ -4,12 +4,17 @@ import com.syncstudy.BL.GroupManager.Category;
 import com.syncstudy.BL.GroupManager.CategoryAssignment;
 import com.syncstudy.BL.GroupManager.CategoryDAO;
 import com.syncstudy.BL.GroupManager.Group;
+import com.syncstudy.BL.GroupManager.GroupMove;
 import com.syncstudy.PL.DatabaseConnection;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * CategoryDAOPostgres - PostgreSQL implementation of CategoryDAO
@@ -21,63 +26,6 @@ public class CategoryDAOPostgres extends CategoryDAO {
 
     public CategoryDAOPostgres() {
         this.dbConnection = DatabaseConnection.getInstance();
-        initializeDatabase();
-    }
-
-    /**
-     * Initialize database tables for categories
-     */
-    private void initializeDatabase() {
-        try (Connection conn = dbConnection.getConnection()) {
-            extendCategoriesTable(conn);
-            createCategoryAssignmentsTable(conn);
-        } catch (SQLException e) {
-            System.err.println("Error initializing Category database: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Extend the categories table with new columns
-     */
-    private void extendCategoriesTable(Connection conn) {
-        String[] alterStatements = {
-            "ALTER TABLE categories ADD COLUMN IF NOT EXISTS category_administrator_id BIGINT REFERENCES users(id) ON DELETE SET NULL",
-            "ALTER TABLE categories ADD COLUMN IF NOT EXISTS created_at TIMESTAMP DEFAULT NOW()",
-            "ALTER TABLE categories ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP DEFAULT NOW()"
-        };
-
-        for (String sql : alterStatements) {
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(sql);
-            } catch (SQLException e) {
-                // Column might already exist
-                System.err.println("Note: " + e.getMessage());
-            }
-        }
-        System.out.println("Categories table extended with admin columns.");
-    }
-
-    /**
-     * Create the category_assignments table
-     */
-    private void createCategoryAssignmentsTable(Connection conn) {
-        String sql = """
-            CREATE TABLE IF NOT EXISTS category_assignments (
-                id SERIAL PRIMARY KEY,
-                category_id BIGINT NOT NULL REFERENCES categories(category_id) ON DELETE CASCADE,
-                user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
-                assigned_at TIMESTAMP DEFAULT NOW(),
-                removed_at TIMESTAMP,
-                is_active BOOLEAN DEFAULT TRUE
-            )
-            """;
-
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("Category assignments table created successfully.");
-        } catch (SQLException e) {
-            System.err.println("Error creating category_assignments table: " + e.getMessage());
-        }
     }
 
     /**
@@ -107,9 +55,11 @@ public class CategoryDAOPostgres extends CategoryDAO {
             SELECT c.*, 
                    u.username as admin_username,
                    u.full_name as admin_full_name,
-                   (SELECT COUNT(*) FROM groups g WHERE g.category_id = c.category_id) as groups_count
+                   COALESCE(gc.groups_count, 0) as groups_count
             FROM categories c
             LEFT JOIN users u ON c.category_administrator_id = u.id
+            LEFT JOIN (SELECT category_id, COUNT(*) AS groups_count FROM groups GROUP BY category_id) gc
+                   ON gc.category_id = c.category_id
             ORDER BY c.name
             """;
 
@@ -535,6 +485,70 @@ public class CategoryDAOPostgres extends CategoryDAO {
         return assignGroupToCategory(groupId, null);
     }
 
+    @Override
+    public GroupMove moveGroupToCategory(Long groupId, Long categoryId) {
+        GroupMove move = moveGroupsToCategory(List.of(groupId), categoryId).get(0);
+        return move.isMoved() ? move : null;
+    }
+
+    @Override
+    public List<GroupMove> moveGroupsToCategory(List<Long> groupIds, Long categoryId) {
+        // Lock the rows in id order so concurrent bulk moves cannot deadlock,
+        // and read each previous category_id before it is overwritten
+        String sql = """
+            WITH old AS (
+                SELECT group_id, category_id FROM groups
+                WHERE group_id = ANY(?)
+                ORDER BY group_id
+                FOR UPDATE
+            )
+            UPDATE groups g SET category_id = ?
+            FROM old
+            WHERE g.group_id = old.group_id
+            RETURNING g.group_id, old.category_id
+            """;
+
+        Set<Long> distinctIds = new LinkedHashSet<>(groupIds);
+        Map<Long, GroupMove> moved = new HashMap<>();
+        boolean failed = false;
+
+        // A single statement is atomic: a bad category moves nothing
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setArray(1, conn.createArrayOf("bigint", distinctIds.toArray(new Long[0])));
+            if (categoryId != null) {
+                pstmt.setLong(2, categoryId);
+            } else {
+                pstmt.setNull(2, Types.BIGINT);
+            }
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long groupId = rs.getLong(1);
+                    long previous = rs.getLong(2);
+                    moved.put(groupId, new GroupMove(groupId, rs.wasNull() ? null : previous, categoryId));
+                }
+            }
+            System.out.println(moved.size() + " groups assigned to category " + categoryId);
+
+        } catch (SQLException e) {
+            System.err.println("Error moving groups to category: " + e.getMessage());
+            failed = true;
+        }
+
+        List<GroupMove> outcomes = new ArrayList<>(distinctIds.size());
+        for (Long groupId : distinctIds) {
+            GroupMove move = moved.get(groupId);
+            if (move == null) {
+                move = new GroupMove(groupId, null, categoryId,
+                        failed ? GroupMove.Outcome.FAILED : GroupMove.Outcome.NOT_FOUND);
+            }
+            outcomes.add(move);
+        }
+        return outcomes;
+    }
+
     @Override
     public List<Category> searchCategories(String searchTerm) {
         List<Category> categories = new ArrayList<>();
@@ -542,9 +556,11 @@ public class CategoryDAOPostgres extends CategoryDAO {
             SELECT c.*, 
                    u.username as admin_username,
                    u.full_name as admin_full_name,
-                   (SELECT COUNT(*) FROM groups g WHERE g.category_id = c.category_id) as groups_count
+                   COALESCE(gc.groups_count, 0) as groups_count
             FROM categories c
             LEFT JOIN users u ON c.category_administrator_id = u.id
+            LEFT JOIN (SELECT category_id, COUNT(*) AS groups_count FROM groups GROUP BY category_id) gc
+                   ON gc.category_id = c.category_id
             WHERE LOWER(c.name) LIKE LOWER(?) OR LOWER(c.description) LIKE LOWER(?)
             ORDER BY c.name
             """;
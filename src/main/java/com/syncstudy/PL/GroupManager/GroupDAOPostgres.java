@@ -14,84 +14,15 @@ import java.time.LocalDateTime;
  * GroupDAOPostgres - PostgreSQL implementation of GroupDAO
  */
 public class GroupDAOPostgres extends GroupDAO {
+    // Text search configuration of groups.search_vector, see V5__group_search_vector.sql
+    private static final String SEARCH_CONFIG = "french_unaccent";
+
     // Attributes
     private DatabaseConnection dbConnection;
     
     // Constructor
     public GroupDAOPostgres() {
         this.dbConnection = DatabaseConnection.getInstance();
-        initializeDatabase();
-    }
-    
-    // Private initialization method
-    private void initializeDatabase() {
-        try (Connection conn = dbConnection.getConnection()) {
-            createTableGroups(conn);
-            createTableCategories(conn);
-            insertDefaultCategories(conn);
-        } catch (SQLException e) {
-            System.err.println("Error initializing Group database: " + e.getMessage());
-        }
-    }
-    
-    // Database initialization methods
-    public void createTableGroups(Connection conn) {
-        String sql = """
-            CREATE TABLE IF NOT EXISTS categories (
-                category_id SERIAL PRIMARY KEY,
-                name VARCHAR(100) NOT NULL UNIQUE,
-                description TEXT,
-                icon VARCHAR(50),
-                color VARCHAR(20)
-            );
-            
-            CREATE TABLE IF NOT EXISTS groups (
-                group_id SERIAL PRIMARY KEY,
-                name VARCHAR(100) NOT NULL,
-                description TEXT,
-                creator_id BIGINT NOT NULL,
-                category_id BIGINT REFERENCES categories(category_id),
-                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                last_activity TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                member_count INTEGER DEFAULT 1,
-                icon VARCHAR(50) DEFAULT '👥'
-            );
-            """;
-            
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("Groups and Categories tables created successfully.");
-        } catch (SQLException e) {
-            System.err.println("Error creating groups tables: " + e.getMessage());
-        }
-    }
-    
-    private void createTableCategories(Connection conn) {
-        // Categories table is created in createTableGroups method
-    }
-    
-    private void insertDefaultCategories(Connection conn) {
-        String sql = """
-            INSERT INTO categories (category_id, name, description, icon, color) VALUES
-            (1, 'Études', 'Groupes d''étude généralistes', '📚', '#007bff'),
-            (2, 'Mathématiques', 'Groupes d''étude en mathématiques', '🧮', '#28a745'),
-            (3, 'Sciences', 'Groupes d''étude en sciences', '🔬', '#17a2b8'),
-            (4, 'Langues', 'Groupes d''étude en langues étrangères', '🌍', '#ffc107'),
-            (5, 'Informatique', 'Groupes d''étude en informatique', '💻', '#6f42c1'),
-            (6, 'Littérature', 'Groupes d''étude en littérature', '📖', '#e83e8c'),
-            (7, 'Histoire', 'Groupes d''étude en histoire', '🏛️', '#fd7e14'),
-            (8, 'Préparation aux examens', 'Groupes de préparation aux examens', '🎯', '#dc3545'),
-            (9, 'Projet étudiant', 'Groupes de travail sur des projets', '🚀', '#20c997'),
-            (10, 'Autre', 'Autres types de groupes d''étude', '📝', '#6c757d')
-            ON CONFLICT (category_id) DO NOTHING;
-            """;
-            
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("Default categories inserted successfully.");
-        } catch (SQLException e) {
-            System.err.println("Error inserting default categories: " + e.getMessage());
-        }
     }
     
     public void insertGroup(Connection conn, String name, String description, String icon) {
@@ -173,33 +104,53 @@ public class GroupDAOPostgres extends GroupDAO {
     }
     
     @Override
-    public List<Group> searchGroups(List<String> searchTerms) {
-        if (searchTerms == null || searchTerms.isEmpty()) {
+    public List<Group> searchGroups(List<String> searchTerms, int limit) {
+        String tsQuery = toPrefixTsQuery(searchTerms);
+        if (tsQuery.isEmpty()) {
             return new ArrayList<>();
         }
         
-        StringBuilder sql = new StringBuilder("""
+        String sql = """
             SELECT g.*, c.category_id, c.name as category_name, c.description as category_desc, 
                    c.icon as category_icon, c.color as category_color
             FROM groups g 
             LEFT JOIN categories c ON g.category_id = c.category_id 
-            WHERE 
-            """);
+            CROSS JOIN to_tsquery('%1$s', ?) q
+            WHERE g.search_vector @@ q
+            ORDER BY ts_rank(g.search_vector, q) DESC, g.last_activity DESC
+            LIMIT ?
+            """.formatted(SEARCH_CONFIG);
             
         List<Object> parameters = new ArrayList<>();
-        List<String> conditions = new ArrayList<>();
+        parameters.add(tsQuery);
+        parameters.add(limit);
         
+        return executeGroupQuery(sql, parameters);
+    }
+
+    /**
+     * Build a to_tsquery expression: words of a term are AND'ed, terms are OR'ed,
+     * and every word is a prefix match. Only letters and digits are kept, so user
+     * input can never produce tsquery syntax.
+     */
+    private String toPrefixTsQuery(List<String> searchTerms) {
+        if (searchTerms == null) {
+            return "";
+        }
+        List<String> alternatives = new ArrayList<>();
         for (String term : searchTerms) {
-            conditions.add("(LOWER(g.name) LIKE ? OR LOWER(g.description) LIKE ?)");
-            String likePattern = "%" + term.toLowerCase() + "%";
-            parameters.add(likePattern);
-            parameters.add(likePattern);
+            if (term == null) continue;
+            List<String> words = new ArrayList<>();
+            for (String word : term.split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty()) {
+                    words.add(word.toLowerCase() + ":*");
+                }
+            }
+            if (!words.isEmpty()) {
+                alternatives.add("(" + String.join(" & ", words) + ")");
+            }
         }
-        
-        sql.append(String.join(" OR ", conditions));
-        sql.append(" ORDER BY g.last_activity DESC");
-        
-        return executeGroupQuery(sql.toString(), parameters);
+        return String.join(" | ", alternatives);
     }
     
     // Helper methods
@@ -0,0 +1,196 @@
+package com.syncstudy.PL.GroupManager;
+
+import com.syncstudy.BL.GroupManager.Notification;
+import com.syncstudy.BL.GroupManager.NotificationDAO;
+import com.syncstudy.BL.GroupManager.NotificationPage;
+import com.syncstudy.PL.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PostgreSQL implementation of NotificationDAO
+ * Unread counts come from notification_unread_counts, which triggers on
+ * notifications keep current (migration V9).
+ */
+public class NotificationDAOPostgres extends NotificationDAO {
+
+    private static final String COLUMNS = "id, user_id, subject, message, occurrences, is_read, created_at";
+
+    private DatabaseConnection dbConnection;
+
+    public NotificationDAOPostgres() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    @Override
+    public boolean insertNotifications(List<Notification> notifications) {
+        if (notifications == null || notifications.isEmpty()) return true;
+
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO notifications (user_id, subject, message, occurrences, created_at) VALUES ");
+        for (int i = 0; i < notifications.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+        }
+        sql.append(" RETURNING id");
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            int paramIndex = 1;
+            for (Notification notification : notifications) {
+                pstmt.setLong(paramIndex++, notification.getUserId());
+                pstmt.setString(paramIndex++, notification.getSubject());
+                pstmt.setString(paramIndex++, notification.getMessage());
+                pstmt.setInt(paramIndex++, notification.getOccurrences());
+                pstmt.setTimestamp(paramIndex++, Timestamp.valueOf(notification.getCreatedAt()));
+            }
+
+            // A multi-row VALUES insert returns its rows in VALUES order
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int i = 0;
+                while (rs.next() && i < notifications.size()) {
+                    notifications.get(i++).setId(rs.getLong("id"));
+                }
+            }
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Error inserting " + notifications.size() + " notifications: " + e.getMessage());
+        }
+
+        return false;
+    }
+
+    @Override
+    public NotificationPage getInbox(Long userId, Notification after, boolean unreadOnly, int limit) {
+        List<Notification> notifications = new ArrayList<>();
+        int unread = 0;
+
+        // One round-trip: the counter row, with the page joined laterally (none if the inbox is empty)
+        StringBuilder sql = new StringBuilder(
+                "SELECT c.unread, n.* FROM " +
+                "(SELECT COALESCE((SELECT unread FROM notification_unread_counts WHERE user_id = ?), 0) AS unread) c " +
+                "LEFT JOIN LATERAL (SELECT " + COLUMNS + " FROM notifications WHERE user_id = ? ");
+        if (unreadOnly) {
+            sql.append("AND is_read = FALSE ");
+        }
+        if (after != null) {
+            sql.append("AND (created_at, id) < (?, ?) ");
+        }
+        sql.append("ORDER BY created_at DESC, id DESC LIMIT ?) n ON TRUE");
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            int paramIndex = 1;
+            pstmt.setLong(paramIndex++, userId);
+            pstmt.setLong(paramIndex++, userId);
+            if (after != null) {
+                pstmt.setTimestamp(paramIndex++, Timestamp.valueOf(after.getCreatedAt()));
+                pstmt.setLong(paramIndex++, after.getId());
+            }
+            pstmt.setInt(paramIndex, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    unread = rs.getInt("unread");
+                    if (rs.getObject("id") != null) {
+                        notifications.add(mapResultSetToNotification(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading notifications of user " + userId + ": " + e.getMessage());
+        }
+
+        return new NotificationPage(notifications, unread);
+    }
+
+    @Override
+    public Notification findNotification(Long userId, Long notificationId) {
+        String sql = "SELECT " + COLUMNS + " FROM notifications WHERE id = ? AND user_id = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, notificationId);
+            pstmt.setLong(2, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapResultSetToNotification(rs) : null;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading notification " + notificationId + ": " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    @Override
+    public int getUnreadCount(Long userId) {
+        String sql = "SELECT unread FROM notification_unread_counts WHERE user_id = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt("unread") : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading unread count of user " + userId + ": " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    @Override
+    public int markRead(Long userId, List<Long> notificationIds) {
+        if (notificationIds == null || notificationIds.isEmpty()) return 0;
+
+        String sql = "UPDATE notifications SET is_read = TRUE " +
+                "WHERE user_id = ? AND id = ANY(?) AND is_read = FALSE";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, userId);
+            pstmt.setArray(2, conn.createArrayOf("bigint", notificationIds.toArray()));
+            return pstmt.executeUpdate();
+
+        } catch (SQLException e) {
+            System.err.println("Error marking notifications read: " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    @Override
+    public int markAllRead(Long userId) {
+        String sql = "UPDATE notifications SET is_read = TRUE WHERE user_id = ? AND is_read = FALSE";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, userId);
+            return pstmt.executeUpdate();
+
+        } catch (SQLException e) {
+            System.err.println("Error marking notifications read: " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    private Notification mapResultSetToNotification(ResultSet rs) throws SQLException {
+        return new Notification(
+                rs.getLong("id"),
+                rs.getLong("user_id"),
+                rs.getString("subject"),
+                rs.getString("message"),
+                rs.getInt("occurrences"),
+                rs.getBoolean("is_read"),
+                rs.getTimestamp("created_at").toLocalDateTime());
+    }
+}
@@ -0,0 +1,81 @@
+package com.syncstudy.PL;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed exponential buckets
+ * Used to expose timing metrics without pulling in a metrics library
+ */
+public class LatencyHistogram {
+
+    // Upper bounds of each bucket in microseconds; the last bucket is open-ended
+    private static final long[] BOUNDS_MICROS = {100, 1_000, 10_000, 100_000, 1_000_000};
+    private static final String[] LABELS = {"<100us", "<1ms", "<10ms", "<100ms", "<1s", ">=1s"};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(LABELS.length);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record one observation
+     * @param nanos elapsed time in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = nanos / 1_000;
+        int index = BOUNDS_MICROS.length;
+        for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+            if (micros < BOUNDS_MICROS[i]) {
+                index = i;
+                break;
+            }
+        }
+        buckets.incrementAndGet(index);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return number of recorded observations
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return mean latency in milliseconds, 0 if nothing was recorded
+     */
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0.0 : totalNanos.get() / (double) n / 1_000_000.0;
+    }
+
+    /**
+     * @return maximum recorded latency in milliseconds
+     */
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Snapshot of bucket counts, keyed by bucket label in ascending order
+     * @return bucket label to count
+     */
+    public Map<String, Long> getBuckets() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        for (int i = 0; i < LABELS.length; i++) {
+            snapshot.put(LABELS[i], buckets.get(i));
+        }
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.2fms, max=%.2fms, buckets=%s",
+                getCount(), getMeanMillis(), getMaxMillis(), getBuckets());
+    }
+}
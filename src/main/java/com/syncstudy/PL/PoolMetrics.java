@@ -0,0 +1,55 @@
+package com.syncstudy.PL;
+
+/**
+ * Point-in-time snapshot of connection pool statistics
+ */
+public class PoolMetrics {
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final int maxSize;
+    private final long totalCreated;
+    private final long totalDiscarded;
+    private final long borrowTimeouts;
+    private final long leaksDetected;
+    private final LatencyHistogram borrowLatency;
+
+    public PoolMetrics(int active, int idle, int waiters, int maxSize, long totalCreated,
+                       long totalDiscarded, long borrowTimeouts, long leaksDetected,
+                       LatencyHistogram borrowLatency) {
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+        this.maxSize = maxSize;
+        this.totalCreated = totalCreated;
+        this.totalDiscarded = totalDiscarded;
+        this.borrowTimeouts = borrowTimeouts;
+        this.leaksDetected = leaksDetected;
+        this.borrowLatency = borrowLatency;
+    }
+
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getWaiters() { return waiters; }
+    public int getMaxSize() { return maxSize; }
+    public long getTotalCreated() { return totalCreated; }
+    public long getTotalDiscarded() { return totalDiscarded; }
+    public long getBorrowTimeouts() { return borrowTimeouts; }
+    public long getLeaksDetected() { return leaksDetected; }
+    public LatencyHistogram getBorrowLatency() { return borrowLatency; }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+                "active=" + active +
+                ", idle=" + idle +
+                ", waiters=" + waiters +
+                ", maxSize=" + maxSize +
+                ", created=" + totalCreated +
+                ", discarded=" + totalDiscarded +
+                ", timeouts=" + borrowTimeouts +
+                ", leaks=" + leaksDetected +
+                ", borrowLatency=[" + borrowLatency + "]" +
+                '}';
+    }
+}
@@ -3,14 +3,18 @@ package com.syncstudy.PL;
 import com.syncstudy.BL.AbstractFactory;
 import com.syncstudy.BL.AdminManager.AdminDAO;
 import com.syncstudy.BL.ProfileManager.ProfileDAO;
+import com.syncstudy.BL.SessionManager.ChatSessionDAO;
 import com.syncstudy.BL.SessionManager.UserDAO;
 import com.syncstudy.BL.GroupManager.GroupDAO;
 import com.syncstudy.BL.GroupManager.CategoryDAO;
+import com.syncstudy.BL.GroupManager.NotificationDAO;
 import com.syncstudy.PL.AdminManager.AdminDAOPostgres;
 import com.syncstudy.PL.ProfileManager.ProfileDAOPostgres;
+import com.syncstudy.PL.SessionManager.ChatSessionDAOPostgres;
 import com.syncstudy.PL.SessionManager.UserDAOPostgres;
 import com.syncstudy.PL.GroupManager.GroupDAOPostgres;
 import com.syncstudy.PL.GroupManager.CategoryDAOPostgres;
+import com.syncstudy.PL.GroupManager.NotificationDAOPostgres;
 
 /**
  * Concrete Factory for creating PostgreSQL DAO instances
@@ -40,4 +44,14 @@ public class PostgresFactory extends AbstractFactory {
     public CategoryDAO createCategoryDAO() {
         return new CategoryDAOPostgres();
     }
-}
\ No newline at end of file
+
+    @Override
+    public NotificationDAO createNotificationDAO() {
+        return new NotificationDAOPostgres();
+    }
+
+    @Override
+    public ChatSessionDAO createChatSessionDAO() {
+        return new ChatSessionDAOPostgres();
+    }
+}
@@ -18,64 +18,17 @@ public class ProfileDAOPostgres extends ProfileDAO {
 
     public ProfileDAOPostgres() {
         this.dbConnection = DatabaseConnection.getInstance();
-        initializeDatabase();
     }
 
     /**
-     * Initialize database tables if they don't exist
+     * Bind test profiles to the test users created by UserDAOPostgres.seedDefaultUsers
      */
-    private void initializeDatabase() {
-        try (Connection conn = dbConnection.getConnection()) {
-            //dropTable(conn);
-            createTableProfiles(conn);
-            //bind test profiles to the test users ?
-            createTestProfile(1L,"Admin","Admin");
-            createTestProfile(8L,"Alice","Wonder");
-            createTestProfile(5L,"Laysa","Matmar");
-            createTestProfile(6L,"Omar hussein","Smith");
-            createTestProfile(7L,"Bob recardo","Tokyo");
-        } catch (SQLException e) {
-            System.err.println("Error initializing database: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Utility method to drop the table while testing
-     * @param conn database connection
-     */
-    private void dropTable(Connection conn) {
-        String sql = "DROP TABLE profiles";
-
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("Table 'profiles' dropped.");
-        } catch (SQLException e) {
-            System.err.println("Error dropping table: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Create profiles table if it doesn't exist
-     * @param conn database connection
-     */
-    public void createTableProfiles(Connection conn) {
-        // Create base table
-        String sql = "CREATE TABLE IF NOT EXISTS profiles (" +
-                "id SERIAL PRIMARY KEY, " +
-                "user_id INTEGER NOT NULL UNIQUE, " +
-                "firstname VARCHAR(255) NOT NULL, " +
-                "lastname VARCHAR(255) NOT NULL, " +
-                "CONSTRAINT fk_user " +
-                "FOREIGN KEY (user_id) " +
-                "REFERENCES users(id) " +
-                "ON DELETE CASCADE)";
-
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("Table 'profiles' created or already exists.");
-        } catch (SQLException e) {
-            System.err.println("Error creating table: " + e.getMessage());
-        }
+    public void seedTestProfiles() {
+        createTestProfile(1L,"Admin","Admin");
+        createTestProfile(8L,"Alice","Wonder");
+        createTestProfile(5L,"Laysa","Matmar");
+        createTestProfile(6L,"Omar hussein","Smith");
+        createTestProfile(7L,"Bob recardo","Tokyo");
     }
 
     /**
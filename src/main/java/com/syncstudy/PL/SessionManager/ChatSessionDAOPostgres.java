@@ -0,0 +1,82 @@
+package com.syncstudy.PL.SessionManager;
+
+import com.syncstudy.BL.SessionManager.ChatSession;
+import com.syncstudy.BL.SessionManager.ChatSessionDAO;
+import com.syncstudy.PL.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * PostgreSQL implementation of ChatSessionDAO (table chat_sessions, migration V11)
+ */
+public class ChatSessionDAOPostgres extends ChatSessionDAO {
+
+    private DatabaseConnection dbConnection;
+
+    public ChatSessionDAOPostgres() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    @Override
+    public boolean createSession(String token, Long userId, LocalDateTime expiresAt) {
+        String sql = "INSERT INTO chat_sessions (token, user_id, expires_at) VALUES (?, ?, ?)";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, token);
+            pstmt.setLong(2, userId);
+            pstmt.setTimestamp(3, Timestamp.valueOf(expiresAt));
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Error creating chat session for user " + userId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public ChatSession findSession(String token) {
+        String sql = "SELECT user_id, expires_at FROM chat_sessions WHERE token = ? AND expires_at > NOW()";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, token);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new ChatSession(token, rs.getLong("user_id"),
+                            rs.getTimestamp("expires_at").toLocalDateTime());
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding chat session: " + e.getMessage());
+        }
+        return null;
+    }
+
+    @Override
+    public boolean deleteSession(String token) {
+        String sql = "DELETE FROM chat_sessions WHERE token = ?";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, token);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Error deleting chat session: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public int deleteExpired() {
+        String sql = "DELETE FROM chat_sessions WHERE expires_at <= NOW()";
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error deleting expired chat sessions: " + e.getMessage());
+            return 0;
+        }
+    }
+}
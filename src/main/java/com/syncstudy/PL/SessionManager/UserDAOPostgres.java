@@ -20,71 +20,20 @@ public class UserDAOPostgres extends UserDAO {
 
     public UserDAOPostgres() {
         this.dbConnection = DatabaseConnection.getInstance();
-        initializeDatabase();
     }
 
     /**
-     * Initialize database tables if they don't exist
+     * Create or reset the default admin (username: admin, password: admin123) and the test users.
+     * Called once at startup by DatabaseInitializer, after the schema migrations.
      */
-    private void initializeDatabase() {
+    public void seedDefaultUsers() {
         try (Connection conn = dbConnection.getConnection()) {
-            createTableUsers(conn);
-            // Insert default user for testing (username: admin, password: admin123)
             insertDefaultUserIfNotExists(conn);
         } catch (SQLException e) {
-            System.err.println("Error initializing database: " + e.getMessage());
+            System.err.println("Error seeding default users: " + e.getMessage());
         }
     }
 
-    /**
-     * Create users table if it doesn't exist
-     * @param conn database connection
-     */
-    public void createTableUsers(Connection conn) {
-        // Create base table
-        String sql = "CREATE TABLE IF NOT EXISTS users (" +
-                "id SERIAL PRIMARY KEY, " +
-                "username VARCHAR(100) UNIQUE NOT NULL, " +
-                "password_hash VARCHAR(255) NOT NULL)";
-
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            System.out.println("Table 'users' created or already exists.");
-        } catch (SQLException e) {
-            System.err.println("Error creating table: " + e.getMessage());
-        }
-
-        // Add admin columns if they don't exist
-        extendUsersTable(conn);
-    }
-
-    /**
-     * Extend users table with admin-related columns
-     */
-    private void extendUsersTable(Connection conn) {
-        String[] alterStatements = {
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS email VARCHAR(255)",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS full_name VARCHAR(255)",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS university VARCHAR(255)",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS department VARCHAR(255)",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS profile_photo VARCHAR(500)",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS is_blocked BOOLEAN DEFAULT FALSE",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS is_admin BOOLEAN DEFAULT FALSE",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS registration_date TIMESTAMP DEFAULT NOW()",
-            "ALTER TABLE users ADD COLUMN IF NOT EXISTS last_login TIMESTAMP"
-        };
-
-        for (String sql : alterStatements) {
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(sql);
-            } catch (SQLException e) {
-                // Column might already exist or other issue - continue
-                System.err.println("Note: " + e.getMessage());
-            }
-        }
-        System.out.println("Users table extended with admin columns.");
-    }
-
     /**
      * Insert a user into the database
      * @param conn database connection
@@ -113,12 +62,17 @@ public class UserDAOPostgres extends UserDAO {
     private void insertDefaultUserIfNotExists(Connection conn) {
         try {
             // Check if admin exists using simple query (only base columns)
-            String checkSql = "SELECT id FROM users WHERE username = 'admin'";
+            String checkSql = "SELECT password_hash, is_admin FROM users WHERE username = 'admin'";
             boolean adminExists = false;
+            boolean adminUpToDate = false;
 
             try (Statement stmt = conn.createStatement();
                  ResultSet rs = stmt.executeQuery(checkSql)) {
-                adminExists = rs.next();
+                if (rs.next()) {
+                    adminExists = true;
+                    // Verifying is as slow as hashing, but skips the write on every start
+                    adminUpToDate = rs.getBoolean("is_admin") && passwordMatches("admin123", rs.getString("password_hash"));
+                }
             }
 
             if (!adminExists) {
@@ -130,7 +84,7 @@ public class UserDAOPostgres extends UserDAO {
                     pstmt.executeUpdate();
                     System.out.println("Default admin user created.");
                 }
-            } else {
+            } else if (!adminUpToDate) {
                 // Reset admin password and ensure is_admin = TRUE
                 String hashedPassword = BCrypt.hashpw("admin123", BCrypt.gensalt());
                 String updateSql = "UPDATE users SET password_hash = ?, is_admin = TRUE WHERE username = 'admin'";
@@ -153,6 +107,15 @@ public class UserDAOPostgres extends UserDAO {
         }
     }
 
+    private static boolean passwordMatches(String password, String hash) {
+        try {
+            return hash != null && BCrypt.checkpw(password, hash);
+        } catch (IllegalArgumentException e) {
+            // Not a BCrypt hash
+            return false;
+        }
+    }
+
     /**
      * Create a test user if not exists
      */
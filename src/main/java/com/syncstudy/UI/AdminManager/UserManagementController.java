@@ -4,6 +4,7 @@ import com.syncstudy.BL.AdminManager.AdminFacade;
 import com.syncstudy.BL.AdminManager.BlockRecord;
 import com.syncstudy.BL.AdminManager.UserActivity;
 import com.syncstudy.BL.SessionManager.User;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -22,7 +23,10 @@ import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -48,6 +52,10 @@ public class UserManagementController {
 
     private AdminFacade adminFacade;
     private ObservableList<User> usersList;
+    // Last user of each loaded page, where the keyset seek for a later page starts
+    private final Map<Integer, User> pageEnds = new HashMap<>();
+    private int shownPage = 0;
+    private int shownCount = 0;
     private static final int PAGE_SIZE = 20;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
@@ -209,41 +217,79 @@ public class UserManagementController {
      * Load users with current filters
      */
     private void loadUsers() {
+        pageEnds.clear();
         loadUsersForPage(0);
         updatePagination();
     }
 
     /**
-     * Load users for a specific page
+     * Load users for a specific page, seeking from the closest page loaded before it
      */
     private void loadUsersForPage(int page) {
         String search = searchField.getText();
         String status = statusFilter.getValue();
         String sortBy = getSortByValue();
 
-        List<User> users = adminFacade.getAllUsers(search, status, sortBy, page, PAGE_SIZE);
-        usersList.setAll(users);
-
-        int total = adminFacade.getTotalUsersCount(search, status);
-        int start = page * PAGE_SIZE + 1;
-        int end = Math.min(start + users.size() - 1, total);
+        User after = null;
+        int skip = page * PAGE_SIZE;
+        for (int known = page - 1; known >= 0; known--) {
+            User pageEnd = pageEnds.get(known);
+            if (pageEnd != null) {
+                after = pageEnd;
+                skip = (page - 1 - known) * PAGE_SIZE;
+                break;
+            }
+        }
 
-        if (total == 0) {
-            totalUsersLabel.setText("No users found");
-        } else {
-            totalUsersLabel.setText(String.format("Showing %d-%d of %d users", start, end, total));
+        List<User> users = adminFacade.getUsersPage(search, status, sortBy, after, skip, PAGE_SIZE);
+        usersList.setAll(users);
+        if (!users.isEmpty()) {
+            pageEnds.put(page, users.get(users.size() - 1));
         }
+
+        shownPage = page;
+        shownCount = users.size();
+        updateTotalLabel(adminFacade.getCachedUsersCount(search, status));
     }
 
     /**
-     * Update pagination control
+     * Update pagination control once the users count is known
      */
     private void updatePagination() {
         String search = searchField.getText();
         String status = statusFilter.getValue();
-        int total = adminFacade.getTotalUsersCount(search, status);
+        Integer cached = adminFacade.getCachedUsersCount(search, status);
+        if (cached != null) {
+            applyTotal(cached);
+        }
+        adminFacade.refreshUsersCount(search, status).thenAccept(total -> Platform.runLater(() -> {
+            // Filters changed while counting: a newer refresh is on its way
+            if (Objects.equals(search, searchField.getText()) && Objects.equals(status, statusFilter.getValue())) {
+                applyTotal(total);
+            }
+        }));
+    }
+
+    private void applyTotal(int total) {
         int pageCount = (int) Math.ceil((double) total / PAGE_SIZE);
         pagination.setPageCount(Math.max(1, pageCount));
+        updateTotalLabel(total);
+    }
+
+    /**
+     * @param total users count, or null while it is being computed
+     */
+    private void updateTotalLabel(Integer total) {
+        int start = shownPage * PAGE_SIZE + 1;
+        int end = start + shownCount - 1;
+
+        if (shownCount == 0 && (total == null || total == 0)) {
+            totalUsersLabel.setText("No users found");
+        } else if (total == null) {
+            totalUsersLabel.setText(String.format("Showing %d-%d users", start, end));
+        } else {
+            totalUsersLabel.setText(String.format("Showing %d-%d of %d users", start, Math.min(end, total), total));
+        }
     }
 
     /**
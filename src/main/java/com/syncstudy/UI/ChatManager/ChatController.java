@@ -2,8 +2,11 @@ package com.syncstudy.UI.ChatManager;
 import com.google.gson.Gson;
 import com.syncstudy.BL.ChatManager.ChatFacade;
 import com.syncstudy.BL.ChatManager.Message;
+import com.syncstudy.BL.SessionManager.SessionFacade;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -19,16 +22,17 @@ import javafx.stage.Stage;
 import javafx.util.Duration;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ChatController {
 
     @FXML
-    private ScrollPane scrollPane;
-
-    @FXML
-    private VBox messageContainer;
+    private ListView<Message> messageList;
 
     @FXML
     private TextArea messageInput;
@@ -51,27 +55,47 @@ public class ChatController {
     private boolean isAdmin;
     private TcpChatClient tcpClient;
 
+    private static final int PAGE_SIZE = 50;
+
+    // Loaded messages, oldest first; the ListView only builds nodes for visible rows
+    private final ObservableList<Message> messages = FXCollections.observableArrayList();
+    // Same messages by id, so remote events patch the model in place
+    private final Map<Long, Message> messagesById = new HashMap<>();
+    private boolean loadingOlder = false;
+    private boolean hasMoreHistory = false;
+    // Bumped on every (re)load so late pages of a previous group are dropped
+    private int loadGeneration = 0;
+    // Remote changes received while the newest page loads, applied on top of it
+    private List<TcpChatClient.EventEnvelope> deferred;
 
 
     public void initialize() {
         messageService = ChatFacade.getInstance();
         errorLabel.setVisible(false);
 
-        // Auto-scroll to bottom when new content is added
-        messageContainer.heightProperty().addListener((obs, oldVal, newVal) -> {
-            scrollPane.setVvalue(1.0);
-        });
-
-        // Setup infinite scroll
-        scrollPane.vvalueProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal.doubleValue() == 0.0) {
-                loadOlderMessages();
+        messageList.setItems(messages);
+        messageList.setPlaceholder(createEmptyState());
+        messageList.setFocusTraversable(false);
+        messageList.setCellFactory(lv -> new ListCell<Message>() {
+            @Override
+            protected void updateItem(Message message, boolean empty) {
+                super.updateItem(message, empty);
+                if (empty || message == null) {
+                    setGraphic(null);
+                } else {
+                    setGraphic(createMessageBox(message));
+                    // Infinite scroll: the oldest row became visible
+                    if (getIndex() == 0) {
+                        loadOlderMessages();
+                    }
+                }
             }
         });
     }
 
     @FXML
     private void handleBackToGroups(ActionEvent event) {
+        stopRealtime();
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/syncstudy/UI/GroupManager/GroupManager.fxml"));
             Parent root = loader.load();
@@ -92,10 +116,26 @@ public class ChatController {
     }
 
     public void setCurrentGroup(Long groupId) {
+        Long previousGroupId = this.currentGroupId;
         this.currentGroupId = groupId;
         groupNameLabel.setText(getCurrentGroupName());
-        loadMessages();
+        // Subscribe before reading history so changes made meanwhile are not missed
         initializeRealtimeConnection();
+        if (tcpClient != null && previousGroupId != null && !previousGroupId.equals(groupId)) {
+            // Its cached window stays: it is brought up to date when the group is opened again
+            tcpClient.unsubscribe(previousGroupId);
+        }
+        Long cachedSeq = messageService.getCachedLastSeq(groupId);
+        if (tcpClient == null || cachedSeq == null || !tcpClient.resume(groupId, cachedSeq)) {
+            if (cachedSeq != null) {
+                // What the cached window missed cannot be asked for
+                messageService.releaseGroup(groupId);
+            }
+            if (tcpClient != null) {
+                tcpClient.subscribe(groupId);
+            }
+        }
+        loadMessages();
     }
 
     public Long getCurrentGroupId() {
@@ -110,56 +150,158 @@ public class ChatController {
         }
     }
 
+    /**
+     * Load the newest page of the current group off the FX thread
+     */
     private void loadMessages() {
-        Platform.runLater(() -> {
-            messageContainer.getChildren().clear();
-            List<Message> messages = messageService.getMessages(currentGroupId);
-
-            if (messages.isEmpty()) {
-                showEmptyState();
-            } else {
-                for (Message message : messages) {
-                    displayMessage(message);
+        final int generation = ++loadGeneration;
+        final Long groupId = currentGroupId;
+        messages.clear();
+        messagesById.clear();
+        loadingOlder = true;
+        deferred = new ArrayList<>();
+        runInBackground(() -> {
+            List<Message> page = messageService.getLatestMessages(groupId, PAGE_SIZE);
+            Platform.runLater(() -> {
+                if (generation != loadGeneration) return;
+                if (tcpClient != null && !page.isEmpty()) {
+                    // A reconnect resumes after the newest message we have
+                    tcpClient.markSeen(groupId, page.get(0).getSeq());
                 }
-            }
+                prependPage(page);
+                hasMoreHistory = page.size() == PAGE_SIZE;
+                loadingOlder = false;
+                // Changes (live, or replayed for a cached window) that arrived while the page was read
+                List<TcpChatClient.EventEnvelope> received = deferred;
+                deferred = null;
+                for (TcpChatClient.EventEnvelope env : received) {
+                    handleRemoteEnvelope(env);
+                }
+                scrollToBottom();
+            });
         });
     }
 
+    /**
+     * Fetch the page before the oldest loaded message (keyset on createdAt + id)
+     */
     private void loadOlderMessages() {
-        // Implementation for infinite scroll
-        // Get timestamp of oldest message and load more
+        if (loadingOlder || !hasMoreHistory || messages.isEmpty()) return;
+        loadingOlder = true;
+        final int generation = loadGeneration;
+        final Long groupId = currentGroupId;
+        final Message oldest = messages.get(0);
+        runInBackground(() -> {
+            List<Message> page = messageService.getMessagesWithPagination(
+                    groupId, oldest.getCreatedAt(), oldest.getId(), PAGE_SIZE);
+            Platform.runLater(() -> {
+                if (generation != loadGeneration) return;
+                int added = prependPage(page);
+                hasMoreHistory = page.size() == PAGE_SIZE;
+                loadingOlder = false;
+                // Keep the previously first row in view
+                messageList.scrollTo(added);
+            });
+        });
+    }
+
+    /**
+     * Insert a newest-first page at the top of the list
+     * @return number of messages actually added
+     */
+    private int prependPage(List<Message> newestFirst) {
+        List<Message> older = new ArrayList<>(newestFirst.size());
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            Message message = newestFirst.get(i);
+            if (message.getId() != null && !messagesById.containsKey(message.getId())) {
+                older.add(message);
+                messagesById.put(message.getId(), message);
+            }
+        }
+        messages.addAll(0, older);
+        return older.size();
+    }
+
+    /**
+     * Append a message, or replace it in place if it is already loaded
+     */
+    private void upsertMessage(Message message) {
+        if (message == null || message.getId() == null) return;
+        if (messagesById.containsKey(message.getId())) {
+            int index = indexOf(message.getId());
+            if (index >= 0) {
+                messages.set(index, message);
+            }
+            messagesById.put(message.getId(), message);
+        } else {
+            messages.add(message);
+            messagesById.put(message.getId(), message);
+            scrollToBottom();
+        }
+    }
+
+    /**
+     * Remove a deleted message
+     */
+    private void removeMessage(Long messageId) {
+        if (messageId == null || messagesById.remove(messageId) == null) return;
+        int index = indexOf(messageId);
+        if (index >= 0) {
+            messages.remove(index);
+        }
+    }
+
+    private int indexOf(Long messageId) {
+        // Edits and deletes usually target recent messages: search from the end
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messageId.equals(messages.get(i).getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void scrollToBottom() {
+        if (!messages.isEmpty()) {
+            messageList.scrollTo(messages.size() - 1);
+        }
+    }
+
+    private void runInBackground(Runnable task) {
+        Thread t = new Thread(task, "ChatController-History");
+        t.setDaemon(true);
+        t.start();
     }
 
     @FXML
     private void handleSendMessage() {
         String content = messageInput.getText();
 
+        // The server stores it and sends it back to us as a "new" envelope (sent on reconnect if the connection is down)
+        if (com.syncstudy.WS.AppConfig.isChatServerIngestEnabled() && tcpClient != null) {
+            if (content == null || content.trim().isEmpty()) {
+                showError("Message content cannot be empty");
+                return;
+            }
+            if (tcpClient.sendMessage(currentUserId, currentGroupId, content.trim()) != null) {
+                messageInput.clear();
+                errorLabel.setVisible(false);
+                return;
+            }
+            // Connection closed, or a server that does not store messages: store it ourselves
+        }
+
         try {
             Message message = messageService.sendMessage(currentUserId, currentGroupId, content);
 
-            // If a message was created successfully, remove any empty-state placeholder
             if (message != null) {
-                // Remove the "No messages yet" empty state if present
-                if (!messageContainer.getChildren().isEmpty()) {
-                    // Check first child for empty state markers
-                    if (messageContainer.getChildren().get(0) instanceof VBox) {
-                        VBox firstChild = (VBox) messageContainer.getChildren().get(0);
-                        if (!firstChild.getChildren().isEmpty()) {
-                            if (firstChild.getChildren().get(0) instanceof Label) {
-                                Label possibleEmptyLabel = (Label) firstChild.getChildren().get(0);
-                                if ("No messages yet".equals(possibleEmptyLabel.getText())) {
-                                    messageContainer.getChildren().clear();
-                                }
-                            }
-                        }
-                    }
+                // MessageManager already attached our name: receivers render it from the envelope
+                upsertMessage(message);
 
-                }
-
-//                displayMessage(message);
                 // send an envelope so server will broadcast to other clients:
                 if (tcpClient != null) {
                     TcpChatClient.EventEnvelope envelope = new TcpChatClient.EventEnvelope("new", message, null);
+                    envelope.groupId = currentGroupId;
                     tcpClient.sendEvent(envelope);
                 }
                 messageInput.clear();
@@ -172,11 +314,6 @@ public class ChatController {
         }
     }
 
-    private void displayMessage(Message message) {
-        VBox messageBox = createMessageBox(message);
-        messageContainer.getChildren().add(messageBox);
-    }
-
     private VBox createMessageBox(Message message) {
         VBox messageBox = new VBox(5);
         messageBox.setMaxWidth(600);
@@ -282,9 +419,14 @@ public class ChatController {
         dialog.showAndWait().ifPresent(newContent -> {
             try {
                 messageService.editMessage(message.getId(), currentUserId, newContent);
-                loadMessages();
+                message.setContent(newContent.trim());
+                message.setModifiedAt(LocalDateTime.now());
+                message.setEdited(true);
+                upsertMessage(message);
                 if (tcpClient != null) {
-                    TcpChatClient.EventEnvelope envelope = new TcpChatClient.EventEnvelope("edit", null, message.getId());
+                    // Carry the updated message so receivers can patch without re-fetching
+                    TcpChatClient.EventEnvelope envelope = new TcpChatClient.EventEnvelope("edit", message, message.getId());
+                    envelope.groupId = currentGroupId;
                     tcpClient.sendEvent(envelope);
                 }
                 showSuccess("Message updated.");
@@ -304,9 +446,10 @@ public class ChatController {
             if (response == ButtonType.OK) {
                 try {
                     messageService.deleteMessage(message.getId(), currentUserId, isAdmin);
-                    loadMessages();
+                    removeMessage(message.getId());
                     if (tcpClient != null) {
                         TcpChatClient.EventEnvelope envelope = new TcpChatClient.EventEnvelope("delete", null, message.getId());
+                        envelope.groupId = currentGroupId;
                         tcpClient.sendEvent(envelope);
                     }
                     showSuccess("Message deleted.");
@@ -317,7 +460,7 @@ public class ChatController {
         });
     }
 
-    private void showEmptyState() {
+    private VBox createEmptyState() {
         VBox emptyState = new VBox(10);
         emptyState.setAlignment(Pos.CENTER);
         Label noMessages = new Label("No messages yet");
@@ -325,7 +468,7 @@ public class ChatController {
         Label startConversation = new Label("Start the conversation!");
         startConversation.setStyle("-fx-text-fill: gray;");
         emptyState.getChildren().addAll(noMessages, startConversation);
-        messageContainer.getChildren().add(emptyState);
+        return emptyState;
     }
 
     private void showError(String message) {
@@ -341,6 +484,7 @@ public class ChatController {
     public void startRealtime(String host, int port) {
         if (tcpClient != null) return;
         tcpClient = new TcpChatClient(host, port);
+        tcpClient.setSessionToken(SessionFacade.getInstance().getChatSessionToken());
         try {
             tcpClient.connect(this);
         } catch (Exception e) {
@@ -360,6 +504,10 @@ public class ChatController {
     // Add method to stop realtime (call on app shutdown)
     public void stopRealtime() {
         if (tcpClient != null) {
+            if (currentGroupId != null) {
+                // The cached window is kept and resumed from its last seq next time
+                tcpClient.unsubscribe(currentGroupId);
+            }
             tcpClient.disconnect();
             tcpClient = null;
         }
@@ -367,21 +515,55 @@ public class ChatController {
     // This method is called by TcpChatClient on the JavaFX thread
     public void handleRemoteEnvelope(TcpChatClient.EventEnvelope env) {
         if (env == null) return;
+        // Untagged envelopes from older clients are still broadcast to everyone
+        Long envGroupId = env.groupId != null ? env.groupId : (env.message != null ? env.message.getGroupId() : null);
+        if (envGroupId != null && !envGroupId.equals(currentGroupId)) return;
+        if ("resume-reset".equals(env.type)) {
+            // Missed more than the server can replay: reload the newest page
+            messageService.releaseGroup(currentGroupId);
+            loadMessages();
+            return;
+        }
+        if (deferred != null && !"send-failed".equals(env.type)) {
+            // Applied once the newest page is in, so that it does not overwrite them
+            deferred.add(env);
+            return;
+        }
+        if ("send-failed".equals(env.type)) {
+            showError("Failed to send message: " + env.error);
+            // Give the text back unless something else was typed since
+            if (env.message != null && messageInput.getText().isEmpty()) {
+                messageInput.setText(env.message.getContent());
+            }
+            return;
+        }
+        messageService.applyRemoteChange(env.type, currentGroupId, env.id, env.message);
         switch (env.type) {
             case "new":
-                if (env.message != null) {
-                    // avoid duplicates depending on your UI logic; simple append:
-                    displayMessage(env.message);
-                    loadMessages();
-                }
+                upsertMessage(env.message);
                 break;
             case "edit":
-                // simplest: reload messages to reflect edits
-                loadMessages();
+                if (env.message != null) {
+                    // A replayed edit may be about a message that is not loaded: do not append it
+                    if (messagesById.containsKey(env.message.getId())) {
+                        upsertMessage(env.message);
+                    }
+                } else if (env.id != null && messagesById.containsKey(env.id)) {
+                    // Older clients send only the id: fetch just that row, off the FX thread
+                    Long groupId = currentGroupId;
+                    Long messageId = env.id;
+                    runInBackground(() -> {
+                        Message edited = messageService.getMessage(messageId);
+                        Platform.runLater(() -> {
+                            if (edited != null && groupId.equals(currentGroupId) && messagesById.containsKey(messageId)) {
+                                upsertMessage(edited);
+                            }
+                        });
+                    });
+                }
                 break;
             case "delete":
-                // simplest: reload messages to reflect deletion
-                loadMessages();
+                removeMessage(env.id);
                 break;
         }
     }
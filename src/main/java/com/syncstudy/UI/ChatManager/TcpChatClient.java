@@ -2,98 +2,655 @@ package com.syncstudy.UI.ChatManager;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.syncstudy.BL.ChatManager.Message;
+import com.syncstudy.BL.GroupManager.Notification;
+import com.syncstudy.WS.AppConfig;
+import com.syncstudy.WS.AttachmentClient;
+import com.syncstudy.WS.PriorityOutbox;
+import com.syncstudy.WS.TrafficClass;
+import com.syncstudy.WS.WireFrame;
+import com.syncstudy.WS.WireInputStream;
 import javafx.application.Platform;
 
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * TcpChatClient with:
  * - TCP_NODELAY (disable Nagle)
- * - BufferedWriter + explicit flush
- * - synchronized send to avoid interleaving
+ * - buffered output written by one writer thread per connection, from a
+ *   PriorityOutbox: control envelopes first, chat second, file chunks with
+ *   what is left, so sending a file does not hold back messages
  * - proper disconnect/cleanup
- * - simple file chunking (base64) helper
+ * - automatic reconnect with exponential backoff; subscriptions are restored
+ *   and each group resumes after the last seq seen ("resume"), so only the
+ *   missed messages are sent again
+ * - attachments: uploaded once to the attachment server and announced by hash
+ * - simple file chunking helper (base64 in JSON, raw bytes in binary frames)
+ * - a hello on connect, which negotiates optional binary frames (see WireFrame)
+ *   and tells whether the server stores messages itself (sendMessage); a server
+ *   that does not answer it within HELLO_TIMEOUT_MS keeps us on JSON lines and
+ *   messages are stored by the application
  */
 public class TcpChatClient {
+    // An older server never answers the hello: this is what connecting to one costs
+    private static final int HELLO_TIMEOUT_MS = 1000;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final long RECONNECT_MIN_BACKOFF_MS = 500;
+    private static final long RECONNECT_MAX_BACKOFF_MS = 30_000;
+    // Messages typed while reconnecting; beyond that they are stored directly
+    private static final int MAX_PENDING_SENDS = 100;
+    // Envelopes waiting for the writer thread
+    private static final int MAX_QUEUED_EVENTS = 10_000;
+    // sendFile reads ahead of the socket by at most this much
+    private static final long MAX_QUEUED_FILE_BYTES = 256 * 1024;
+
     private final String host;
     private final int port;
+    private final boolean preferBinary;
+    private final boolean preferCompression;
     private Socket socket;
-    private BufferedReader in;
-    private BufferedWriter out;
+    private WireInputStream in;
+    // Outbound queue of the current connection, drained by its writer thread
+    private PriorityOutbox<byte[]> outbox;
     private final Gson gson;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private Thread readerThread;
+    private Thread reconnectThread;
+    private volatile Consumer<EventEnvelope> handler;
+    // Set by disconnect(); until then a lost connection is reopened
+    private volatile boolean closed = true;
+    // Restored after a reconnect; groups resume after the last seq the application saw
+    private final Set<Long> groups = ConcurrentHashMap.newKeySet();
+    private final Set<Long> users = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Long> lastSeq = new ConcurrentHashMap<>();
+    // "send" envelopes not yet echoed back by the server, by clientMessageId
+    private final Map<String, EventEnvelope> pendingSends = new LinkedHashMap<>();
+    // Presented first on every connection, see setSessionToken
+    private volatile String sessionToken;
+    // Agreed with the server during connect()
+    private volatile boolean binary = false;
+    private boolean compress = false;
+    // The server said it stores "send" envelopes (hello-ack)
+    private volatile boolean ingest = false;
 
     public TcpChatClient(String host, int port) {
+        this(host, port, AppConfig.isChatBinaryProtocol(), AppConfig.isChatCompressionEnabled());
+    }
+
+    /**
+     * @param binary ask the server for binary frames
+     * @param compress ask for deflated frames (binary only)
+     */
+    public TcpChatClient(String host, int port, boolean binary, boolean compress) {
         this.host = host;
         this.port = port;
+        this.preferBinary = binary;
+        this.preferCompression = compress;
         this.gson = new GsonBuilder()
                 .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
                 .create();
     }
 
+    /**
+     * Log in to the chat server as the user a token was issued to at login
+     * (SessionFacade.getChatSessionToken); sent first on every connection, so
+     * call it before connect. Without it the server refuses subscribeUser, and
+     * the attachment server refuses shareFile uploads.
+     * @param token the token, or null
+     */
+    public void setSessionToken(String token) {
+        this.sessionToken = token;
+    }
+
     public void connect(ChatController controller) throws IOException {
+        connect(controller::handleRemoteEnvelope);
+    }
+
+    /**
+     * Connect and hand every received envelope to a handler on the JavaFX thread.
+     * If the connection is lost later, it is reopened in the background until disconnect().
+     * @param handler envelope handler
+     */
+    public void connect(Consumer<EventEnvelope> handler) throws IOException {
         if (running.get()) return;
-        socket = new Socket(host, port);
+        this.handler = handler;
+        closed = false;
         try {
-            socket.setTcpNoDelay(true); // disable Nagle for lower latency
-        } catch (Exception ignored) {}
-        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
-        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-        running.set(true);
-
-        readerThread = new Thread(() -> {
-            System.out.println("TcpChatClient reader thread started for " + host + ":" + port);
+            open();
+        } catch (IOException e) {
+            closed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Open a connection and start its reader thread
+     */
+    private void open() throws IOException {
+        Socket s = new Socket();
+        try {
+            s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            s.setTcpNoDelay(true); // disable Nagle for lower latency
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+        WireInputStream input = new WireInputStream(s.getInputStream());
+        OutputStream output = new BufferedOutputStream(s.getOutputStream());
+        List<EventEnvelope> early;
+        synchronized (this) {
+            socket = s;
+            in = input;
+            binary = false;
+            compress = false;
+            ingest = false;
+            try {
+                early = negotiate(output);
+            } catch (IOException e) {
+                s.close();
+                socket = null;
+                in = null;
+                throw e;
+            }
+            outbox = new PriorityOutbox<>(MAX_QUEUED_EVENTS,
+                    AppConfig.getChatPriorityChatWeight(), AppConfig.getChatPriorityBulkWeight());
+            if (sessionToken != null) {
+                EventEnvelope auth = new EventEnvelope("auth", null, null);
+                auth.token = sessionToken;
+                sendEvent(auth);
+            }
+            running.set(true);
+        }
+        PriorityOutbox<byte[]> box = outbox;
+        Thread writer = new Thread(() -> writeLoop(s, output, box), "TcpChatClient-Writer");
+        writer.setDaemon(true);
+        writer.start();
+        for (EventEnvelope env : early) {
+            deliver(env);
+        }
+
+        Thread reader = new Thread(() -> {
+            System.out.println("TcpChatClient reader thread started for " + host + ":" + port
+                    + (binary ? " (" + WireFrame.PROTOCOL + (compress ? ", deflate)" : ")") : ""));
             try {
-                String line;
-                while (running.get() && (line = in.readLine()) != null) {
-                    System.out.println("Received line: " + line); // <-- ADD THIS
-                    final String json = line;
-                    try {
-                        EventEnvelope env = gson.fromJson(json, EventEnvelope.class);
-                        Platform.runLater(() -> controller.handleRemoteEnvelope(env));
-                    } catch (Exception e) {
-                        System.err.println("Failed to parse envelope: " + e.getMessage());
+                while (running.get()) {
+                    EventEnvelope env;
+                    if (binary) {
+                        WireFrame frame = input.readFrame();
+                        if (frame == null) break;
+                        env = parseFrame(frame);
+                    } else {
+                        String line = input.readLine();
+                        if (line == null) break;
+                        System.out.println("Received line: " + line); // <-- ADD THIS
+                        env = parseLine(line);
+                    }
+                    if (env != null) {
+                        track(env);
+                        deliver(env);
                     }
                 }
             } catch (IOException e) {
                 if (running.get()) System.err.println("Read error: " + e.getMessage());
             } finally {
-                disconnect();
+                connectionLost(s);
             }
         }, "TcpChatClient-Reader");
-        readerThread.setDaemon(true);
-        readerThread.start();
+        reader.setDaemon(true);
+        synchronized (this) {
+            readerThread = reader;
+        }
+        reader.start();
     }
 
     /**
-     * Send an envelope as one JSON line. Synchronized and always flushed.
+     * Write queued envelopes in priority order; one flush for all that is queued
      */
-    public synchronized void sendEvent(EventEnvelope envelope) {
-        if (out == null) return;
+    private void writeLoop(Socket s, OutputStream output, PriorityOutbox<byte[]> box) {
         try {
-            String json = gson.toJson(envelope);
-            out.write(json);
-            out.write("\n");
-            out.flush();
+            byte[] next;
+            while ((next = box.take()) != null) {
+                output.write(next);
+                while ((next = box.poll()) != null) {
+                    output.write(next);
+                }
+                output.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (IOException e) {
-            System.err.println("Send failed: " + e.getMessage());
-            disconnect();
+            if (running.get()) System.err.println("Send failed: " + e.getMessage());
+            // The reader notices and reconnects
+            try { s.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    private void deliver(EventEnvelope env) {
+        Consumer<EventEnvelope> target = handler;
+        if (target != null) {
+            Platform.runLater(() -> target.accept(env));
+        }
+    }
+
+    /**
+     * Follow what the application has seen, to resume after a reconnect
+     */
+    private void track(EventEnvelope env) {
+        if ("new".equals(env.type) && env.message != null) {
+            Long groupId = env.groupId != null ? env.groupId : env.message.getGroupId();
+            if (env.message.getSeq() != null && groupId != null && groups.contains(groupId)) {
+                lastSeq.merge(groupId, env.message.getSeq(), Math::max);
+            }
+            if (env.message.getClientMessageId() != null) {
+                synchronized (pendingSends) {
+                    pendingSends.remove(env.message.getClientMessageId());
+                }
+            }
+        } else if ("send-failed".equals(env.type) && env.message != null && env.message.getClientMessageId() != null) {
+            synchronized (pendingSends) {
+                pendingSends.remove(env.message.getClientMessageId());
+            }
+        } else if ("resume-reset".equals(env.type) && env.groupId != null) {
+            lastSeq.remove(env.groupId);
+        } else if ("auth-failed".equals(env.type)) {
+            System.err.println("Chat server refused the session token; notifications are not delivered");
         }
     }
 
     /**
-     * Send a file by chunking it into base64 frames. Adjust chunkSize as needed (e.g. 64KB).
-     * The server simply broadcasts these envelopes; clients must reassemble.
+     * Reader of a connection ended: close it, and reconnect unless disconnect() was called
      */
-    public void sendFile(File file, int chunkSizeBytes) throws IOException {
+    private void connectionLost(Socket lost) {
+        synchronized (this) {
+            // Already closed by disconnect(), or replaced by a newer connection
+            if (socket != lost) return;
+            closeConnection();
+        }
+        if (!closed) {
+            System.err.println("Connection to " + host + ":" + port + " lost, reconnecting");
+            scheduleReconnect();
+        }
+    }
+
+    private synchronized void scheduleReconnect() {
+        if (closed || (reconnectThread != null && reconnectThread.isAlive())) return;
+        reconnectThread = new Thread(this::reconnectLoop, "TcpChatClient-Reconnect");
+        reconnectThread.setDaemon(true);
+        reconnectThread.start();
+    }
+
+    /**
+     * Retry with exponential backoff (and jitter, so clients dropped together do
+     * not come back together), then restore subscriptions and resume each group
+     */
+    private void reconnectLoop() {
+        long backoff = RECONNECT_MIN_BACKOFF_MS;
+        while (!closed) {
+            try {
+                Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (closed) return;
+            try {
+                open();
+            } catch (IOException e) {
+                System.err.println("Reconnect to " + host + ":" + port + " failed: " + e.getMessage());
+                backoff = Math.min(RECONNECT_MAX_BACKOFF_MS, backoff * 2);
+                continue;
+            }
+            if (closed) {
+                disconnect();
+                return;
+            }
+            System.out.println("Reconnected to " + host + ":" + port);
+            restoreSession();
+            return;
+        }
+    }
+
+    private void restoreSession() {
+        for (Long userId : users) {
+            EventEnvelope env = new EventEnvelope("subscribe-user", null, null);
+            env.userId = userId;
+            sendEvent(env);
+        }
+        for (Long groupId : groups) {
+            Long seq = lastSeq.get(groupId);
+            if (seq != null) {
+                EventEnvelope env = new EventEnvelope("resume", null, null);
+                env.groupId = groupId;
+                env.seq = seq;
+                sendEvent(env);
+            } else {
+                // Nothing to resume from: subscribe, and let the application reload the group
+                EventEnvelope env = new EventEnvelope("subscribe", null, null);
+                env.groupId = groupId;
+                sendEvent(env);
+                EventEnvelope reset = new EventEnvelope("resume-reset", null, null);
+                reset.groupId = groupId;
+                deliver(reset);
+            }
+        }
+        List<EventEnvelope> resend;
+        synchronized (pendingSends) {
+            resend = new ArrayList<>(pendingSends.values());
+            if (!ingest) {
+                pendingSends.clear();
+            }
+        }
+        if (!ingest) {
+            // Back on a server that would only relay them: hand the text back instead
+            for (EventEnvelope env : resend) {
+                EventEnvelope failed = new EventEnvelope("send-failed", env.message, null);
+                failed.groupId = env.groupId;
+                failed.error = "the chat server does not store messages, send it again";
+                deliver(failed);
+            }
+            return;
+        }
+        // Stored once by the server even if the first copy got through (same clientMessageId)
+        for (EventEnvelope env : resend) {
+            sendEvent(env);
+        }
+    }
+
+    /**
+     * Send the hello and wait for the server's answer
+     * @return envelopes received before the answer, to hand to the handler
+     */
+    private List<EventEnvelope> negotiate(OutputStream output) throws IOException {
+        String hello = preferBinary ? WireFrame.hello(preferCompression) : WireFrame.hello("json", false);
+        output.write((hello + "\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+        List<EventEnvelope> early = new ArrayList<>();
+        socket.setSoTimeout(HELLO_TIMEOUT_MS);
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                JsonObject reply = parseObject(line);
+                String type = reply != null ? stringField(reply, "type") : null;
+                if (WireFrame.HELLO_ACK.equals(type)) {
+                    binary = WireFrame.PROTOCOL.equals(stringField(reply, "protocol"));
+                    compress = binary && "deflate".equals(stringField(reply, "compression"));
+                    ingest = "true".equals(stringField(reply, "ingest"));
+                    break;
+                }
+                // An older server broadcasts our hello back to us like any untagged envelope
+                if (!WireFrame.HELLO.equals(type)) {
+                    EventEnvelope env = parseLine(line);
+                    if (env != null) early.add(env);
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            System.err.println("No answer to hello from " + host + ":" + port + ", using JSON");
+        } finally {
+            socket.setSoTimeout(0);
+        }
+        return early;
+    }
+
+    private EventEnvelope parseLine(String json) {
+        try {
+            return gson.fromJson(json, EventEnvelope.class);
+        } catch (Exception e) {
+            System.err.println("Failed to parse envelope: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private EventEnvelope parseFrame(WireFrame frame) {
+        EventEnvelope env;
+        try {
+            env = gson.fromJson(frame.toJsonObject(), EventEnvelope.class);
+        } catch (Exception e) {
+            System.err.println("Failed to parse envelope: " + e.getMessage());
+            return null;
+        }
+        if (env != null && frame.getPayload().length > 0) {
+            env.chunkBytes = frame.getPayload();
+        }
+        return env;
+    }
+
+    private static JsonObject parseObject(String json) {
+        try {
+            return JsonParser.parseString(json).getAsJsonObject();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String stringField(JsonObject obj, String name) {
+        JsonElement el = obj.get(name);
+        return el != null && el.isJsonPrimitive() ? el.getAsString() : null;
+    }
+
+    /**
+     * @return true while connected to the server
+     */
+    public boolean isConnected() {
+        return running.get();
+    }
+
+    /**
+     * @return true if the server we are connected to stores the messages of
+     * sendMessage; false for older servers, which only relay envelopes
+     */
+    public boolean isIngestAvailable() {
+        return ingest;
+    }
+
+    /**
+     * Queue an envelope as one JSON line, or one frame in binary mode, for the
+     * writer thread; its TrafficClass decides what it may overtake.
+     * @return false if not connected or the queue is full; a failed write closes
+     * the connection, and the reconnect resends pending messages
+     */
+    public synchronized boolean sendEvent(EventEnvelope envelope) {
+        if (outbox == null) return false;
+        byte[] bytes;
+        if (binary) {
+            bytes = toFrame(envelope).encode(compress);
+        } else {
+            if (envelope.chunkBytes != null && envelope.chunkData == null) {
+                envelope.chunkData = Base64.getEncoder().encodeToString(envelope.chunkBytes);
+            }
+            bytes = (gson.toJson(envelope) + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+        if (!outbox.offer(TrafficClass.of(envelope.type), bytes, bytes.length)) {
+            System.err.println("Send queue full, dropping " + envelope.type + " envelope");
+            return false;
+        }
+        return true;
+    }
+
+    private WireFrame toFrame(EventEnvelope envelope) {
+        JsonObject meta = gson.toJsonTree(envelope).getAsJsonObject();
+        Long route = WireFrame.routesByUser(envelope.type) ? envelope.userId
+                : envelope.groupId != null ? envelope.groupId
+                : envelope.message != null ? envelope.message.getGroupId() : null;
+        // The chunk travels as raw payload, not as base64 inside the meta
+        return WireFrame.of(meta, route != null ? route : WireFrame.NO_ROUTE, envelope.getChunk());
+    }
+
+    /**
+     * Hand a new message to the server, which stores it and sends it back to the
+     * whole group (us included) as a "new" envelope, or answers "send-failed".
+     * While the connection is being reestablished the message waits and is sent
+     * on reconnect.
+     * @param senderId the sender's user ID
+     * @param groupId the group ID
+     * @param content the message content
+     * @return the message's clientMessageId, or null if it could not be sent or
+     * queued, or the server does not store messages: the caller stores it then
+     */
+    public String sendMessage(Long senderId, Long groupId, String content) {
+        if (closed || !ingest) return null;
+        Message message = new Message(senderId, groupId, content);
+        message.setClientMessageId(UUID.randomUUID().toString());
+        EventEnvelope env = new EventEnvelope("send", message, null);
+        env.groupId = groupId;
+        synchronized (pendingSends) {
+            if (pendingSends.size() >= MAX_PENDING_SENDS) return null;
+            pendingSends.put(message.getClientMessageId(), env);
+        }
+        // Not written: stays pending for the reconnect
+        sendEvent(env);
+        return message.getClientMessageId();
+    }
+
+    /**
+     * Record the newest message the application already has for a group, e.g.
+     * after loading its history, so a reconnect resumes after it
+     * @param groupId the group ID
+     * @param seq the message's seq
+     */
+    public void markSeen(Long groupId, Long seq) {
+        if (groupId != null && seq != null && groups.contains(groupId)) {
+            lastSeq.merge(groupId, seq, Math::max);
+        }
+    }
+
+    /**
+     * Ask the server to deliver envelopes of this group to us
+     * @param groupId the group ID
+     */
+    public void subscribe(Long groupId) {
+        groups.add(groupId);
+        EventEnvelope env = new EventEnvelope("subscribe", null, null);
+        env.groupId = groupId;
+        sendEvent(env);
+    }
+
+    /**
+     * Subscribe to a group whose messages up to a seq the application already has,
+     * e.g. in a cached window: the server sends only the messages, edits and
+     * deletes that came after it, or "resume-reset" if it cannot
+     * @param groupId the group ID
+     * @param seq the newest seq the application has
+     * @return false if the resume will not be sent (disconnected for good, or
+     * queue full): what the application has cannot be brought up to date
+     */
+    public boolean resume(Long groupId, long seq) {
+        groups.add(groupId);
+        lastSeq.merge(groupId, seq, Math::max);
+        EventEnvelope env = new EventEnvelope("resume", null, null);
+        env.groupId = groupId;
+        env.seq = seq;
+        if (sendEvent(env)) return true;
+        // While reconnecting, restoreSession() sends it
+        return !closed && !running.get();
+    }
+
+    /**
+     * Stop receiving envelopes of this group
+     * @param groupId the group ID
+     */
+    public void unsubscribe(Long groupId) {
+        groups.remove(groupId);
+        lastSeq.remove(groupId);
+        EventEnvelope env = new EventEnvelope("unsubscribe", null, null);
+        env.groupId = groupId;
+        sendEvent(env);
+    }
+
+    /**
+     * Ask the server to deliver this user's notifications to us
+     * @param userId the user ID
+     */
+    public void subscribeUser(Long userId) {
+        users.add(userId);
+        EventEnvelope env = new EventEnvelope("subscribe-user", null, null);
+        env.userId = userId;
+        sendEvent(env);
+    }
+
+    /**
+     * Stop receiving this user's notifications
+     * @param userId the user ID
+     */
+    public void unsubscribeUser(Long userId) {
+        users.remove(userId);
+        EventEnvelope env = new EventEnvelope("unsubscribe-user", null, null);
+        env.userId = userId;
+        sendEvent(env);
+    }
+
+    /**
+     * Share a file with a group: upload it to the attachment server (skipped when
+     * the server already has the same content), then announce it with an
+     * "attachment" envelope. Recipients fetch it with downloadAttachment.
+     * Blocks for the whole upload; call it off the JavaFX thread.
+     * @param file the file
+     * @param groupId the group to announce it to
+     * @return SHA-256 of the file
+     */
+    public String shareFile(File file, Long groupId) throws IOException {
         if (file == null || !file.exists()) throw new FileNotFoundException("File not found");
+        String sha256 = new AttachmentClient(host, AppConfig.getAttachmentPort(), sessionToken).upload(file.toPath());
+        EventEnvelope env = new EventEnvelope("attachment", null, null);
+        env.groupId = groupId;
+        env.fileName = file.getName();
+        env.fileSize = file.length();
+        env.sha256 = sha256;
+        sendEvent(env);
+        return sha256;
+    }
+
+    /**
+     * Download an announced attachment into a directory, resuming a partial download.
+     * Blocks; call it off the JavaFX thread.
+     * @param env the "attachment" envelope
+     * @param directory target directory
+     * @return the downloaded file
+     */
+    public Path downloadAttachment(EventEnvelope env, Path directory) throws IOException {
+        // Only the last path element: the name comes from another client
+        String name = env.fileName != null ? Path.of(env.fileName).getFileName().toString() : env.sha256;
+        return new AttachmentClient(host, AppConfig.getAttachmentPort()).download(env.sha256, directory.resolve(name));
+    }
+
+    /**
+     * Send a file by chunking it into frames (base64 in JSON mode), through the chat
+     * connection itself. Kept for small files and older clients; prefer shareFile. Adjust chunkSize as needed (e.g. 64KB).
+     * Each chunk is tagged with the group, so the server delivers it to that group's
+     * subscribers only; clients must reassemble.
+     * Chunks go out with the bandwidth chat leaves; the file is read only as fast
+     * as they are written.
+     * Chunks are not resent after a reconnect: if the connection is lost or the
+     * queue refuses a chunk, the transfer fails and has to be started again.
+     * @param groupId the group to send the file to
+     * @throws IOException if the file cannot be read or not every chunk was queued
+     */
+    public void sendFile(File file, Long groupId, int chunkSizeBytes) throws IOException {
+        if (groupId == null) throw new IllegalArgumentException("groupId is required");
+        if (file == null || !file.exists()) throw new FileNotFoundException("File not found");
+        PriorityOutbox<byte[]> box;
+        synchronized (this) {
+            box = outbox;
+        }
+        if (box == null) throw new IOException("Not connected, file not sent");
         try (FileInputStream fis = new FileInputStream(file)) {
             long total = file.length();
             int totalChunks = (int) ((total + chunkSizeBytes - 1) / chunkSizeBytes);
@@ -107,44 +664,98 @@ public class TcpChatClient {
                     actual = new byte[read];
                     System.arraycopy(buffer, 0, actual, 0, read);
                 }
-                String b64 = Base64.getEncoder().encodeToString(actual);
                 EventEnvelope env = new EventEnvelope();
                 env.type = "file-chunk";
+                env.groupId = groupId;
                 env.fileName = file.getName();
                 env.chunkIndex = idx;
                 env.totalChunks = totalChunks;
-                env.chunkData = b64;
+                env.chunkBytes = actual;
                 // optional: attach a small Message object or metadata
-                sendEvent(env);
+                awaitFileRoom(box);
+                sendFileChunk(box, env);
+            }
+        }
+    }
+
+    private void awaitFileRoom(PriorityOutbox<byte[]> box) throws IOException {
+        try {
+            if (!box.awaitRoom(TrafficClass.BULK, MAX_QUEUED_FILE_BYTES)) {
+                throw new IOException("Connection lost while sending file");
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("File send interrupted");
+        }
+    }
+
+    /**
+     * Queue a chunk on the connection the transfer started on
+     */
+    private synchronized void sendFileChunk(PriorityOutbox<byte[]> box, EventEnvelope env) throws IOException {
+        if (outbox != box) {
+            throw new IOException("Connection lost while sending file");
+        }
+        if (!sendEvent(env)) {
+            throw new IOException("Send queue full, file chunk " + env.chunkIndex + " not sent");
         }
     }
 
-    public synchronized void disconnect() {
-        if (!running.getAndSet(false)) return;
+    /**
+     * Close the connection for good: no reconnect, pending sends are dropped
+     */
+    public void disconnect() {
+        closed = true;
+        Thread reconnect;
+        synchronized (this) {
+            reconnect = reconnectThread;
+            reconnectThread = null;
+            closeConnection();
+        }
+        if (reconnect != null && reconnect != Thread.currentThread()) {
+            reconnect.interrupt();
+        }
+        synchronized (pendingSends) {
+            pendingSends.clear();
+        }
+    }
+
+    private synchronized void closeConnection() {
+        running.set(false);
         try { if (in != null) in.close(); } catch (IOException ignored) {}
-        try { if (out != null) out.close(); } catch (IOException ignored) {}
+        // Wakes the writer; closing the socket ends a write in progress
+        if (outbox != null) outbox.close();
         try { if (socket != null) socket.close(); } catch (IOException ignored) {}
         in = null;
-        out = null;
+        outbox = null;
         socket = null;
-        if (readerThread != null && readerThread.isAlive()) {
+        if (readerThread != null && readerThread.isAlive() && readerThread != Thread.currentThread()) {
             readerThread.interrupt();
-            readerThread = null;
         }
+        readerThread = null;
     }
 
     // Envelope shape extended for optional file transfer fields
     public static class EventEnvelope {
-        public String type; // "new", "edit", "delete", "file-chunk", ...
+        public String type; // "send", "new", "edit", "delete", "file-chunk", "attachment", "subscribe", "unsubscribe", "notification", ...
         public Message message;
         public Long id;
+        public Long groupId; // routing key; the server only delivers to subscribers of this group
+        public Long userId; // routing key of "notification" and "subscribe-user" envelopes
+        public Notification notification;
+        public String error; // reason of a "send-failed" envelope
+        public Long seq; // last seq seen, in "resume" envelopes
+        public String token; // session token of an "auth" envelope
 
         // file transfer fields (optional)
         public String fileName;
         public Integer chunkIndex;
         public Integer totalChunks;
-        public String chunkData; // base64 payload
+        public String chunkData; // base64 payload, JSON mode only
+        // attachment fields: the file is fetched from the attachment server by hash
+        public String sha256;
+        public Long fileSize;
+        public transient byte[] chunkBytes; // raw payload; sent as the frame payload in binary mode
 
         public EventEnvelope() {}
         public EventEnvelope(String type, Message message, Long id) {
@@ -152,5 +763,15 @@ public class TcpChatClient {
             this.message = message;
             this.id = id;
         }
+
+        /**
+         * @return the file chunk bytes, whichever way they were received, or null
+         */
+        public byte[] getChunk() {
+            if (chunkBytes == null && chunkData != null) {
+                chunkBytes = Base64.getDecoder().decode(chunkData);
+            }
+            return chunkBytes;
+        }
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.syncstudy.UI.GroupManager;
 import com.syncstudy.BL.GroupManager.Category;
 import com.syncstudy.BL.GroupManager.CategoryFacade;
 import com.syncstudy.BL.GroupManager.Group;
+import com.syncstudy.BL.GroupManager.GroupMove;
 import com.syncstudy.BL.AdminManager.AdminFacade;
 import com.syncstudy.BL.SessionManager.User;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -643,9 +644,15 @@ public class CategoryManagementController {
 
         dialog.setResultConverter(button -> {
             if (button == assignButton && !selectedGroupIds.isEmpty()) {
-                boolean success = categoryFacade.assignGroups(category.getCategoryId(), selectedGroupIds);
-                if (success) {
-                    showToast(selectedGroupIds.size() + " groups assigned to " + category.getName() + " successfully.", false);
+                List<GroupMove> moves = categoryFacade.moveGroups(category.getCategoryId(), selectedGroupIds);
+                long moved = moves.stream().filter(GroupMove::isMoved).count();
+                if (!moves.isEmpty() && moved == moves.size()) {
+                    showToast(moved + " groups assigned to " + category.getName() + " successfully.", false);
+                } else {
+                    showToast(moved + " of " + selectedGroupIds.size() + " groups assigned to " + category.getName()
+                            + ". The others no longer exist or could not be moved.", true);
+                }
+                if (moved > 0) {
                     loadCategories();
                 }
             }
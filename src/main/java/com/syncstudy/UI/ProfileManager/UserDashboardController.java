@@ -1,25 +1,37 @@
 package com.syncstudy.UI.ProfileManager;
 
 import com.syncstudy.BL.AdminManager.AdminFacade;
+import com.syncstudy.BL.GroupManager.Notification;
+import com.syncstudy.BL.GroupManager.NotificationInbox;
+import com.syncstudy.BL.GroupManager.NotificationPage;
 import com.syncstudy.BL.ProfileManager.UserProfile;
 import com.syncstudy.BL.SessionManager.SessionFacade;
 import com.syncstudy.BL.SessionManager.User;
+import com.syncstudy.UI.ChatManager.TcpChatClient;
 import com.syncstudy.UI.SessionManager.LoginController;
+import com.syncstudy.WS.AppConfig;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Objects;
 import java.util.Properties;
 
 public class UserDashboardController {
@@ -30,6 +42,7 @@ public class UserDashboardController {
     @FXML private Button logoutButton;
     @FXML private Button submitUpdateButton;
     @FXML private Button deleteAccountButton;
+    @FXML private Button notificationsButton;
     //change buttons
     @FXML private Label welcomeLabel;
     @FXML private Label messageLabel;
@@ -51,6 +64,13 @@ public class UserDashboardController {
 
     private ObservableList<UserProfile> profilesList;
     private static final int PAGE_SIZE = 20;
+    private static final DateTimeFormatter NOTIFICATION_DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    // Inbox: first page loaded with the dashboard, newer notifications pushed by the chat server
+    private Long currentUserId;
+    private final ObservableList<Notification> notifications = FXCollections.observableArrayList();
+    private boolean inboxExhausted = false;
+    private TcpChatClient notificationClient;
 
     /**
      * Initialize the controller
@@ -103,6 +123,7 @@ public class UserDashboardController {
      * Handles a click on the logout button
      */
     public void handleLogout() {
+        stopNotificationPush();
         if(this.session.logout()) {
             navigateToLogin();
         }
@@ -113,6 +134,7 @@ public class UserDashboardController {
 
     @FXML
     private void handleBackToGroups(ActionEvent event) {
+        stopNotificationPush();
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/syncstudy/UI/GroupManager/GroupManager.fxml"));
             Parent root = loader.load();
@@ -223,6 +245,7 @@ public class UserDashboardController {
      */
     public void handleDeleteAccount() {
         if (this.session.deleteAccount()) {
+            stopNotificationPush();
             navigateToLogin();
         }
         else {
@@ -233,6 +256,176 @@ public class UserDashboardController {
 
     public void setCurrentUserId(Long userId) {
         this.session.setLoggedUserId(userId);
+        this.currentUserId = userId;
+        loadNotifications();
+        startNotificationPush();
+    }
+
+    /**
+     * Handle view notifications - show the inbox already loaded with the dashboard
+     */
+    @FXML
+    public void handleViewNotifications() {
+        ListView<Notification> list = new ListView<>(notifications);
+        list.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(Notification notification, boolean empty) {
+                super.updateItem(notification, empty);
+                if (empty || notification == null) {
+                    setText(null);
+                    setStyle("");
+                    return;
+                }
+                StringBuilder text = new StringBuilder();
+                if (notification.getSubject() != null) {
+                    text.append(notification.getSubject()).append('\n');
+                }
+                text.append(notification.getMessage());
+                if (notification.getOccurrences() > 1) {
+                    text.append(" (x").append(notification.getOccurrences()).append(')');
+                }
+                if (notification.getCreatedAt() != null) {
+                    text.append('\n').append(notification.getCreatedAt().format(NOTIFICATION_DATE_FORMAT));
+                }
+                setText(text.toString());
+                setStyle(notification.isRead() ? "" : "-fx-font-weight: bold;");
+            }
+        });
+        list.setOnMouseClicked(e -> markNotificationRead(list.getSelectionModel().getSelectedItem(), list));
+
+        Button markAllButton = new Button("Mark all as read");
+        markAllButton.setOnAction(e -> markAllNotificationsRead(list));
+        Button loadMoreButton = new Button("Load more");
+        loadMoreButton.setOnAction(e -> loadMoreNotifications(loadMoreButton));
+        loadMoreButton.setDisable(inboxExhausted);
+
+        Label title = new Label("Notifications");
+        title.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
+        HBox actions = new HBox(10, markAllButton, loadMoreButton);
+        VBox view = new VBox(10, title, list, actions);
+        view.setPadding(new Insets(20));
+        VBox.setVgrow(list, Priority.ALWAYS);
+
+        mainPane.setCenter(view);
+        updateButtonStyles(notificationsButton);
+    }
+
+    /**
+     * First inbox page and unread count, in one query off the JavaFX thread
+     */
+    private void loadNotifications() {
+        Long userId = currentUserId;
+        runInBackground(() -> {
+            NotificationPage page = NotificationInbox.getInstance().getPage(userId, null, false, PAGE_SIZE);
+            Platform.runLater(() -> {
+                // Pushed notifications may have arrived during the query
+                for (Notification notification : page.getNotifications()) {
+                    if (findNotification(notification.getId()) == null) {
+                        notifications.add(notification);
+                    }
+                }
+                inboxExhausted = page.getNotifications().size() < PAGE_SIZE;
+                setUnreadCount(NotificationInbox.getInstance().getUnreadCount(userId));
+            });
+        });
+    }
+
+    private void loadMoreNotifications(Button loadMoreButton) {
+        if (notifications.isEmpty() || inboxExhausted) return;
+        Long userId = currentUserId;
+        Notification last = notifications.get(notifications.size() - 1);
+        loadMoreButton.setDisable(true);
+        runInBackground(() -> {
+            NotificationPage page = NotificationInbox.getInstance().getPage(userId, last, false, PAGE_SIZE);
+            Platform.runLater(() -> {
+                notifications.addAll(page.getNotifications());
+                inboxExhausted = page.getNotifications().size() < PAGE_SIZE;
+                loadMoreButton.setDisable(inboxExhausted);
+                setUnreadCount(page.getUnreadCount());
+            });
+        });
+    }
+
+    private void markNotificationRead(Notification notification, ListView<Notification> list) {
+        if (notification == null || notification.isRead() || notification.getId() == null) return;
+        notification.setRead(true);
+        list.refresh();
+        Long userId = currentUserId;
+        runInBackground(() -> {
+            int unread = NotificationInbox.getInstance().markRead(userId, List.of(notification.getId()));
+            Platform.runLater(() -> setUnreadCount(unread));
+        });
+    }
+
+    private void markAllNotificationsRead(ListView<Notification> list) {
+        notifications.forEach(notification -> notification.setRead(true));
+        list.refresh();
+        setUnreadCount(0);
+        Long userId = currentUserId;
+        runInBackground(() -> NotificationInbox.getInstance().markAllRead(userId));
+    }
+
+    /**
+     * Subscribe to this user's notifications on the chat server
+     */
+    private void startNotificationPush() {
+        if (notificationClient != null || currentUserId == null) return;
+        TcpChatClient client = new TcpChatClient(AppConfig.getChatHost(), AppConfig.getChatPort());
+        client.setSessionToken(SessionFacade.getInstance().getChatSessionToken());
+        notificationClient = client;
+        Long userId = currentUserId;
+        // Connecting can take the connect timeout when the server is down
+        runInBackground(() -> {
+            try {
+                client.connect(this::handleNotificationEnvelope);
+                client.subscribeUser(userId);
+            } catch (IOException e) {
+                System.err.println("Notification push unavailable: " + e.getMessage());
+            }
+        });
+    }
+
+    private void stopNotificationPush() {
+        if (notificationClient == null) return;
+        TcpChatClient client = notificationClient;
+        notificationClient = null;
+        Long userId = currentUserId;
+        runInBackground(() -> {
+            client.unsubscribeUser(userId);
+            client.disconnect();
+        });
+    }
+
+    // Called by TcpChatClient on the JavaFX thread
+    private void handleNotificationEnvelope(TcpChatClient.EventEnvelope env) {
+        if (env == null || !"notification".equals(env.type) || env.notification == null) return;
+        Notification notification = env.notification;
+        if (!Objects.equals(notification.getUserId(), currentUserId)) return;
+        // The server may resend after a reconnect
+        if (notification.getId() != null && findNotification(notification.getId()) != null) return;
+        notifications.add(0, notification);
+        setUnreadCount(NotificationInbox.getInstance().onPushed(notification));
+    }
+
+    private Notification findNotification(Long id) {
+        for (Notification notification : notifications) {
+            if (Objects.equals(notification.getId(), id)) {
+                return notification;
+            }
+        }
+        return null;
+    }
+
+    private void setUnreadCount(int count) {
+        if (notificationsButton != null) {
+            notificationsButton.setText(count > 0 ? "  Notifications (" + count + ")" : "  Notifications");
+        }
+    }
+
+    private void runInBackground(Runnable task) {
+        Thread t = new Thread(task, "UserDashboard-Notifications");
+        t.setDaemon(true);
+        t.start();
     }
 
     /**
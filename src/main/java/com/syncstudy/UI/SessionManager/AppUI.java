@@ -3,7 +3,8 @@ package com.syncstudy.UI.SessionManager;
 import com.syncstudy.BL.SessionManager.SessionFacade;
 import com.syncstudy.BL.SessionManager.User;
 import com.syncstudy.UI.ChatManager.ChatController;
-import com.syncstudy.PL.DatabaseInitializer;
+import com.syncstudy.WS.AppConfig;
+import com.syncstudy.WS.AttachmentServer;
 import com.syncstudy.WS.TcpChatServer;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -18,8 +19,11 @@ import java.net.URL;
 public class AppUI extends Application {
     @Override
     public void start(Stage stage) throws Exception {
-        // Initialize database tables at startup
-        DatabaseInitializer.initialize();
+        long startNanos = System.nanoTime();
+        StartupOrchestrator startup = StartupOrchestrator.getInstance();
+        startup.recordLaunch(startNanos);
+        // Migrations, pool fill and seeding run in the background; login waits for them
+        startup.start();
 
         // Start embedded TCP server in background (daemon) so it doesn't block JavaFX thread.
         startEmbeddedServer(9000);
@@ -42,6 +46,7 @@ public class AppUI extends Application {
         stage.setTitle("SyncStudy - Login");
         stage.setScene(new Scene(root, 480, 320));
         stage.show();
+        startup.recordPhase("first window", startNanos);
     }
 
     private void startEmbeddedServer(int port) {
@@ -57,6 +62,19 @@ public class AppUI extends Application {
         }, "Embedded-TcpChatServer");
         serverThread.setDaemon(true); // allow JVM to exit when only this thread remains
         serverThread.start();
+
+        if (AppConfig.getAttachmentPort() <= 0) return;
+        Thread attachmentThread = new Thread(() -> {
+            try {
+                AttachmentServer.fromConfig().start();
+            } catch (BindException be) {
+                System.out.println("Embedded attachment server: port already in use; assuming external server is running.");
+            } catch (IOException e) {
+                System.err.println("Embedded attachment server failed to start: " + e.getMessage());
+            }
+        }, "Embedded-AttachmentServer");
+        attachmentThread.setDaemon(true);
+        attachmentThread.start();
     }
 
     public static void main(String[] args) {
@@ -38,6 +38,7 @@ public class LoginController {
 
     private SessionFacade userManager;
     private Runnable onLoginSuccess;
+    private boolean waitingForStartup = false;
 
     @FXML
     public void initialize() {
@@ -53,6 +54,19 @@ public class LoginController {
 
     @FXML
     private void onLogin() {
+        // The database may still be migrating or seeding the default users
+        StartupOrchestrator startup = StartupOrchestrator.getInstance();
+        if (!startup.isReady()) {
+            if (!waitingForStartup) {
+                waitingForStartup = true;
+                messageLabel.setText("Starting up, please wait...");
+                startup.runWhenReady(() -> {
+                    waitingForStartup = false;
+                    onLogin();
+                });
+            }
+            return;
+        }
         if (userManager == null) {
             try {
                 userManager = SessionFacade.getInstance();
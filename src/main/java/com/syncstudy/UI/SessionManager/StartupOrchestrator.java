@@ -0,0 +1,210 @@
+package com.syncstudy.UI.SessionManager;
+
+import com.syncstudy.BL.GroupManager.GroupManager;
+import com.syncstudy.PL.DatabaseConnection;
+import com.syncstudy.PL.DatabaseInitializer;
+import com.syncstudy.WS.AppConfig;
+import javafx.application.Platform;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Startup orchestrator
+ * Keeps the JavaFX launcher path down to showing the login window. Database
+ * work runs on background threads, in parallel where it is independent:
+ *
+ *   connection pool fill ------------------------------+
+ *   schema migrations --+-- default users seeding -----+-- ready (login allowed)
+ *                       +-- group search index (if enabled)
+ *
+ * Facades and DAOs are otherwise built lazily on first use.
+ * Every phase is timed; the report is printed once all of them have finished
+ * and the first window is shown.
+ */
+public class StartupOrchestrator {
+
+    // Target for the first window, measured from JVM start
+    private static final long FIRST_WINDOW_TARGET_MS = 1000;
+
+    private static StartupOrchestrator instance;
+
+    private final long originNanos = System.nanoTime();
+    // Milliseconds between JVM start and originNanos
+    private final long originOffsetMs;
+    private final List<Phase> phases = new ArrayList<>();
+    private final ExecutorService executor;
+    private final CompletableFuture<Void> firstWindowShown = new CompletableFuture<>();
+    private CompletableFuture<Void> ready;
+
+    private StartupOrchestrator() {
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        this.originOffsetMs = Math.max(0, System.currentTimeMillis() - jvmStart);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(3, runnable -> {
+            Thread thread = new Thread(runnable, "Startup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the singleton instance of StartupOrchestrator
+     * @return StartupOrchestrator instance
+     */
+    public static synchronized StartupOrchestrator getInstance() {
+        if (instance == null) {
+            instance = new StartupOrchestrator();
+        }
+        return instance;
+    }
+
+    /**
+     * Launch the background startup phases; later calls return the same future
+     * @return completes when the database is ready for login, even if a phase failed
+     */
+    public synchronized CompletableFuture<Void> start() {
+        if (ready != null) return ready;
+
+        CompletableFuture<Boolean> pool = runPhase("connection pool", () -> {
+            if (!DatabaseConnection.getInstance().warmUpPool()) {
+                throw new IllegalStateException("no connection could be opened");
+            }
+        });
+        CompletableFuture<Boolean> schema = runPhase("schema migrations", DatabaseInitializer::migrate);
+        CompletableFuture<Boolean> seed = schema.thenCompose(ok -> ok
+                ? runPhase("default users", DatabaseInitializer::seedDefaultData)
+                : skipPhase("default users"));
+        CompletableFuture<Boolean> searchIndex = schema.thenCompose(ok -> ok && AppConfig.isInMemorySearchEnabled()
+                ? runPhase("group search index", GroupManager::getInstance)
+                : CompletableFuture.completedFuture(true));
+
+        ready = CompletableFuture.allOf(pool, seed);
+        CompletableFuture.allOf(pool, seed, searchIndex, firstWindowShown).thenRun(() -> {
+            System.out.println(getReport());
+            executor.shutdown();
+        });
+        return ready;
+    }
+
+    /**
+     * @return true once the database is ready for login
+     */
+    public boolean isReady() {
+        return start().isDone();
+    }
+
+    /**
+     * Run an action on the JavaFX thread once the database is ready
+     * @param action the action, run immediately if startup already finished
+     */
+    public void runWhenReady(Runnable action) {
+        CompletableFuture<Void> startup = start();
+        if (startup.isDone()) {
+            action.run();
+        } else {
+            startup.thenRun(() -> Platform.runLater(action));
+        }
+    }
+
+    /**
+     * Record the time between JVM start and the JavaFX application start()
+     * @param startNanos System.nanoTime() on entering start()
+     */
+    public void recordLaunch(long startNanos) {
+        addPhase(new Phase("JavaFX launch", 0, offsetMs(startNanos), Thread.currentThread().getName(), "ok"));
+    }
+
+    /**
+     * Record a phase that ran on the calling thread
+     * @param name phase name
+     * @param startNanos System.nanoTime() when the phase started
+     */
+    public void recordPhase(String name, long startNanos) {
+        long end = System.nanoTime();
+        addPhase(new Phase(name, offsetMs(startNanos), (end - startNanos) / 1_000_000,
+                Thread.currentThread().getName(), "ok"));
+        if ("first window".equals(name)) {
+            if (offsetMs(end) > FIRST_WINDOW_TARGET_MS) {
+                System.err.println("Startup: first window shown after " + offsetMs(end)
+                        + " ms (target " + FIRST_WINDOW_TARGET_MS + " ms)");
+            }
+            firstWindowShown.complete(null);
+        }
+    }
+
+    /**
+     * @return per-phase startup timings, in milliseconds since JVM start
+     */
+    public String getReport() {
+        StringBuilder sb = new StringBuilder("Startup timing (ms since JVM start):\n");
+        sb.append(String.format("  %-20s %8s %9s  %-8s %s%n", "phase", "start", "duration", "status", "thread"));
+        synchronized (phases) {
+            phases.stream()
+                    .sorted((a, b) -> Long.compare(a.startMs, b.startMs))
+                    .forEach(p -> sb.append(String.format("  %-20s %8d %9d  %-8s %s%n",
+                            p.name, p.startMs, p.durationMs, p.status, p.thread)));
+        }
+        return sb.toString();
+    }
+
+    private CompletableFuture<Boolean> runPhase(String name, StartupTask task) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            String status = "ok";
+            try {
+                task.run();
+            } catch (Exception e) {
+                status = "failed";
+                System.err.println("Startup phase '" + name + "' failed: " + e.getMessage());
+            }
+            addPhase(new Phase(name, offsetMs(start), (System.nanoTime() - start) / 1_000_000,
+                    Thread.currentThread().getName(), status));
+            return "ok".equals(status);
+        }, executor);
+    }
+
+    private CompletableFuture<Boolean> skipPhase(String name) {
+        addPhase(new Phase(name, offsetMs(System.nanoTime()), 0, "-", "skipped"));
+        return CompletableFuture.completedFuture(false);
+    }
+
+    private void addPhase(Phase phase) {
+        synchronized (phases) {
+            phases.add(phase);
+        }
+    }
+
+    private long offsetMs(long nanos) {
+        return originOffsetMs + (nanos - originNanos) / 1_000_000;
+    }
+
+    /**
+     * Startup work that may throw a checked exception
+     */
+    @FunctionalInterface
+    private interface StartupTask {
+        void run() throws Exception;
+    }
+
+    private static class Phase {
+        private final String name;
+        private final long startMs;
+        private final long durationMs;
+        private final String thread;
+        private final String status;
+
+        Phase(String name, long startMs, long durationMs, String thread, String status) {
+            this.name = name;
+            this.startMs = startMs;
+            this.durationMs = durationMs;
+            this.thread = thread;
+            this.status = status;
+        }
+    }
+}
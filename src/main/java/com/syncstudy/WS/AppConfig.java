@@ -2,6 +2,8 @@ package com.syncstudy.WS;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class AppConfig {
@@ -27,4 +29,283 @@ public class AppConfig {
         return Integer.parseInt(props.getProperty("chat.server.port", "9000"));
     }
 
+    /**
+     * @return server I/O mode: "threaded" (thread per client), "nio" (selector based)
+     * or "virtual" (virtual reader/writer threads per client, Java 21+)
+     */
+    public static String getChatServerMode() {
+        return props.getProperty("chat.server.mode", "threaded");
+    }
+
+    /**
+     * @return number of selector threads used in nio mode
+     */
+    public static int getChatServerNioWorkers() {
+        int defaultWorkers = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        return Integer.parseInt(props.getProperty("chat.server.nio.workers", String.valueOf(defaultWorkers)));
+    }
+
+    /**
+     * @return idle direct memory the chat server keeps for encoded envelopes shared
+     * between recipients (nio mode)
+     */
+    public static long getChatServerBufferPoolBytes() {
+        return Long.parseLong(props.getProperty("chat.server.buffer-pool.max-bytes", String.valueOf(16L * 1024 * 1024)));
+    }
+
+    /**
+     * @return longest time the chat server holds a connection's first queued envelope
+     * so that following ones go out in the same write (nio and virtual modes); 0 writes
+     * whatever is queued as soon as the writer gets to it
+     */
+    public static long getChatServerWriteMaxDelayMs() {
+        return Long.parseLong(props.getProperty("chat.server.write.max-delay-ms", "1"));
+    }
+
+    /**
+     * @return queued bytes that make a connection write right away, without waiting
+     * for the max delay
+     */
+    public static int getChatServerWriteMaxBatchBytes() {
+        return Integer.parseInt(props.getProperty("chat.server.write.max-batch-bytes", String.valueOf(64 * 1024)));
+    }
+
+    /**
+     * @return share of chat envelopes when file chunks wait on the same connection
+     * (see PriorityOutbox), on the client and the server
+     */
+    public static int getChatPriorityChatWeight() {
+        return Integer.parseInt(props.getProperty("chat.priority.chat-weight", "8"));
+    }
+
+    /**
+     * @return share of file chunks when chat envelopes wait on the same connection
+     */
+    public static int getChatPriorityBulkWeight() {
+        return Integer.parseInt(props.getProperty("chat.priority.bulk-weight", "1"));
+    }
+
+    /**
+     * @return true to ask the chat server for binary frames instead of JSON lines
+     * (the client stays on JSON if the server does not answer the hello)
+     */
+    public static boolean isChatBinaryProtocol() {
+        return "binary".equalsIgnoreCase(props.getProperty("chat.protocol", "json"));
+    }
+
+    /**
+     * @return true to deflate large binary frames (file chunks, long messages)
+     */
+    public static boolean isChatCompressionEnabled() {
+        return Boolean.parseBoolean(props.getProperty("chat.protocol.compression", "false"));
+    }
+
+    /**
+     * @return true for clients to hand new messages to the chat server, which stores
+     * and broadcasts them, when the server says it does (hello-ack); false to
+     * always insert them directly
+     */
+    public static boolean isChatServerIngestEnabled() {
+        return Boolean.parseBoolean(props.getProperty("chat.ingest.enabled", "true"));
+    }
+
+    /**
+     * @return threads storing "send" envelopes on the server; a group always uses the same one
+     */
+    public static int getChatIngestLanes() {
+        return Integer.parseInt(props.getProperty("chat.ingest.lanes", "4"));
+    }
+
+    /**
+     * @return "send" envelopes waiting per lane before the server answers busy
+     */
+    public static int getChatIngestQueueCapacity() {
+        return Integer.parseInt(props.getProperty("chat.ingest.queue-capacity", "1000"));
+    }
+
+    /**
+     * @return newest messages the server keeps per group for reconnecting clients
+     */
+    public static int getChatReplayBufferSize() {
+        return Integer.parseInt(props.getProperty("chat.replay.buffer-size", "256"));
+    }
+
+    /**
+     * @return groups whose recent messages the server keeps, least recently active dropped first
+     */
+    public static int getChatReplayMaxGroups() {
+        return Integer.parseInt(props.getProperty("chat.replay.max-groups", "1000"));
+    }
+
+    /**
+     * @return most missed messages read from the database for one reconnecting client;
+     * beyond that the client reloads the group
+     */
+    public static int getChatReplayMaxDbMessages() {
+        return Integer.parseInt(props.getProperty("chat.replay.max-db-messages", "500"));
+    }
+
+    /**
+     * @return hours a login's token is accepted by the chat and attachment servers
+     */
+    public static long getChatSessionTtlHours() {
+        return Long.parseLong(props.getProperty("chat.session.ttl-hours", "168"));
+    }
+
+    /**
+     * @return port of the attachment server, 0 to run without it
+     */
+    public static int getAttachmentPort() {
+        return Integer.parseInt(props.getProperty("chat.attachment.port", "9001"));
+    }
+
+    /**
+     * @return directory of the server's content-addressed attachment store
+     */
+    public static String getAttachmentStoreDir() {
+        return props.getProperty("chat.attachment.store-dir", "attachments");
+    }
+
+    /**
+     * @return bytes per upload chunk; an interrupted upload resumes at a chunk boundary
+     */
+    public static long getAttachmentChunkSize() {
+        return Long.parseLong(props.getProperty("chat.attachment.chunk-size", "1048576"));
+    }
+
+    /**
+     * @return largest attachment the server accepts, in bytes
+     */
+    public static long getAttachmentMaxBytes() {
+        return Long.parseLong(props.getProperty("chat.attachment.max-bytes", "1073741824"));
+    }
+
+    /**
+     * @return attachment transfers served at the same time
+     */
+    public static int getAttachmentMaxTransfers() {
+        return Integer.parseInt(props.getProperty("chat.attachment.max-transfers", "8"));
+    }
+
+    /**
+     * @return time an attachment transfer may go without progress before the server closes it
+     */
+    public static long getAttachmentIdleTimeoutMs() {
+        return Long.parseLong(props.getProperty("chat.attachment.idle-timeout-ms", "30000"));
+    }
+
+    /**
+     * @return hours an interrupted upload can still be resumed before its partial file is deleted
+     */
+    public static long getAttachmentPartExpiryHours() {
+        return Long.parseLong(props.getProperty("chat.attachment.part-expiry-hours", "24"));
+    }
+
+    /**
+     * @return true to persist new chat messages through the batched write-behind queue
+     */
+    public static boolean isMessageWriteBehindEnabled() {
+        return Boolean.parseBoolean(props.getProperty("chat.persistence.write-behind", "false"));
+    }
+
+    /**
+     * @return number of messages per batch INSERT
+     */
+    public static int getMessageWriteBehindBatchSize() {
+        return Integer.parseInt(props.getProperty("chat.persistence.batch-size", "200"));
+    }
+
+    /**
+     * @return maximum time a queued message waits before its batch is flushed
+     */
+    public static long getMessageWriteBehindMaxDelayMs() {
+        return Long.parseLong(props.getProperty("chat.persistence.max-delay-ms", "50"));
+    }
+
+    /**
+     * @return maximum number of queued, not yet committed messages
+     */
+    public static int getMessageWriteBehindQueueCapacity() {
+        return Integer.parseInt(props.getProperty("chat.persistence.queue-capacity", "10000"));
+    }
+
+    /**
+     * @return number of message ids reserved from the sequence at a time
+     */
+    public static int getMessageIdBlockSize() {
+        return Integer.parseInt(props.getProperty("chat.persistence.id-block-size", "100"));
+    }
+
+    /**
+     * @return number of recent messages cached per group
+     */
+    public static int getMessageCacheWindowSize() {
+        return Integer.parseInt(props.getProperty("chat.cache.window-size", "200"));
+    }
+
+    /**
+     * @return estimated memory budget of the recent message cache, 0 disables it
+     */
+    public static long getMessageCacheMaxBytes() {
+        return Long.parseLong(props.getProperty("chat.cache.max-bytes", String.valueOf(16L * 1024 * 1024)));
+    }
+
+    /**
+     * @return true to serve group and category searches from the in-memory index
+     */
+    public static boolean isInMemorySearchEnabled() {
+        return Boolean.parseBoolean(props.getProperty("search.index.in-memory", "false"));
+    }
+
+    /**
+     * @return how long the category catalog is cached before it is reloaded, 0 disables the cache
+     */
+    public static long getCategoryCacheTtlMillis() {
+        return Long.parseLong(props.getProperty("category.cache.ttl-seconds", "300")) * 1000;
+    }
+
+    /**
+     * @return names of the notification sinks: console, inapp, file, email
+     */
+    public static List<String> getNotificationSinks() {
+        List<String> sinks = new ArrayList<>();
+        for (String name : props.getProperty("notification.sinks", "console").split(",")) {
+            if (!name.isBlank()) {
+                sinks.add(name.trim().toLowerCase());
+            }
+        }
+        return sinks;
+    }
+
+    public static int getNotificationWorkers() {
+        return Integer.parseInt(props.getProperty("notification.workers", "2"));
+    }
+
+    public static int getNotificationQueueCapacity() {
+        return Integer.parseInt(props.getProperty("notification.queue-capacity", "1000"));
+    }
+
+    public static int getNotificationBatchSize() {
+        return Integer.parseInt(props.getProperty("notification.batch-size", "50"));
+    }
+
+    /**
+     * @return how long a queued notification waits for duplicates and batch companions
+     */
+    public static long getNotificationCoalesceWindowMs() {
+        return Long.parseLong(props.getProperty("notification.coalesce-window-ms", "200"));
+    }
+
+    public static String getNotificationFilePath() {
+        return props.getProperty("notification.file.path", "logs/notifications.log");
+    }
+
+    public static String getNotificationOutboxDir() {
+        return props.getProperty("notification.email.outbox-dir", "outbox");
+    }
+
+    public static String getNotificationSender() {
+        return props.getProperty("notification.email.from", "no-reply@syncstudy.local");
+    }
+
 }
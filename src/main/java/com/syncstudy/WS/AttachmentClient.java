@@ -0,0 +1,229 @@
+package com.syncstudy.WS;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Client side of the attachment channel (see AttachmentServer).
+ * Uploads send the file straight from disk with FileChannel.transferTo and
+ * downloads write it straight to disk with transferFrom. A transfer broken by
+ * a network error is retried with backoff and resumes where it stopped:
+ * uploads at the last whole chunk the server holds, downloads at the end of
+ * the local partial file. An upload the server answers "busy" (the same
+ * content is being uploaded, possibly by our own stalled earlier attempt) is
+ * retried after the wait the server asks for, up to MAX_BUSY_WAIT_MS.
+ * Uploads need the chat session token of the logged-in user.
+ */
+public class AttachmentClient {
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MS = 500;
+    private static final int REPLY_BUFFER_BYTES = 4096;
+    // Longer than the server's idle timeout, after which it drops a stalled upload of the same content
+    private static final long MAX_BUSY_WAIT_MS = 120_000;
+
+    /**
+     * The server refused the request; trying again would not help
+     */
+    private static final class RefusedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RefusedException(String message) {
+            super(message);
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final String sessionToken;
+
+    /**
+     * Client for downloads only
+     */
+    public AttachmentClient(String host, int port) {
+        this(host, port, null);
+    }
+
+    /**
+     * @param sessionToken chat session token of the logged-in user, required for uploads
+     */
+    public AttachmentClient(String host, int port, String sessionToken) {
+        this.host = host;
+        this.port = port;
+        this.sessionToken = sessionToken;
+    }
+
+    /**
+     * Upload a file, unless the server already stores the same content
+     * @param file the file
+     * @return SHA-256 of the content, to announce in the chat
+     * @throws IOException if the server refuses the upload, or it still fails after
+     * MAX_ATTEMPTS network errors or MAX_BUSY_WAIT_MS of "busy"
+     */
+    public String upload(Path file) throws IOException {
+        String sha256 = AttachmentStore.sha256(file);
+        long size = Files.size(file);
+        long busyWaited = 0;
+        for (int attempt = 1; ; ) {
+            long retryAfterMs;
+            try {
+                retryAfterMs = tryUpload(file, sha256, size);
+                if (retryAfterMs == 0) {
+                    return sha256;
+                }
+            } catch (RefusedException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= MAX_ATTEMPTS) throw e;
+                sleep(RETRY_BACKOFF_MS << (attempt - 1));
+                attempt++;
+                continue;
+            }
+            // Busy is not a failure of ours: it does not use up an attempt
+            if (busyWaited + retryAfterMs > MAX_BUSY_WAIT_MS) {
+                throw new IOException("Server still busy with the same upload after " + busyWaited + " ms");
+            }
+            sleep(retryAfterMs);
+            busyWaited += retryAfterMs;
+        }
+    }
+
+    /**
+     * Download stored content; a partial download next to the target is resumed
+     * @param sha256 content hash
+     * @param target where to write the file
+     * @return the target
+     * @throws FileNotFoundException if the server does not have the content
+     * @throws IOException if the download still fails after MAX_ATTEMPTS, or the content does not match
+     */
+    public Path download(String sha256, Path target) throws IOException {
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        for (int attempt = 1; ; attempt++) {
+            try {
+                tryDownload(sha256, partial);
+                break;
+            } catch (FileNotFoundException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= MAX_ATTEMPTS) throw e;
+                sleep(RETRY_BACKOFF_MS << (attempt - 1));
+            }
+        }
+        if (!sha256.equals(AttachmentStore.sha256(partial))) {
+            Files.deleteIfExists(partial);
+            throw new IOException("Downloaded content does not match " + sha256);
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    /**
+     * @return 0 once stored, else how long to wait before trying again because
+     * the server is busy receiving the same content
+     */
+    private long tryUpload(Path file, String sha256, long size) throws IOException {
+        try (SocketChannel channel = connect();
+             FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            JsonObject request = new JsonObject();
+            request.addProperty("op", "put");
+            request.addProperty("sha256", sha256);
+            request.addProperty("size", size);
+            request.addProperty("token", sessionToken);
+            AttachmentServer.writeLine(channel, request);
+
+            ByteBuffer buffer = ByteBuffer.allocate(REPLY_BUFFER_BYTES);
+            JsonObject reply = readReply(channel, buffer);
+            String status = AttachmentServer.stringField(reply, "status");
+            if ("exists".equals(status)) return 0;
+            if ("busy".equals(status)) {
+                Long retryAfterMs = AttachmentServer.longField(reply, "retryAfterMs");
+                return retryAfterMs != null && retryAfterMs > 0 ? retryAfterMs : RETRY_BACKOFF_MS;
+            }
+            if ("unauthorized".equals(status) || "error".equals(status)) {
+                throw new RefusedException(failed(reply).getMessage());
+            }
+            if (!"ready".equals(status)) throw failed(reply);
+
+            long position = AttachmentServer.longField(reply, "nextChunk") * AttachmentServer.longField(reply, "chunkSize");
+            while (position < size) {
+                position += in.transferTo(position, size - position, channel);
+            }
+            buffer.compact();
+            reply = readReply(channel, buffer);
+            if (!"stored".equals(AttachmentServer.stringField(reply, "status"))) throw failed(reply);
+            return 0;
+        }
+    }
+
+    private void tryDownload(String sha256, Path partial) throws IOException {
+        try (FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             SocketChannel channel = connect()) {
+            long offset = out.size();
+            JsonObject request = new JsonObject();
+            request.addProperty("op", "get");
+            request.addProperty("sha256", sha256);
+            request.addProperty("offset", offset);
+            AttachmentServer.writeLine(channel, request);
+
+            ByteBuffer buffer = ByteBuffer.allocate(REPLY_BUFFER_BYTES);
+            JsonObject reply = readReply(channel, buffer);
+            String status = AttachmentServer.stringField(reply, "status");
+            if ("missing".equals(status)) throw new FileNotFoundException("Attachment " + sha256 + " not found");
+            if (!"ok".equals(status)) throw failed(reply);
+
+            long size = AttachmentServer.longField(reply, "size");
+            long position = Math.min(offset, size);
+            out.truncate(position);
+            // Content bytes that arrived together with the reply
+            if (buffer.hasRemaining()) {
+                buffer.limit((int) Math.min(buffer.limit(), buffer.position() + size - position));
+                position += out.write(buffer, position);
+            }
+            while (position < size) {
+                long n = out.transferFrom(channel, position, size - position);
+                if (n <= 0) throw new IOException("Connection closed at " + position + "/" + size);
+                position += n;
+            }
+        }
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    private static JsonObject readReply(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        return JsonParser.parseString(AttachmentServer.readLine(channel, buffer)).getAsJsonObject();
+    }
+
+    private static IOException failed(JsonObject reply) {
+        String message = AttachmentServer.stringField(reply, "message");
+        return new IOException("Attachment server: " + (message != null ? message : reply.toString()));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.syncstudy.WS;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.syncstudy.BL.SessionManager.ChatSessionManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Attachment channel of the chat server, on its own port so that large files
+ * never go through the chat connections. Files are uploaded once, stored by
+ * SHA-256 (see AttachmentStore), announced in the chat by an "attachment"
+ * envelope carrying the hash, and downloaded by the recipients who open them.
+ *
+ * One transfer per connection. The client sends one JSON line, the server
+ * answers with one JSON line:
+ * - {"op":"put","sha256":..,"size":..,"token":..}: the token is the uploader's
+ *   chat session token (see ChatSessionManager), else "unauthorized". Then
+ *   "exists" if the content is already stored (nothing to send), "busy" with
+ *   retryAfterMs while the same content is being uploaded, else "ready" with
+ *   chunkSize and nextChunk; the client then sends the file from
+ *   nextChunk * chunkSize to the end and the server answers "stored" once the
+ *   hash matches. A broken upload resumes at the last whole chunk received.
+ * - {"op":"get","sha256":..,"offset":..}: "ok" with the size, followed by the
+ *   content from offset; "missing" if not stored.
+ * File bytes move between socket and disk with FileChannel.transferFrom and
+ * transferTo, so they are never copied through the Java heap.
+ * A watchdog closes connections that made no progress for idleTimeoutMs, which
+ * frees their transfer thread and, for an upload, lets the same content be
+ * uploaded again (resumed). Partial uploads not resumed within partExpiryMs
+ * are deleted.
+ */
+public class AttachmentServer {
+
+    private static final int MAX_REQUEST_BYTES = 4096;
+    // Bytes moved per transferFrom/transferTo call; progress is noted after each
+    private static final long TRANSFER_STEP_BYTES = 256 * 1024;
+    private static final long PART_SWEEP_INTERVAL_MS = 60 * 60 * 1000;
+
+    /**
+     * A connection being served, and when it last made progress
+     */
+    private static final class Transfer {
+        final SocketChannel channel;
+        volatile String remote = "unknown";
+        volatile long lastProgress = System.nanoTime();
+
+        Transfer(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void touch() {
+            lastProgress = System.nanoTime();
+        }
+    }
+
+    private final int port;
+    private final AttachmentStore store;
+    private final long chunkSize;
+    private final long maxFileBytes;
+    private final long idleTimeoutNanos;
+    private final long partExpiryMs;
+    private final ExecutorService transfers;
+    private final ScheduledExecutorService watchdog;
+    private final Set<Transfer> active = ConcurrentHashMap.newKeySet();
+    // Uploads in progress by hash; a second upload of the same content is answered "busy"
+    private final Map<String, Transfer> uploading = new ConcurrentHashMap<>();
+
+    /**
+     * @param chunkSize resume granularity of uploads
+     * @param maxFileBytes largest accepted upload
+     * @param maxTransfers transfers served at the same time; others wait for a slot
+     * @param idleTimeoutMs a connection without progress for this long is closed
+     * @param partExpiryMs a partial upload not written to for this long is deleted
+     */
+    public AttachmentServer(int port, AttachmentStore store, long chunkSize, long maxFileBytes, int maxTransfers,
+                            long idleTimeoutMs, long partExpiryMs) {
+        this.port = port;
+        this.store = store;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxFileBytes = maxFileBytes;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1000, idleTimeoutMs));
+        this.partExpiryMs = Math.max(0, partExpiryMs);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.transfers = Executors.newFixedThreadPool(Math.max(1, maxTransfers), runnable -> {
+            Thread thread = new Thread(runnable, "AttachmentServer-Transfer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AttachmentServer-Watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Server configured from config.properties
+     */
+    public static AttachmentServer fromConfig() throws IOException {
+        return new AttachmentServer(AppConfig.getAttachmentPort(),
+                new AttachmentStore(Path.of(AppConfig.getAttachmentStoreDir())),
+                AppConfig.getAttachmentChunkSize(), AppConfig.getAttachmentMaxBytes(),
+                AppConfig.getAttachmentMaxTransfers(), AppConfig.getAttachmentIdleTimeoutMs(),
+                TimeUnit.HOURS.toMillis(AppConfig.getAttachmentPartExpiryHours()));
+    }
+
+    /**
+     * Accept connections on the calling thread; never returns normally
+     */
+    public void start() throws IOException {
+        long sweepMs = Math.max(250, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 4);
+        watchdog.scheduleWithFixedDelay(this::closeIdle, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+        if (partExpiryMs > 0) {
+            watchdog.scheduleWithFixedDelay(this::expirePartials, 0, PART_SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port));
+            System.out.println("AttachmentServer listening on " + port);
+            while (true) {
+                SocketChannel channel = server.accept();
+                transfers.execute(() -> serve(channel));
+            }
+        } finally {
+            transfers.shutdownNow();
+            watchdog.shutdownNow();
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        Transfer transfer = new Transfer(channel);
+        active.add(transfer);
+        try (channel) {
+            transfer.remote = String.valueOf(channel.getRemoteAddress());
+            ByteBuffer buffer = ByteBuffer.allocate(MAX_REQUEST_BYTES);
+            JsonObject request = JsonParser.parseString(readLine(channel, buffer)).getAsJsonObject();
+            transfer.touch();
+            String op = stringField(request, "op");
+            String sha256 = stringField(request, "sha256");
+            if (!AttachmentStore.isValidHash(sha256)) {
+                writeLine(channel, reply("error", "invalid sha256"));
+            } else if ("put".equals(op)) {
+                Long userId = ChatSessionManager.getInstance().authenticate(stringField(request, "token"));
+                if (userId == null) {
+                    writeLine(channel, reply("unauthorized", "log in to upload attachments"));
+                } else {
+                    receive(transfer, buffer, sha256, longField(request, "size"), userId);
+                }
+            } else if ("get".equals(op)) {
+                Long offset = longField(request, "offset");
+                send(transfer, sha256, offset != null ? offset : 0);
+            } else {
+                writeLine(channel, reply("error", "unknown op"));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Attachment transfer with " + transfer.remote + " failed: " + e.getMessage());
+        } finally {
+            active.remove(transfer);
+        }
+    }
+
+    /**
+     * Close connections without progress for idleTimeout; their threads fail
+     * out of the blocked read or write and release what they held
+     */
+    private void closeIdle() {
+        long now = System.nanoTime();
+        for (Transfer transfer : active) {
+            if (now - transfer.lastProgress > idleTimeoutNanos && transfer.channel.isOpen()) {
+                System.err.println("Attachment transfer with " + transfer.remote + " idle for "
+                        + TimeUnit.NANOSECONDS.toSeconds(now - transfer.lastProgress) + " s, closing");
+                try {
+                    transfer.channel.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    private void expirePartials() {
+        try {
+            int deleted = store.deletePartialsOlderThan(partExpiryMs, uploading.keySet());
+            if (deleted > 0) {
+                System.out.println("Deleted " + deleted + " abandoned partial upload(s)");
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to expire partial uploads: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param buffer request buffer; bytes already read past the request line belong to the file
+     */
+    private void receive(Transfer transfer, ByteBuffer buffer, String sha256, Long size,
+                         Long userId) throws IOException {
+        SocketChannel channel = transfer.channel;
+        String remote = transfer.remote + " (user " + userId + ")";
+        if (store.has(sha256)) {
+            JsonObject exists = reply("exists", null);
+            exists.addProperty("size", Files.size(store.pathOf(sha256)));
+            writeLine(channel, exists);
+            System.out.println("Attachment " + sha256 + " from " + remote + " already stored");
+            return;
+        }
+        if (size == null || size < 0 || size > maxFileBytes) {
+            writeLine(channel, reply("error", "size must be between 0 and " + maxFileBytes));
+            return;
+        }
+        Transfer holder = uploading.putIfAbsent(sha256, transfer);
+        if (holder != null) {
+            // At the latest when the watchdog closes the other upload, if it is stalled
+            long idle = System.nanoTime() - holder.lastProgress;
+            JsonObject busy = reply("busy", "the same content is being uploaded");
+            busy.addProperty("retryAfterMs", Math.max(1000, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos - idle)));
+            writeLine(channel, busy);
+            return;
+        }
+        try {
+            if (!receivePartial(transfer, buffer, sha256, size)) return;
+            if (store.commit(sha256)) {
+                writeLine(channel, reply("stored", null));
+                System.out.println("Attachment " + sha256 + " (" + size + " bytes) stored from " + remote);
+            } else {
+                writeLine(channel, reply("error", "content does not match sha256"));
+            }
+        } finally {
+            uploading.remove(sha256, transfer);
+        }
+    }
+
+    /**
+     * @return true once the partial file holds all size bytes
+     */
+    private boolean receivePartial(Transfer transfer, ByteBuffer buffer, String sha256,
+                                   long size) throws IOException {
+        SocketChannel channel = transfer.channel;
+        try (FileChannel file = FileChannel.open(store.partialOf(sha256),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long nextChunk = Math.min(store.resumeChunk(sha256, chunkSize), size / chunkSize);
+            long position = nextChunk * chunkSize;
+            // Drop a partly written last chunk
+            file.truncate(position);
+
+            JsonObject ready = reply("ready", null);
+            ready.addProperty("chunkSize", chunkSize);
+            ready.addProperty("nextChunk", nextChunk);
+            writeLine(channel, ready);
+
+            if (buffer.hasRemaining()) {
+                buffer.limit((int) Math.min(buffer.limit(), buffer.position() + size - position));
+                position += file.write(buffer, position);
+            }
+            while (position < size) {
+                long n = file.transferFrom(channel, position, Math.min(TRANSFER_STEP_BYTES, size - position));
+                if (n <= 0) {
+                    // Client went away: keep what we have for a resumed upload
+                    System.out.println("Attachment upload " + sha256 + " interrupted at " + position + "/" + size);
+                    return false;
+                }
+                position += n;
+                transfer.touch();
+            }
+            return true;
+        }
+    }
+
+    private void send(Transfer transfer, String sha256, long offset) throws IOException {
+        SocketChannel channel = transfer.channel;
+        if (!store.has(sha256)) {
+            writeLine(channel, reply("missing", null));
+            return;
+        }
+        try (FileChannel file = FileChannel.open(store.pathOf(sha256), StandardOpenOption.READ)) {
+            long size = file.size();
+            JsonObject ok = reply("ok", null);
+            ok.addProperty("size", size);
+            writeLine(channel, ok);
+            long position = Math.max(0, Math.min(offset, size));
+            while (position < size) {
+                position += file.transferTo(position, Math.min(TRANSFER_STEP_BYTES, size - position), channel);
+                transfer.touch();
+            }
+        }
+    }
+
+    /**
+     * Read one newline-terminated line
+     * @param buffer buffer in write mode, possibly starting with bytes already read;
+     *               on return it is flipped and positioned after the line
+     * @return the line without terminator
+     */
+    static String readLine(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        int scanned = 0;
+        while (true) {
+            for (int i = scanned; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    String line = new String(buffer.array(), 0, i, StandardCharsets.UTF_8);
+                    buffer.flip();
+                    buffer.position(i + 1);
+                    return line;
+                }
+            }
+            scanned = buffer.position();
+            if (!buffer.hasRemaining()) {
+                throw new IOException("Line longer than " + buffer.capacity() + " bytes");
+            }
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+    }
+
+    static void writeLine(WritableByteChannel channel, JsonObject message) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap((message + "\n").getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static JsonObject reply(String status, String message) {
+        JsonObject reply = new JsonObject();
+        reply.addProperty("status", status);
+        if (message != null) {
+            reply.addProperty("message", message);
+        }
+        return reply;
+    }
+
+    static String stringField(JsonObject obj, String name) {
+        JsonElement el = obj.get(name);
+        return el != null && el.isJsonPrimitive() ? el.getAsString() : null;
+    }
+
+    static Long longField(JsonObject obj, String name) {
+        JsonElement el = obj.get(name);
+        if (el == null || !el.isJsonPrimitive()) return null;
+        try {
+            return el.getAsLong();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Standalone attachment server, for running it next to a separate chat server process
+    public static void main(String[] args) throws IOException {
+        fromConfig().start();
+    }
+}
@@ -0,0 +1,150 @@
+package com.syncstudy.WS;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed file store of the attachment server.
+ * A file is stored once under the hex SHA-256 of its content
+ * (root/ab/abcdef...), however many times it is shared. Uploads are written to
+ * root/incoming/<sha256>.part and only moved into place once the content
+ * matches its hash, so a half-received file is never served and an
+ * interrupted upload can resume where the partial file ends, until it is
+ * deleted as abandoned.
+ */
+public class AttachmentStore {
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    // Files are hashed through memory-mapped windows of this size
+    private static final long MAP_WINDOW_BYTES = 64L * 1024 * 1024;
+
+    private final Path root;
+    private final Path incoming;
+
+    public AttachmentStore(Path root) throws IOException {
+        this.root = root;
+        this.incoming = root.resolve("incoming");
+        Files.createDirectories(incoming);
+    }
+
+    /**
+     * @param sha256 a client-supplied hash
+     * @return true if it is a lowercase hex SHA-256, safe to use in a path
+     */
+    public static boolean isValidHash(String sha256) {
+        return sha256 != null && SHA256.matcher(sha256).matches();
+    }
+
+    /**
+     * @param sha256 content hash
+     * @return where the complete file is (or would be) stored
+     */
+    public Path pathOf(String sha256) {
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    /**
+     * @param sha256 content hash
+     * @return the file being uploaded
+     */
+    public Path partialOf(String sha256) {
+        return incoming.resolve(sha256 + ".part");
+    }
+
+    /**
+     * @param sha256 content hash
+     * @return true if the complete file is stored
+     */
+    public boolean has(String sha256) {
+        return Files.isRegularFile(pathOf(sha256));
+    }
+
+    /**
+     * Where an upload resumes: the end of the partial file, rounded down to a whole chunk
+     * @param sha256 content hash
+     * @param chunkSize resume granularity in bytes
+     * @return index of the first chunk still needed
+     */
+    public long resumeChunk(String sha256, long chunkSize) throws IOException {
+        Path partial = partialOf(sha256);
+        return Files.exists(partial) ? Files.size(partial) / chunkSize : 0;
+    }
+
+    /**
+     * Delete partial uploads nobody resumed for a while
+     * @param maxAgeMs age of the last write beyond which a partial file is abandoned
+     * @param uploading hashes being uploaded now, never deleted
+     * @return number of partial files deleted
+     */
+    public int deletePartialsOlderThan(long maxAgeMs, Set<String> uploading) throws IOException {
+        long cutoff = System.currentTimeMillis() - maxAgeMs;
+        int deleted = 0;
+        try (DirectoryStream<Path> partials = Files.newDirectoryStream(incoming, "*.part")) {
+            for (Path partial : partials) {
+                String name = partial.getFileName().toString();
+                String sha256 = name.substring(0, name.length() - ".part".length());
+                if (uploading.contains(sha256)) continue;
+                try {
+                    if (Files.getLastModifiedTime(partial).toMillis() < cutoff && Files.deleteIfExists(partial)) {
+                        deleted++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // Committed or deleted meanwhile
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Verify a fully received upload and move it into the store
+     * @param sha256 hash announced by the uploader
+     * @return true if stored, false if the content did not match (the partial file is discarded)
+     */
+    public boolean commit(String sha256) throws IOException {
+        Path partial = partialOf(sha256);
+        if (!sha256.equals(sha256(partial))) {
+            Files.deleteIfExists(partial);
+            return false;
+        }
+        Path target = pathOf(sha256);
+        Files.createDirectories(target.getParent());
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * Hash a file through memory-mapped windows, without copying it onto the heap
+     * @param file the file
+     * @return lowercase hex SHA-256
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_WINDOW_BYTES) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAP_WINDOW_BYTES, size - position));
+                digest.update(window);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,165 @@
+package com.syncstudy.WS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the checks of the chat server that need the database (session tokens
+ * of "auth" envelopes, pushed notifications) on a few threads of their own,
+ * never on the I/O threads: in nio mode one slow query would stall every
+ * connection of a selector.
+ * While a connection's "auth" is being checked, the envelopes it sends next
+ * are held and handed over in order once the check is done, so a
+ * "subscribe-user" or "send" right behind the "auth" already finds the session.
+ * A connection holding more than MAX_HELD envelopes is closed.
+ */
+final class AuthLane {
+
+    private static final int THREADS = 2;
+    private static final int QUEUE_CAPACITY = 1_000;
+    private static final int MAX_HELD = 256;
+
+    /**
+     * Where held envelopes go once the check before them is done; called on an auth thread
+     */
+    interface Handler {
+        void handle(String type, Long route, WireEnvelope envelope, ChatConnection from);
+    }
+
+    /**
+     * Envelopes of one connection waiting for its "auth" to be checked
+     */
+    private static final class Gate {
+        private final List<Held> held = new ArrayList<>();
+        private boolean open;
+
+        /**
+         * @return false if the gate is open already: the envelope goes through as usual
+         */
+        synchronized boolean hold(Held envelope) {
+            if (open) return false;
+            held.add(envelope);
+            return true;
+        }
+
+        /**
+         * @return the envelopes held since the last call, or null (and the gate
+         * opens) when there are none
+         */
+        synchronized List<Held> take() {
+            if (held.isEmpty()) {
+                open = true;
+                return null;
+            }
+            List<Held> batch = new ArrayList<>(held);
+            held.clear();
+            return batch;
+        }
+
+        synchronized int size() {
+            return held.size();
+        }
+    }
+
+    private static final class Held {
+        final String type;
+        final Long route;
+        final WireEnvelope envelope;
+
+        Held(String type, Long route, WireEnvelope envelope) {
+            this.type = type;
+            this.route = route;
+            this.envelope = envelope;
+        }
+    }
+
+    private final Handler handler;
+    private final ThreadPoolExecutor threads;
+    private final Map<ChatConnection, Gate> gates = new ConcurrentHashMap<>();
+
+    /**
+     * @param handler handles the envelopes taken here, "auth" included, on an auth thread
+     */
+    AuthLane(Handler handler) {
+        this.handler = handler;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.threads = new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "TcpChatServer-Auth-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Take an envelope off the I/O thread if it must wait for, or is, an "auth";
+     * called on the connection's reader, in the order the envelopes arrive
+     * @return true if taken: the handler gets it later
+     */
+    boolean offer(String type, Long route, WireEnvelope envelope, ChatConnection from) {
+        Held held = new Held(type, route, envelope);
+        Gate gate = gates.get(from);
+        if (gate != null && gate.hold(held)) {
+            if (gate.size() > MAX_HELD) {
+                System.err.println("Closing " + from.remoteAddr() + ": too many envelopes sent before its login was checked");
+                from.close();
+            }
+            return true;
+        }
+        if (!"auth".equals(type)) {
+            return false;
+        }
+        Gate next = new Gate();
+        next.hold(held);
+        gates.put(from, next);
+        if (!execute(() -> drain(from, next))) {
+            gates.remove(from, next);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Run a check that does not hold the connection's other envelopes back
+     * @return false if the auth threads are saturated
+     */
+    boolean execute(Runnable check) {
+        try {
+            threads.execute(check);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Drop what a closed connection still had held
+     * @param connection a connection being unregistered
+     */
+    void forget(ChatConnection connection) {
+        gates.remove(connection);
+    }
+
+    private void drain(ChatConnection from, Gate gate) {
+        List<Held> batch;
+        while ((batch = gate.take()) != null) {
+            for (Held held : batch) {
+                // Closed meanwhile: what it sent no longer matters
+                if (gates.get(from) != gate) return;
+                try {
+                    handler.handle(held.type, held.route, held.envelope, from);
+                } catch (RuntimeException e) {
+                    System.err.println("Error handling " + held.type + " from " + from.remoteAddr() + ": " + e.getMessage());
+                }
+            }
+        }
+        gates.remove(from, gate);
+    }
+}
@@ -0,0 +1,109 @@
+package com.syncstudy.WS;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct buffers behind SharedBuffer, in power-of-two size classes
+ * from 512 bytes to 1 MB. Direct memory is what socket writes read from: a
+ * heap array is copied into a temporary direct buffer on every write, so a
+ * broadcast from a heap array costs one copy per recipient, while a shared
+ * direct buffer is copied once. Allocating direct memory is slow, hence the
+ * pool. Bodies above the largest class stay on the heap. At most maxPooledBytes
+ * are kept idle; buffers given back beyond that are left to the garbage collector.
+ */
+final class BufferPool {
+
+    private static final int MIN_CLASS_SHIFT = 9;
+    private static final int MAX_CLASS_SHIFT = 20;
+
+    private static BufferPool instance;
+
+    private final List<Queue<ByteBuffer>> classes;
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong unpooled = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    /**
+     * @param maxPooledBytes idle direct memory kept for reuse
+     */
+    BufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = Math.max(0, maxPooledBytes);
+        this.classes = new ArrayList<>(MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1);
+        for (int shift = MIN_CLASS_SHIFT; shift <= MAX_CLASS_SHIFT; shift++) {
+            classes.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /**
+     * Pool shared by the chat server's connections, sized from config.properties
+     */
+    static synchronized BufferPool getInstance() {
+        if (instance == null) {
+            instance = new BufferPool(AppConfig.getChatServerBufferPoolBytes());
+        }
+        return instance;
+    }
+
+    /**
+     * Copy bytes into a pooled buffer
+     * @param bytes encoded envelope
+     * @return a buffer holding one reference for the caller
+     */
+    SharedBuffer copyOf(byte[] bytes) {
+        int index = classOf(bytes.length);
+        if (index < 0) {
+            unpooled.incrementAndGet();
+            return SharedBuffer.wrap(bytes);
+        }
+        ByteBuffer buffer = classes.get(index).poll();
+        if (buffer != null) {
+            pooledBytes.addAndGet(-buffer.capacity());
+            reused.incrementAndGet();
+            buffer.clear();
+        } else {
+            buffer = ByteBuffer.allocateDirect(1 << (index + MIN_CLASS_SHIFT));
+            allocated.incrementAndGet();
+        }
+        buffer.put(bytes).flip();
+        return new SharedBuffer(buffer, this);
+    }
+
+    /**
+     * Take back a buffer whose last reference was released
+     */
+    void recycle(ByteBuffer buffer) {
+        int index = Integer.numberOfTrailingZeros(buffer.capacity()) - MIN_CLASS_SHIFT;
+        if (pooledBytes.addAndGet(buffer.capacity()) > maxPooledBytes) {
+            pooledBytes.addAndGet(-buffer.capacity());
+            discarded.incrementAndGet();
+            return;
+        }
+        classes.get(index).offer(buffer);
+    }
+
+    /**
+     * @return counters since start, for logs and benchmarks
+     */
+    String describe() {
+        return "allocated=" + allocated.get() + ", reused=" + reused.get() + ", unpooled=" + unpooled.get()
+                + ", discarded=" + discarded.get() + ", idleBytes=" + pooledBytes.get();
+    }
+
+    /**
+     * @return size class index, or -1 above the largest class
+     */
+    private static int classOf(int length) {
+        if (length > 1 << MAX_CLASS_SHIFT) return -1;
+        int shift = Math.max(MIN_CLASS_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(1, length) - 1));
+        return shift - MIN_CLASS_SHIFT;
+    }
+}
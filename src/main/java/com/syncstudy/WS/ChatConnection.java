@@ -0,0 +1,32 @@
+package com.syncstudy.WS;
+
+/**
+ * One client connection of the chat server, independent of the I/O model behind it
+ */
+interface ChatConnection {
+
+    /**
+     * Queue one envelope for this client, as a JSON line or a frame depending on
+     * what the client negotiated. Must not block on the socket.
+     * @param envelope the envelope
+     */
+    void send(WireEnvelope envelope);
+
+    /**
+     * Answer a binary hello: queue the hello-ack line, then use frames in both
+     * directions. Called on the connection's reader, which must read frames once
+     * this returns; envelopes queued after the ack are frames.
+     * @param compress whether outgoing frames may be deflated
+     */
+    void upgrade(boolean compress);
+
+    /**
+     * @return remote address for logging
+     */
+    String remoteAddr();
+
+    /**
+     * Close the connection and unregister it from the server
+     */
+    void close();
+}
@@ -0,0 +1,44 @@
+package com.syncstudy.WS;
+
+/**
+ * Per-group routing counters reported by TcpChatServer
+ */
+public class FanOutStats {
+    private final long messages;
+    private final long deliveries;
+    private final int subscribers;
+
+    public FanOutStats(long messages, long deliveries, int subscribers) {
+        this.messages = messages;
+        this.deliveries = deliveries;
+        this.subscribers = subscribers;
+    }
+
+    /**
+     * @return envelopes routed to the group
+     */
+    public long getMessages() { return messages; }
+
+    /**
+     * @return total per-connection deliveries for the group
+     */
+    public long getDeliveries() { return deliveries; }
+
+    /**
+     * @return connections currently subscribed to the group
+     */
+    public int getSubscribers() { return subscribers; }
+
+    /**
+     * @return average recipients per envelope
+     */
+    public double getAverageFanOut() {
+        return messages == 0 ? 0.0 : deliveries / (double) messages;
+    }
+
+    @Override
+    public String toString() {
+        return "FanOutStats{messages=" + messages + ", deliveries=" + deliveries +
+                ", subscribers=" + subscribers + '}';
+    }
+}
@@ -0,0 +1,57 @@
+package com.syncstudy.WS;
+
+import com.syncstudy.PL.LatencyHistogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Flush counters shared by all connections of a TcpChatServer, lock-free since
+ * every writer thread records into them
+ */
+final class FlushCounters {
+
+    // Lower bounds of the batch size buckets; the last one is open-ended. A write
+    // that only gets part of a large envelope out completes none
+    private static final int[] BATCH_BOUNDS = {1, 2, 4, 8, 16, 32, 64};
+    private static final String[] BATCH_LABELS = {"0-1", "2-3", "4-7", "8-15", "16-31", "32-63", ">=64"};
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong envelopes = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLongArray batchSizes = new AtomicLongArray(BATCH_LABELS.length);
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    /**
+     * One socket write or stream flush
+     * @param batch envelopes it completed (0 for the first part of a large one)
+     * @param written bytes it wrote
+     */
+    void recordFlush(int batch, long written) {
+        flushes.incrementAndGet();
+        envelopes.addAndGet(batch);
+        bytes.addAndGet(written);
+        int index = 0;
+        while (index + 1 < BATCH_BOUNDS.length && batch >= BATCH_BOUNDS[index + 1]) {
+            index++;
+        }
+        batchSizes.incrementAndGet(index);
+    }
+
+    /**
+     * @param nanos time the oldest envelope of a drained batch spent queued
+     */
+    void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    FlushStats snapshot() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (int i = 0; i < BATCH_LABELS.length; i++) {
+            sizes.put(BATCH_LABELS[i], batchSizes.get(i));
+        }
+        return new FlushStats(flushes.get(), envelopes.get(), bytes.get(), sizes, queueWait);
+    }
+}
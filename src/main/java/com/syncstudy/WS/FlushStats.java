@@ -0,0 +1,50 @@
+package com.syncstudy.WS;
+
+import com.syncstudy.PL.LatencyHistogram;
+
+import java.util.Map;
+
+/**
+ * Point-in-time snapshot of the chat server's outbound writes: how many
+ * envelopes each socket write (nio) or stream flush (virtual) carried
+ */
+public class FlushStats {
+    private final long flushes;
+    private final long envelopes;
+    private final long bytes;
+    private final Map<String, Long> batchSizes;
+    private final LatencyHistogram queueWait;
+
+    public FlushStats(long flushes, long envelopes, long bytes, Map<String, Long> batchSizes,
+                      LatencyHistogram queueWait) {
+        this.flushes = flushes;
+        this.envelopes = envelopes;
+        this.bytes = bytes;
+        this.batchSizes = batchSizes;
+        this.queueWait = queueWait;
+    }
+
+    public long getFlushes() { return flushes; }
+    public long getEnvelopes() { return envelopes; }
+    public long getBytes() { return bytes; }
+    // Envelopes per flush, keyed by bucket label in ascending order
+    public Map<String, Long> getBatchSizes() { return batchSizes; }
+    // Time the oldest envelope of each batch spent queued before the batch was written
+    public LatencyHistogram getQueueWait() { return queueWait; }
+
+    public double getAverageBatchSize() {
+        return flushes == 0 ? 0.0 : envelopes / (double) flushes;
+    }
+
+    @Override
+    public String toString() {
+        return "FlushStats{" +
+                "flushes=" + flushes +
+                ", envelopes=" + envelopes +
+                ", bytes=" + bytes +
+                ", avgBatch=" + String.format("%.1f", getAverageBatchSize()) +
+                ", batchSizes=" + batchSizes +
+                ", queueWait=[" + queueWait + "]" +
+                '}';
+    }
+}
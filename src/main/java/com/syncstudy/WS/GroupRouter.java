@@ -0,0 +1,117 @@
+package com.syncstudy.WS;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent group -> subscribers index used by TcpChatServer
+ * so that an envelope is delivered only to the members of its group.
+ * Also keeps per-group fan-out counters.
+ * The server keeps a second instance keyed by user ID for notifications.
+ */
+class GroupRouter {
+
+    private final Map<Long, Set<ChatConnection>> subscribers = new ConcurrentHashMap<>();
+    // Reverse index so a disconnect can be cleaned up without scanning every group
+    private final Map<ChatConnection, Set<Long>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<Long, FanOutCounter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Subscribe a connection to a group
+     * @param groupId the group ID
+     * @param connection the client connection
+     */
+    void subscribe(Long groupId, ChatConnection connection) {
+        subscribers.compute(groupId, (id, members) -> {
+            if (members == null) {
+                members = ConcurrentHashMap.newKeySet();
+            }
+            members.add(connection);
+            return members;
+        });
+        subscriptions.computeIfAbsent(connection, c -> ConcurrentHashMap.newKeySet()).add(groupId);
+    }
+
+    /**
+     * Unsubscribe a connection from a group
+     * @param groupId the group ID
+     * @param connection the client connection
+     */
+    void unsubscribe(Long groupId, ChatConnection connection) {
+        removeFromGroup(groupId, connection);
+        Set<Long> groups = subscriptions.get(connection);
+        if (groups != null) {
+            groups.remove(groupId);
+        }
+    }
+
+    /**
+     * Drop every subscription of a connection (on disconnect)
+     * @param connection the client connection
+     */
+    void unsubscribeAll(ChatConnection connection) {
+        Set<Long> groups = subscriptions.remove(connection);
+        if (groups == null) return;
+        for (Long groupId : groups) {
+            removeFromGroup(groupId, connection);
+        }
+    }
+
+    /**
+     * Get the current members of a group
+     * @param groupId the group ID
+     * @return live view of the subscribers, empty if none
+     */
+    Set<ChatConnection> subscribersOf(Long groupId) {
+        Set<ChatConnection> members = subscribers.get(groupId);
+        return members != null ? members : Collections.emptySet();
+    }
+
+    /**
+     * @param groupId the group ID
+     * @param connection the client connection
+     * @return true if the connection is subscribed to the group
+     */
+    boolean isSubscribed(Long groupId, ChatConnection connection) {
+        Set<Long> groups = subscriptions.get(connection);
+        return groups != null && groups.contains(groupId);
+    }
+
+    /**
+     * Record one envelope routed to a group
+     * @param groupId the group ID
+     * @param recipients number of connections it was delivered to
+     */
+    void recordFanOut(Long groupId, int recipients) {
+        FanOutCounter counter = counters.computeIfAbsent(groupId, id -> new FanOutCounter());
+        counter.messages.increment();
+        counter.deliveries.add(recipients);
+    }
+
+    /**
+     * Snapshot of the per-group fan-out counters
+     * @return group ID to its counters
+     */
+    Map<Long, FanOutStats> getFanOutStats() {
+        Map<Long, FanOutStats> stats = new HashMap<>();
+        counters.forEach((groupId, counter) -> stats.put(groupId, new FanOutStats(
+                counter.messages.sum(), counter.deliveries.sum(), subscribersOf(groupId).size())));
+        return stats;
+    }
+
+    private void removeFromGroup(Long groupId, ChatConnection connection) {
+        subscribers.computeIfPresent(groupId, (id, members) -> {
+            members.remove(connection);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private static class FanOutCounter {
+        private final LongAdder messages = new LongAdder();
+        private final LongAdder deliveries = new LongAdder();
+    }
+}
@@ -0,0 +1,334 @@
+package com.syncstudy.WS;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import com.syncstudy.BL.ChatManager.Message;
+import com.syncstudy.BL.ChatManager.MessageManager;
+import com.syncstudy.PL.LatencyHistogram;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server side of "send" envelopes: instead of inserting new messages with
+ * their own database credentials, clients hand them to the chat server, which
+ * stores them through its MessageManager (pooled connections, see
+ * DatabaseConnection) and routes the stored row to the group as a "new"
+ * envelope carrying its id and seq.
+ *
+ * - Storing happens on lanes, one thread each, never on the I/O threads. A
+ *   group always uses the same lane, so its "new" envelopes leave in seq order.
+ * - The sender is the user the connection logged in as ("auth"), never the
+ *   senderId written in the envelope; a connection that has not logged in
+ *   cannot send.
+ * - The sender must belong to the group. There is no membership table: groups
+ *   are open to every user, and a user is in a group while the connection is
+ *   subscribed to it, which is also what gets it the group's messages.
+ * - A full lane answers "send-failed" right away rather than queueing without bound.
+ * - A "send" resent with a clientMessageId that is already stored is not stored
+ *   again; its "new" envelope goes back to the sender only.
+ * - Failures are answered with "send-failed" to the sender, echoing its message.
+ * - A "resume" (reconnected client with the last seq it saw) runs on the group's
+ *   lane too: the missed messages come from the ReplayBuffer, else from one
+ *   range query, followed by the edits and deletes the client may have missed.
+ *   A gap larger than maxReplayFromDb, or edits and deletes the ReplayBuffer
+ *   no longer holds, are answered "resume-reset" and the client reloads the
+ *   group instead.
+ * The MessageManager is created on the first "send", so a server without
+ * database settings still relays everything else.
+ */
+final class MessageIngest {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    // Same field names and date format as the clients' Gson (see LocalDateTimeAdapter)
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class,
+                    (JsonSerializer<LocalDateTime>) (value, type, context) -> new JsonPrimitive(value.format(DATE_FORMAT)))
+            .create();
+
+    /**
+     * Where stored messages go
+     */
+    interface Delivery {
+        void toGroup(Long groupId, WireEnvelope envelope);
+    }
+
+    /**
+     * Who may send to a group
+     */
+    interface Membership {
+        boolean belongs(Long groupId, Long senderId, ChatConnection from);
+    }
+
+    private final Delivery delivery;
+    private final Membership membership;
+    private final ReplayBuffer replay;
+    private final int maxReplayFromDb;
+    private final ThreadPoolExecutor[] lanes;
+    private volatile MessageManager messages;
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong resumed = new AtomicLong();
+    private final AtomicLong resumedFromDb = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    // From the envelope being read to the "new" envelope being routed
+    private final LatencyHistogram ingestLatency = new LatencyHistogram();
+
+    /**
+     * @param membership checked on the lane before a message is stored
+     * @param replay recent envelopes per group, filled with every stored message
+     * @param laneCount storing threads
+     * @param queueCapacity envelopes waiting per lane
+     * @param maxReplayFromDb most messages a resume reads from the database
+     */
+    MessageIngest(Delivery delivery, Membership membership, ReplayBuffer replay,
+                  int laneCount, int queueCapacity, int maxReplayFromDb) {
+        this.delivery = delivery;
+        this.membership = membership;
+        this.replay = replay;
+        this.maxReplayFromDb = Math.max(0, maxReplayFromDb);
+        this.lanes = new ThreadPoolExecutor[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "TcpChatServer-Ingest-" + (i + 1);
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    /**
+     * Queue a "send" envelope; called on the I/O thread that read it
+     * @param envelope groupId and a message with content and clientMessageId
+     * @param groupId the route of the envelope
+     * @param senderId user the sending connection logged in as, or null
+     * @param from the sending connection, which gets the failures
+     */
+    void submit(WireEnvelope envelope, Long groupId, Long senderId, ChatConnection from) {
+        JsonObject send;
+        try {
+            send = envelope.toJsonObject();
+        } catch (RuntimeException e) {
+            send = null;
+        }
+        JsonObject message = send != null && send.has("message") && send.get("message").isJsonObject()
+                ? send.getAsJsonObject("message") : null;
+        if (groupId == null && message != null) {
+            groupId = longField(message, "groupId");
+        }
+        if (message == null || groupId == null) {
+            reject(from, groupId, message, "send needs a groupId and a message");
+            return;
+        }
+        if (senderId == null) {
+            reject(from, groupId, message, "not logged in to the chat server");
+            return;
+        }
+        long received = System.nanoTime();
+        Long group = groupId;
+        try {
+            laneOf(groupId).execute(() -> store(group, senderId, message, from, received));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            reject(from, groupId, message, "server busy, try again");
+        }
+    }
+
+    /**
+     * Send a reconnected client the messages of a group it missed.
+     * The caller subscribes it first, so a message stored meanwhile may arrive
+     * twice; clients keep messages by id.
+     * @param groupId the group ID
+     * @param afterSeq the last seq the client saw
+     * @param to the client
+     */
+    void resume(Long groupId, long afterSeq, ChatConnection to) {
+        try {
+            laneOf(groupId).execute(() -> replay(groupId, afterSeq, to));
+        } catch (RejectedExecutionException e) {
+            reset(to, groupId);
+        }
+    }
+
+    private void replay(Long groupId, long afterSeq, ChatConnection to) {
+        // The database only has the rows as they are now: an edit or delete the
+        // client missed must come from memory, or the client reloads the group
+        List<WireEnvelope> changes = replay.changesAfter(groupId, afterSeq);
+        if (changes == null) {
+            reset(to, groupId);
+            return;
+        }
+        List<WireEnvelope> gap = replay.after(groupId, afterSeq);
+        boolean fromDb = gap == null;
+        if (fromDb) {
+            List<Message> missed;
+            try {
+                missed = manager().getMessagesAfterSeq(groupId, afterSeq, maxReplayFromDb + 1);
+            } catch (RuntimeException e) {
+                System.err.println("Error reading missed messages of group " + groupId + ": " + e.getMessage());
+                missed = null;
+            }
+            if (missed == null || missed.size() > maxReplayFromDb) {
+                reset(to, groupId);
+                return;
+            }
+            gap = new ArrayList<>(missed.size());
+            for (Message message : missed) {
+                gap.add(newEnvelope(message));
+            }
+            resumedFromDb.incrementAndGet();
+        }
+        resumed.incrementAndGet();
+        // Messages first: a missed edit or delete may be about one of them
+        for (WireEnvelope envelope : gap) {
+            to.send(envelope);
+            envelope.releaseBuffers();
+        }
+        for (WireEnvelope envelope : changes) {
+            to.send(envelope);
+            envelope.releaseBuffers();
+        }
+        System.out.println("Resumed " + to.remoteAddr() + " in group " + groupId + " after seq " + afterSeq
+                + ": " + gap.size() + " message(s) from " + (fromDb ? "database" : "memory")
+                + ", " + changes.size() + " edit(s)/delete(s)");
+    }
+
+    /**
+     * Tell a client its gap cannot be replayed: it reloads the group
+     */
+    private void reset(ChatConnection to, Long groupId) {
+        resets.incrementAndGet();
+        JsonObject envelope = new JsonObject();
+        envelope.addProperty("type", "resume-reset");
+        envelope.addProperty("groupId", groupId);
+        to.send(WireEnvelope.ofJson(envelope.toString(), envelope, groupId));
+    }
+
+    private ThreadPoolExecutor laneOf(Long groupId) {
+        return lanes[Math.floorMod(Long.hashCode(groupId), lanes.length)];
+    }
+
+    private void store(Long groupId, Long senderId, JsonObject message, ChatConnection from, long received) {
+        String clientMessageId = stringField(message, "clientMessageId");
+        if (!membership.belongs(groupId, senderId, from)) {
+            rejected.incrementAndGet();
+            reject(from, groupId, message, "not a member of group " + groupId);
+            return;
+        }
+        try {
+            MessageManager manager = manager();
+            Message existing = manager.findByClientMessageId(senderId, clientMessageId);
+            if (existing == null) {
+                Message saved = manager.ingestMessage(senderId, groupId, stringField(message, "content"), clientMessageId);
+                if (saved != null) {
+                    stored.incrementAndGet();
+                    WireEnvelope envelope = newEnvelope(saved);
+                    if (saved.getSeq() != null) {
+                        replay.record(groupId, saved.getSeq(), envelope);
+                    }
+                    delivery.toGroup(groupId, envelope);
+                    ingestLatency.record(System.nanoTime() - received);
+                    return;
+                }
+                // Lost a race with the same resend on another connection
+                existing = manager.findByClientMessageId(senderId, clientMessageId);
+            }
+            if (existing != null && groupId.equals(existing.getGroupId())) {
+                duplicates.incrementAndGet();
+                from.send(newEnvelope(existing));
+                return;
+            }
+            failed.incrementAndGet();
+            reject(from, groupId, message, "message could not be stored");
+        } catch (IllegalArgumentException e) {
+            reject(from, groupId, message, e.getMessage());
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("Error storing message from " + from.remoteAddr() + ": " + e.getMessage());
+            reject(from, groupId, message, "message could not be stored");
+        }
+    }
+
+    private MessageManager manager() {
+        MessageManager current = messages;
+        if (current == null) {
+            synchronized (this) {
+                if (messages == null) {
+                    messages = new MessageManager(false);
+                }
+                current = messages;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Stored message as the "new" envelope every client already understands
+     */
+    static WireEnvelope newEnvelope(Message message) {
+        JsonObject envelope = new JsonObject();
+        envelope.addProperty("type", "new");
+        envelope.addProperty("groupId", message.getGroupId());
+        envelope.add("message", GSON.toJsonTree(message));
+        return WireEnvelope.ofJson(envelope.toString(), envelope, message.getGroupId());
+    }
+
+    private static void reject(ChatConnection from, Long groupId, JsonObject message, String error) {
+        JsonObject envelope = new JsonObject();
+        envelope.addProperty("type", "send-failed");
+        if (groupId != null) {
+            envelope.addProperty("groupId", groupId);
+        }
+        if (message != null) {
+            envelope.add("message", message);
+        }
+        envelope.addProperty("error", error);
+        System.err.println("Rejected send from " + from.remoteAddr() + ": " + error);
+        from.send(WireEnvelope.ofJson(envelope.toString(), envelope, groupId != null ? groupId : WireFrame.NO_ROUTE));
+    }
+
+    /**
+     * @return counters since start, for logs
+     */
+    String describe() {
+        int queued = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            queued += lane.getQueue().size();
+        }
+        return "stored=" + stored.get() + ", duplicates=" + duplicates.get() + ", rejected=" + rejected.get()
+                + ", failed=" + failed.get() + ", queued=" + queued + ", latency=[" + ingestLatency + "]"
+                + ", resumed=" + resumed.get() + " (database=" + resumedFromDb.get() + ", reset=" + resets.get() + ")"
+                + ", replay=[" + replay.describe() + "]";
+    }
+
+    private static String stringField(JsonObject obj, String name) {
+        JsonElement el = obj.get(name);
+        return el != null && el.isJsonPrimitive() ? el.getAsString() : null;
+    }
+
+    private static Long longField(JsonObject obj, String name) {
+        JsonElement el = obj.get(name);
+        if (el == null || !el.isJsonPrimitive()) return null;
+        try {
+            return el.getAsLong();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package com.syncstudy.WS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking transport for TcpChatServer built on ServerSocketChannel/Selector.
+ * One acceptor thread hands connections round-robin to a few selector workers.
+ * Each connection has its own write queue; partial writes resume on OP_WRITE.
+ * Queued envelopes are views of one shared buffer per encoding (see
+ * SharedBuffer), so a broadcast is not copied once per recipient.
+ * Writes are coalesced: a connection's first queued envelope waits up to
+ * maxDelay for more to join it (less once maxBatchBytes are queued), then
+ * everything queued goes out in one gathering write.
+ * The queue is a PriorityOutbox: control envelopes first, then chat and file
+ * chunks by weighted share. Only about one batch is taken from it at a time, so
+ * a chat message waits behind at most that much of a file being relayed.
+ * Speaks the same protocol as the threaded mode: JSON lines, and frames once a
+ * client has negotiated them.
+ */
+class NioChatTransport {
+
+    private static final int ACCEPT_BACKLOG = 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_BYTES = 4 * 1024 * 1024;
+
+    // Back-pressure: stop reading from a client whose outbound queue is above the
+    // high-water mark, resume below the low-water mark, drop it above the hard limit
+    private static final long HIGH_WATER_BYTES = 1024 * 1024;
+    private static final long LOW_WATER_BYTES = 256 * 1024;
+    private static final long MAX_QUEUED_BYTES = 8 * 1024 * 1024;
+    // Buffers handed to one gathering write
+    private static final int MAX_GATHER = 64;
+
+    private final TcpChatServer server;
+    private final int port;
+    private final Worker[] workers;
+    private final long maxDelayNanos;
+    private final long maxBatchBytes;
+    private final FlushCounters flushes;
+    private final int chatWeight = AppConfig.getChatPriorityChatWeight();
+    private final int bulkWeight = AppConfig.getChatPriorityBulkWeight();
+
+    /**
+     * @param maxDelayMs longest wait for envelopes to join a connection's first queued one
+     * @param maxBatchBytes queued bytes that end the wait early
+     */
+    NioChatTransport(TcpChatServer server, int port, int workerCount, long maxDelayMs, int maxBatchBytes) {
+        this.server = server;
+        this.port = port;
+        this.workers = new Worker[Math.max(1, workerCount)];
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMs));
+        this.maxBatchBytes = Math.max(1, maxBatchBytes);
+        this.flushes = server.flushCounters();
+    }
+
+    /**
+     * Accept connections on the calling thread; never returns normally
+     */
+    void run() throws IOException {
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(Selector.open());
+            Thread t = new Thread(workers[i], "TcpChatServer-NioWorker-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+            System.out.println("TcpChatServer (nio, " + workers.length + " workers) listening on " + port);
+            int next = 0;
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                try {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                } catch (IOException e) {
+                    System.err.println("Failed to configure client channel: " + e.getMessage());
+                    channel.close();
+                    continue;
+                }
+                NioConnection connection = new NioConnection(channel, workers[next]);
+                next = (next + 1) % workers.length;
+                server.register(connection);
+                connection.worker.enqueueRegistration(connection);
+            }
+        } finally {
+            for (Worker worker : workers) {
+                if (worker != null) {
+                    worker.shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Selector loop owning a subset of the connections
+     */
+    private class Worker implements Runnable {
+        private final Selector selector;
+        private final Queue<NioConnection> pendingRegistrations = new ConcurrentLinkedQueue<>();
+        private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+        // Connections waiting for their batch to fill up or their delay to pass
+        private final List<NioConnection> delayedWrites = new ArrayList<>();
+        // Reused by every gathering write of this worker
+        private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+        // Shared by all connections of this worker; partial lines are copied out
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private volatile boolean running = true;
+
+        Worker(Selector selector) {
+            this.selector = selector;
+        }
+
+        void enqueueRegistration(NioConnection connection) {
+            pendingRegistrations.add(connection);
+            selector.wakeup();
+        }
+
+        void enqueueWrite(NioConnection connection) {
+            pendingWrites.add(connection);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    long wait = processDelayedWrites();
+                    if (wait < 0) {
+                        selector.select();
+                    } else {
+                        selector.select(wait);
+                    }
+                    processRegistrations();
+                    processWrites();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        NioConnection connection = (NioConnection) key.attachment();
+                        if (!key.isValid()) {
+                            connection.close();
+                            continue;
+                        }
+                        if (key.isReadable()) {
+                            connection.onReadable(readBuffer);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                System.err.println("NIO worker stopped: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((NioConnection) key.attachment()).close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {}
+            }
+        }
+
+        private void processRegistrations() {
+            NioConnection connection;
+            while ((connection = pendingRegistrations.poll()) != null) {
+                try {
+                    connection.key = connection.channel.register(selector, SelectionKey.OP_READ, connection);
+                    // Messages may have been queued before registration completed
+                    if (connection.queuedBytes.get() > 0) {
+                        connection.flush();
+                    }
+                } catch (IOException e) {
+                    connection.close();
+                }
+            }
+        }
+
+        private void processWrites() {
+            NioConnection connection;
+            while ((connection = pendingWrites.poll()) != null) {
+                if (connection.key != null) {
+                    if (maxDelayNanos == 0) {
+                        connection.flush();
+                    } else {
+                        delayedWrites.add(connection);
+                    }
+                }
+            }
+            processDelayedWrites();
+        }
+
+        /**
+         * Flush the delayed connections that are due or full
+         * @return milliseconds until the next one is due (rounded up, select()
+         * has no finer timeout), -1 if none is waiting
+         */
+        private long processDelayedWrites() {
+            if (delayedWrites.isEmpty()) return -1;
+            long now = System.nanoTime();
+            long next = Long.MAX_VALUE;
+            Iterator<NioConnection> it = delayedWrites.iterator();
+            while (it.hasNext()) {
+                NioConnection connection = it.next();
+                long remaining = connection.firstQueuedAt + maxDelayNanos - now;
+                if (remaining <= 0 || connection.queuedBytes.get() >= maxBatchBytes || !connection.open.get()) {
+                    it.remove();
+                    connection.flush();
+                } else {
+                    next = Math.min(next, remaining);
+                }
+            }
+            if (delayedWrites.isEmpty()) return -1;
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next + 999_999));
+        }
+    }
+
+    /**
+     * A queued envelope: this connection's reference to the shared buffer and its
+     * own read position in it
+     */
+    private static final class Outbound {
+        final SharedBuffer shared;
+        final ByteBuffer view;
+
+        Outbound(SharedBuffer shared) {
+            this.shared = shared;
+            this.view = shared.view();
+        }
+    }
+
+    /**
+     * Connection state; all channel I/O happens on the owning worker thread
+     */
+    private class NioConnection implements ChatConnection {
+        private final SocketChannel channel;
+        private final Worker worker;
+        private final String remoteAddr;
+        private final PriorityOutbox<Outbound> outbox = new PriorityOutbox<>(Integer.MAX_VALUE, chatWeight, bulkWeight);
+        // Taken from the outbox and being written, in order; a partly written
+        // envelope stays first. Guarded by writeLock
+        private final ArrayDeque<Outbound> writing = new ArrayDeque<>();
+        private long writingBytes;
+        // Held while writing from, or releasing, queued buffers: a closing sender
+        // must not give a buffer back to the pool while the worker still reads it
+        private final Object writeLock = new Object();
+        private final AtomicLong queuedBytes = new AtomicLong();
+        private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+        // When the oldest envelope not yet written was queued
+        private volatile long firstQueuedAt;
+        private final AtomicBoolean open = new AtomicBoolean(true);
+        private SelectionKey key;
+        private boolean readPaused = false;
+        // Only allocated while a line spans several reads
+        private ByteArrayOutputStream partialLine;
+        // Set on the worker thread by upgrade(); from then on input is frames
+        private volatile boolean binary = false;
+        private boolean compress = false;
+        private final ByteBuffer frameLength = ByteBuffer.allocate(4);
+        // Frame being received, allocated once its length is known
+        private ByteBuffer partialFrame;
+
+        NioConnection(SocketChannel channel, Worker worker) {
+            this.channel = channel;
+            this.worker = worker;
+            String addr;
+            try {
+                addr = String.valueOf(channel.getRemoteAddress());
+            } catch (IOException e) {
+                addr = "unknown";
+            }
+            this.remoteAddr = addr;
+        }
+
+        @Override
+        public synchronized void send(WireEnvelope envelope) {
+            enqueue(envelope.retainBuffer(binary, compress), envelope.trafficClass(), false);
+        }
+
+        @Override
+        public synchronized void upgrade(boolean compress) {
+            // Behind the JSON lines already queued, in any lane, and ahead of every frame
+            enqueue(SharedBuffer.wrap((WireFrame.helloAck(WireFrame.PROTOCOL, compress) + "\n").getBytes(StandardCharsets.UTF_8)),
+                    TrafficClass.CONTROL, true);
+            this.compress = compress;
+            binary = true;
+        }
+
+        /**
+         * @param buffer retained for this connection; released once written or dropped
+         * @param afterQueued write it after everything already queued, whatever the lanes
+         */
+        private void enqueue(SharedBuffer buffer, TrafficClass trafficClass, boolean afterQueued) {
+            if (!open.get()) {
+                buffer.release();
+                return;
+            }
+            long queued = queuedBytes.addAndGet(buffer.size());
+            if (queued > MAX_QUEUED_BYTES) {
+                buffer.release();
+                System.err.println("Client " + remoteAddr + " is too slow (" + queued + " bytes queued), removing");
+                close();
+                return;
+            }
+            Outbound outbound = new Outbound(buffer);
+            if (!(afterQueued
+                    ? outbox.offerAfterQueued(outbound, buffer.size())
+                    : outbox.offer(trafficClass, outbound, buffer.size()))) {
+                // Closed meanwhile
+                buffer.release();
+                return;
+            }
+            if (writeScheduled.compareAndSet(false, true)) {
+                firstQueuedAt = System.nanoTime();
+                worker.enqueueWrite(this);
+            } else if (queued >= maxBatchBytes && queued - buffer.size() < maxBatchBytes) {
+                // Batch just filled up: do not wait for the delay
+                worker.selector.wakeup();
+            }
+        }
+
+        @Override
+        public String remoteAddr() {
+            return remoteAddr;
+        }
+
+        @Override
+        public void close() {
+            if (!open.compareAndSet(true, false)) return;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+            releaseQueued();
+            server.unregister(this);
+        }
+
+        private void releaseQueued() {
+            synchronized (writeLock) {
+                for (Outbound pending : outbox.close()) {
+                    pending.shared.release();
+                }
+                Outbound pending;
+                while ((pending = writing.poll()) != null) {
+                    pending.shared.release();
+                }
+            }
+        }
+
+        void onReadable(ByteBuffer buffer) {
+            buffer.clear();
+            int read;
+            try {
+                read = channel.read(buffer);
+            } catch (IOException e) {
+                System.err.println("Client read error (" + remoteAddr + "): " + e.getMessage());
+                close();
+                return;
+            }
+            if (read < 0) {
+                close();
+                return;
+            }
+            buffer.flip();
+            if (binary) {
+                readFrames(buffer);
+            } else {
+                splitLines(buffer);
+            }
+
+            if (!readPaused && queuedBytes.get() > HIGH_WATER_BYTES && key.isValid()) {
+                readPaused = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+
+        private void splitLines(ByteBuffer buffer) {
+            int lineStart = buffer.position();
+            for (int i = buffer.position(); i < buffer.limit(); i++) {
+                if (buffer.get(i) != '\n') continue;
+                String line;
+                if (partialLine == null) {
+                    line = decode(buffer, lineStart, i);
+                } else {
+                    appendPartial(buffer, lineStart, i);
+                    line = partialLine.toString(StandardCharsets.UTF_8);
+                    partialLine = null;
+                }
+                lineStart = i + 1;
+                if (!line.isEmpty()) {
+                    server.onClientMessage(line, this);
+                }
+                if (!open.get()) return;
+                if (binary) {
+                    // The hello was the last line; the rest of the read is frames
+                    buffer.position(lineStart);
+                    readFrames(buffer);
+                    return;
+                }
+            }
+            if (lineStart < buffer.limit()) {
+                if (partialLine == null) {
+                    partialLine = new ByteArrayOutputStream();
+                }
+                appendPartial(buffer, lineStart, buffer.limit());
+                if (partialLine.size() > MAX_LINE_BYTES) {
+                    System.err.println("Line too long from " + remoteAddr + ", removing");
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Assemble frames from the buffer's remaining bytes; a frame may span reads
+         */
+        private void readFrames(ByteBuffer buffer) {
+            try {
+                while (buffer.hasRemaining() && open.get()) {
+                    if (partialFrame == null) {
+                        transfer(buffer, frameLength);
+                        if (frameLength.hasRemaining()) return;
+                        int length = frameLength.getInt(0);
+                        frameLength.clear();
+                        WireFrame.checkLength(length);
+                        partialFrame = ByteBuffer.allocate(4 + length).putInt(length);
+                    }
+                    transfer(buffer, partialFrame);
+                    if (partialFrame.hasRemaining()) return;
+                    byte[] frame = partialFrame.array();
+                    partialFrame = null;
+                    server.onClientFrame(WireFrame.decode(frame), this);
+                }
+            } catch (IOException e) {
+                System.err.println("Bad frame from " + remoteAddr + ", removing: " + e.getMessage());
+                close();
+            }
+        }
+
+        private void transfer(ByteBuffer from, ByteBuffer to) {
+            int n = Math.min(from.remaining(), to.remaining());
+            to.put(from.slice().limit(n));
+            from.position(from.position() + n);
+        }
+
+        private String decode(ByteBuffer buffer, int from, int to) {
+            byte[] bytes = new byte[to - from];
+            buffer.get(from, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void appendPartial(ByteBuffer buffer, int from, int to) {
+            byte[] bytes = new byte[to - from];
+            buffer.get(from, bytes);
+            partialLine.write(bytes, 0, bytes.length);
+        }
+
+        /**
+         * Write as much as the socket accepts, everything queued in one gathering
+         * write at a time; keep OP_WRITE while data remains
+         */
+        void flush() {
+            if (!open.get() || key == null || !key.isValid()) return;
+            ByteBuffer[] gather = worker.gather;
+            try {
+                while (true) {
+                    synchronized (writeLock) {
+                        while (true) {
+                            // About one batch at a time: what stays in the outbox can
+                            // still be overtaken by higher priority envelopes
+                            while (writing.size() < MAX_GATHER && (writing.isEmpty() || writingBytes < maxBatchBytes)) {
+                                Outbound next = outbox.poll();
+                                if (next == null) break;
+                                writing.add(next);
+                                writingBytes += next.view.remaining();
+                            }
+                            if (writing.isEmpty()) break;
+                            int count = 0;
+                            for (Outbound pending : writing) {
+                                gather[count++] = pending.view;
+                            }
+                            long written = channel.write(gather, 0, count);
+                            Arrays.fill(gather, 0, count, null);
+                            queuedBytes.addAndGet(-written);
+                            writingBytes -= written;
+                            int completed = 0;
+                            Outbound head;
+                            while ((head = writing.peek()) != null && !head.view.hasRemaining()) {
+                                writing.poll();
+                                head.shared.release();
+                                completed++;
+                            }
+                            flushes.recordFlush(completed, written);
+                            if (head != null) {
+                                // Socket buffer full: wait for OP_WRITE
+                                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                                return;
+                            }
+                        }
+                    }
+                    flushes.recordQueueWait(System.nanoTime() - firstQueuedAt);
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                    writeScheduled.set(false);
+                    // A sender may have enqueued after the queue looked empty
+                    if (outbox.isEmpty() || !writeScheduled.compareAndSet(false, true)) {
+                        break;
+                    }
+                    firstQueuedAt = System.nanoTime();
+                }
+                if (readPaused && queuedBytes.get() < LOW_WATER_BYTES) {
+                    readPaused = false;
+                    key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to send to " + remoteAddr + ", removing: " + e.getMessage());
+                close();
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.syncstudy.WS;
+
+import com.google.gson.JsonObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Outbound-only connection to the chat server used to push "notification"
+ * envelopes, which the server routes to the connections subscribed to the
+ * recipient user ("subscribe-user"). Connects lazily and reconnects once per
+ * push after a failure; a user who is offline simply finds the notification
+ * in the inbox later. Each connection starts with an "auth" envelope carrying
+ * the chat session token of the user logged in here; the server only relays a
+ * notification it finds unread in the recipient's inbox, as stored there.
+ * Nothing is pushed while no one is logged in.
+ */
+public class NotificationPushClient {
+
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final String host;
+    private final int port;
+    private final Supplier<String> sessionToken;
+    private Socket socket;
+    private BufferedWriter out;
+    // Token the open connection logged in with
+    private String connectedToken;
+
+    /**
+     * @param sessionToken chat session token of the logged-in user, null when logged out
+     */
+    public NotificationPushClient(String host, int port, Supplier<String> sessionToken) {
+        this.host = host;
+        this.port = port;
+        this.sessionToken = sessionToken;
+    }
+
+    /**
+     * Build the envelope of one stored notification
+     * @param id notification ID in the inbox
+     * @param userId recipient
+     * @param subject subject, or null
+     * @param message message
+     * @param occurrences number of merged duplicates
+     * @param createdAt creation time
+     * @return one JSON line, without the newline
+     */
+    public static String envelope(Long id, Long userId, String subject, String message,
+                                  int occurrences, LocalDateTime createdAt) {
+        JsonObject notification = new JsonObject();
+        notification.addProperty("id", id);
+        notification.addProperty("userId", userId);
+        notification.addProperty("subject", subject);
+        notification.addProperty("message", message);
+        notification.addProperty("occurrences", occurrences);
+        notification.addProperty("createdAt", createdAt != null ? createdAt.format(DATE_FORMAT) : null);
+
+        JsonObject envelope = new JsonObject();
+        envelope.addProperty("type", "notification");
+        envelope.addProperty("userId", userId);
+        envelope.add("notification", notification);
+        return envelope.toString();
+    }
+
+    /**
+     * Hand envelopes to the server with a single flush
+     * @param envelopes lines built by envelope()
+     * @return true if all were written
+     */
+    public synchronized boolean push(List<String> envelopes) {
+        if (envelopes.isEmpty()) return true;
+        String token = sessionToken.get();
+        if (token == null || token.isEmpty()) {
+            return false;
+        }
+        if (!token.equals(connectedToken)) {
+            // Logged in as someone else since
+            close();
+        }
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            try {
+                if (out == null) {
+                    connect(token);
+                }
+                for (String line : envelopes) {
+                    out.write(line);
+                    out.write('\n');
+                }
+                out.flush();
+                return true;
+            } catch (IOException e) {
+                close();
+                if (attempt == 2) {
+                    System.err.println("Notification push to " + host + ":" + port + " failed: " + e.getMessage());
+                }
+            }
+        }
+        return false;
+    }
+
+    public synchronized void close() {
+        try { if (socket != null) socket.close(); } catch (IOException ignored) {}
+        socket = null;
+        out = null;
+        connectedToken = null;
+    }
+
+    private void connect(String token) throws IOException {
+        Socket s = new Socket();
+        s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        s.setTcpNoDelay(true);
+        socket = s;
+        out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8));
+        // Flushed with the first push
+        JsonObject auth = new JsonObject();
+        auth.addProperty("type", "auth");
+        auth.addProperty("token", token);
+        out.write(auth.toString());
+        out.write('\n');
+        connectedToken = token;
+    }
+}
@@ -0,0 +1,212 @@
+package com.syncstudy.WS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound queue of one connection with a lane per TrafficClass, so that a file
+ * being sent does not hold back the chat behind it.
+ * Control envelopes always go first. Chat and bulk share what is left by
+ * deficit round robin on bytes: each turn a lane may send weight * QUANTUM_BYTES,
+ * so under load chat gets chatWeight / (chatWeight + bulkWeight) of the bytes
+ * and file chunks the rest; a lane alone gets everything. Bulk keeps a small
+ * share rather than none, or a busy group would stall uploads for good.
+ * Order is kept within a lane. Thread-safe; take() and poll(timeout) block for
+ * writer threads, awaitRoom() for producers of bulk data.
+ * @param <T> queued item, e.g. an encoded envelope
+ */
+public final class PriorityOutbox<T> {
+
+    private static final int QUANTUM_BYTES = 8 * 1024;
+
+    private static final class Entry<T> {
+        final T item;
+        final int size;
+
+        Entry(T item, int size) {
+            this.item = item;
+            this.size = size;
+        }
+    }
+
+    private final int capacity;
+    private final List<ArrayDeque<Entry<T>>> lanes;
+    private final long[] quantum;
+    private final long[] deficit;
+    private final long[] queuedBytes;
+    // Lane whose turn it is, CHAT or BULK
+    private int turn = TrafficClass.CHAT.ordinal();
+    private int count;
+    private boolean closed;
+
+    /**
+     * @param capacity items queued at most, all lanes together
+     * @param chatWeight share of chat when both chat and bulk are waiting
+     * @param bulkWeight share of file chunks when both are waiting
+     */
+    public PriorityOutbox(int capacity, int chatWeight, int bulkWeight) {
+        int lanesCount = TrafficClass.values().length;
+        this.capacity = Math.max(1, capacity);
+        this.lanes = new ArrayList<>(lanesCount);
+        for (int i = 0; i < lanesCount; i++) {
+            lanes.add(new ArrayDeque<>());
+        }
+        this.quantum = new long[lanesCount];
+        quantum[TrafficClass.CHAT.ordinal()] = (long) Math.max(1, chatWeight) * QUANTUM_BYTES;
+        quantum[TrafficClass.BULK.ordinal()] = (long) Math.max(1, bulkWeight) * QUANTUM_BYTES;
+        this.deficit = new long[lanesCount];
+        this.queuedBytes = new long[lanesCount];
+    }
+
+    /**
+     * Queue an item
+     * @param size its size in bytes, for the fair share
+     * @return false if the outbox is full or closed
+     */
+    public synchronized boolean offer(TrafficClass trafficClass, T item, int size) {
+        if (closed || count >= capacity) return false;
+        Entry<T> entry = new Entry<>(item, Math.max(0, size));
+        lanes.get(trafficClass.ordinal()).add(entry);
+        queuedBytes[trafficClass.ordinal()] += entry.size;
+        count++;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Queue an item behind everything already queued, whatever its lane: the
+     * waiting chat and bulk items move to the control lane first, each lane in
+     * order. Used when the encoding changes, e.g. for the hello-ack that ends
+     * the JSON lines and starts the frames
+     * @return false if the outbox is full or closed
+     */
+    public synchronized boolean offerAfterQueued(T item, int size) {
+        if (closed || count >= capacity) return false;
+        ArrayDeque<Entry<T>> control = lanes.get(TrafficClass.CONTROL.ordinal());
+        for (TrafficClass trafficClass : new TrafficClass[] {TrafficClass.CHAT, TrafficClass.BULK}) {
+            int lane = trafficClass.ordinal();
+            control.addAll(lanes.get(lane));
+            lanes.get(lane).clear();
+            queuedBytes[TrafficClass.CONTROL.ordinal()] += queuedBytes[lane];
+            queuedBytes[lane] = 0;
+            deficit[lane] = 0;
+        }
+        Entry<T> entry = new Entry<>(item, Math.max(0, size));
+        control.add(entry);
+        queuedBytes[TrafficClass.CONTROL.ordinal()] += entry.size;
+        count++;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * @return the next item to write, or null if none is queued
+     */
+    public synchronized T poll() {
+        if (count == 0) return null;
+        Entry<T> next = lanes.get(TrafficClass.CONTROL.ordinal()).isEmpty()
+                ? nextFair()
+                : take(TrafficClass.CONTROL.ordinal());
+        notifyAll();
+        return next.item;
+    }
+
+    /**
+     * Wait for the next item
+     * @return the item, or null once closed
+     */
+    public synchronized T take() throws InterruptedException {
+        while (count == 0 && !closed) {
+            wait();
+        }
+        return poll();
+    }
+
+    /**
+     * Wait up to a timeout for the next item
+     * @return the item, or null if none came or the outbox was closed
+     */
+    public synchronized T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remaining;
+        while (count == 0 && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return poll();
+    }
+
+    /**
+     * Wait until a lane holds fewer than maxBytes, so that a file is read from
+     * disk no faster than it is written out
+     * @return false if the outbox was closed meanwhile
+     */
+    public synchronized boolean awaitRoom(TrafficClass trafficClass, long maxBytes) throws InterruptedException {
+        while (!closed && queuedBytes[trafficClass.ordinal()] >= maxBytes) {
+            wait();
+        }
+        return !closed;
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @return bytes queued in a lane
+     */
+    public synchronized long queuedBytes(TrafficClass trafficClass) {
+        return queuedBytes[trafficClass.ordinal()];
+    }
+
+    /**
+     * Refuse further items and wake every waiting thread
+     * @return the items still queued, for the caller to dispose of
+     */
+    public synchronized List<T> close() {
+        closed = true;
+        List<T> left = new ArrayList<>(count);
+        for (ArrayDeque<Entry<T>> lane : lanes) {
+            for (Entry<T> entry : lane) {
+                left.add(entry.item);
+            }
+            lane.clear();
+        }
+        Arrays.fill(queuedBytes, 0);
+        count = 0;
+        notifyAll();
+        return left;
+    }
+
+    /**
+     * Deficit round robin between chat and bulk; at least one of them is non-empty
+     */
+    private Entry<T> nextFair() {
+        int chat = TrafficClass.CHAT.ordinal();
+        int bulk = TrafficClass.BULK.ordinal();
+        if (lanes.get(bulk).isEmpty() || lanes.get(chat).isEmpty()) {
+            // Alone: no share to keep
+            deficit[chat] = 0;
+            deficit[bulk] = 0;
+            return take(lanes.get(chat).isEmpty() ? bulk : chat);
+        }
+        while (true) {
+            Entry<T> head = lanes.get(turn).peek();
+            if (deficit[turn] >= head.size) {
+                deficit[turn] -= head.size;
+                return take(turn);
+            }
+            turn = turn == chat ? bulk : chat;
+            deficit[turn] += quantum[turn];
+        }
+    }
+
+    private Entry<T> take(int lane) {
+        Entry<T> entry = lanes.get(lane).poll();
+        queuedBytes[lane] -= entry.size;
+        count--;
+        return entry;
+    }
+}
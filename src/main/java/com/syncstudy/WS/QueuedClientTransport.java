@@ -0,0 +1,310 @@
+package com.syncstudy.WS;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Blocking transport for TcpChatServer where each client gets a reader thread
+ * and a writer thread draining its own outbound queue, so send() never blocks
+ * on a slow socket. Threads are virtual when the JVM supports them (Java 21+)
+ * and platform threads otherwise, since the build still targets Java 17.
+ * The writer waits up to maxDelay after the first queued envelope for more to
+ * join it (less once maxBatchBytes are queued) and flushes them together.
+ * The queue is a PriorityOutbox: control envelopes first, then chat and file
+ * chunks by weighted share.
+ * Like NioChatTransport, a client whose queue holds more than the high-water
+ * mark of bytes is not read from until it drains below the low-water mark,
+ * and is dropped above the hard limit.
+ */
+class QueuedClientTransport {
+
+    // Envelopes queued for one client before it is considered too slow and dropped
+    private static final int MAX_QUEUED_ENVELOPES = 10_000;
+    // Back-pressure: stop reading from a client whose outbound queue is above the
+    // high-water mark, resume below the low-water mark, drop it above the hard limit
+    private static final long HIGH_WATER_BYTES = 1024 * 1024;
+    private static final long LOW_WATER_BYTES = 256 * 1024;
+    private static final long MAX_QUEUED_BYTES = 8 * 1024 * 1024;
+
+    private static final Method START_VIRTUAL_THREAD = findStartVirtualThread();
+
+    private final TcpChatServer server;
+    private final int port;
+    private final boolean virtual;
+    private final long maxDelayNanos;
+    private final long maxBatchBytes;
+    private final FlushCounters flushes;
+    private final int chatWeight = AppConfig.getChatPriorityChatWeight();
+    private final int bulkWeight = AppConfig.getChatPriorityBulkWeight();
+
+    /**
+     * @param maxDelayMs longest wait for envelopes to join a connection's first queued one
+     * @param maxBatchBytes queued bytes that end the wait early
+     */
+    QueuedClientTransport(TcpChatServer server, int port, boolean preferVirtual, long maxDelayMs, int maxBatchBytes) {
+        this.server = server;
+        this.port = port;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMs));
+        this.maxBatchBytes = Math.max(1, maxBatchBytes);
+        this.flushes = server.flushCounters();
+        this.virtual = preferVirtual && START_VIRTUAL_THREAD != null;
+        if (preferVirtual && !virtual) {
+            System.out.println("Virtual threads not available on this JVM, using platform threads.");
+        }
+    }
+
+    /**
+     * @return true if this JVM can start virtual threads
+     */
+    static boolean virtualThreadsSupported() {
+        return START_VIRTUAL_THREAD != null;
+    }
+
+    /**
+     * Accept connections on the calling thread; never returns normally
+     */
+    void run() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port)) {
+            System.out.println("TcpChatServer (" + (virtual ? "virtual" : "platform") + " threads, queued writes) listening on " + port);
+            while (true) {
+                Socket socket = serverSocket.accept();
+                try {
+                    socket.setTcpNoDelay(true);
+                    QueuedConnection connection = new QueuedConnection(socket);
+                    server.register(connection);
+                    connection.start();
+                } catch (IOException e) {
+                    System.err.println("Failed to set up client: " + e.getMessage());
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {}
+                }
+            }
+        }
+    }
+
+    private Thread startThread(Runnable task, String name) {
+        if (virtual) {
+            try {
+                Thread t = (Thread) START_VIRTUAL_THREAD.invoke(null, task);
+                t.setName(name);
+                return t;
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Failed to start virtual thread, falling back: " + e.getMessage());
+            }
+        }
+        Thread t = new Thread(task, name);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static Method findStartVirtualThread() {
+        try {
+            Method m = Thread.class.getMethod("startVirtualThread", Runnable.class);
+            // Probe once: on Java 19/20 the method exists but throws unless preview is enabled
+            Thread probe = (Thread) m.invoke(null, (Runnable) () -> {});
+            probe.join();
+            return m;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * An encoded envelope (JSON line or frame) and when it was queued
+     */
+    private static final class Outbound {
+        final byte[] bytes;
+        final long queuedAt;
+
+        Outbound(byte[] bytes) {
+            this.bytes = bytes;
+            this.queuedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Client with a reader loop and a writer loop, each on its own thread
+     */
+    private class QueuedConnection implements ChatConnection {
+        private final Socket socket;
+        private final WireInputStream in;
+        private final OutputStream out;
+        private final String remoteAddr;
+        // Written in order
+        private final PriorityOutbox<Outbound> outbound = new PriorityOutbox<>(MAX_QUEUED_ENVELOPES, chatWeight, bulkWeight);
+        private final AtomicBoolean open = new AtomicBoolean(true);
+        private final AtomicLong queuedBytes = new AtomicLong();
+        // The reader waits on it while the queue is above the high-water mark
+        private final Object drained = new Object();
+        private volatile boolean readPaused;
+        private volatile boolean binary = false;
+        private boolean compress = false;
+        private Thread writerThread;
+
+        QueuedConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new WireInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+            this.remoteAddr = socket.getRemoteSocketAddress() != null ? socket.getRemoteSocketAddress().toString() : "unknown";
+        }
+
+        void start() {
+            writerThread = startThread(this::writeLoop, "TcpChatServer-Writer");
+            startThread(this::readLoop, "TcpChatServer-Reader");
+        }
+
+        @Override
+        public synchronized void send(WireEnvelope envelope) {
+            enqueue(binary ? envelope.frameBytes(compress) : envelope.jsonLine(), envelope.trafficClass(), false);
+        }
+
+        @Override
+        public synchronized void upgrade(boolean compress) {
+            // Behind the JSON lines already queued, in any lane, and ahead of every frame
+            enqueue((WireFrame.helloAck(WireFrame.PROTOCOL, compress) + "\n").getBytes(StandardCharsets.UTF_8),
+                    TrafficClass.CONTROL, true);
+            this.compress = compress;
+            binary = true;
+        }
+
+        /**
+         * @param afterQueued write it after everything already queued, whatever the lanes
+         */
+        private void enqueue(byte[] bytes, TrafficClass trafficClass, boolean afterQueued) {
+            if (!open.get()) return;
+            long queued = queuedBytes.addAndGet(bytes.length);
+            if (queued > MAX_QUEUED_BYTES) {
+                System.err.println("Client " + remoteAddr + " is too slow (" + queued + " bytes queued), removing");
+                close();
+                return;
+            }
+            Outbound item = new Outbound(bytes);
+            if (!(afterQueued
+                    ? outbound.offerAfterQueued(item, bytes.length)
+                    : outbound.offer(trafficClass, item, bytes.length))) {
+                System.err.println("Client " + remoteAddr + " is too slow (" + MAX_QUEUED_ENVELOPES + " envelopes queued), removing");
+                close();
+            }
+        }
+
+        /**
+         * Called by the reader before each read: wait while the client is not
+         * taking what is already queued for it
+         */
+        private void awaitDrained() throws InterruptedException {
+            if (queuedBytes.get() <= HIGH_WATER_BYTES) return;
+            synchronized (drained) {
+                readPaused = true;
+                while (open.get() && queuedBytes.get() >= LOW_WATER_BYTES) {
+                    drained.wait();
+                }
+                readPaused = false;
+            }
+        }
+
+        /**
+         * Called by the writer for each envelope taken off the queue
+         */
+        private void dequeued(Outbound item) {
+            long queued = queuedBytes.addAndGet(-item.bytes.length);
+            if (readPaused && queued < LOW_WATER_BYTES) {
+                synchronized (drained) {
+                    drained.notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public String remoteAddr() {
+            return remoteAddr;
+        }
+
+        @Override
+        public void close() {
+            if (!open.compareAndSet(true, false)) return;
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+            if (writerThread != null) {
+                writerThread.interrupt();
+            }
+            outbound.close();
+            synchronized (drained) {
+                drained.notifyAll();
+            }
+            server.unregister(this);
+        }
+
+        private void readLoop() {
+            try {
+                while (open.get()) {
+                    awaitDrained();
+                    if (!open.get()) break;
+                    if (binary) {
+                        WireFrame frame = in.readFrame();
+                        if (frame == null) break;
+                        server.onClientFrame(frame, this);
+                    } else {
+                        String line = in.readLine();
+                        if (line == null) break;
+                        server.onClientMessage(line, this);
+                    }
+                }
+            } catch (IOException e) {
+                if (open.get()) System.err.println("Client read error (" + remoteAddr + "): " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        private void writeLoop() {
+            try {
+                while (open.get()) {
+                    Outbound first = outbound.take();
+                    if (first == null) break;
+                    dequeued(first);
+                    out.write(first.bytes);
+                    int batch = 1;
+                    long bytes = first.bytes.length;
+                    // Let more envelopes join the first one before paying for a flush
+                    long deadline = first.queuedAt + maxDelayNanos;
+                    while (bytes < maxBatchBytes) {
+                        long remaining = deadline - System.nanoTime();
+                        Outbound next = remaining > 0
+                                ? outbound.poll(remaining, TimeUnit.NANOSECONDS)
+                                : outbound.poll();
+                        if (next == null) break;
+                        dequeued(next);
+                        out.write(next.bytes);
+                        batch++;
+                        bytes += next.bytes.length;
+                    }
+                    out.flush();
+                    flushes.recordFlush(batch, bytes);
+                    flushes.recordQueueWait(System.nanoTime() - first.queuedAt);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                if (open.get()) System.err.println("Failed to send to " + remoteAddr + ", removing: " + e.getMessage());
+            } finally {
+                close();
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.syncstudy.WS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recent envelopes of each group, so that a client that reconnects with the
+ * last seq it saw ("resume") gets only what it missed.
+ * "new" envelopes are keyed by message seq. Only the messages MessageIngest
+ * stores are recorded, with the seq it already has: relayed envelopes are
+ * routed on their header and never parsed here. A gap is only served from
+ * memory when every seq after the client's is held: messages stored elsewhere
+ * (another server, a client inserting directly) leave holes, and then the
+ * caller falls back to the database.
+ * Edits and deletes do not get a seq, so each one is kept with the newest seq
+ * recorded when it was relayed: a client that saw that seq or an older one may
+ * have missed it and gets it again (applying one twice is harmless). Once an
+ * edit or delete a client may have missed is no longer held, or happened before
+ * the group was followed, changesAfter() cannot rule it out and the client has
+ * to reload the group. Each group keeps at most capacity envelopes of each kind
+ * and the least recently used groups are dropped beyond maxGroups.
+ */
+final class ReplayBuffer {
+
+    // Position of a change relayed while the group's newest seq was not known
+    private static final long UNPLACED = Long.MAX_VALUE;
+
+    /**
+     * An edit or delete, after the seq that was newest when it was relayed
+     */
+    private static final class Change {
+        long afterSeq;
+        final WireEnvelope envelope;
+
+        Change(long afterSeq, WireEnvelope envelope) {
+            this.afterSeq = afterSeq;
+            this.envelope = envelope;
+        }
+    }
+
+    private static final class GroupLog {
+        final NavigableMap<Long, WireEnvelope> messages = new TreeMap<>();
+        final ArrayDeque<Change> changes = new ArrayDeque<>();
+        // Newest seq recorded; not known after a relayed "new" until the next record
+        long head = -1;
+        boolean headKnown = false;
+        // A client that saw this seq or a newer one missed no change that is not held
+        long changesKnownFrom = UNPLACED;
+    }
+
+    private final int capacity;
+    private final Map<Long, GroupLog> groups;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param capacity envelopes kept per group
+     * @param maxGroups groups kept
+     */
+    ReplayBuffer(int capacity, int maxGroups) {
+        this.capacity = Math.max(1, capacity);
+        int groupLimit = Math.max(1, maxGroups);
+        this.groups = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, GroupLog> eldest) {
+                return size() > groupLimit;
+            }
+        };
+    }
+
+    /**
+     * Keep a stored message's envelope
+     * @param groupId the group ID
+     * @param seq the message's seq
+     * @param envelope its "new" envelope
+     */
+    synchronized void record(Long groupId, long seq, WireEnvelope envelope) {
+        GroupLog log = groups.computeIfAbsent(groupId, id -> new GroupLog());
+        log.messages.put(seq, envelope);
+        if (log.messages.size() > capacity) {
+            log.messages.pollFirstEntry();
+        }
+        log.head = Math.max(log.head, seq);
+        log.headKnown = true;
+        // Changes relayed while the head was not known came before this message
+        Iterator<Change> newest = log.changes.descendingIterator();
+        while (newest.hasNext()) {
+            Change change = newest.next();
+            if (change.afterSeq != UNPLACED) break;
+            change.afterSeq = seq - 1;
+        }
+        if (log.changesKnownFrom == UNPLACED) {
+            log.changesKnownFrom = seq;
+        }
+    }
+
+    /**
+     * Follow an envelope relayed to a group: keep edits and deletes, and on a
+     * "new" message a client stored itself, whose seq is not known here and
+     * would otherwise be missing from the end of a replay, forget the messages held
+     * @param type the envelope type, from the JSON or the frame header
+     * @param groupId the group ID
+     * @param envelope the envelope
+     */
+    synchronized void observe(String type, Long groupId, WireEnvelope envelope) {
+        if ("new".equals(type)) {
+            GroupLog log = groups.get(groupId);
+            if (log != null) {
+                log.messages.clear();
+                log.headKnown = false;
+            }
+        } else if ("edit".equals(type) || "delete".equals(type)) {
+            GroupLog log = groups.computeIfAbsent(groupId, id -> new GroupLog());
+            log.changes.add(new Change(log.headKnown ? log.head : UNPLACED, envelope));
+            if (log.changes.size() > capacity) {
+                Change dropped = log.changes.poll();
+                log.changesKnownFrom = dropped.afterSeq == UNPLACED
+                        ? UNPLACED : Math.max(log.changesKnownFrom, dropped.afterSeq + 1);
+            }
+        }
+    }
+
+    /**
+     * Messages stored after a seq
+     * @param groupId the group ID
+     * @param afterSeq the last seq the client saw
+     * @return the "new" envelopes in seq order (empty if nothing was missed), or
+     * null if some of them are not held
+     */
+    synchronized List<WireEnvelope> after(Long groupId, long afterSeq) {
+        GroupLog log = groups.get(groupId);
+        NavigableMap<Long, WireEnvelope> held = log != null ? log.messages : null;
+        if (held == null || held.isEmpty() || held.firstKey() > afterSeq + 1) {
+            misses.incrementAndGet();
+            return null;
+        }
+        List<WireEnvelope> gap = new ArrayList<>();
+        long expected = afterSeq + 1;
+        for (Map.Entry<Long, WireEnvelope> entry : held.tailMap(afterSeq, false).entrySet()) {
+            if (entry.getKey() != expected) {
+                misses.incrementAndGet();
+                return null;
+            }
+            gap.add(entry.getValue());
+            expected++;
+        }
+        hits.incrementAndGet();
+        return gap;
+    }
+
+    /**
+     * Edits and deletes a client that saw a seq may have missed
+     * @param groupId the group ID
+     * @param afterSeq the last seq the client saw
+     * @return the envelopes in the order they were relayed (empty if none), or
+     * null if some may not be held
+     */
+    synchronized List<WireEnvelope> changesAfter(Long groupId, long afterSeq) {
+        GroupLog log = groups.get(groupId);
+        if (log == null || afterSeq < log.changesKnownFrom) {
+            return null;
+        }
+        List<WireEnvelope> missed = new ArrayList<>();
+        for (Change change : log.changes) {
+            if (change.afterSeq >= afterSeq) {
+                missed.add(change.envelope);
+            }
+        }
+        return missed;
+    }
+
+    /**
+     * @return counters since start, for logs
+     */
+    synchronized String describe() {
+        int held = 0;
+        int changes = 0;
+        for (GroupLog log : groups.values()) {
+            held += log.messages.size();
+            changes += log.changes.size();
+        }
+        return "groups=" + groups.size() + ", held=" + held + ", changes=" + changes
+                + ", hits=" + hits.get() + ", misses=" + misses.get();
+    }
+}
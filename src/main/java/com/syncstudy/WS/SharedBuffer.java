@@ -0,0 +1,79 @@
+package com.syncstudy.WS;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One encoded envelope shared by every connection it is written to.
+ * The bytes never change once built; each writer reads them through its own
+ * view, so a broadcast costs one copy into the buffer however many clients
+ * receive it. Reference counted: whoever holds it calls release() once, and the
+ * last release gives a pooled buffer back to its BufferPool. A buffer that is
+ * never released is simply left to the garbage collector; releasing too early
+ * is the only real mistake, so every retain() must be paired with exactly one
+ * release().
+ */
+final class SharedBuffer {
+
+    private final ByteBuffer buffer;
+    // Null for buffers that do not come from a pool
+    private final BufferPool pool;
+    private final AtomicInteger refs = new AtomicInteger(1);
+
+    /**
+     * @param buffer the bytes, from position 0 to limit; owned by this object from now on
+     * @param pool where to give it back, or null
+     */
+    SharedBuffer(ByteBuffer buffer, BufferPool pool) {
+        this.buffer = buffer;
+        this.pool = pool;
+    }
+
+    /**
+     * Unpooled buffer around an array (hello-acks, and bodies too large to pool)
+     */
+    static SharedBuffer wrap(byte[] bytes) {
+        return new SharedBuffer(ByteBuffer.wrap(bytes), null);
+    }
+
+    /**
+     * Take one more reference
+     * @return this
+     * @throws IllegalStateException if the buffer was already given back
+     */
+    SharedBuffer retain() {
+        int current;
+        do {
+            current = refs.get();
+            if (current <= 0) {
+                throw new IllegalStateException("Shared buffer already released");
+            }
+        } while (!refs.compareAndSet(current, current + 1));
+        return this;
+    }
+
+    /**
+     * Drop one reference; the last one returns the memory to the pool
+     */
+    void release() {
+        int left = refs.decrementAndGet();
+        if (left == 0) {
+            if (pool != null) {
+                pool.recycle(buffer);
+            }
+        } else if (left < 0) {
+            throw new IllegalStateException("Shared buffer released more often than retained");
+        }
+    }
+
+    /**
+     * @return a read-only view positioned at the first byte, for one writer
+     */
+    ByteBuffer view() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    int size() {
+        return buffer.limit();
+    }
+}
@@ -1,80 +1,481 @@
 // java
 package com.syncstudy.WS;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.syncstudy.BL.GroupManager.Notification;
+import com.syncstudy.BL.GroupManager.NotificationInbox;
+import com.syncstudy.BL.SessionManager.ChatSessionManager;
 
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TcpChatServer with extra logging to help debug missing-broadcast issues.
+ * Clients send "subscribe"/"unsubscribe" envelopes carrying a groupId; other
+ * envelopes are delivered only to the subscribers of their group (untagged
+ * envelopes from older clients are still broadcast to everyone).
+ * A client logs in with an "auth" envelope carrying the token issued at login
+ * (see ChatSessionManager), checked off the I/O threads (see AuthLane); "subscribe-user" then registers it for the
+ * "notification" envelopes of that user only, and only the user's own userId
+ * is accepted. "notification" envelopes (NotificationPushClient) are accepted
+ * from logged-in connections only, and relay the notification as stored in the
+ * recipient's inbox, provided it is there and unread: a client can only make a
+ * notification show up live, not write one.
+ * "send" envelopes are new messages the server stores itself, as sent by the
+ * connection's user, and routes to the group as "new" envelopes with their
+ * database id and seq (see MessageIngest); the connection must be subscribed
+ * to the group.
+ * A client that lost its connection sends "resume" with the last seq it saw
+ * instead of "subscribe", and receives only the messages, edits and deletes it
+ * missed, or "resume-reset" when they cannot all be replayed.
+ * Clients speak newline-delimited JSON unless they negotiate binary frames with
+ * a "hello" (see WireFrame); both kinds of clients can share a group, each
+ * envelope being encoded at most once per format.
+ * Two I/O modes share the same protocol and routing:
+ * - THREADED: one blocking thread per client (original behaviour)
+ * - NIO: selector-based, a few threads for all clients (see NioChatTransport)
+ * - VIRTUAL: reader + writer thread per client with a per-client outbound queue,
+ *   on virtual threads when the JVM supports them (see QueuedClientTransport)
  * The `main` is only a convenience for running the server as a separate process
  * during development. Remove it if you start the server from your app instead.
  */
 public class TcpChatServer {
+
+    /**
+     * I/O model used by the server
+     */
+    public enum Mode {
+        THREADED, NIO, VIRTUAL;
+
+        /**
+         * Parse a mode name, falling back to THREADED for unknown values
+         * @param value mode name (case-insensitive)
+         * @return the matching mode
+         */
+        public static Mode fromString(String value) {
+            if (value != null) {
+                for (Mode mode : values()) {
+                    if (mode.name().equalsIgnoreCase(value.trim())) {
+                        return mode;
+                    }
+                }
+            }
+            return THREADED;
+        }
+    }
+
+    private static final String AUTH_FAILED = "{\"type\":\"auth-failed\"}";
+
     private final int port;
-    private final Set<ClientHandler> clients = ConcurrentHashMap.newKeySet();
-    private final Gson gson = new Gson();
+    private final Mode mode;
+    private final long writeMaxDelayMs;
+    private final int writeMaxBatchBytes;
+    private final Set<ChatConnection> clients = ConcurrentHashMap.newKeySet();
+    private final GroupRouter router = new GroupRouter();
+    // Same index keyed by user ID, for notifications
+    private final GroupRouter userRouter = new GroupRouter();
+    // User each connection logged in as ("auth")
+    private final Map<ChatConnection, Long> sessions = new ConcurrentHashMap<>();
+    private final ReplayBuffer replay = new ReplayBuffer(AppConfig.getChatReplayBufferSize(),
+            AppConfig.getChatReplayMaxGroups());
+    private final MessageIngest ingest = new MessageIngest(this::sendToGroup,
+            (groupId, senderId, from) -> router.isSubscribed(groupId, from), replay,
+            AppConfig.getChatIngestLanes(), AppConfig.getChatIngestQueueCapacity(),
+            AppConfig.getChatReplayMaxDbMessages());
+    private final AuthLane authLane = new AuthLane(this::handle);
+    // Outbound writes of the nio and virtual transports
+    private final FlushCounters flushes = new FlushCounters();
 
     public TcpChatServer(int port) {
+        this(port, Mode.fromString(AppConfig.getChatServerMode()));
+    }
+
+    public TcpChatServer(int port, Mode mode) {
+        this(port, mode, AppConfig.getChatServerWriteMaxDelayMs(), AppConfig.getChatServerWriteMaxBatchBytes());
+    }
+
+    /**
+     * @param writeMaxDelayMs longest wait for queued envelopes to be written together
+     * @param writeMaxBatchBytes queued bytes written without waiting
+     */
+    TcpChatServer(int port, Mode mode, long writeMaxDelayMs, int writeMaxBatchBytes) {
         this.port = port;
+        this.mode = mode;
+        this.writeMaxDelayMs = writeMaxDelayMs;
+        this.writeMaxBatchBytes = writeMaxBatchBytes;
     }
 
     public void start() throws IOException {
+        if (mode == Mode.NIO) {
+            new NioChatTransport(this, port, AppConfig.getChatServerNioWorkers(),
+                    writeMaxDelayMs, writeMaxBatchBytes).run();
+            return;
+        }
+        if (mode == Mode.VIRTUAL) {
+            new QueuedClientTransport(this, port, true, writeMaxDelayMs, writeMaxBatchBytes).run();
+            return;
+        }
         try (ServerSocket server = new ServerSocket(port)) {
             System.out.println("TcpChatServer listening on " + port);
             while (true) {
                 Socket socket = server.accept();
                 ClientHandler handler = new ClientHandler(socket);
-                clients.add(handler);
+                register(handler);
                 new Thread(handler, "TcpChatServer-ClientHandler").start();
-                System.out.println("Client connected: " + socket.getRemoteSocketAddress() + " (clients=" + clients.size() + ")");
             }
         }
     }
 
+    void register(ChatConnection connection) {
+        clients.add(connection);
+        System.out.println("Client connected: " + connection.remoteAddr() + " (clients=" + clients.size() + ")");
+    }
+
+    void unregister(ChatConnection connection) {
+        router.unsubscribeAll(connection);
+        userRouter.unsubscribeAll(connection);
+        authLane.forget(connection);
+        sessions.remove(connection);
+        if (clients.remove(connection)) {
+            System.out.println("Client disconnected: " + connection.remoteAddr() + " (clients=" + clientCount() + ")");
+        }
+    }
+
     private int clientCount() {
         return clients.size();
     }
 
-    private void broadcast(String json) {
-        System.out.println("Broadcasting to " + clientCount() + " clients: " + (json.length() > 200 ? json.substring(0, 200) + "..." : json));
-        for (ClientHandler ch : clients) {
-            ch.safeSend(json);
+    /**
+     * Per-group routing counters
+     * @return group ID to fan-out statistics
+     */
+    public Map<Long, FanOutStats> getFanOutStats() {
+        return router.getFanOutStats();
+    }
+
+    /**
+     * Counters of the "send" envelopes stored by this server
+     * @return one line for logs
+     */
+    public String getIngestSummary() {
+        return ingest.describe();
+    }
+
+    /**
+     * Outbound write counters (nio and virtual modes; threaded mode writes each
+     * envelope as it is sent and is not counted)
+     * @return snapshot since start
+     */
+    public FlushStats getFlushStats() {
+        return flushes.snapshot();
+    }
+
+    FlushCounters flushCounters() {
+        return flushes;
+    }
+
+    private void broadcast(WireEnvelope envelope) {
+        System.out.println("Broadcasting to " + clientCount() + " clients: " + envelope.describe());
+        for (ChatConnection ch : clients) {
+            ch.send(envelope);
+        }
+        envelope.releaseBuffers();
+    }
+
+    private void sendToGroup(Long groupId, WireEnvelope envelope) {
+        Set<ChatConnection> members = router.subscribersOf(groupId);
+        int recipients = 0;
+        for (ChatConnection ch : members) {
+            ch.send(envelope);
+            recipients++;
+        }
+        envelope.releaseBuffers();
+        router.recordFanOut(groupId, recipients);
+        System.out.println("Routed to " + recipients + " subscribers of group " + groupId + ": " + envelope.describe());
+    }
+
+    private void sendToUser(Long userId, WireEnvelope envelope) {
+        int recipients = 0;
+        for (ChatConnection ch : userRouter.subscribersOf(userId)) {
+            ch.send(envelope);
+            recipients++;
         }
+        envelope.releaseBuffers();
+        System.out.println("Notification for user " + userId + " delivered to " + recipients + " session(s)");
     }
 
-    private void onClientMessage(String json, ClientHandler from) {
+    void onClientMessage(String json, ChatConnection from) {
+        JsonObject envelope;
         try {
-            Object envelope = gson.fromJson(json, Object.class);
-            System.out.println("Received envelope from " + from.remoteAddr() + ": " + gson.toJson(envelope));
+            envelope = JsonParser.parseString(json).getAsJsonObject();
         } catch (Exception ex) {
-            System.out.println("Received raw from " + from.remoteAddr() + ": " + json);
+            System.out.println("Received raw from " + from.remoteAddr() + ": " + abbreviate(json));
+            broadcast(WireEnvelope.ofJson(json, null, WireFrame.NO_ROUTE));
+            return;
+        }
+        String type = stringField(envelope, "type");
+        // Never log the credentials of an auth envelope
+        System.out.println("Received envelope from " + from.remoteAddr() + ": "
+                + ("auth".equals(type) ? "auth" : abbreviate(json)));
+
+        if (WireFrame.HELLO.equals(type)) {
+            onHello(envelope, from);
+            return;
+        }
+        Long route = WireFrame.routesByUser(type) ? longField(envelope, "userId") : groupIdOf(envelope);
+        dispatch(type, route, WireEnvelope.ofJson(json, envelope, route != null ? route : WireFrame.NO_ROUTE), from);
+    }
+
+    /**
+     * Handle a frame from a client that switched to the binary protocol.
+     * Routing only looks at the frame header.
+     */
+    void onClientFrame(WireFrame frame, ChatConnection from) {
+        WireEnvelope envelope = WireEnvelope.ofFrame(frame);
+        System.out.println("Received " + envelope.describe() + " from " + from.remoteAddr());
+        Long route = frame.getRouteId() != WireFrame.NO_ROUTE ? frame.getRouteId() : null;
+        dispatch(WireFrame.typeName(frame.getTypeCode()), route, envelope, from);
+    }
+
+    /**
+     * @param route groupId, or userId for user envelopes; null if the envelope has none
+     */
+    private void dispatch(String type, Long route, WireEnvelope envelope, ChatConnection from) {
+        if (authLane.offer(type, route, envelope, from)) {
+            // An "auth", or behind one still being checked
+            return;
+        }
+        if ("auth".equals(type)) {
+            System.err.println("Refused auth from " + from.remoteAddr() + ": server busy");
+            from.send(WireEnvelope.ofJson(AUTH_FAILED, null, WireFrame.NO_ROUTE));
+            return;
+        }
+        handle(type, route, envelope, from);
+    }
+
+    /**
+     * Act on an envelope; called on the connection's reader, or on an auth
+     * thread for the envelopes held behind an "auth"
+     */
+    private void handle(String type, Long route, WireEnvelope envelope, ChatConnection from) {
+        if ("auth".equals(type)) {
+            authenticate(envelope, from);
+            return;
+        }
+
+        if ("subscribe".equals(type) || "unsubscribe".equals(type)) {
+            if (route == null) {
+                System.err.println("Ignoring " + type + " without groupId from " + from.remoteAddr());
+            } else if ("subscribe".equals(type)) {
+                router.subscribe(route, from);
+            } else {
+                router.unsubscribe(route, from);
+            }
+            return;
+        }
+
+        if ("resume".equals(type)) {
+            Long afterSeq = route != null ? seqOf(envelope) : null;
+            if (route == null) {
+                System.err.println("Ignoring resume without groupId from " + from.remoteAddr());
+                return;
+            }
+            router.subscribe(route, from);
+            if (afterSeq != null) {
+                ingest.resume(route, afterSeq, from);
+            }
+            return;
+        }
+
+        if ("send".equals(type)) {
+            // Stored first; the group receives the stored message, never the raw envelope
+            ingest.submit(envelope, route, sessions.get(from), from);
+            return;
+        }
+
+        if (WireFrame.routesByUser(type)) {
+            if (route == null) {
+                System.err.println("Ignoring " + type + " without userId from " + from.remoteAddr());
+            } else if ("subscribe-user".equals(type)) {
+                if (route.equals(sessions.get(from))) {
+                    userRouter.subscribe(route, from);
+                } else {
+                    System.err.println("Refusing subscribe-user " + route + " from " + from.remoteAddr()
+                            + ": not logged in as that user");
+                }
+            } else if ("unsubscribe-user".equals(type)) {
+                userRouter.unsubscribe(route, from);
+            } else if (sessions.get(from) == null) {
+                System.err.println("Refusing notification from " + from.remoteAddr() + ": not logged in");
+            } else if (!authLane.execute(() -> pushNotification(route, envelope, from))) {
+                // The recipient finds it in the inbox
+                System.err.println("Dropping notification push for user " + route + ": server busy");
+            }
+            return;
+        }
+
+        if (route != null) {
+            replay.observe(type, route, envelope);
+            sendToGroup(route, envelope);
+        } else {
+            // Clients that predate group routing do not tag their envelopes
+            broadcast(envelope);
+        }
+    }
+
+    /**
+     * Bind a connection to the user of its session token.
+     * Runs on an auth thread (a database lookup unless cached); the envelopes
+     * the connection sent next wait for it.
+     */
+    private void authenticate(WireEnvelope envelope, ChatConnection from) {
+        JsonObject auth;
+        try {
+            auth = envelope.toJsonObject();
+        } catch (RuntimeException e) {
+            auth = null;
+        }
+        Long userId = auth != null ? ChatSessionManager.getInstance().authenticate(stringField(auth, "token")) : null;
+        if (userId == null) {
+            System.err.println("Refused session token from " + from.remoteAddr());
+            from.send(WireEnvelope.ofJson(AUTH_FAILED, null, WireFrame.NO_ROUTE));
+            return;
+        }
+        Long previous = sessions.put(from, userId);
+        if (!clients.contains(from)) {
+            // Closed while its token was checked
+            sessions.remove(from);
+            return;
+        }
+        if (previous != null && !previous.equals(userId)) {
+            // Logged in as someone else: the old user's notifications stop here
+            userRouter.unsubscribeAll(from);
+        }
+        System.out.println("Client " + from.remoteAddr() + " logged in as user " + userId);
+    }
+
+    /**
+     * Relay a pushed notification to its recipient's sessions, as stored in the
+     * recipient's inbox; runs on an auth thread (a database lookup)
+     */
+    private void pushNotification(Long userId, WireEnvelope pushed, ChatConnection from) {
+        Long notificationId = null;
+        try {
+            JsonObject envelope = pushed.toJsonObject();
+            if (envelope != null && envelope.has("notification") && envelope.get("notification").isJsonObject()) {
+                notificationId = longField(envelope.getAsJsonObject("notification"), "id");
+            }
+        } catch (RuntimeException e) {
+            // Unreadable: refused below
+        }
+        Notification stored;
+        try {
+            stored = NotificationInbox.getInstance().getNotification(userId, notificationId);
+        } catch (RuntimeException e) {
+            System.err.println("Error reading notification " + notificationId + ": " + e.getMessage());
+            return;
+        }
+        if (stored == null || stored.isRead()) {
+            System.err.println("Refusing notification " + notificationId + " for user " + userId + " from "
+                    + from.remoteAddr() + ": not unread in that user's inbox");
+            return;
+        }
+        String json = NotificationPushClient.envelope(stored.getId(), stored.getUserId(), stored.getSubject(),
+                stored.getMessage(), stored.getOccurrences(), stored.getCreatedAt());
+        // Never broadcast: a notification is for its recipient only
+        sendToUser(userId, WireEnvelope.ofJson(json, null, userId));
+    }
+
+    /**
+     * Switch a client to frames if it asks for a protocol we speak, else keep JSON
+     */
+    private void onHello(JsonObject hello, ChatConnection from) {
+        if (WireFrame.PROTOCOL.equals(stringField(hello, "protocol"))) {
+            boolean compress = "deflate".equals(stringField(hello, "compression"));
+            from.upgrade(compress);
+            System.out.println("Client " + from.remoteAddr() + " switched to " + WireFrame.PROTOCOL
+                    + (compress ? " (deflate)" : ""));
+        } else {
+            from.send(WireEnvelope.ofJson(WireFrame.helloAck("json", false), null, WireFrame.NO_ROUTE));
         }
-        broadcast(json);
     }
 
-    private class ClientHandler implements Runnable {
+    /**
+     * Last seq a resuming client saw
+     */
+    private static Long seqOf(WireEnvelope envelope) {
+        try {
+            JsonObject parsed = envelope.toJsonObject();
+            return parsed != null ? longField(parsed, "seq") : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Group of an envelope: explicit groupId, else the groupId of the embedded message
+     */
+    private static Long groupIdOf(JsonObject envelope) {
+        Long groupId = longField(envelope, "groupId");
+        if (groupId == null && envelope.has("message") && envelope.get("message").isJsonObject()) {
+            groupId = longField(envelope.getAsJsonObject("message"), "groupId");
+        }
+        return groupId;
+    }
+
+    private static String stringField(JsonObject obj, String name) {
+        JsonElement el = obj.get(name);
+        return el != null && el.isJsonPrimitive() ? el.getAsString() : null;
+    }
+
+    private static Long longField(JsonObject obj, String name) {
+        JsonElement el = obj.get(name);
+        if (el == null || !el.isJsonPrimitive()) return null;
+        try {
+            return el.getAsLong();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String abbreviate(String json) {
+        return json.length() > 200 ? json.substring(0, 200) + "..." : json;
+    }
+
+    private class ClientHandler implements Runnable, ChatConnection {
         private final Socket socket;
-        private final BufferedReader in;
-        private final BufferedWriter writer;
+        private final WireInputStream in;
+        private final OutputStream out;
         private volatile boolean open = true;
+        private volatile boolean binary = false;
+        private boolean compress = false;
 
         ClientHandler(Socket socket) throws IOException {
             this.socket = socket;
-            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
-            this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
+            this.in = new WireInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
         }
 
         @Override
         public void run() {
             try {
-                String line;
-                while (open && (line = in.readLine()) != null) {
-                    onClientMessage(line, this);
+                while (open) {
+                    if (binary) {
+                        WireFrame frame = in.readFrame();
+                        if (frame == null) break;
+                        onClientFrame(frame, this);
+                    } else {
+                        String line = in.readLine();
+                        if (line == null) break;
+                        onClientMessage(line, this);
+                    }
                 }
             } catch (IOException e) {
                 System.err.println("Client read error (" + remoteAddr() + "): " + e.getMessage());
@@ -83,30 +484,42 @@ public class TcpChatServer {
             }
         }
 
-        synchronized void safeSend(String json) {
+        @Override
+        public synchronized void send(WireEnvelope envelope) {
+            write(binary ? envelope.frameBytes(compress) : envelope.jsonLine());
+        }
+
+        @Override
+        public synchronized void upgrade(boolean compress) {
+            write((WireFrame.helloAck(WireFrame.PROTOCOL, compress) + "\n").getBytes(StandardCharsets.UTF_8));
+            this.compress = compress;
+            binary = true;
+        }
+
+        private void write(byte[] bytes) {
             if (!open) return;
             try {
-                writer.write(json);
-                writer.write("\n");
-                writer.flush();
+                out.write(bytes);
+                out.flush();
             } catch (IOException e) {
                 System.err.println("Failed to send to " + remoteAddr() + ", removing: " + e.getMessage());
                 close();
             }
         }
 
-        String remoteAddr() {
+        @Override
+        public String remoteAddr() {
             return socket.getRemoteSocketAddress() != null ? socket.getRemoteSocketAddress().toString() : "unknown";
         }
 
-        void close() {
+        @Override
+        public void close() {
             if (!open) return;
             open = false;
-            clients.remove(this);
             try {
                 socket.close();
             } catch (IOException ignored) {}
-            System.out.println("Client disconnected: " + remoteAddr() + " (clients=" + clientCount() + ")");
+            unregister(this);
         }
     }
 
@@ -114,6 +527,18 @@ public class TcpChatServer {
     public static void main(String[] args) throws IOException {
         int port = 9000;
         if (args.length > 0) port = Integer.parseInt(args[0]);
+        if (AppConfig.getAttachmentPort() > 0) {
+            AttachmentServer attachments = AttachmentServer.fromConfig();
+            Thread attachmentThread = new Thread(() -> {
+                try {
+                    attachments.start();
+                } catch (IOException e) {
+                    System.err.println("Attachment server failed: " + e.getMessage());
+                }
+            }, "AttachmentServer");
+            attachmentThread.setDaemon(true);
+            attachmentThread.start();
+        }
         new TcpChatServer(port).start();
     }
 }
\ No newline at end of file
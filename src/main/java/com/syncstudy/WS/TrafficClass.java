@@ -0,0 +1,38 @@
+package com.syncstudy.WS;
+
+/**
+ * Priority of an envelope on a connection's outbound queue (see PriorityOutbox)
+ */
+public enum TrafficClass {
+    // Logins, subscriptions, resumes, protocol answers: small, and everything else waits on them
+    CONTROL,
+    // Messages, edits, deletes, notifications
+    CHAT,
+    // File chunks sent through the chat connection
+    BULK;
+
+    /**
+     * @param type envelope type, may be null
+     * @return its class; unknown types are chat
+     */
+    public static TrafficClass of(String type) {
+        if (type == null) return CHAT;
+        switch (type) {
+            case "auth":
+            case "auth-failed":
+            case "subscribe":
+            case "unsubscribe":
+            case "subscribe-user":
+            case "unsubscribe-user":
+            case "resume":
+            case "resume-reset":
+            case WireFrame.HELLO:
+            case WireFrame.HELLO_ACK:
+                return CONTROL;
+            case "file-chunk":
+                return BULK;
+            default:
+                return CHAT;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.syncstudy.WS;
+
+import com.google.gson.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One envelope being relayed by TcpChatServer, in whichever format it arrived.
+ * Each wire encoding (JSON line, plain frame, deflated frame) is produced at most
+ * once, on first use, and then shared by every recipient that asked for it;
+ * converting between JSON and frames only happens when senders and recipients
+ * use different formats. Transports writing from buffers (nio) also share one
+ * pooled copy of each encoding, held until releaseBuffers() and by each
+ * recipient until its write completes.
+ */
+final class WireEnvelope {
+
+    private final long routeId;
+    private String json;
+    // Only set for JSON envelopes that parsed as an object
+    private final JsonObject parsed;
+    private WireFrame frame;
+
+    private byte[] jsonLine;
+    private byte[] plainFrame;
+    private byte[] compressedFrame;
+    // Pooled copies of the encodings above: JSON line, plain frame, deflated frame
+    private final SharedBuffer[] buffers = new SharedBuffer[3];
+
+    private WireEnvelope(String json, JsonObject parsed, WireFrame frame, long routeId) {
+        this.json = json;
+        this.parsed = parsed;
+        this.frame = frame;
+        this.routeId = routeId;
+    }
+
+    /**
+     * @param json the JSON line as received
+     * @param parsed the parsed envelope, or null if the line is not a JSON object
+     * @param routeId route used when converting to a frame, or WireFrame.NO_ROUTE
+     */
+    static WireEnvelope ofJson(String json, JsonObject parsed, long routeId) {
+        return new WireEnvelope(json, parsed, null, routeId);
+    }
+
+    static WireEnvelope ofFrame(WireFrame frame) {
+        return new WireEnvelope(null, null, frame, frame.getRouteId());
+    }
+
+    /**
+     * @return the envelope as a newline-terminated UTF-8 JSON line
+     */
+    synchronized byte[] jsonLine() {
+        if (jsonLine == null) {
+            if (json == null) {
+                json = frame.toJson();
+            }
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            jsonLine = new byte[bytes.length + 1];
+            System.arraycopy(bytes, 0, jsonLine, 0, bytes.length);
+            jsonLine[bytes.length] = '\n';
+        }
+        return jsonLine;
+    }
+
+    /**
+     * @param compress deflate the body when that makes it smaller
+     * @return the envelope as a length-prefixed frame
+     */
+    synchronized byte[] frameBytes(boolean compress) {
+        if (compress ? compressedFrame == null : plainFrame == null) {
+            byte[] bytes = frame().encode(compress);
+            if (compress) {
+                compressedFrame = bytes;
+            } else {
+                plainFrame = bytes;
+            }
+        }
+        return compress ? compressedFrame : plainFrame;
+    }
+
+    /**
+     * One recipient's reference to the shared buffer of an encoding, copied into
+     * the pool on first use. The caller releases it once written.
+     * @param binary frame rather than JSON line
+     * @param compress deflated frame
+     * @return the buffer, retained for the caller
+     */
+    synchronized SharedBuffer retainBuffer(boolean binary, boolean compress) {
+        int index = binary ? (compress ? 2 : 1) : 0;
+        if (buffers[index] == null) {
+            buffers[index] = BufferPool.getInstance().copyOf(binary ? frameBytes(compress) : jsonLine());
+        }
+        return buffers[index].retain();
+    }
+
+    /**
+     * Drop this envelope's own references once it has been handed to every
+     * recipient; the buffers go back to the pool when the last write completes.
+     * A later send (replay) copies the encoding again.
+     */
+    synchronized void releaseBuffers() {
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] != null) {
+                buffers[i].release();
+                buffers[i] = null;
+            }
+        }
+    }
+
+    /**
+     * @return the outbound priority of this envelope
+     */
+    synchronized TrafficClass trafficClass() {
+        if (parsed != null) {
+            return TrafficClass.of(parsed.has("type") && parsed.get("type").isJsonPrimitive()
+                    ? parsed.get("type").getAsString() : null);
+        }
+        // Types without a code of their own (0) are chat
+        return frame != null ? TrafficClass.of(WireFrame.typeName(frame.getTypeCode())) : TrafficClass.CHAT;
+    }
+
+    /**
+     * @return the envelope as a JSON object, or null for a line that is not one
+     */
+    synchronized JsonObject toJsonObject() {
+        if (parsed != null) return parsed;
+        return frame != null ? frame.toJsonObject() : null;
+    }
+
+    /**
+     * @return short description for logs, without the content
+     */
+    synchronized String describe() {
+        if (json != null) {
+            return json.length() > 200 ? json.substring(0, 200) + "..." : json;
+        }
+        return "frame type=" + frame.getTypeCode() + " route=" + frame.getRouteId()
+                + " bytes=" + frame.getBodySize();
+    }
+
+    private WireFrame frame() {
+        if (frame == null) {
+            // A line that is not a JSON object is relayed verbatim as meta, as in JSON mode
+            frame = parsed != null
+                    ? WireFrame.fromJson(parsed, routeId)
+                    : new WireFrame(0, routeId, json.getBytes(StandardCharsets.UTF_8), null);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,389 @@
+package com.syncstudy.WS;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary encoding of one chat envelope ("binary-v1").
+ * A connection starts with newline-delimited JSON; a client that wants frames
+ * sends {"type":"hello","protocol":"binary-v1","compression":"deflate"|"none"}
+ * as its first line and waits for the server's "hello-ack" line. From then on
+ * both directions carry frames. A client staying on JSON may send a hello with
+ * "protocol":"json" to learn what the server supports: the hello-ack also says
+ * "ingest":true when the server stores "send" envelopes (see MessageIngest).
+ * Frames:
+ *
+ *   int32  length of everything below
+ *   uint8  type code (see TYPES, 0 = any other type)
+ *   uint8  flags (FLAG_DEFLATE: the body is deflated; FLAG_ROUTE_FIELD: the
+ *          envelope's groupId/userId is the route and was left out of the meta)
+ *   int64  route: groupId, or userId for user envelopes, -1 for none
+ *   int32  meta length, before compression
+ *   body   meta (the envelope as JSON, without chunkData, and without its type
+ *          when the type code gives it) then the raw payload (file chunk bytes)
+ *
+ * The server routes on the header alone and never parses the meta of a frame.
+ * Compression is per frame and stateless, so an encoded frame can be shared by
+ * every recipient that negotiated the same option.
+ */
+public final class WireFrame {
+
+    public static final String PROTOCOL = "binary-v1";
+    public static final String HELLO = "hello";
+    public static final String HELLO_ACK = "hello-ack";
+    public static final int MAX_FRAME_BYTES = 4 * 1024 * 1024;
+    public static final byte FLAG_DEFLATE = 1;
+    public static final byte FLAG_ROUTE_FIELD = 2;
+    public static final long NO_ROUTE = -1L;
+
+    // Index = type code; code 0 stands for every type not listed
+    private static final String[] TYPES = {
+            null, "new", "edit", "delete", "subscribe", "unsubscribe", "file-chunk",
+            "subscribe-user", "unsubscribe-user", "notification", "send",
+            "resume", "auth"
+    };
+    private static final int HEADER_BYTES = 1 + 1 + 8 + 4;
+    // Smaller bodies rarely shrink enough to pay for inflating them
+    private static final int COMPRESS_MIN_BYTES = 512;
+    // Give up on compressing once this much input saved less than 10% (already compressed files)
+    private static final int COMPRESS_SAMPLE_BYTES = 16 * 1024;
+    private static final ThreadLocal<Deflater> DEFLATER =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+
+    private final int typeCode;
+    private final long routeId;
+    // FLAG_ROUTE_FIELD or 0; compression is decided per encoding
+    private final int flags;
+    private final byte[] meta;
+    private final byte[] payload;
+    // Bytes this frame was received as, reused when it is forwarded unchanged
+    private final byte[] received;
+    private final boolean receivedCompressed;
+
+    /**
+     * Frame whose meta is relayed verbatim (type and route are not restored into it)
+     * @param meta meta bytes, normally a JSON object
+     * @param payload raw payload, or null
+     */
+    public WireFrame(int typeCode, long routeId, byte[] meta, byte[] payload) {
+        this(typeCode, routeId, 0, meta, payload, null, false);
+    }
+
+    private WireFrame(int typeCode, long routeId, int flags, byte[] meta, byte[] payload,
+                      byte[] received, boolean receivedCompressed) {
+        this.typeCode = typeCode;
+        this.routeId = routeId;
+        this.flags = flags;
+        this.meta = meta;
+        this.payload = payload != null ? payload : new byte[0];
+        this.received = received;
+        this.receivedCompressed = receivedCompressed;
+    }
+
+    /**
+     * @param type envelope type
+     * @return its type code, 0 if it has none
+     */
+    public static int typeCode(String type) {
+        for (int code = 1; code < TYPES.length; code++) {
+            if (TYPES[code].equals(type)) return code;
+        }
+        return 0;
+    }
+
+    /**
+     * @param code type code
+     * @return envelope type, or null for code 0
+     */
+    public static String typeName(int code) {
+        return code > 0 && code < TYPES.length ? TYPES[code] : null;
+    }
+
+    /**
+     * @param type envelope type
+     * @return true if the route of this type is a user ID rather than a group ID
+     */
+    public static boolean routesByUser(String type) {
+        return "subscribe-user".equals(type) || "unsubscribe-user".equals(type) || "notification".equals(type);
+    }
+
+    /**
+     * Build a frame, leaving out of the meta what the header already carries
+     * @param envelope the envelope; not modified
+     * @param routeId route, or NO_ROUTE
+     * @param payload raw payload, replacing the envelope's chunkData if not null
+     * @return the frame
+     */
+    public static WireFrame of(JsonObject envelope, long routeId, byte[] payload) {
+        JsonElement type = envelope.get("type");
+        int code = type != null && type.isJsonPrimitive() ? typeCode(type.getAsString()) : 0;
+        String routeField = routeFieldOf(code);
+        int flags = 0;
+        JsonObject meta = new JsonObject();
+        for (Map.Entry<String, JsonElement> field : envelope.entrySet()) {
+            String name = field.getKey();
+            if (code != 0 && name.equals("type")) continue;
+            if (payload != null && name.equals("chunkData")) continue;
+            if (routeId != NO_ROUTE && name.equals(routeField) && isNumber(field.getValue(), routeId)) {
+                flags |= FLAG_ROUTE_FIELD;
+                continue;
+            }
+            meta.add(name, field.getValue());
+        }
+        return new WireFrame(code, routeId, flags, meta.toString().getBytes(StandardCharsets.UTF_8),
+                payload, null, false);
+    }
+
+    /**
+     * Convert a JSON envelope as received, moving a base64 chunkData into the payload
+     * @param envelope the envelope; not modified
+     * @param routeId route, or NO_ROUTE
+     * @return the frame
+     */
+    public static WireFrame fromJson(JsonObject envelope, long routeId) {
+        byte[] payload = null;
+        JsonElement chunk = envelope.get("chunkData");
+        if (chunk != null && chunk.isJsonPrimitive()) {
+            try {
+                payload = Base64.getDecoder().decode(chunk.getAsString());
+            } catch (IllegalArgumentException e) {
+                // Not base64: leave it in the meta untouched
+            }
+        }
+        return of(envelope, routeId, payload);
+    }
+
+    /**
+     * @return the envelope with its type and route field restored, without the payload
+     */
+    public JsonObject toJsonObject() {
+        JsonObject stored = JsonParser.parseString(new String(meta, StandardCharsets.UTF_8)).getAsJsonObject();
+        if (typeCode == 0 && flags == 0) return stored;
+        JsonObject envelope = new JsonObject();
+        if (typeCode != 0) {
+            envelope.addProperty("type", typeName(typeCode));
+        }
+        if ((flags & FLAG_ROUTE_FIELD) != 0) {
+            envelope.addProperty(routeFieldOf(typeCode), routeId);
+        }
+        for (Map.Entry<String, JsonElement> field : stored.entrySet()) {
+            envelope.add(field.getKey(), field.getValue());
+        }
+        return envelope;
+    }
+
+    /**
+     * @return the envelope as one JSON line (without newline), payload back in chunkData
+     */
+    public String toJson() {
+        if (typeCode == 0 && flags == 0 && payload.length == 0) {
+            // Verbatim, which also covers lines that are not JSON
+            return new String(meta, StandardCharsets.UTF_8);
+        }
+        JsonObject envelope = toJsonObject();
+        if (payload.length > 0) {
+            envelope.addProperty("chunkData", Base64.getEncoder().encodeToString(payload));
+        }
+        return envelope.toString();
+    }
+
+    public int getTypeCode() {
+        return typeCode;
+    }
+
+    public long getRouteId() {
+        return routeId;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return size of meta plus payload, before compression
+     */
+    public int getBodySize() {
+        return meta.length + payload.length;
+    }
+
+    /**
+     * Encode with its length prefix
+     * @param compress deflate the body when that makes it smaller
+     * @return the bytes to write
+     */
+    public byte[] encode(boolean compress) {
+        if (received != null && receivedCompressed == compress) {
+            return received;
+        }
+        int bodyLength = meta.length + payload.length;
+        byte[] deflated = compress && bodyLength >= COMPRESS_MIN_BYTES ? deflate() : null;
+        int length = HEADER_BYTES + (deflated != null ? deflated.length : bodyLength);
+        ByteBuffer out = ByteBuffer.allocate(4 + length);
+        out.putInt(length);
+        out.put((byte) typeCode);
+        out.put((byte) (deflated != null ? flags | FLAG_DEFLATE : flags));
+        out.putLong(routeId);
+        out.putInt(meta.length);
+        if (deflated != null) {
+            out.put(deflated);
+        } else {
+            out.put(meta).put(payload);
+        }
+        return out.array();
+    }
+
+    /**
+     * @param length a received length prefix
+     * @throws IOException if no valid frame can have that length
+     */
+    public static void checkLength(int length) throws IOException {
+        if (length < HEADER_BYTES || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length " + length);
+        }
+    }
+
+    /**
+     * @param frame one whole frame, length prefix included
+     * @return the decoded frame
+     * @throws IOException if the frame is malformed
+     */
+    public static WireFrame decode(byte[] frame) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(frame);
+        in.getInt();
+        int typeCode = in.get() & 0xFF;
+        int flags = in.get() & 0xFF;
+        long routeId = in.getLong();
+        int metaLength = in.getInt();
+        byte[] body;
+        boolean compressed = (flags & FLAG_DEFLATE) != 0;
+        if (compressed) {
+            body = inflate(frame, in.position(), in.remaining());
+        } else {
+            body = new byte[in.remaining()];
+            in.get(body);
+        }
+        if (metaLength < 0 || metaLength > body.length) {
+            throw new IOException("Invalid meta length " + metaLength);
+        }
+        byte[] meta = new byte[metaLength];
+        byte[] payload = new byte[body.length - metaLength];
+        System.arraycopy(body, 0, meta, 0, metaLength);
+        System.arraycopy(body, metaLength, payload, 0, payload.length);
+        return new WireFrame(typeCode, routeId, flags & FLAG_ROUTE_FIELD, meta, payload, frame, compressed);
+    }
+
+    /**
+     * @param compress ask for deflated frames
+     * @return the hello line a client sends first, without newline
+     */
+    public static String hello(boolean compress) {
+        return hello(PROTOCOL, compress);
+    }
+
+    /**
+     * @param protocol PROTOCOL for frames, or "json" to stay on JSON lines
+     * @param compress ask for deflated frames
+     * @return the hello line a client sends first, without newline
+     */
+    public static String hello(String protocol, boolean compress) {
+        JsonObject hello = new JsonObject();
+        hello.addProperty("type", HELLO);
+        hello.addProperty("protocol", protocol);
+        hello.addProperty("compression", compress ? "deflate" : "none");
+        return hello.toString();
+    }
+
+    /**
+     * @param protocol agreed protocol: PROTOCOL, or "json" to stay on JSON lines
+     * @param compress whether frames may be deflated
+     * @return the server's answer to a hello, without newline
+     */
+    public static String helloAck(String protocol, boolean compress) {
+        JsonObject ack = new JsonObject();
+        ack.addProperty("type", HELLO_ACK);
+        ack.addProperty("protocol", protocol);
+        ack.addProperty("compression", compress ? "deflate" : "none");
+        ack.addProperty("ingest", true);
+        return ack.toString();
+    }
+
+    /**
+     * @return the deflated body, or null if it does not get smaller
+     */
+    private byte[] deflate() {
+        byte[] body = meta;
+        if (payload.length > 0) {
+            body = new byte[meta.length + payload.length];
+            System.arraycopy(meta, 0, body, 0, meta.length);
+            System.arraycopy(payload, 0, body, meta.length, payload.length);
+        }
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 2));
+        byte[] buffer = new byte[16 * 1024];
+        int offset = 0;
+        while (!deflater.finished()) {
+            // Feed the input in slices so that incompressible data is detected early
+            if (deflater.needsInput() && offset < body.length) {
+                int n = Math.min(COMPRESS_SAMPLE_BYTES, body.length - offset);
+                deflater.setInput(body, offset, n);
+                offset += n;
+                if (offset == body.length) {
+                    deflater.finish();
+                }
+            }
+            // Flushing each slice makes the output size comparable to the input read so far
+            int n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            out.write(buffer, 0, n);
+            long read = deflater.getBytesRead();
+            if (out.size() >= body.length
+                    || (read >= COMPRESS_SAMPLE_BYTES && deflater.getBytesWritten() > read * 9 / 10)) {
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static String routeFieldOf(int code) {
+        return routesByUser(typeName(code)) ? "userId" : "groupId";
+    }
+
+    private static boolean isNumber(JsonElement value, long expected) {
+        return value.isJsonPrimitive() && value.getAsJsonPrimitive().isNumber() && value.getAsLong() == expected;
+    }
+
+    private static byte[] inflate(byte[] frame, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(frame, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 3);
+            byte[] buffer = new byte[16 * 1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed frame");
+                }
+                out.write(buffer, 0, n);
+                if (out.size() > MAX_FRAME_BYTES) {
+                    throw new IOException("Compressed frame expands beyond " + MAX_FRAME_BYTES + " bytes");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed frame: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
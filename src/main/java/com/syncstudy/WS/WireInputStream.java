@@ -0,0 +1,99 @@
+package com.syncstudy.WS;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered input of a chat connection, which carries JSON lines and, after a
+ * binary hello, frames (see WireFrame). Lines are read straight from the
+ * buffer so that the bytes following the hello stay available for frames.
+ */
+public class WireInputStream extends BufferedInputStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public WireInputStream(InputStream in) {
+        super(in, BUFFER_SIZE);
+    }
+
+    /**
+     * Read one UTF-8 line; like BufferedReader.readLine a trailing carriage return is dropped
+     * @return the line without terminator, or null at end of stream
+     * @throws IOException if the line is longer than WireFrame.MAX_FRAME_BYTES
+     */
+    public synchronized String readLine() throws IOException {
+        ByteArrayOutputStream line = null;
+        while (true) {
+            if (pos >= count) {
+                // Refill through read(), then put the byte back
+                if (read() == -1) {
+                    return line != null && line.size() > 0 ? toLine(line.toByteArray(), line.size()) : null;
+                }
+                pos--;
+            }
+            for (int i = pos; i < count; i++) {
+                if (buf[i] != '\n') continue;
+                String text;
+                if (line == null) {
+                    text = toLine(buf, pos, i - pos);
+                } else {
+                    line.write(buf, pos, i - pos);
+                    text = toLine(line.toByteArray(), line.size());
+                }
+                pos = i + 1;
+                return text;
+            }
+            if (line == null) {
+                line = new ByteArrayOutputStream(2 * (count - pos));
+            }
+            line.write(buf, pos, count - pos);
+            pos = count;
+            if (line.size() > WireFrame.MAX_FRAME_BYTES) {
+                throw new IOException("Line too long");
+            }
+        }
+    }
+
+    /**
+     * Read one frame
+     * @return the frame, or null at end of stream
+     * @throws IOException on a malformed or oversized frame
+     */
+    public synchronized WireFrame readFrame() throws IOException {
+        int first = read();
+        if (first == -1) return null;
+        byte[] prefix = {(byte) first, 0, 0, 0};
+        readFully(prefix, 1, 3);
+        int length = ByteBuffer.wrap(prefix).getInt();
+        WireFrame.checkLength(length);
+        byte[] frame = new byte[4 + length];
+        System.arraycopy(prefix, 0, frame, 0, 4);
+        readFully(frame, 4, length);
+        return WireFrame.decode(frame);
+    }
+
+    private void readFully(byte[] target, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = read(target, offset, length);
+            if (n < 0) throw new EOFException("Connection closed inside a frame");
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private static String toLine(byte[] bytes, int length) {
+        return toLine(bytes, 0, length);
+    }
+
+    private static String toLine(byte[] bytes, int offset, int length) {
+        if (length > 0 && bytes[offset + length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+}
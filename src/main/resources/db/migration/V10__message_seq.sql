@@ -0,0 +1,46 @@
+-- Per-group message sequence numbers, assigned by the database so that every
+-- writer (chat server ingest, write-behind batches, older clients) shares one order
+
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS seq BIGINT;
+-- Id the sender's client gave the message; a resent "send" is stored once
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS client_message_id VARCHAR(64);
+
+CREATE TABLE IF NOT EXISTS message_group_seqs (
+    group_id BIGINT PRIMARY KEY,
+    last_seq BIGINT NOT NULL
+);
+
+-- Number the existing history in (created_at, id) order
+UPDATE messages m SET seq = numbered.seq
+FROM (SELECT id, ROW_NUMBER() OVER (PARTITION BY group_id ORDER BY created_at, id) AS seq
+      FROM messages) numbered
+WHERE m.id = numbered.id AND m.seq IS NULL;
+
+INSERT INTO message_group_seqs AS s (group_id, last_seq)
+SELECT group_id, MAX(seq) FROM messages GROUP BY group_id
+ON CONFLICT (group_id) DO UPDATE SET last_seq = GREATEST(s.last_seq, EXCLUDED.last_seq);
+
+-- The counter row stays locked until the inserting transaction ends, so within
+-- a group seq order is commit order. A failed insert (e.g. a duplicate
+-- client_message_id) rolls back its counter update too, but this runs before
+-- ON CONFLICT is checked: a row skipped by ON CONFLICT ... DO NOTHING still
+-- uses up a seq and leaves a gap, so writers leave out existing rows themselves
+CREATE OR REPLACE FUNCTION messages_assign_seq() RETURNS trigger AS $$
+BEGIN
+    IF NEW.seq IS NULL THEN
+        INSERT INTO message_group_seqs AS s (group_id, last_seq) VALUES (NEW.group_id, 1)
+        ON CONFLICT (group_id) DO UPDATE SET last_seq = s.last_seq + 1
+        RETURNING last_seq INTO NEW.seq;
+    END IF;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS messages_seq_insert ON messages;
+CREATE TRIGGER messages_seq_insert
+    BEFORE INSERT ON messages
+    FOR EACH ROW EXECUTE FUNCTION messages_assign_seq();
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_messages_group_seq ON messages (group_id, seq);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_messages_sender_client_id
+    ON messages (sender_id, client_message_id) WHERE client_message_id IS NOT NULL;
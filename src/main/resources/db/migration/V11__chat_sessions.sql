@@ -0,0 +1,12 @@
+-- Tokens a logged-in client presents to the chat and attachment servers, which
+-- then act for the token's user only; removed on logout, refused once expired
+
+CREATE TABLE IF NOT EXISTS chat_sessions (
+    token VARCHAR(64) PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    expires_at TIMESTAMP NOT NULL
+);
+
+-- Purge of expired sessions
+CREATE INDEX IF NOT EXISTS idx_chat_sessions_expires ON chat_sessions (expires_at);
@@ -0,0 +1,50 @@
+-- Study groups, their categories and category administrators
+
+CREATE TABLE IF NOT EXISTS categories (
+    category_id SERIAL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL UNIQUE,
+    description TEXT,
+    icon VARCHAR(50),
+    color VARCHAR(20)
+);
+
+ALTER TABLE categories ADD COLUMN IF NOT EXISTS category_administrator_id BIGINT REFERENCES users(id) ON DELETE SET NULL;
+ALTER TABLE categories ADD COLUMN IF NOT EXISTS created_at TIMESTAMP DEFAULT NOW();
+ALTER TABLE categories ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP DEFAULT NOW();
+
+CREATE TABLE IF NOT EXISTS groups (
+    group_id SERIAL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    description TEXT,
+    creator_id BIGINT NOT NULL,
+    category_id BIGINT REFERENCES categories(category_id),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    last_activity TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    member_count INTEGER DEFAULT 1,
+    icon VARCHAR(50) DEFAULT '👥'
+);
+
+CREATE TABLE IF NOT EXISTS category_assignments (
+    id SERIAL PRIMARY KEY,
+    category_id BIGINT NOT NULL REFERENCES categories(category_id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    assigned_at TIMESTAMP DEFAULT NOW(),
+    removed_at TIMESTAMP,
+    is_active BOOLEAN DEFAULT TRUE
+);
+
+INSERT INTO categories (category_id, name, description, icon, color) VALUES
+(1, 'Études', 'Groupes d''étude généralistes', '📚', '#007bff'),
+(2, 'Mathématiques', 'Groupes d''étude en mathématiques', '🧮', '#28a745'),
+(3, 'Sciences', 'Groupes d''étude en sciences', '🔬', '#17a2b8'),
+(4, 'Langues', 'Groupes d''étude en langues étrangères', '🌍', '#ffc107'),
+(5, 'Informatique', 'Groupes d''étude en informatique', '💻', '#6f42c1'),
+(6, 'Littérature', 'Groupes d''étude en littérature', '📖', '#e83e8c'),
+(7, 'Histoire', 'Groupes d''étude en histoire', '🏛️', '#fd7e14'),
+(8, 'Préparation aux examens', 'Groupes de préparation aux examens', '🎯', '#dc3545'),
+(9, 'Projet étudiant', 'Groupes de travail sur des projets', '🚀', '#20c997'),
+(10, 'Autre', 'Autres types de groupes d''étude', '📝', '#6c757d')
+ON CONFLICT (category_id) DO NOTHING;
+
+-- Explicit ids above do not advance the serial sequence
+SELECT setval('categories_category_id_seq', COALESCE((SELECT MAX(category_id) FROM categories), 0) + 1, false);
@@ -0,0 +1,14 @@
+-- Group chat messages
+
+CREATE TABLE IF NOT EXISTS messages (
+    id SERIAL PRIMARY KEY,
+    sender_id BIGINT NOT NULL REFERENCES users(id),
+    group_id BIGINT NOT NULL,
+    content TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    modified_at TIMESTAMP,
+    is_edited BOOLEAN DEFAULT FALSE
+);
+
+-- Matches the (created_at, id) keyset used by findByGroupIdWithPagination
+CREATE INDEX IF NOT EXISTS idx_messages_group_created_id ON messages (group_id, created_at DESC, id DESC);
@@ -0,0 +1,38 @@
+-- Full-text search over group names (weight A) and descriptions (weight B)
+
+-- "Études" and "etudes" must match: unaccent before French stemming.
+-- Without the unaccent extension the configuration is plain French stemming.
+DO $$
+BEGIN
+    BEGIN
+        CREATE EXTENSION IF NOT EXISTS unaccent;
+    EXCEPTION WHEN OTHERS THEN
+        RAISE NOTICE 'unaccent extension not available, group search stays accent-sensitive: %', SQLERRM;
+    END;
+    IF NOT EXISTS (SELECT 1 FROM pg_ts_config WHERE cfgname = 'french_unaccent') THEN
+        CREATE TEXT SEARCH CONFIGURATION french_unaccent (COPY = french);
+        IF EXISTS (SELECT 1 FROM pg_ts_dict WHERE dictname = 'unaccent') THEN
+            ALTER TEXT SEARCH CONFIGURATION french_unaccent
+                ALTER MAPPING FOR hword, hword_part, word WITH unaccent, french_stem;
+        END IF;
+    END IF;
+END
+$$;
+
+-- A column generated by the pre-migration code may use another configuration
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'groups' AND column_name = 'search_vector'
+                 AND generation_expression NOT LIKE '%french_unaccent%') THEN
+        ALTER TABLE groups DROP COLUMN search_vector;
+    END IF;
+END
+$$;
+
+ALTER TABLE groups ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('french_unaccent', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('french_unaccent', coalesce(description, '')), 'B')) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_groups_search_vector ON groups USING GIN (search_vector);
@@ -0,0 +1,2 @@
+-- Groups of a category: counts, hasCategoryGroups, getGroupsInCategory
+CREATE INDEX IF NOT EXISTS idx_groups_category_id ON groups (category_id);
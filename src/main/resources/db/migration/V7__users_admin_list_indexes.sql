@@ -0,0 +1,26 @@
+-- Admin user list: keyset pagination and substring search
+
+-- One index per sort mode, on the exact (key, id) expressions of AdminDAOPostgres.getUsersPage
+CREATE INDEX IF NOT EXISTS idx_users_name_key
+    ON users ((COALESCE(full_name, username)), id);
+CREATE INDEX IF NOT EXISTS idx_users_registration_key
+    ON users ((COALESCE(registration_date, '-infinity'::timestamp)) DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_users_last_login_key
+    ON users ((COALESCE(last_login, '-infinity'::timestamp)) DESC, id DESC);
+
+-- LOWER(column) LIKE '%term%' cannot use a B-tree; trigram GIN indexes serve it.
+-- Without the pg_trgm extension the search keeps scanning the table.
+DO $$
+BEGIN
+    BEGIN
+        CREATE EXTENSION IF NOT EXISTS pg_trgm;
+    EXCEPTION WHEN OTHERS THEN
+        RAISE NOTICE 'pg_trgm extension not available, user search stays a sequential scan: %', SQLERRM;
+    END;
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') THEN
+        CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING GIN (LOWER(username) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_users_email_trgm ON users USING GIN (LOWER(email) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS idx_users_full_name_trgm ON users USING GIN (LOWER(full_name) gin_trgm_ops);
+    END IF;
+END
+$$;
@@ -0,0 +1,96 @@
+-- Per-user message activity, kept current by triggers on messages so the admin
+-- activity dialog reads a few rows instead of aggregating the messages table
+
+-- Messages per user and day (recent average)
+CREATE TABLE IF NOT EXISTS user_daily_activity (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    activity_date DATE NOT NULL,
+    messages_count INTEGER NOT NULL,
+    PRIMARY KEY (user_id, activity_date)
+);
+
+-- Messages per user and group (totals, groups count, most active group)
+CREATE TABLE IF NOT EXISTS user_group_activity (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    group_id BIGINT NOT NULL,
+    messages_count INTEGER NOT NULL,
+    last_message_at TIMESTAMP,
+    PRIMARY KEY (user_id, group_id)
+);
+
+-- No message may be written between the backfill and the triggers taking over
+LOCK TABLE messages IN SHARE MODE;
+
+INSERT INTO user_daily_activity (user_id, activity_date, messages_count)
+SELECT sender_id, created_at::date, COUNT(*)
+FROM messages
+GROUP BY sender_id, created_at::date
+ON CONFLICT (user_id, activity_date) DO UPDATE SET messages_count = EXCLUDED.messages_count;
+
+INSERT INTO user_group_activity (user_id, group_id, messages_count, last_message_at)
+SELECT sender_id, group_id, COUNT(*), MAX(created_at)
+FROM messages
+GROUP BY sender_id, group_id
+ON CONFLICT (user_id, group_id) DO UPDATE
+    SET messages_count = EXCLUDED.messages_count, last_message_at = EXCLUDED.last_message_at;
+
+-- Statement-level: a write-behind batch of N messages costs one upsert per (user, day)
+-- and (user, group), not N. Rows are touched in key order so concurrent batches
+-- cannot deadlock on each other.
+CREATE OR REPLACE FUNCTION user_activity_messages_inserted() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO user_daily_activity AS d (user_id, activity_date, messages_count)
+    SELECT sender_id, created_at::date, COUNT(*)
+    FROM inserted
+    GROUP BY sender_id, created_at::date
+    ORDER BY sender_id, created_at::date
+    ON CONFLICT (user_id, activity_date) DO UPDATE
+        SET messages_count = d.messages_count + EXCLUDED.messages_count;
+
+    INSERT INTO user_group_activity AS a (user_id, group_id, messages_count, last_message_at)
+    SELECT sender_id, group_id, COUNT(*), MAX(created_at)
+    FROM inserted
+    GROUP BY sender_id, group_id
+    ORDER BY sender_id, group_id
+    ON CONFLICT (user_id, group_id) DO UPDATE
+        SET messages_count = a.messages_count + EXCLUDED.messages_count,
+            last_message_at = GREATEST(a.last_message_at, EXCLUDED.last_message_at);
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION user_activity_messages_deleted() RETURNS trigger AS $$
+BEGIN
+    UPDATE user_daily_activity d
+    SET messages_count = d.messages_count - r.removed_count
+    FROM (SELECT sender_id, created_at::date AS activity_date, COUNT(*) AS removed_count
+          FROM removed
+          GROUP BY sender_id, created_at::date) r
+    WHERE d.user_id = r.sender_id AND d.activity_date = r.activity_date;
+
+    UPDATE user_group_activity a
+    SET messages_count = a.messages_count - r.removed_count
+    FROM (SELECT sender_id, group_id, COUNT(*) AS removed_count
+          FROM removed
+          GROUP BY sender_id, group_id) r
+    WHERE a.user_id = r.sender_id AND a.group_id = r.group_id;
+
+    DELETE FROM user_daily_activity
+    WHERE messages_count <= 0 AND user_id IN (SELECT sender_id FROM removed);
+    DELETE FROM user_group_activity
+    WHERE messages_count <= 0 AND user_id IN (SELECT sender_id FROM removed);
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS messages_user_activity_insert ON messages;
+CREATE TRIGGER messages_user_activity_insert
+    AFTER INSERT ON messages
+    REFERENCING NEW TABLE AS inserted
+    FOR EACH STATEMENT EXECUTE FUNCTION user_activity_messages_inserted();
+
+DROP TRIGGER IF EXISTS messages_user_activity_delete ON messages;
+CREATE TRIGGER messages_user_activity_delete
+    AFTER DELETE ON messages
+    REFERENCING OLD TABLE AS removed
+    FOR EACH STATEMENT EXECUTE FUNCTION user_activity_messages_deleted();
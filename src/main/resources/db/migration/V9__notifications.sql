@@ -0,0 +1,76 @@
+-- In-app notification inbox
+
+CREATE TABLE IF NOT EXISTS notifications (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    subject VARCHAR(200),
+    message TEXT NOT NULL,
+    occurrences INTEGER NOT NULL DEFAULT 1,
+    is_read BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Inbox pages (keyset on created_at, id) and unread lookups of one user
+CREATE INDEX IF NOT EXISTS idx_notifications_user_read_created
+    ON notifications (user_id, is_read, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_notifications_user_created
+    ON notifications (user_id, created_at DESC, id DESC);
+
+-- Unread count per user, so opening the inbox never counts rows
+CREATE TABLE IF NOT EXISTS notification_unread_counts (
+    user_id BIGINT PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+    unread INTEGER NOT NULL DEFAULT 0
+);
+
+-- Statement-level, like the activity rollup: marking a whole inbox read is one counter update per user
+CREATE OR REPLACE FUNCTION notification_counts_inserted() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO notification_unread_counts AS c (user_id, unread)
+    SELECT user_id, COUNT(*) FROM inserted WHERE NOT is_read GROUP BY user_id ORDER BY user_id
+    ON CONFLICT (user_id) DO UPDATE SET unread = c.unread + EXCLUDED.unread;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION notification_counts_updated() RETURNS trigger AS $$
+BEGIN
+    UPDATE notification_unread_counts c
+    SET unread = GREATEST(0, c.unread + d.delta)
+    FROM (SELECT n.user_id,
+                 SUM(CASE WHEN o.is_read AND NOT n.is_read THEN 1
+                          WHEN NOT o.is_read AND n.is_read THEN -1
+                          ELSE 0 END) AS delta
+          FROM new_rows n JOIN old_rows o ON o.id = n.id
+          GROUP BY n.user_id) d
+    WHERE c.user_id = d.user_id AND d.delta <> 0;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION notification_counts_deleted() RETURNS trigger AS $$
+BEGIN
+    UPDATE notification_unread_counts c
+    SET unread = GREATEST(0, c.unread - d.removed)
+    FROM (SELECT user_id, COUNT(*) AS removed FROM removed WHERE NOT is_read GROUP BY user_id) d
+    WHERE c.user_id = d.user_id;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS notifications_count_insert ON notifications;
+CREATE TRIGGER notifications_count_insert
+    AFTER INSERT ON notifications
+    REFERENCING NEW TABLE AS inserted
+    FOR EACH STATEMENT EXECUTE FUNCTION notification_counts_inserted();
+
+DROP TRIGGER IF EXISTS notifications_count_update ON notifications;
+CREATE TRIGGER notifications_count_update
+    AFTER UPDATE ON notifications
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION notification_counts_updated();
+
+DROP TRIGGER IF EXISTS notifications_count_delete ON notifications;
+CREATE TRIGGER notifications_count_delete
+    AFTER DELETE ON notifications
+    REFERENCING OLD TABLE AS removed
+    FOR EACH STATEMENT EXECUTE FUNCTION notification_counts_deleted();
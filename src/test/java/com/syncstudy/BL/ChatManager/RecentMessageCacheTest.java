@@ -0,0 +1,164 @@
+package com.syncstudy.BL.ChatManager;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class RecentMessageCacheTest {
+
+    private static final Long GROUP = 3L;
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Test
+    public void newestPageIsServedFromTheWindow() {
+        RecentMessageCache cache = new RecentMessageCache(10, 1 << 20);
+        cache.load(GROUP, newestFirst(1, 5), true);
+
+        List<Message> page = cache.getPage(GROUP, null, null, 3);
+
+        assertEquals(List.of(5L, 4L, 3L), ids(page));
+        assertEquals(1, cache.getMetrics().getHits());
+    }
+
+    @Test
+    public void olderPageFollowsTheKeysetCursor() {
+        RecentMessageCache cache = new RecentMessageCache(10, 1 << 20);
+        cache.load(GROUP, newestFirst(1, 5), true);
+
+        List<Message> page = cache.getPage(GROUP, at(3), 3L, 10);
+
+        assertEquals(List.of(2L, 1L), ids(page));
+    }
+
+    @Test
+    public void shortPageOfAPartialWindowIsAMiss() {
+        RecentMessageCache cache = new RecentMessageCache(10, 1 << 20);
+        // Messages older than 3 exist in the database
+        cache.load(GROUP, newestFirst(3, 5), false);
+
+        assertNotNull(cache.getPage(GROUP, null, null, 3));
+        assertNull(cache.getPage(GROUP, null, null, 4));
+        assertNull(cache.getAll(GROUP));
+        assertNull(cache.getPage(99L, null, null, 1));
+    }
+
+    @Test
+    public void fullWindowDropsItsOldestMessage() {
+        RecentMessageCache cache = new RecentMessageCache(3, 1 << 20);
+        cache.load(GROUP, newestFirst(1, 3), true);
+        cache.onSend(message(4));
+
+        assertNull(cache.getAll(GROUP));
+        assertEquals(List.of(4L, 3L, 2L), ids(cache.getPage(GROUP, null, null, 3)));
+    }
+
+    @Test
+    public void writesKeepTheWindowInStep() {
+        RecentMessageCache cache = new RecentMessageCache(10, 1 << 20);
+        cache.load(GROUP, newestFirst(1, 3), true);
+
+        Message late = message(5);
+        cache.onSend(late);
+        // Stored earlier, received later: placed by (createdAt, id)
+        cache.onSend(message(4));
+        Message edited = message(2);
+        edited.setContent("edited");
+        cache.onEdit(edited);
+        cache.onDelete(GROUP, 1L);
+
+        List<Message> all = cache.getAll(GROUP);
+        assertEquals(List.of(2L, 3L, 4L, 5L), ids(all));
+        assertEquals("edited", all.get(0).getContent());
+    }
+
+    @Test
+    public void cachedMessagesCannotBeChangedFromOutside() {
+        RecentMessageCache cache = new RecentMessageCache(10, 1 << 20);
+        List<Message> page = newestFirst(1, 2);
+        cache.load(GROUP, page, true);
+        page.get(0).setContent("changed");
+        cache.getAll(GROUP).get(1).setContent("changed too");
+
+        assertEquals("message 2", cache.getAll(GROUP).get(1).getContent());
+    }
+
+    @Test
+    public void lastSeqSurvivesTheDeleteOfTheNewestMessage() {
+        RecentMessageCache cache = new RecentMessageCache(10, 1 << 20);
+        assertNull(cache.getLastSeq(GROUP));
+        cache.load(GROUP, newestFirst(1, 3), true);
+        assertEquals(Long.valueOf(3), cache.getLastSeq(GROUP));
+
+        cache.onSend(message(4));
+        cache.onDelete(GROUP, 4L);
+
+        assertEquals(Long.valueOf(4), cache.getLastSeq(GROUP));
+        cache.invalidate(GROUP);
+        assertNull(cache.getLastSeq(GROUP));
+    }
+
+    @Test
+    public void leastRecentlyUsedGroupIsEvictedOverBudget() {
+        RecentMessageCache probe = new RecentMessageCache(10, 1 << 20);
+        probe.load(1L, newestFirst(1, 5), true);
+        long oneGroup = probe.getMetrics().getEstimatedBytes();
+
+        RecentMessageCache cache = new RecentMessageCache(10, oneGroup * 2);
+        cache.load(1L, newestFirst(1, 5), true);
+        cache.load(2L, newestFirst(1, 5), true);
+        cache.getAll(1L);
+        cache.load(3L, newestFirst(1, 5), true);
+
+        assertNotNull(cache.getAll(1L));
+        assertNull(cache.getAll(2L));
+        assertNotNull(cache.getAll(3L));
+        assertEquals(1, cache.getMetrics().getEvictions());
+    }
+
+    @Test
+    public void zeroBudgetCachesNothing() {
+        RecentMessageCache cache = new RecentMessageCache(10, 0);
+        cache.load(GROUP, newestFirst(1, 3), true);
+
+        assertNull(cache.getAll(GROUP));
+        assertNull(cache.getLastSeq(GROUP));
+        assertEquals(0, cache.getMetrics().getGroups());
+    }
+
+    /**
+     * Messages first..last of GROUP (id = seq), newest first as pages are
+     */
+    private static List<Message> newestFirst(int first, int last) {
+        List<Message> page = new ArrayList<>();
+        for (int id = last; id >= first; id--) {
+            page.add(message(id));
+        }
+        return page;
+    }
+
+    private static Message message(long id) {
+        Message message = new Message(1L, GROUP, "message " + id);
+        message.setId(id);
+        message.setSeq(id);
+        message.setCreatedAt(at(id));
+        return message;
+    }
+
+    private static LocalDateTime at(long id) {
+        return T0.plusSeconds(id);
+    }
+
+    private static List<Long> ids(List<Message> messages) {
+        List<Long> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getId());
+        }
+        return ids;
+    }
+}
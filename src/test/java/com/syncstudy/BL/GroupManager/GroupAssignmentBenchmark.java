@@ -0,0 +1,108 @@
+package com.syncstudy.BL.GroupManager;
+
+import com.syncstudy.PL.DatabaseConnection;
+import com.syncstudy.PL.DatabaseInitializer;
+import com.syncstudy.PL.GroupManager.CategoryDAOPostgres;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Manual benchmark for assigning groups to a category (not run by the unit test suite).
+ * Needs the configured database: creates scratch groups, moves them back and forth
+ * between two default categories with one UPDATE per group (the former
+ * assignGroups loop) and with a single CategoryDAO.moveGroupsToCategory call,
+ * then deletes them.
+ *   java -cp target/classes:target/test-classes:<deps> \
+ *        com.syncstudy.BL.GroupManager.GroupAssignmentBenchmark 10,100,500
+ */
+public class GroupAssignmentBenchmark {
+
+    private static final String NAME_PREFIX = "bench-assign-";
+    private static final int ROUNDS = 3;
+    // Default categories created by the V2 migration
+    private static final long CATEGORY_A = 1L;
+    private static final long CATEGORY_B = 2L;
+
+    public static void main(String[] args) throws SQLException {
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "10,100,500").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+
+        DatabaseInitializer.initialize();
+        CategoryDAO dao = new CategoryDAOPostgres();
+
+        System.out.printf("%8s %14s %14s %9s%n", "groups", "per-row(ms)", "bulk(ms)", "speedup");
+        try {
+            for (int size : sizes) {
+                List<Long> groupIds = createScratchGroups(size);
+
+                double perRowMs = time(round -> {
+                    Long target = round % 2 == 0 ? CATEGORY_A : CATEGORY_B;
+                    for (Long groupId : groupIds) {
+                        dao.assignGroupToCategory(groupId, target);
+                    }
+                });
+                double bulkMs = time(round -> {
+                    Long target = round % 2 == 0 ? CATEGORY_A : CATEGORY_B;
+                    List<GroupMove> moves = dao.moveGroupsToCategory(groupIds, target);
+                    if (!moves.stream().allMatch(GroupMove::isMoved)) {
+                        throw new IllegalStateException("bulk move failed");
+                    }
+                });
+                System.out.printf("%8d %14.1f %14.1f %8.1fx%n", size, perRowMs, bulkMs, perRowMs / bulkMs);
+
+                deleteScratchGroups();
+            }
+        } finally {
+            deleteScratchGroups();
+            DatabaseConnection.getInstance().shutdown();
+        }
+    }
+
+    /**
+     * @return mean milliseconds per round, after one warm-up round
+     */
+    private static double time(Round round) {
+        round.run(ROUNDS);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            round.run(i);
+        }
+        return (System.nanoTime() - start) / 1e6 / ROUNDS;
+    }
+
+    private static List<Long> createScratchGroups(int count) throws SQLException {
+        String sql = "INSERT INTO groups (name, description, creator_id) " +
+                "SELECT ? || i, 'benchmark', 1 FROM generate_series(1, ?) i RETURNING group_id";
+        List<Long> ids = new ArrayList<>(count);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, NAME_PREFIX);
+            pstmt.setInt(2, count);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static void deleteScratchGroups() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM groups WHERE name LIKE ?")) {
+            pstmt.setString(1, NAME_PREFIX + "%");
+            pstmt.executeUpdate();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Round {
+        void run(int round);
+    }
+}
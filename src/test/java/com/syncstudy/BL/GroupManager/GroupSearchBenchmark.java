@@ -0,0 +1,118 @@
+package com.syncstudy.BL.GroupManager;
+
+import com.syncstudy.PL.DatabaseInitializer;
+import com.syncstudy.PL.GroupManager.GroupDAOPostgres;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Manual benchmark for group type-ahead (not run by the unit test suite).
+ * Compares GroupSearchIndex with a linear LOWER(...) LIKE '%term%' scan, which
+ * is what the old SQL path evaluated row by row, on synthetic French groups.
+ * Pass --db to also time GroupDAO.searchGroups against the configured database.
+ *   java -cp target/classes:target/test-classes:<deps> \
+ *        com.syncstudy.BL.GroupManager.GroupSearchBenchmark 1000,10000,100000 [--db]
+ */
+public class GroupSearchBenchmark {
+
+    private static final String[] WORDS = {
+            "Études", "mathématiques", "algèbre", "analyse", "probabilités", "physique", "chimie",
+            "biologie", "informatique", "réseaux", "algorithmique", "littérature", "histoire",
+            "géographie", "économie", "droit", "philosophie", "anglais", "espagnol", "préparation",
+            "examens", "révisions", "projet", "licence", "master", "partiels", "groupe", "soirée"
+    };
+    // Keystroke sequences typed in the search box
+    private static final String[] QUERIES = {"e", "et", "etu", "etud", "math", "mathem", "prep exa", "algo", "hist geo", "zz"};
+    // Scaled down for large sizes so the slow path finishes in reasonable time
+    private static final long WORK_BUDGET = 20_000_000L;
+
+    public static void main(String[] args) {
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "1000,10000,100000").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+        boolean withDb = Arrays.asList(args).contains("--db");
+
+        System.out.printf("%8s %14s %14s %12s%n", "groups", "index(us/op)", "like(us/op)", "build(ms)");
+        for (int size : sizes) {
+            List<Group> groups = generateGroups(size);
+
+            long buildStart = System.nanoTime();
+            GroupSearchIndex index = new GroupSearchIndex();
+            index.rebuild(groups, new ArrayList<>());
+            double buildMs = (System.nanoTime() - buildStart) / 1e6;
+
+            int iterations = (int) Math.max(20, WORK_BUDGET / size);
+            double indexUs = time(() -> {
+                for (String q : QUERIES) index.searchGroups(List.of(q), GroupDAO.DEFAULT_SEARCH_LIMIT);
+            }, iterations);
+            double likeUs = time(() -> {
+                for (String q : QUERIES) likeScan(groups, q);
+            }, iterations);
+            System.out.printf("%8d %14.1f %14.1f %12.1f%n", size, indexUs, likeUs, buildMs);
+        }
+
+        if (withDb) {
+            DatabaseInitializer.initialize();
+            GroupDAO dao = new GroupDAOPostgres();
+            double dbUs = time(() -> {
+                for (String q : QUERIES) dao.searchGroups(List.of(q));
+            }, 50);
+            System.out.printf("database searchGroups: %.1f us/op%n", dbUs);
+        }
+    }
+
+    /**
+     * Same predicate as the former SQL: name or description contains the term
+     */
+    private static List<Group> likeScan(List<Group> groups, String term) {
+        String needle = term.toLowerCase();
+        List<Group> results = new ArrayList<>();
+        for (Group group : groups) {
+            if (group.getName().toLowerCase().contains(needle)
+                    || group.getDescription().toLowerCase().contains(needle)) {
+                results.add(group);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return mean microseconds per query after a warm-up pass
+     */
+    private static double time(Runnable queries, int iterations) {
+        for (int i = 0; i < Math.max(1, iterations / 10); i++) {
+            queries.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            queries.run();
+        }
+        return (System.nanoTime() - start) / 1e3 / iterations / QUERIES.length;
+    }
+
+    private static List<Group> generateGroups(int count) {
+        Random random = new Random(42);
+        List<Group> groups = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Group group = new Group();
+            group.setGroupId((long) i);
+            group.setName(words(random, 3) + " " + i);
+            group.setDescription(words(random, 12));
+            group.setLastActivity(LocalDateTime.now().minusMinutes(random.nextInt(100_000)));
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.syncstudy.BL.GroupManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GroupSearchIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private GroupSearchIndex index;
+    private Category science;
+    private Category languages;
+
+    @Before
+    public void setUp() {
+        science = category(1L, "Sciences", "Physique et chimie");
+        languages = category(2L, "Langues", "Anglais, espagnol");
+        science.setGroupsCount(2);
+        index = new GroupSearchIndex();
+        index.rebuild(List.of(
+                group(10L, "Maths L1", "Algèbre et analyse", science, 1),
+                group(11L, "Physique", "Mécanique, maths appliquées", science, 2),
+                group(12L, "English club", "Speaking practice", null, 3)
+        ), List.of(science, languages));
+    }
+
+    @Test
+    public void nameMatchesRankAboveDescriptionMatches() {
+        assertEquals(List.of(10L, 11L), ids(index.searchGroups(List.of("math"), 10)));
+    }
+
+    @Test
+    public void wordsOfATermAreAndedAndAccentsFolded() {
+        assertEquals(List.of(11L), ids(index.searchGroups(List.of("mecanique maths"), 10)));
+        assertEquals(List.of(10L), ids(index.searchGroups(List.of("algebre"), 10)));
+        assertTrue(index.searchGroups(List.of("maths english"), 10).isEmpty());
+    }
+
+    @Test
+    public void termsAreOredAndTiesGoToTheMostRecentlyActive() {
+        // "maths l1" matches two name words, the other two terms one each
+        List<String> terms = List.of("english", "physique", "maths l1");
+
+        assertEquals(List.of(10L, 12L, 11L), ids(index.searchGroups(terms, 10)));
+        assertEquals(List.of(10L, 12L), ids(index.searchGroups(terms, 2)));
+    }
+
+    @Test
+    public void renamedAndRemovedGroupsAreReindexed() {
+        index.putGroup(group(12L, "Spanish club", "Conversation", null, 3));
+        index.removeGroup(10L);
+
+        assertTrue(index.searchGroups(List.of("english"), 10).isEmpty());
+        assertEquals(List.of(12L), ids(index.searchGroups(List.of("span"), 10)));
+        assertEquals(List.of(11L), ids(index.searchGroups(List.of("math"), 10)));
+        assertEquals(2, index.getGroupCount());
+        assertEquals(1, science.getGroupsCount());
+    }
+
+    @Test
+    public void movingAGroupUpdatesBothCategoryCounts() {
+        index.moveGroupToCategory(10L, 2L);
+
+        assertEquals(1, science.getGroupsCount());
+        assertEquals(1, languages.getGroupsCount());
+    }
+
+    @Test
+    public void categoriesMatchOnNameOrDescription() {
+        List<Category> found = index.searchCategories("angl");
+
+        assertEquals(1, found.size());
+        assertEquals(Long.valueOf(2L), found.get(0).getCategoryId());
+        assertTrue(index.searchCategories("histoire").isEmpty());
+    }
+
+    private static Category category(Long id, String name, String description) {
+        Category category = new Category(name, description, null, null);
+        category.setCategoryId(id);
+        return category;
+    }
+
+    private static Group group(Long id, String name, String description, Category category, int hoursActive) {
+        Group group = new Group(name, description, 1L);
+        group.setGroupId(id);
+        group.setCategory(category);
+        group.setLastActivity(T0.plusHours(hoursActive));
+        return group;
+    }
+
+    private static List<Long> ids(List<Group> groups) {
+        List<Long> ids = new ArrayList<>();
+        for (Group group : groups) {
+            ids.add(group.getGroupId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,83 @@
+package com.syncstudy.BL.GroupManager;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+public class NotificationServiceTest {
+
+    /**
+     * Keeps what it was given; the counts are read at delivery, like the real sinks
+     */
+    private static final class RecordingSink implements NotificationSink {
+        final List<Notification> delivered = new ArrayList<>();
+        int occurrences;
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+
+        @Override
+        public synchronized void deliver(List<Notification> batch) {
+            delivered.addAll(batch);
+            for (Notification notification : batch) {
+                occurrences += notification.getOccurrences();
+            }
+        }
+    }
+
+    @Test
+    public void duplicatesWithinTheWindowAreMerged() {
+        RecordingSink sink = new RecordingSink();
+        NotificationService service = new NotificationService(List.of(sink), 1, 100, 100, 60_000);
+
+        for (int i = 0; i < 5; i++) {
+            service.sendNotification(1L, "Group updated");
+        }
+        service.sendNotification(2L, "Group updated");
+        service.close();
+
+        assertEquals(2, sink.delivered.size());
+        assertEquals(5, sink.delivered.get(0).getOccurrences());
+        assertEquals(1, sink.delivered.get(1).getOccurrences());
+        assertEquals(4, service.getMetrics().getCoalesced());
+    }
+
+    @Test
+    public void noOccurrenceIsLostWhileBatchesAreTaken() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        // A zero window and tiny batches keep the dispatcher releasing while duplicates arrive
+        NotificationService service = new NotificationService(List.of(sink), 2, 10_000, 1, 0);
+        int threads = 4;
+        int perThread = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread sender = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    service.sendNotification(1L, "Same text");
+                }
+            });
+            sender.start();
+            senders.add(sender);
+        }
+        start.countDown();
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        service.close();
+
+        assertEquals(0, service.getMetrics().getDropped());
+        assertEquals(threads * perThread, sink.occurrences);
+    }
+}
@@ -0,0 +1,65 @@
+package com.syncstudy.BL.GroupManager;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrefixTrieTest {
+
+    @Test
+    public void prefixCollectsEveryTokenBelowIt() {
+        PrefixTrie trie = new PrefixTrie();
+        trie.add("math", 1);
+        trie.add("mathematics", 2);
+        trie.add("maths", 3);
+        trie.add("music", 4);
+
+        assertEquals(docs(1, 2, 3), collect(trie, "mat"));
+        assertEquals(docs(1, 2, 3, 4), collect(trie, "m"));
+        assertEquals(docs(2), collect(trie, "mathe"));
+        assertTrue(collect(trie, "physics").isEmpty());
+    }
+
+    @Test
+    public void cachedSubtreeFollowsAddsAndRemoves() {
+        PrefixTrie trie = new PrefixTrie();
+        trie.add("chemistry", 1);
+        assertEquals(docs(1), collect(trie, "ch"));
+
+        trie.add("chess", 2);
+        assertEquals(docs(1, 2), collect(trie, "ch"));
+
+        trie.remove("chemistry", 1);
+        assertEquals(docs(2), collect(trie, "ch"));
+        assertTrue(collect(trie, "chem").isEmpty());
+    }
+
+    @Test
+    public void removingOneDocumentKeepsTheOthersOfTheToken() {
+        PrefixTrie trie = new PrefixTrie();
+        trie.add("java", 1);
+        trie.add("java", 2);
+
+        trie.remove("java", 1);
+        trie.remove("javascript", 2);
+
+        assertEquals(docs(2), collect(trie, "jav"));
+    }
+
+    private static BitSet collect(PrefixTrie trie, String prefix) {
+        BitSet out = new BitSet();
+        trie.collectPrefix(prefix, out);
+        return out;
+    }
+
+    private static BitSet docs(int... ids) {
+        BitSet set = new BitSet();
+        for (int id : ids) {
+            set.set(id);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,56 @@
+package com.syncstudy.WS;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AttachmentServerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void stalledClientIsClosedAfterTheIdleTimeout() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        AttachmentServer server = new AttachmentServer(port, new AttachmentStore(folder.getRoot().toPath()),
+                1024, 1024 * 1024, 1, 1000, 0);
+        Thread thread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (Exception ignored) {
+            }
+        }, "AttachmentServerTest");
+        thread.setDaemon(true);
+        thread.start();
+
+        try (Socket client = connect(port)) {
+            client.setSoTimeout(10_000);
+            long start = System.nanoTime();
+            // Never sends its request line: the server must hang up on its own
+            InputStream in = client.getInputStream();
+            assertEquals(-1, in.read());
+            assertTrue((System.nanoTime() - start) / 1_000_000 >= 900);
+        }
+    }
+
+    private static Socket connect(int port) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new Socket("localhost", port);
+            } catch (java.net.ConnectException e) {
+                if (attempt >= 50) throw e;
+                Thread.sleep(20);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.syncstudy.WS;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AttachmentStoreTest {
+
+    private static final String ABANDONED = "a".repeat(64);
+    private static final String UPLOADING = "b".repeat(64);
+    private static final String RECENT = "c".repeat(64);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void deletesOnlyAbandonedPartialUploads() throws Exception {
+        AttachmentStore store = new AttachmentStore(folder.getRoot().toPath());
+        FileTime dayAgo = FileTime.fromMillis(System.currentTimeMillis() - 24 * 3600 * 1000L);
+        for (String sha256 : new String[] {ABANDONED, UPLOADING}) {
+            Path partial = Files.write(store.partialOf(sha256), new byte[] {1, 2, 3});
+            Files.setLastModifiedTime(partial, dayAgo);
+        }
+        Files.write(store.partialOf(RECENT), new byte[] {1});
+
+        int deleted = store.deletePartialsOlderThan(3600 * 1000L, Set.of(UPLOADING));
+
+        assertEquals(1, deleted);
+        assertFalse(Files.exists(store.partialOf(ABANDONED)));
+        assertTrue(Files.exists(store.partialOf(UPLOADING)));
+        assertTrue(Files.exists(store.partialOf(RECENT)));
+    }
+
+    @Test
+    public void resumeStartsAtTheLastWholeChunk() throws Exception {
+        AttachmentStore store = new AttachmentStore(folder.getRoot().toPath());
+        Files.write(store.partialOf(ABANDONED), new byte[10]);
+
+        assertEquals(2, store.resumeChunk(ABANDONED, 4));
+        assertEquals(0, store.resumeChunk(RECENT, 4));
+    }
+}
@@ -0,0 +1,132 @@
+package com.syncstudy.WS;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AuthLaneTest {
+
+    private static final class StubConnection implements ChatConnection {
+        volatile boolean closed;
+
+        @Override
+        public void send(WireEnvelope envelope) {
+        }
+
+        @Override
+        public void upgrade(boolean compress) {
+        }
+
+        @Override
+        public String remoteAddr() {
+            return "test";
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Keeps the types it handles; the "auth" waits until released, like a slow lookup
+     */
+    private static final class SlowAuthHandler implements AuthLane.Handler {
+        final List<String> handled = new ArrayList<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done;
+
+        SlowAuthHandler(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void handle(String type, Long route, WireEnvelope envelope, ChatConnection from) {
+            if ("auth".equals(type)) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (handled) {
+                handled.add(type);
+            }
+            done.countDown();
+        }
+
+        List<String> handled() {
+            synchronized (handled) {
+                return new ArrayList<>(handled);
+            }
+        }
+    }
+
+    @Test
+    public void envelopesBehindAnAuthWaitForItInOrder() throws InterruptedException {
+        SlowAuthHandler handler = new SlowAuthHandler(3);
+        AuthLane lane = new AuthLane(handler);
+        StubConnection connection = new StubConnection();
+
+        // The reader never blocks on the lookup
+        assertTrue(lane.offer("auth", null, envelope("auth"), connection));
+        assertTrue(lane.offer("subscribe-user", 5L, envelope("subscribe-user"), connection));
+        assertTrue(lane.offer("send", 7L, envelope("send"), connection));
+        assertTrue(handler.handled().isEmpty());
+
+        handler.release.countDown();
+        assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("auth", "subscribe-user", "send"), handler.handled());
+
+        // Once checked, envelopes are handled on the reader again
+        waitUntilOpen(lane, connection);
+        assertFalse(lane.offer("subscribe", 7L, envelope("subscribe"), connection));
+    }
+
+    @Test
+    public void otherConnectionsAreNotHeldBack() {
+        SlowAuthHandler handler = new SlowAuthHandler(1);
+        AuthLane lane = new AuthLane(handler);
+
+        assertTrue(lane.offer("auth", null, envelope("auth"), new StubConnection()));
+        assertFalse(lane.offer("send", 7L, envelope("send"), new StubConnection()));
+        handler.release.countDown();
+    }
+
+    @Test
+    public void connectionFloodingBeforeItsLoginIsClosed() {
+        SlowAuthHandler handler = new SlowAuthHandler(1);
+        AuthLane lane = new AuthLane(handler);
+        StubConnection connection = new StubConnection();
+
+        lane.offer("auth", null, envelope("auth"), connection);
+        for (int i = 0; i < 300 && !connection.closed; i++) {
+            lane.offer("send", 7L, envelope("send"), connection);
+        }
+        handler.release.countDown();
+
+        assertTrue(connection.closed);
+    }
+
+    private static void waitUntilOpen(AuthLane lane, ChatConnection connection) throws InterruptedException {
+        // The gate opens right after the last held envelope is handled
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            WireEnvelope probe = envelope("probe");
+            if (!lane.offer("probe", null, probe, connection)) return;
+            Thread.sleep(10);
+        }
+    }
+
+    private static WireEnvelope envelope(String type) {
+        String json = "{\"type\":\"" + type + "\"}";
+        return WireEnvelope.ofJson(json, null, WireFrame.NO_ROUTE);
+    }
+}
@@ -0,0 +1,165 @@
+package com.syncstudy.WS;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Manual benchmark of the server's broadcast path (not run by the unit test suite).
+ * Sends envelopes to 1..N recipients the three ways the server has done it and
+ * reports sender CPU time and heap allocated per message:
+ *   per-recipient  every recipient encodes the JSON string itself (old safeSend)
+ *   shared array   encoded once, each write wraps the shared byte[]; the channel
+ *                  copies it into a temporary direct buffer on every write
+ *   shared buffer  encoded once into a pooled direct SharedBuffer that each
+ *                  recipient writes from (nio mode)
+ * Writes go to a FileChannel on /dev/null so that the system call and the
+ * channel's copying are counted but no network is involved.
+ *   java -cp target/classes:target/test-classes:gson.jar \
+ *        com.syncstudy.WS.BroadcastBenchmark 1,10,100,500 /dev/null
+ */
+public class BroadcastBenchmark {
+
+    private static final long GROUP_ID = 1L;
+    // Writes per measured round, whatever the fan-out
+    private static final int WRITES_PER_ROUND = 200_000;
+
+    private enum Strategy {
+        PER_RECIPIENT("per-recipient"), SHARED_ARRAY("shared array"), SHARED_BUFFER("shared buffer");
+
+        final String label;
+
+        Strategy(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        String[] fanOuts = (args.length > 0 ? args[0] : "1,10,100,500").split(",");
+        String sink = args.length > 1 ? args[1] : "/dev/null";
+
+        String message = messageJson();
+        byte[] chunk = new byte[64 * 1024];
+        new Random(42).nextBytes(chunk);
+        String fileChunk = chunkJson(chunk);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(sink), StandardOpenOption.WRITE)) {
+            System.out.printf("%-20s %7s %-14s %12s %14s %14s%n",
+                    "envelope", "fan-out", "strategy", "cpu(us)/msg", "cpu(ns)/write", "alloc(B)/msg");
+            for (String fanOut : fanOuts) {
+                int recipients = Integer.parseInt(fanOut.trim());
+                for (Strategy strategy : Strategy.values()) {
+                    round("chat message (json)", message, false, recipients, strategy, channel);
+                }
+            }
+            for (String fanOut : fanOuts) {
+                int recipients = Integer.parseInt(fanOut.trim());
+                for (Strategy strategy : Strategy.values()) {
+                    round("64KB chunk (frame)", fileChunk, true, recipients, strategy, channel);
+                }
+            }
+        }
+        System.out.println();
+        System.out.println("buffer pool: " + BufferPool.getInstance().describe());
+    }
+
+    private static void round(String label, String json, boolean binary, int recipients,
+                              Strategy strategy, FileChannel channel) throws IOException {
+        int messages = Math.max(50, WRITES_PER_ROUND / recipients);
+        if (binary) {
+            // 64 KB per write: keep rounds short
+            messages = Math.max(20, messages / 50);
+        }
+        JsonObject parsed = JsonParser.parseString(json).getAsJsonObject();
+        // Warm up with the same amount of work
+        broadcast(json, parsed, binary, recipients, strategy, channel, messages);
+
+        long thread = Thread.currentThread().getId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(thread);
+        long cpuBefore = THREADS.getCurrentThreadCpuTime();
+        broadcast(json, parsed, binary, recipients, strategy, channel, messages);
+        long cpu = THREADS.getCurrentThreadCpuTime() - cpuBefore;
+        long allocated = THREADS.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+        System.out.printf("%-20s %7d %-14s %12.1f %14.0f %14d%n", label, recipients, strategy.label,
+                cpu / 1000.0 / messages, (double) cpu / ((long) messages * recipients), allocated / messages);
+    }
+
+    private static void broadcast(String json, JsonObject parsed, boolean binary, int recipients,
+                                  Strategy strategy, FileChannel channel, int messages) throws IOException {
+        for (int m = 0; m < messages; m++) {
+            // As the server does, one envelope per message received
+            WireEnvelope envelope = WireEnvelope.ofJson(json, parsed, GROUP_ID);
+            switch (strategy) {
+                case PER_RECIPIENT:
+                    for (int r = 0; r < recipients; r++) {
+                        byte[] bytes = binary
+                                ? WireFrame.fromJson(parsed, GROUP_ID).encode(false)
+                                : (json + "\n").getBytes(StandardCharsets.UTF_8);
+                        write(channel, ByteBuffer.wrap(bytes));
+                    }
+                    break;
+                case SHARED_ARRAY:
+                    for (int r = 0; r < recipients; r++) {
+                        byte[] bytes = binary ? envelope.frameBytes(false) : envelope.jsonLine();
+                        write(channel, ByteBuffer.wrap(bytes));
+                    }
+                    break;
+                case SHARED_BUFFER:
+                    for (int r = 0; r < recipients; r++) {
+                        SharedBuffer shared = envelope.retainBuffer(binary, false);
+                        write(channel, shared.view());
+                        shared.release();
+                    }
+                    envelope.releaseBuffers();
+                    break;
+            }
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static String messageJson() {
+        JsonObject message = new JsonObject();
+        message.addProperty("id", 123456L);
+        message.addProperty("seq", 4242L);
+        message.addProperty("groupId", GROUP_ID);
+        message.addProperty("senderId", 7L);
+        message.addProperty("senderUsername", "alice");
+        message.addProperty("content", "Has anyone finished exercise 3? I am stuck on the second part of the proof.");
+        message.addProperty("createdAt", "2026-10-18T10:15:30");
+        message.addProperty("edited", false);
+        JsonObject envelope = new JsonObject();
+        envelope.addProperty("type", "new");
+        envelope.addProperty("groupId", GROUP_ID);
+        envelope.add("message", message);
+        return envelope.toString();
+    }
+
+    private static String chunkJson(byte[] chunk) {
+        JsonObject envelope = new JsonObject();
+        envelope.addProperty("type", "file-chunk");
+        envelope.addProperty("groupId", GROUP_ID);
+        envelope.addProperty("fileName", "lecture-notes.pdf");
+        envelope.addProperty("chunkIndex", 1);
+        envelope.addProperty("totalChunks", 16);
+        envelope.addProperty("chunkData", Base64.getEncoder().encodeToString(chunk));
+        return envelope.toString();
+    }
+}
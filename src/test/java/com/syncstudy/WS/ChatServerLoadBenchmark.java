@@ -0,0 +1,162 @@
+package com.syncstudy.WS;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Manual load test for TcpChatServer modes (not run by the unit test suite).
+ * Opens N simulated clients subscribed to one group, then measures memory per
+ * connection and the time until a message reaches every client.
+ * Run one mode per JVM so earlier runs do not skew the memory numbers, e.g.
+ *   java -Xss256k -cp target/classes:target/test-classes:gson.jar \
+ *        com.syncstudy.WS.ChatServerLoadBenchmark VIRTUAL 1000,5000,20000
+ * The open-files limit (ulimit -n) must be above twice the client count.
+ */
+public class ChatServerLoadBenchmark {
+
+    private static final long GROUP_ID = 1L;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        TcpChatServer.Mode mode = TcpChatServer.Mode.fromString(args.length > 0 ? args[0] : "VIRTUAL");
+        int[] counts = Arrays.stream((args.length > 1 ? args[1] : "1000,5000,20000").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 9500;
+
+        TcpChatServer server = new TcpChatServer(port, mode);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                System.err.println("Server failed: " + e.getMessage());
+            }
+        }, "LoadBenchmark-Server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(500);
+
+        System.out.println("mode=" + mode + ", virtual threads supported=" + QueuedClientTransport.virtualThreadsSupported());
+        System.out.printf("%8s %14s %14s %10s %12s %12s%n",
+                "clients", "rss/conn(KB)", "heap/conn(KB)", "threads", "p50(ms)", "p99(ms)");
+        for (int n : counts) {
+            runRound(port, n);
+        }
+        System.exit(0);
+    }
+
+    private static void runRound(int port, int clients) throws Exception {
+        settle();
+        long rssBefore = rssKb();
+        long heapBefore = usedHeapKb();
+        int threadsBefore = Thread.activeCount();
+
+        Selector selector = Selector.open();
+        List<SocketChannel> channels = new ArrayList<>(clients);
+        byte[] subscribe = ("{\"type\":\"subscribe\",\"groupId\":" + GROUP_ID + "}\n").getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < clients; i++) {
+            SocketChannel ch = SocketChannel.open(new InetSocketAddress("localhost", port));
+            ch.write(ByteBuffer.wrap(subscribe));
+            ch.configureBlocking(false);
+            ch.register(selector, SelectionKey.OP_READ, new int[1]);
+            channels.add(ch);
+        }
+        // Let the server process every subscription
+        Thread.sleep(Math.max(1000, clients / 5));
+
+        settle();
+        long rssPerConn = (rssKb() - rssBefore) / clients;
+        long heapPerConn = (usedHeapKb() - heapBefore) / clients;
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        SocketChannel sender = channels.get(0);
+        long[] latencies = new long[ROUNDS];
+        ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+        for (int round = 0; round < ROUNDS; round++) {
+            byte[] msg = ("{\"type\":\"new\",\"groupId\":" + GROUP_ID + ",\"id\":" + round + "}\n").getBytes(StandardCharsets.UTF_8);
+            long start = System.nanoTime();
+            ByteBuffer out = ByteBuffer.wrap(msg);
+            while (out.hasRemaining()) {
+                sender.write(out);
+            }
+            latencies[round] = awaitDelivery(selector, readBuffer, clients, start);
+        }
+
+        for (SocketChannel ch : channels) {
+            ch.close();
+        }
+        selector.close();
+
+        Arrays.sort(latencies);
+        System.out.printf("%8d %14d %14d %10d %12.2f %12.2f%n", clients, rssPerConn, heapPerConn,
+                threads - threadsBefore,
+                latencies[ROUNDS / 2] / 1e6, latencies[(int) (ROUNDS * 0.99)] / 1e6);
+    }
+
+    /**
+     * Read until every client saw one more line; returns elapsed nanos
+     */
+    private static long awaitDelivery(Selector selector, ByteBuffer buffer, int clients, long start) throws IOException {
+        int delivered = 0;
+        for (SelectionKey key : selector.keys()) {
+            ((int[]) key.attachment())[0] = 0;
+        }
+        while (delivered < clients) {
+            if (selector.select(10_000) == 0) {
+                throw new IOException("Timed out: only " + delivered + "/" + clients + " clients received the message");
+            }
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                buffer.clear();
+                int read = ((SocketChannel) key.channel()).read(buffer);
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        int[] seen = (int[]) key.attachment();
+                        if (seen[0]++ == 0) {
+                            delivered++;
+                        }
+                    }
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void settle() throws InterruptedException {
+        System.gc();
+        Thread.sleep(300);
+    }
+
+    private static long usedHeapKb() {
+        Runtime rt = Runtime.getRuntime();
+        return (rt.totalMemory() - rt.freeMemory()) / 1024;
+    }
+
+    /**
+     * Resident set size on Linux (includes thread stacks), falls back to heap elsewhere
+     */
+    private static long rssKb() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+        }
+        return usedHeapKb();
+    }
+}
@@ -0,0 +1,153 @@
+package com.syncstudy.WS;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MessageIngestTest {
+
+    private static final Long GROUP = 7L;
+    private static final MessageIngest.Membership EVERYONE = (groupId, senderId, from) -> true;
+
+    /**
+     * Connection that keeps what it is sent
+     */
+    private static final class RecordingConnection implements ChatConnection {
+        final List<JsonObject> sent = new ArrayList<>();
+        final CountDownLatch expected;
+
+        RecordingConnection(int expected) {
+            this.expected = new CountDownLatch(expected);
+        }
+
+        @Override
+        public synchronized void send(WireEnvelope envelope) {
+            sent.add(envelope.toJsonObject());
+            expected.countDown();
+        }
+
+        @Override
+        public void upgrade(boolean compress) {
+        }
+
+        @Override
+        public String remoteAddr() {
+            return "test";
+        }
+
+        @Override
+        public void close() {
+        }
+
+        synchronized List<String> types() throws InterruptedException {
+            return types(sent);
+        }
+
+        List<String> awaitTypes() throws InterruptedException {
+            assertTrue("nothing sent", expected.await(5, TimeUnit.SECONDS));
+            // Anything beyond the expected envelopes would arrive right after them
+            Thread.sleep(50);
+            return types();
+        }
+
+        private static List<String> types(List<JsonObject> envelopes) {
+            List<String> types = new ArrayList<>();
+            for (JsonObject envelope : envelopes) {
+                types.add(envelope.get("type").getAsString());
+            }
+            return types;
+        }
+    }
+
+    @Test
+    public void resumeReplaysAnEditMadeWhileOffline() throws Exception {
+        ReplayBuffer replay = new ReplayBuffer(10, 10);
+        MessageIngest ingest = new MessageIngest((groupId, envelope) -> {}, EVERYONE, replay, 1, 10, 100);
+        replay.record(GROUP, 1, ReplayBufferTest.envelope("new", 1));
+        replay.record(GROUP, 2, ReplayBufferTest.envelope("new", 2));
+        // The client saw seq 2 and went offline; message 1 is edited, message 3 sent
+        replay.observe("edit", GROUP, ReplayBufferTest.envelope("edit", 1));
+        replay.record(GROUP, 3, ReplayBufferTest.envelope("new", 3));
+
+        RecordingConnection client = new RecordingConnection(2);
+        ingest.resume(GROUP, 2, client);
+
+        assertEquals(List.of("new", "edit"), client.awaitTypes());
+        assertEquals(3L, client.sent.get(0).get("id").getAsLong());
+        assertEquals(1L, client.sent.get(1).get("id").getAsLong());
+    }
+
+    @Test
+    public void resumeResetsWhenAnEditMayHaveBeenMissed() throws Exception {
+        ReplayBuffer replay = new ReplayBuffer(10, 10);
+        MessageIngest ingest = new MessageIngest((groupId, envelope) -> {}, EVERYONE, replay, 1, 10, 100);
+        // Server restarted: nothing is known of what happened before seq 5
+        replay.record(GROUP, 5, ReplayBufferTest.envelope("new", 5));
+
+        RecordingConnection client = new RecordingConnection(1);
+        ingest.resume(GROUP, 2, client);
+
+        assertEquals(List.of("resume-reset"), client.awaitTypes());
+        assertEquals(GROUP.longValue(), client.sent.get(0).get("groupId").getAsLong());
+    }
+
+    @Test
+    public void resumeWithNothingMissedSendsNothing() throws Exception {
+        ReplayBuffer replay = new ReplayBuffer(10, 10);
+        MessageIngest ingest = new MessageIngest((groupId, envelope) -> {}, EVERYONE, replay, 1, 10, 100);
+        replay.record(GROUP, 1, ReplayBufferTest.envelope("new", 1));
+
+        RecordingConnection client = new RecordingConnection(0);
+        ingest.resume(GROUP, 1, client);
+
+        assertTrue(client.awaitTypes().isEmpty());
+    }
+
+    @Test
+    public void sendFromAConnectionNotLoggedInIsRefused() throws Exception {
+        ReplayBuffer replay = new ReplayBuffer(10, 10);
+        MessageIngest ingest = new MessageIngest((groupId, envelope) -> {
+            throw new AssertionError("nothing may be routed");
+        }, EVERYONE, replay, 1, 10, 100);
+        JsonObject message = new JsonObject();
+        message.addProperty("senderId", 42L);
+        message.addProperty("content", "hello");
+        JsonObject send = new JsonObject();
+        send.addProperty("type", "send");
+        send.addProperty("groupId", GROUP);
+        send.add("message", message);
+
+        RecordingConnection client = new RecordingConnection(1);
+        ingest.submit(WireEnvelope.ofJson(send.toString(), send, GROUP), GROUP, null, client);
+
+        assertEquals(List.of("send-failed"), client.awaitTypes());
+    }
+
+    @Test
+    public void sendToAGroupTheSenderIsNotInIsRefused() throws Exception {
+        ReplayBuffer replay = new ReplayBuffer(10, 10);
+        MessageIngest ingest = new MessageIngest((groupId, envelope) -> {
+            throw new AssertionError("nothing may be routed");
+        }, (groupId, senderId, from) -> false, replay, 1, 10, 100);
+        JsonObject message = new JsonObject();
+        message.addProperty("content", "hello");
+        message.addProperty("clientMessageId", "c1");
+        JsonObject send = new JsonObject();
+        send.addProperty("type", "send");
+        send.addProperty("groupId", GROUP);
+        send.add("message", message);
+
+        RecordingConnection client = new RecordingConnection(1);
+        ingest.submit(WireEnvelope.ofJson(send.toString(), send, GROUP), GROUP, 42L, client);
+
+        assertEquals(List.of("send-failed"), client.awaitTypes());
+        assertEquals("c1", client.sent.get(0).getAsJsonObject("message").get("clientMessageId").getAsString());
+    }
+}
@@ -0,0 +1,97 @@
+package com.syncstudy.WS;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityOutboxTest {
+
+    private static final int CHUNK = 8 * 1024;
+
+    @Test
+    public void controlGoesFirstAndEachLaneKeepsItsOrder() {
+        PriorityOutbox<String> outbox = new PriorityOutbox<>(100, 1, 1);
+        outbox.offer(TrafficClass.CHAT, "chat-1", 10);
+        outbox.offer(TrafficClass.CHAT, "chat-2", 10);
+        outbox.offer(TrafficClass.CONTROL, "control-1", 10);
+        outbox.offer(TrafficClass.CONTROL, "control-2", 10);
+
+        assertEquals("control-1", outbox.poll());
+        assertEquals("control-2", outbox.poll());
+        assertEquals("chat-1", outbox.poll());
+        assertEquals("chat-2", outbox.poll());
+        assertNull(outbox.poll());
+        assertTrue(outbox.isEmpty());
+    }
+
+    @Test
+    public void chatAndBulkShareBytesByWeight() {
+        PriorityOutbox<String> outbox = new PriorityOutbox<>(100, 3, 1);
+        for (int i = 0; i < 20; i++) {
+            outbox.offer(TrafficClass.CHAT, "chat", CHUNK);
+            outbox.offer(TrafficClass.BULK, "bulk", CHUNK);
+        }
+
+        int chat = 0;
+        for (int i = 0; i < 16; i++) {
+            if ("chat".equals(outbox.poll())) chat++;
+        }
+
+        assertEquals(12, chat);
+    }
+
+    @Test
+    public void laneAloneIsNotHeldBack() {
+        PriorityOutbox<String> outbox = new PriorityOutbox<>(100, 1, 1);
+        for (int i = 0; i < 5; i++) {
+            outbox.offer(TrafficClass.BULK, "bulk-" + i, CHUNK * 4);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("bulk-" + i, outbox.poll());
+        }
+        assertEquals(0, outbox.queuedBytes(TrafficClass.BULK));
+    }
+
+    @Test
+    public void helloAckIsWrittenAfterTheLinesQueuedBeforeIt() {
+        PriorityOutbox<String> outbox = new PriorityOutbox<>(100, 1, 1);
+        outbox.offer(TrafficClass.CHAT, "line-chat", 10);
+        outbox.offer(TrafficClass.BULK, "line-chunk", 10);
+        outbox.offer(TrafficClass.CONTROL, "line-control", 10);
+
+        assertTrue(outbox.offerAfterQueued("hello-ack", 10));
+        outbox.offer(TrafficClass.CONTROL, "frame-control", 10);
+        outbox.offer(TrafficClass.CHAT, "frame-chat", 10);
+
+        List<String> written = new ArrayList<>();
+        String next;
+        while ((next = outbox.poll()) != null) {
+            written.add(next);
+        }
+        assertEquals(List.of("line-control", "line-chat", "line-chunk", "hello-ack",
+                "frame-control", "frame-chat"), written);
+        assertEquals(0, outbox.queuedBytes(TrafficClass.CONTROL));
+    }
+
+    @Test
+    public void fullOutboxRefusesAndCloseHandsBackTheRest() throws InterruptedException {
+        PriorityOutbox<String> outbox = new PriorityOutbox<>(2, 1, 1);
+        assertTrue(outbox.offer(TrafficClass.CHAT, "a", 1));
+        assertTrue(outbox.offer(TrafficClass.BULK, "b", 1));
+        assertFalse(outbox.offer(TrafficClass.CONTROL, "c", 1));
+        assertFalse(outbox.offerAfterQueued("d", 1));
+
+        assertEquals(2, outbox.close().size());
+        assertFalse(outbox.offer(TrafficClass.CHAT, "e", 1));
+        assertNull(outbox.poll(10, TimeUnit.MILLISECONDS));
+        assertFalse(outbox.awaitRoom(TrafficClass.BULK, 1));
+    }
+}
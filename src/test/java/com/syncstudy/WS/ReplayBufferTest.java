@@ -0,0 +1,135 @@
+package com.syncstudy.WS;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReplayBufferTest {
+
+    private static final Long GROUP = 7L;
+
+    @Test
+    public void replaysEveryMessageAfterTheClientsSeq() {
+        ReplayBuffer buffer = new ReplayBuffer(10, 10);
+        WireEnvelope[] sent = new WireEnvelope[5];
+        for (int seq = 1; seq <= 5; seq++) {
+            sent[seq - 1] = envelope("new", seq);
+            buffer.record(GROUP, seq, sent[seq - 1]);
+        }
+
+        List<WireEnvelope> gap = buffer.after(GROUP, 2);
+
+        assertEquals(3, gap.size());
+        assertSame(sent[2], gap.get(0));
+        assertSame(sent[4], gap.get(2));
+        assertTrue(buffer.after(GROUP, 5).isEmpty());
+    }
+
+    @Test
+    public void holeInTheSeqsFallsBackToTheDatabase() {
+        ReplayBuffer buffer = new ReplayBuffer(10, 10);
+        buffer.record(GROUP, 1, envelope("new", 1));
+        buffer.record(GROUP, 2, envelope("new", 2));
+        // seq 3 was stored by someone else
+        buffer.record(GROUP, 4, envelope("new", 4));
+
+        assertNull(buffer.after(GROUP, 1));
+        assertEquals(1, buffer.after(GROUP, 3).size());
+    }
+
+    @Test
+    public void messagesOlderThanTheCapacityAreNotReplayed() {
+        ReplayBuffer buffer = new ReplayBuffer(3, 10);
+        for (int seq = 1; seq <= 6; seq++) {
+            buffer.record(GROUP, seq, envelope("new", seq));
+        }
+
+        assertNull(buffer.after(GROUP, 2));
+        assertEquals(3, buffer.after(GROUP, 3).size());
+        assertNull(buffer.after(99L, 0));
+    }
+
+    @Test
+    public void relayedNewMessageOfUnknownSeqIsNotSkipped() {
+        ReplayBuffer buffer = new ReplayBuffer(10, 10);
+        buffer.record(GROUP, 1, envelope("new", 1));
+        buffer.observe("new", GROUP, envelope("new", 2));
+
+        assertNull(buffer.after(GROUP, 1));
+    }
+
+    @Test
+    public void editWhileOfflineIsReplayed() {
+        ReplayBuffer buffer = new ReplayBuffer(10, 10);
+        buffer.record(GROUP, 1, envelope("new", 1));
+        buffer.record(GROUP, 2, envelope("new", 2));
+        WireEnvelope edit = envelope("edit", 1);
+        buffer.observe("edit", GROUP, edit);
+        buffer.record(GROUP, 3, envelope("new", 3));
+
+        List<WireEnvelope> changes = buffer.changesAfter(GROUP, 2);
+        assertEquals(1, changes.size());
+        assertSame(edit, changes.get(0));
+        // Saw message 3, relayed after the edit
+        assertTrue(buffer.changesAfter(GROUP, 3).isEmpty());
+        assertEquals(1, buffer.after(GROUP, 2).size());
+    }
+
+    @Test
+    public void changesThatAreNoLongerHeldCannotBeRuledOut() {
+        ReplayBuffer buffer = new ReplayBuffer(2, 10);
+        buffer.record(GROUP, 1, envelope("new", 1));
+        buffer.observe("delete", GROUP, envelope("delete", 1));
+        buffer.record(GROUP, 2, envelope("new", 2));
+        buffer.observe("edit", GROUP, envelope("edit", 2));
+        buffer.observe("edit", GROUP, envelope("edit", 2));
+
+        // The delete after seq 1 was dropped
+        assertNull(buffer.changesAfter(GROUP, 1));
+        assertEquals(2, buffer.changesAfter(GROUP, 2).size());
+    }
+
+    @Test
+    public void changesBeforeTheGroupWasFollowedCannotBeRuledOut() {
+        ReplayBuffer buffer = new ReplayBuffer(10, 10);
+        assertNull(buffer.changesAfter(GROUP, 4));
+
+        buffer.observe("edit", GROUP, envelope("edit", 3));
+        assertNull(buffer.changesAfter(GROUP, 4));
+
+        buffer.record(GROUP, 5, envelope("new", 5));
+        assertNull(buffer.changesAfter(GROUP, 4));
+        // The edit came before message 5: whoever saw 5 has it
+        List<WireEnvelope> changes = buffer.changesAfter(GROUP, 5);
+        assertNotNull(changes);
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void leastRecentlyUsedGroupsAreDropped() {
+        ReplayBuffer buffer = new ReplayBuffer(10, 2);
+        buffer.record(1L, 1, envelope("new", 1));
+        buffer.record(2L, 1, envelope("new", 1));
+        buffer.after(1L, 0);
+        buffer.record(3L, 1, envelope("new", 1));
+
+        assertNotNull(buffer.after(1L, 0));
+        assertNull(buffer.after(2L, 0));
+        assertNull(buffer.changesAfter(2L, 1));
+    }
+
+    static WireEnvelope envelope(String type, long id) {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", type);
+        json.addProperty("groupId", GROUP);
+        json.addProperty("id", id);
+        return WireEnvelope.ofJson(json.toString(), json, GROUP);
+    }
+}
@@ -0,0 +1,145 @@
+package com.syncstudy.WS;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WireFrameTest {
+
+    private static final int FLAGS_OFFSET = 5;
+
+    @Test
+    public void routeAndTypeAreCarriedByTheHeaderAndRestored() throws IOException {
+        JsonObject envelope = json("{\"type\":\"edit\",\"groupId\":7,\"messageId\":42,\"content\":\"hi\"}");
+
+        byte[] bytes = WireFrame.of(envelope, 7, null).encode(false);
+        WireFrame decoded = WireFrame.decode(bytes);
+
+        assertEquals(WireFrame.typeCode("edit"), decoded.getTypeCode());
+        assertEquals(7, decoded.getRouteId());
+        assertEquals(WireFrame.FLAG_ROUTE_FIELD, bytes[FLAGS_OFFSET]);
+        assertEquals(envelope, decoded.toJsonObject());
+    }
+
+    @Test
+    public void userEnvelopesAreRoutedByUserId() throws IOException {
+        JsonObject envelope = json("{\"type\":\"notification\",\"userId\":5,\"groupId\":9}");
+
+        WireFrame decoded = WireFrame.decode(WireFrame.of(envelope, 5, null).encode(false));
+
+        assertTrue(WireFrame.routesByUser("notification"));
+        assertEquals(envelope, decoded.toJsonObject());
+    }
+
+    @Test
+    public void fileChunkTravelsAsRawPayload() throws IOException {
+        byte[] chunk = new byte[3000];
+        new Random(1).nextBytes(chunk);
+        JsonObject envelope = json("{\"type\":\"file-chunk\",\"groupId\":3,\"fileId\":\"f\",\"index\":0}");
+        envelope.addProperty("chunkData", Base64.getEncoder().encodeToString(chunk));
+
+        WireFrame frame = WireFrame.fromJson(envelope, 3);
+        WireFrame decoded = WireFrame.decode(frame.encode(false));
+
+        assertArrayEquals(chunk, decoded.getPayload());
+        assertEquals(envelope, json(decoded.toJson()));
+    }
+
+    @Test
+    public void repetitiveBodyIsDeflatedAndInflatedBack() throws IOException {
+        char[] text = new char[4000];
+        Arrays.fill(text, 'a');
+        JsonObject envelope = json("{\"type\":\"new\",\"groupId\":1}");
+        envelope.addProperty("content", new String(text));
+        WireFrame frame = WireFrame.of(envelope, 1, null);
+
+        byte[] compressed = frame.encode(true);
+        byte[] plain = frame.encode(false);
+        WireFrame decoded = WireFrame.decode(compressed);
+
+        assertTrue(compressed.length < plain.length / 4);
+        assertEquals(WireFrame.FLAG_DEFLATE | WireFrame.FLAG_ROUTE_FIELD, compressed[FLAGS_OFFSET]);
+        assertEquals(envelope, decoded.toJsonObject());
+        // Forwarded with the same option, the received bytes are reused as they are
+        assertSame(compressed, decoded.encode(true));
+    }
+
+    @Test
+    public void incompressiblePayloadIsSentAsIs() throws IOException {
+        byte[] chunk = new byte[64 * 1024];
+        new Random(2).nextBytes(chunk);
+        WireFrame frame = WireFrame.of(json("{\"type\":\"file-chunk\",\"groupId\":3}"), 3, chunk);
+
+        byte[] bytes = frame.encode(true);
+
+        assertEquals(WireFrame.FLAG_ROUTE_FIELD, bytes[FLAGS_OFFSET]);
+        assertArrayEquals(chunk, WireFrame.decode(bytes).getPayload());
+    }
+
+    @Test
+    public void otherTypesAndLinesAreRelayedVerbatim() throws IOException {
+        String line = "{\"type\":\"typing\",\"groupId\":4,\"userId\":2}";
+        WireFrame frame = WireFrame.of(json(line), WireFrame.NO_ROUTE, null);
+
+        WireFrame decoded = WireFrame.decode(frame.encode(false));
+
+        assertEquals(0, decoded.getTypeCode());
+        assertEquals(WireFrame.NO_ROUTE, decoded.getRouteId());
+        assertEquals(line, decoded.toJson());
+    }
+
+    @Test
+    public void truncatedCompressedFrameIsRejected() {
+        char[] text = new char[4000];
+        Arrays.fill(text, 'b');
+        JsonObject envelope = json("{\"type\":\"new\",\"groupId\":1}");
+        envelope.addProperty("content", new String(text));
+        byte[] bytes = WireFrame.of(envelope, 1, null).encode(true);
+
+        try {
+            WireFrame.decode(Arrays.copyOf(bytes, bytes.length - 4));
+            fail("truncated frame decoded");
+        } catch (IOException expected) {
+            // rejected
+        }
+    }
+
+    @Test
+    public void lengthOutsideTheLimitsIsRejected() throws IOException {
+        WireFrame.checkLength(14);
+        WireFrame.checkLength(WireFrame.MAX_FRAME_BYTES);
+        for (int length : new int[]{-1, 13, WireFrame.MAX_FRAME_BYTES + 1}) {
+            try {
+                WireFrame.checkLength(length);
+                fail("accepted length " + length);
+            } catch (IOException expected) {
+                // rejected
+            }
+        }
+    }
+
+    @Test
+    public void helloAckAnnouncesServerSideStoring() {
+        JsonObject hello = json(WireFrame.hello("json", false));
+        JsonObject ack = json(WireFrame.helloAck("json", false));
+
+        assertEquals("json", hello.get("protocol").getAsString());
+        assertEquals(WireFrame.HELLO_ACK, ack.get("type").getAsString());
+        assertTrue(ack.get("ingest").getAsBoolean());
+    }
+
+    private static JsonObject json(String text) {
+        return JsonParser.parseString(text).getAsJsonObject();
+    }
+}
@@ -0,0 +1,251 @@
+package com.syncstudy.WS;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Manual benchmark of the chat wire formats (not run by the unit test suite).
+ * First compares JSON lines with binary frames (plain and deflated) in memory:
+ * bytes on the wire, sender encode time and receiver decode time, for a chat
+ * message and for 64 KB file chunks (random and text-like content).
+ * Then relays file chunks through a local TcpChatServer from one sender to one
+ * subscriber in each format and reports the throughput; server logging is
+ * silenced during those rounds.
+ *   java -cp target/classes:target/test-classes:gson.jar \
+ *        com.syncstudy.WS.WireProtocolBenchmark NIO 2000 9600
+ */
+public class WireProtocolBenchmark {
+
+    private static final long GROUP_ID = 1L;
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final int CODEC_ITERATIONS = 2000;
+
+    private enum Format {
+        JSON, BINARY, DEFLATE;
+
+        boolean binary() {
+            return this != JSON;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        TcpChatServer.Mode mode = TcpChatServer.Mode.fromString(args.length > 0 ? args[0] : "NIO");
+        int chunks = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 9600;
+
+        Random random = new Random(42);
+        byte[] randomChunk = new byte[CHUNK_BYTES];
+        random.nextBytes(randomChunk);
+        byte[] textChunk = new byte[CHUNK_BYTES];
+        for (int i = 0; i < textChunk.length; i++) {
+            textChunk[i] = (byte) ("the quick brown fox jumps over the lazy dog\n".charAt(random.nextInt(44)));
+        }
+
+        System.out.printf("%-22s %-8s %12s %12s %12s%n", "envelope", "format", "bytes", "encode(us)", "decode(us)");
+        for (Format format : Format.values()) {
+            codecRound("chat message", format, messageEnvelope(), null);
+        }
+        for (Format format : Format.values()) {
+            codecRound("64KB chunk (random)", format, chunkEnvelope(), randomChunk);
+        }
+        for (Format format : Format.values()) {
+            codecRound("64KB chunk (text)", format, chunkEnvelope(), textChunk);
+        }
+
+        TcpChatServer server = new TcpChatServer(port, mode);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                System.err.println("Server failed: " + e.getMessage());
+            }
+        }, "WireBenchmark-Server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        Thread.sleep(500);
+
+        System.out.println();
+        System.out.println("relay through " + mode + " server, " + chunks + " x 64KB text-like chunks");
+        System.out.printf("%-8s %12s %12s %14s%n", "format", "time(ms)", "MB/s", "chunks/s");
+        for (Format format : Format.values()) {
+            relayRound(port, format, chunks, textChunk);
+        }
+        System.exit(0);
+    }
+
+    private static void codecRound(String name, Format format, JsonObject envelope, byte[] chunk) throws IOException {
+        int size = 0;
+        // Warm-up, then timed runs
+        for (int i = 0; i < CODEC_ITERATIONS; i++) {
+            decode(format, encode(format, envelope, chunk));
+        }
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        for (int i = 0; i < CODEC_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            byte[] wire = encode(format, envelope, chunk);
+            long encoded = System.nanoTime();
+            decode(format, wire);
+            decodeNanos += System.nanoTime() - encoded;
+            encodeNanos += encoded - start;
+            size = wire.length;
+        }
+        System.out.printf("%-22s %-8s %12d %12.1f %12.1f%n", name, format, size,
+                encodeNanos / 1e3 / CODEC_ITERATIONS, decodeNanos / 1e3 / CODEC_ITERATIONS);
+    }
+
+    /**
+     * What a sender does: the JSON line with base64 chunkData, or a frame with a raw payload
+     */
+    private static byte[] encode(Format format, JsonObject envelope, byte[] chunk) {
+        if (!format.binary()) {
+            JsonObject copy = envelope;
+            if (chunk != null) {
+                copy = envelope.deepCopy();
+                copy.addProperty("chunkData", Base64.getEncoder().encodeToString(chunk));
+            }
+            return (copy + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+        return WireFrame.of(envelope, GROUP_ID, chunk).encode(format == Format.DEFLATE);
+    }
+
+    /**
+     * What a receiver does before handing the envelope to Gson: parse, and get the chunk bytes
+     * @return number of chunk bytes
+     */
+    private static int decode(Format format, byte[] wire) throws IOException {
+        if (!format.binary()) {
+            JsonObject envelope = JsonParser.parseString(
+                    new String(wire, 0, wire.length - 1, StandardCharsets.UTF_8)).getAsJsonObject();
+            return envelope.has("chunkData")
+                    ? Base64.getDecoder().decode(envelope.get("chunkData").getAsString()).length : 0;
+        }
+        WireFrame frame = WireFrame.decode(wire);
+        frame.toJsonObject();
+        return frame.getPayload().length;
+    }
+
+    private static void relayRound(int port, Format format, int chunks, byte[] chunk) throws Exception {
+        PrintStream console = System.out;
+        try (Peer receiver = new Peer(port, format);
+             Peer sender = new Peer(port, format)) {
+            JsonObject subscribe = new JsonObject();
+            subscribe.addProperty("type", "subscribe");
+            subscribe.addProperty("groupId", GROUP_ID);
+            receiver.send(subscribe, null);
+            Thread.sleep(300);
+
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            CompletableFuture<Long> received = CompletableFuture.supplyAsync(() -> {
+                long bytes = 0;
+                try {
+                    for (int i = 0; i < chunks; i++) {
+                        bytes += receiver.receive();
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return bytes;
+            });
+            JsonObject envelope = chunkEnvelope();
+            long start = System.nanoTime();
+            for (int i = 0; i < chunks; i++) {
+                envelope.addProperty("chunkIndex", i + 1);
+                sender.send(envelope, chunk);
+            }
+            long bytes = received.get();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.setOut(console);
+            System.out.printf("%-8s %12.0f %12.1f %14.0f%n", format, seconds * 1e3,
+                    bytes / 1e6 / seconds, chunks / seconds);
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private static JsonObject messageEnvelope() {
+        JsonObject message = new JsonObject();
+        message.addProperty("id", 123456L);
+        message.addProperty("groupId", GROUP_ID);
+        message.addProperty("senderId", 42L);
+        message.addProperty("senderName", "Alice Martin");
+        message.addProperty("content", "Does anyone have the notes from Tuesday's lecture on dynamic programming?");
+        message.addProperty("createdAt", "2024-05-14T10:15:30");
+        JsonObject envelope = new JsonObject();
+        envelope.addProperty("type", "new");
+        envelope.add("message", message);
+        envelope.addProperty("groupId", GROUP_ID);
+        return envelope;
+    }
+
+    private static JsonObject chunkEnvelope() {
+        JsonObject envelope = new JsonObject();
+        envelope.addProperty("type", "file-chunk");
+        envelope.addProperty("groupId", GROUP_ID);
+        envelope.addProperty("fileName", "lecture-notes.pdf");
+        envelope.addProperty("chunkIndex", 1);
+        envelope.addProperty("totalChunks", 16);
+        return envelope;
+    }
+
+    /**
+     * Raw client socket speaking one format
+     */
+    private static class Peer implements AutoCloseable {
+        private final Socket socket;
+        private final WireInputStream in;
+        private final OutputStream out;
+        private final Format format;
+
+        Peer(int port, Format format) throws IOException {
+            this.socket = new Socket("localhost", port);
+            socket.setTcpNoDelay(true);
+            this.in = new WireInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+            this.format = format;
+            if (format.binary()) {
+                out.write((WireFrame.hello(format == Format.DEFLATE) + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                String ack = in.readLine();
+                if (ack == null || !ack.contains(WireFrame.PROTOCOL)) {
+                    throw new IOException("Server did not accept " + WireFrame.PROTOCOL + ": " + ack);
+                }
+            }
+        }
+
+        void send(JsonObject envelope, byte[] chunk) throws IOException {
+            out.write(encode(format, envelope, chunk));
+            out.flush();
+        }
+
+        /**
+         * @return chunk bytes of the next envelope
+         */
+        int receive() throws IOException {
+            if (format.binary()) {
+                WireFrame frame = in.readFrame();
+                if (frame == null) throw new IOException("Connection closed");
+                frame.toJsonObject();
+                return frame.getPayload().length;
+            }
+            String line = in.readLine();
+            if (line == null) throw new IOException("Connection closed");
+            return decode(format, (line + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.syncstudy.WS;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manual benchmark of outbound write coalescing (not run by the unit test suite).
+ * A busy group: every client is subscribed, a few of them send messages at a
+ * steady pace, and each message carries its send time so that the receiving
+ * side measures delivery latency. For each write max-delay a fresh server is
+ * started and the round reports envelopes per flush (from getFlushStats(),
+ * flushes being socket writes in nio mode) and the latency percentiles.
+ * Server logging is silenced during the rounds; a first unreported round warms up the JIT.
+ *   java -cp target/classes:target/test-classes:gson.jar \
+ *        com.syncstudy.WS.WriteCoalescingBenchmark NIO 0,1,5 200 10 300 9700
+ */
+public class WriteCoalescingBenchmark {
+
+    private static final long GROUP_ID = 1L;
+    // Pause between two messages of one sender
+    private static final long SEND_INTERVAL_MICROS = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        TcpChatServer.Mode mode = TcpChatServer.Mode.fromString(args.length > 0 ? args[0] : "NIO");
+        long[] delays = Arrays.stream((args.length > 1 ? args[1] : "0,1,5").split(","))
+                .mapToLong(s -> Long.parseLong(s.trim())).toArray();
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int senders = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int perSender = args.length > 4 ? Integer.parseInt(args[4]) : 300;
+        int port = args.length > 5 ? Integer.parseInt(args[5]) : 9700;
+
+        System.out.println("mode=" + mode + ", " + clients + " clients, " + senders + " senders x "
+                + perSender + " messages every " + SEND_INTERVAL_MICROS + "us");
+        System.out.printf("%10s %12s %12s %14s %10s %10s %10s%n",
+                "delay(ms)", "envelopes", "flushes", "env/flush", "p50(ms)", "p99(ms)", "max(ms)");
+        runRound(mode, delays[0], port, clients, senders, perSender, false);
+        for (int i = 0; i < delays.length; i++) {
+            runRound(mode, delays[i], port + 1 + i, clients, senders, perSender, true);
+        }
+        System.exit(0);
+    }
+
+    private static void runRound(TcpChatServer.Mode mode, long delayMs, int port, int clients,
+                                 int senders, int perSender, boolean report) throws Exception {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(PrintStream.nullOutputStream()));
+        try {
+            TcpChatServer server = new TcpChatServer(port, mode, delayMs, 64 * 1024);
+            Thread serverThread = new Thread(() -> {
+                try {
+                    server.start();
+                } catch (IOException e) {
+                    System.err.println("Server failed: " + e.getMessage());
+                }
+            }, "CoalescingBenchmark-Server");
+            serverThread.setDaemon(true);
+            serverThread.start();
+            Thread.sleep(500);
+
+            Selector selector = Selector.open();
+            List<SocketChannel> channels = new ArrayList<>(clients);
+            byte[] subscribe = ("{\"type\":\"subscribe\",\"groupId\":" + GROUP_ID + "}\n").getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < clients; i++) {
+                SocketChannel ch = SocketChannel.open(new InetSocketAddress("localhost", port));
+                ch.write(ByteBuffer.wrap(subscribe));
+                ch.configureBlocking(false);
+                ch.register(selector, SelectionKey.OP_READ, new StringBuilder());
+                channels.add(ch);
+            }
+            Thread.sleep(Math.max(1000, clients / 5));
+
+            FlushStats before = server.getFlushStats();
+            List<Thread> senderThreads = new ArrayList<>();
+            for (int s = 0; s < senders; s++) {
+                SocketChannel channel = channels.get(s);
+                Thread t = new Thread(() -> send(channel, perSender), "CoalescingBenchmark-Sender");
+                t.start();
+                senderThreads.add(t);
+            }
+
+            long expected = (long) senders * perSender * clients;
+            long[] latencies = receive(selector, expected);
+            for (Thread t : senderThreads) {
+                t.join();
+            }
+            FlushStats after = server.getFlushStats();
+            for (SocketChannel ch : channels) {
+                ch.close();
+            }
+            selector.close();
+
+            long flushes = after.getFlushes() - before.getFlushes();
+            long envelopes = after.getEnvelopes() - before.getEnvelopes();
+            if (!report) return;
+            Arrays.sort(latencies);
+            console.printf("%10d %12d %12d %14.1f %10.2f %10.2f %10.2f%n", delayMs, envelopes, flushes,
+                    flushes == 0 ? 0.0 : envelopes / (double) flushes,
+                    latencies[latencies.length / 2] / 1e6,
+                    latencies[(int) (latencies.length * 0.99)] / 1e6,
+                    latencies[latencies.length - 1] / 1e6);
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private static void send(SocketChannel channel, int messages) {
+        try {
+            long next = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                long now;
+                while ((now = System.nanoTime()) < next) {
+                    TimeUnit.NANOSECONDS.sleep(Math.min(next - now, 200_000));
+                }
+                next += TimeUnit.MICROSECONDS.toNanos(SEND_INTERVAL_MICROS);
+                byte[] msg = ("{\"type\":\"new\",\"groupId\":" + GROUP_ID + ",\"sentAt\":" + System.nanoTime() + "}\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                ByteBuffer out = ByteBuffer.wrap(msg);
+                // The channel is non-blocking (registered for reads): retry until written
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Sender failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Read every client until expected lines arrived; returns each line's latency
+     */
+    private static long[] receive(Selector selector, long expected) throws IOException {
+        long[] latencies = new long[(int) expected];
+        int received = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        while (received < expected) {
+            if (selector.select(10_000) == 0) {
+                throw new IOException("Timed out: only " + received + "/" + expected + " deliveries");
+            }
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                buffer.clear();
+                int read = ((SocketChannel) key.channel()).read(buffer);
+                if (read <= 0) continue;
+                long now = System.nanoTime();
+                StringBuilder partial = (StringBuilder) key.attachment();
+                partial.append(new String(buffer.array(), 0, read, StandardCharsets.UTF_8));
+                int end;
+                while ((end = partial.indexOf("\n")) >= 0) {
+                    String line = partial.substring(0, end);
+                    partial.delete(0, end + 1);
+                    int at = line.indexOf("\"sentAt\":");
+                    if (at < 0 || received >= latencies.length) continue;
+                    int from = at + "\"sentAt\":".length();
+                    int to = from;
+                    while (to < line.length() && (Character.isDigit(line.charAt(to)) || line.charAt(to) == '-')) to++;
+                    latencies[received++] = now - Long.parseLong(line.substring(from, to));
+                }
+            }
+        }
+        return latencies;
+    }
+}